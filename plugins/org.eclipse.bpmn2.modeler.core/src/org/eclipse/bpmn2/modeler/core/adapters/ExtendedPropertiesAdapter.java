@@ -16,7 +16,7 @@ package org.eclipse.bpmn2.modeler.core.adapters;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.bpmn2.ExtensionAttributeValue;
 import org.eclipse.bpmn2.modeler.core.ToolTipProvider;
@@ -110,10 +110,52 @@ public class ExtendedPropertiesAdapter<T extends EObject> extends ObjectProperty
 	 * The map of EStructuralFeatures that need {@code FeatureDescriptor}
 	 * provider classes.
 	 */
-	private Hashtable<
+	private ConcurrentHashMap<
 		EStructuralFeature, // feature type
-		Hashtable<String,Object>> // property key and value
-			featureProperties = new Hashtable<EStructuralFeature, Hashtable<String,Object>>();
+		FeatureProperties> // property keys and values
+			featureProperties = new ConcurrentHashMap<EStructuralFeature, FeatureProperties>();
+	
+	/**
+	 * The features in {@code featureProperties} by name, for
+	 * {@code getFeature(String)}.
+	 */
+	private ConcurrentHashMap<String, EStructuralFeature> featureNames = new ConcurrentHashMap<String, EStructuralFeature>();
+	
+	/**
+	 * True if this adapter has added itself to its target's adapter list and
+	 * is still there.
+	 */
+	private boolean attached;
+	
+	/**
+	 * The Feature Properties for one feature. The Feature Descriptor is looked
+	 * up far more often than any other Feature Property, so it is kept in a
+	 * field of its own instead of in the property table.
+	 */
+	private static class FeatureProperties {
+		volatile Object descriptor;
+		private Hashtable<String,Object> properties;
+		
+		Object get(String key) {
+			if (FEATURE_DESCRIPTOR.equals(key))
+				return descriptor;
+			synchronized (this) {
+				return properties==null ? null : properties.get(key);
+			}
+		}
+		
+		void put(String key, Object value) {
+			if (FEATURE_DESCRIPTOR.equals(key)) {
+				descriptor = value;
+				return;
+			}
+			synchronized (this) {
+				if (properties==null)
+					properties = new Hashtable<String,Object>();
+				properties.put(key, value);
+			}
+		}
+	}
 	
 	/**
 	 * The Adapter Factory that was used to construct this
@@ -163,13 +205,16 @@ public class ExtendedPropertiesAdapter<T extends EObject> extends ObjectProperty
 			// the given feature. The "best" means the adapter will have defined a FeatureDescriptor
 			// for the given feature.
 			EObject eObject = (EObject) object;
+			adapter = getAttachedAdapter(eObject, feature);
 			ExtendedPropertiesAdapter genericAdapter = null;
-			for (Adapter a : eObject.eAdapters()) {
-				if (a instanceof ExtendedPropertiesAdapter && ((ExtendedPropertiesAdapter)a).canAdapt(eObject, feature)) {
-					if (a.getClass() == ExtendedPropertiesAdapter.class)
-						genericAdapter = (ExtendedPropertiesAdapter) a;
-					else
-						adapter = (ExtendedPropertiesAdapter) a;
+			if (adapter==null) {
+				for (Adapter a : eObject.eAdapters()) {
+					if (a instanceof ExtendedPropertiesAdapter && ((ExtendedPropertiesAdapter)a).canAdapt(eObject, feature)) {
+						if (a.getClass() == ExtendedPropertiesAdapter.class)
+							genericAdapter = (ExtendedPropertiesAdapter) a;
+						else
+							adapter = (ExtendedPropertiesAdapter) a;
+					}
 				}
 			}
 			// if no "best" adapter is found, use the generic adapter if one has been created for this EObject
@@ -205,6 +250,33 @@ public class ExtendedPropertiesAdapter<T extends EObject> extends ObjectProperty
 		return adapter;
 	}
 
+	/**
+	 * Return the adapter that added itself to the given object if it is the
+	 * "best" one for the feature. An adapter only adds itself to an object
+	 * that has no other {@code ExtendedPropertiesAdapter}, so it is the first
+	 * one in the object's adapter list; any that follow it were added because
+	 * it did not have a FeatureDescriptor for some other feature.
+	 * 
+	 * @param object the adapted object
+	 * @param feature a feature of the given object, or null
+	 * @return the attached adapter if it is not a generic one and it can adapt
+	 *         the feature, otherwise null
+	 */
+	@SuppressWarnings("rawtypes")
+	private static ExtendedPropertiesAdapter getAttachedAdapter(EObject object, EStructuralFeature feature) {
+		for (Adapter a : object.eAdapters()) {
+			if (a instanceof ExtendedPropertiesAdapter) {
+				ExtendedPropertiesAdapter adapter = (ExtendedPropertiesAdapter) a;
+				if (adapter.attached && adapter.getTarget()==object &&
+						adapter.getClass() != ExtendedPropertiesAdapter.class &&
+						adapter.canAdapt(object, feature))
+					return adapter;
+				return null;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Dummy objects are constructed when needed for an
 	 * {@code ExtendedPropertiesAdapter}. The adapter factory (@see
@@ -330,14 +402,30 @@ public class ExtendedPropertiesAdapter<T extends EObject> extends ObjectProperty
 	 * @param fd the Feature Descriptor instance
 	 */
 	public void setFeatureDescriptor(EStructuralFeature feature, FeatureDescriptor<T> fd) {
-		Hashtable<String,Object> props = featureProperties.get(feature);
-		if (props==null) {
-			props = new Hashtable<String,Object>();
-			featureProperties.put(feature,props);
-		}
+		FeatureProperties props = getFeatureProperties(feature);
 		fd.setOwner(this);
 		props.put(FEATURE_DESCRIPTOR, fd);
 	}
+	
+	/**
+	 * Returns the Feature Properties for the given feature, creating them if
+	 * necessary.
+	 * 
+	 * @param feature an EStructuralFeature
+	 * @return the Feature Properties
+	 */
+	private FeatureProperties getFeatureProperties(EStructuralFeature feature) {
+		FeatureProperties props = featureProperties.get(feature);
+		if (props==null) {
+			props = new FeatureProperties();
+			FeatureProperties existing = featureProperties.putIfAbsent(feature, props);
+			if (existing!=null)
+				props = existing;
+			else if (feature.getName()!=null)
+				featureNames.putIfAbsent(feature.getName(), feature);
+		}
+		return props;
+	}
 
 	/**
 	 * Lookup method for the given feature name.
@@ -355,13 +443,9 @@ public class ExtendedPropertiesAdapter<T extends EObject> extends ObjectProperty
 					return adapter.getFeature(name);
 			}
 		}
-		for (Entry<EStructuralFeature, Hashtable<String, Object>> entry : featureProperties.entrySet()) {
-			EStructuralFeature feature = entry.getKey();
-			if (feature.getName().equals(name)) {
-				return feature;
-			}
-		}
-		return null;
+		if (name==null)
+			return null;
+		return featureNames.get(name);
 	}
 
 	/**
@@ -435,12 +519,7 @@ public class ExtendedPropertiesAdapter<T extends EObject> extends ObjectProperty
 	 * @return the property value
 	 */
 	public Object getProperty(EStructuralFeature feature, String key) {
-		Hashtable<String,Object> props = featureProperties.get(feature);
-		if (props==null) {
-			props = new Hashtable<String,Object>();
-			featureProperties.put(feature,props);
-		}
-		return props.get(key);
+		return getFeatureProperties(feature).get(key);
 	}
 
 	/**
@@ -480,18 +559,18 @@ public class ExtendedPropertiesAdapter<T extends EObject> extends ObjectProperty
 	 * @param value the property value
 	 */
 	public void setProperty(EStructuralFeature feature, String key, Object value) {
-		Hashtable<String,Object> props = featureProperties.get(feature);
-		if (props==null) {
-			props = new Hashtable<String,Object>();
-			featureProperties.put(feature,props);
-		}
-		props.put(key, value);
+		getFeatureProperties(feature).put(key, value);
 	}
 
 	/* (non-Javadoc)
 	 * @see org.eclipse.emf.common.notify.impl.AdapterImpl#setTarget(org.eclipse.emf.common.notify.Notifier)
 	 */
 	public void setTarget(Notifier newTarget) {
+		if (attached && newTarget==getTarget()) {
+			// adapt() sets the target every time: nothing to do if this
+			// adapter is already in the target's adapter list
+			return;
+		}
 		super.setTarget(newTarget);
 		if (newTarget instanceof EObject && !(newTarget instanceof EClass)) {
 			EObject object = (EObject)newTarget;
@@ -500,9 +579,18 @@ public class ExtendedPropertiesAdapter<T extends EObject> extends ObjectProperty
 					return;
 			}
 			object.eAdapters().add(this);
+			attached = true;
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see org.eclipse.emf.common.notify.impl.AdapterImpl#unsetTarget(org.eclipse.emf.common.notify.Notifier)
+	 */
+	public void unsetTarget(Notifier oldTarget) {
+		super.unsetTarget(oldTarget);
+		attached = false;
+	}
+
 	/**
 	 * Check if the given object feature can be adapted.
 	 *
@@ -516,7 +604,7 @@ public class ExtendedPropertiesAdapter<T extends EObject> extends ObjectProperty
 				if (feature==null)
 					return true;
 				// only TRUE if this adapter already has a FeatureDescriptor for this feature 
-				Hashtable<String,Object> props = featureProperties.get(feature);
+				FeatureProperties props = featureProperties.get(feature);
 				if (props!=null) {
 					return true;
 				}
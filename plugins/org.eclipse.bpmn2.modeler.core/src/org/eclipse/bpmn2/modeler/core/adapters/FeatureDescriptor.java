@@ -14,10 +14,13 @@
 package org.eclipse.bpmn2.modeler.core.adapters;
 
 import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.bpmn2.Definitions;
 import org.eclipse.bpmn2.FormalExpression;
@@ -176,19 +179,46 @@ public class FeatureDescriptor<T extends EObject> extends ObjectDescriptor<T> {
 	public void setChoiceOfValues(Collection values) {
 		if (values!=null) {
 			choiceOfValues = new Hashtable<String,Object>();
+			Map<String,Integer> duplicates = new HashMap<String,Integer>();
 			Iterator iter = values.iterator();
 			while (iter.hasNext()) {
 				Object value = iter.next();
 				if (value!=null) {
 					String text = getChoiceString(value);
-					while (choiceOfValues.containsKey(text))
-						text += " "; //$NON-NLS-1$
-					choiceOfValues.put(text, value);
+					addChoice(choiceOfValues, duplicates, text, value);
 				}
 			}
 		}
 	}
 	
+	/**
+	 * Add a text/value pair to a choice of values list. If the text is already
+	 * in the list, it is made unique by appending the fewest number of spaces.
+	 * The number of spaces last used for each text is remembered, so that many
+	 * values with the same text do not have to probe every shorter candidate.
+	 * 
+	 * @param choices the choice of values list
+	 * @param duplicates the number of spaces last appended to each text
+	 * @param text the text to display for the value
+	 * @param value the value
+	 */
+	private static void addChoice(Hashtable<String,Object> choices, Map<String,Integer> duplicates, String text, Object value) {
+		if (choices.containsKey(text)) {
+			Integer n = duplicates.get(text);
+			int count = n==null ? 1 : n;
+			String unique;
+			do {
+				char[] spaces = new char[count++];
+				Arrays.fill(spaces, ' ');
+				unique = text + new String(spaces);
+			}
+			while (choices.containsKey(unique));
+			duplicates.put(text, count);
+			text = unique;
+		}
+		choices.put(text, value);
+	}
+	
 	/**
 	 * Returns a list of name-value pairs for display in a combo box or selection list.
 	 * The String is what gets displayed in the selection list, while the Object is
@@ -230,6 +260,7 @@ public class FeatureDescriptor<T extends EObject> extends ObjectDescriptor<T> {
 			
 			if (values!=null) {
 				Hashtable<String,Object> choices = new Hashtable<String,Object>();
+				Map<String,Integer> duplicates = new HashMap<String,Integer>();
 				Iterator iter = values.iterator();
 				while (iter.hasNext()) {
 					Object value = iter.next();
@@ -237,9 +268,7 @@ public class FeatureDescriptor<T extends EObject> extends ObjectDescriptor<T> {
 						String text = getChoiceString(value);
 						if (text==null)
 							text = ""; //$NON-NLS-1$
-						while (choices.containsKey(text))
-							text += " "; //$NON-NLS-1$
-						choices.put(text, value);
+						addChoice(choices, duplicates, text, value);
 					}
 				}
 				return choices;
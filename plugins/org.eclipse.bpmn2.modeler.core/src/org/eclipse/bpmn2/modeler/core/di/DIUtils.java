@@ -34,8 +34,10 @@ import org.eclipse.bpmn2.di.BPMNLabelStyle;
 import org.eclipse.bpmn2.di.BPMNPlane;
 import org.eclipse.bpmn2.di.BPMNShape;
 import org.eclipse.bpmn2.di.BpmnDiFactory;
+import org.eclipse.bpmn2.di.BpmnDiPackage;
 import org.eclipse.bpmn2.modeler.core.adapters.ExtendedPropertiesAdapter;
 import org.eclipse.bpmn2.modeler.core.adapters.ExtendedPropertiesProvider;
+import org.eclipse.bpmn2.modeler.core.model.ModelIndex;
 import org.eclipse.bpmn2.modeler.core.preferences.Bpmn2Preferences;
 import org.eclipse.bpmn2.modeler.core.preferences.ShapeStyle;
 import org.eclipse.bpmn2.modeler.core.utils.BusinessObjectUtil;
@@ -49,6 +51,7 @@ import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EStructuralFeature.Setting;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.util.EcoreUtil;
@@ -410,6 +413,44 @@ public class DIUtils {
 	}
 
 	public static DiagramElement findPlaneElement(List<DiagramElement> planeElements, BaseElement bpmnElement) {
+		DiagramElementIndex index = getIndex(bpmnElement);
+		if (index!=null && planeElements instanceof Setting &&
+				((Setting)planeElements).getEObject() instanceof BPMNPlane) {
+			// the list is the contents of a BPMNPlane: the DiagramElement
+			// must be contained in that plane, or in one of its nested planes
+			EObject plane = ((Setting)planeElements).getEObject();
+			List<DiagramElement> matches = new ArrayList<DiagramElement>();
+			for (DiagramElement de : index.getDiagramElements(bpmnElement)) {
+				if (de instanceof BPMNShape || de instanceof BPMNEdge) {
+					for (EObject c = de.eContainer(); c instanceof BPMNPlane; c = c.eContainer()) {
+						if (c==plane) {
+							matches.add(de);
+							break;
+						}
+					}
+				}
+			}
+			if (matches.isEmpty())
+				return null;
+			if (!hasNestedPlane((BPMNPlane) plane)) {
+				// all matches are in the list itself: return the first one
+				DiagramElement first = matches.get(0);
+				if (matches.size()>1) {
+					int firstIndex = planeElements.indexOf(first);
+					for (DiagramElement de : matches) {
+						int i = planeElements.indexOf(de);
+						if (i<firstIndex) {
+							first = de;
+							firstIndex = i;
+						}
+					}
+				}
+				return first;
+			}
+			// Otherwise the search below returns the match in the first
+			// nested plane if there is no match before it; this is rare
+			// enough to not be worth emulating with the index.
+		}
 		for (DiagramElement de : planeElements) {
 			if (de instanceof BPMNShape) {
 				if (bpmnElement == ((BPMNShape)de).getBpmnElement())
@@ -426,6 +467,24 @@ public class DIUtils {
 		return null;
 	}
 
+	/**
+	 * Check if the given BPMNPlane contains other BPMNPlanes.
+	 * 
+	 * @param plane
+	 * @return true if the plane contains nested planes, or if this can not be
+	 *         determined from the plane's model index.
+	 */
+	private static boolean hasNestedPlane(BPMNPlane plane) {
+		ModelIndex index = ModelIndex.getIndex(plane.eResource());
+		if (index==null)
+			return true;
+		for (EObject o : index.getObjects(BpmnDiPackage.eINSTANCE.getBPMNPlane())) {
+			if (o.eContainer()==plane)
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Return the Graphiti Diagram for the given BPMNDiagram. If one does not exist, create it.
 	 * 
@@ -745,6 +804,9 @@ public class DIUtils {
 	public static BPMNShape findBPMNShape(BaseElement baseElement) {
 		Definitions definitions = ModelUtil.getDefinitions(baseElement);
 		if (definitions!=null) {
+			DiagramElementIndex index = getIndex(baseElement);
+			if (index!=null)
+				return findIndexedElement(index, definitions, baseElement, BPMNShape.class);
 			for (BPMNDiagram d : definitions.getDiagrams()) {
 				BPMNShape bpmnShape = findBPMNShape(d, baseElement);
 				if (bpmnShape!=null)
@@ -755,6 +817,9 @@ public class DIUtils {
 	}
 	
 	public static BPMNShape findBPMNShape(BPMNDiagram bpmnDiagram, BaseElement baseElement) {
+		DiagramElementIndex index = getIndex(baseElement);
+		if (index!=null)
+			return findIndexedElement(index, bpmnDiagram, baseElement, BPMNShape.class);
 		for (DiagramElement de : bpmnDiagram.getPlane().getPlaneElement()) {
 			if (de instanceof BPMNShape) {
 				if (((BPMNShape)de).getBpmnElement() == baseElement)
@@ -767,6 +832,9 @@ public class DIUtils {
 	public static BPMNEdge findBPMNEdge(EObject baseElement) {
 		Definitions definitions = ModelUtil.getDefinitions(baseElement);
 		if (definitions!=null) {
+			DiagramElementIndex index = getIndex(baseElement);
+			if (index!=null)
+				return findIndexedElement(index, definitions, baseElement, BPMNEdge.class);
 			for (BPMNDiagram d : definitions.getDiagrams()) {
 				BPMNEdge bpmnEdge = findBPMNEdge(d, baseElement);
 				if (bpmnEdge!=null)
@@ -777,6 +845,9 @@ public class DIUtils {
 	}
 	
 	public static BPMNEdge findBPMNEdge(BPMNDiagram bpmnDiagram, EObject baseElement) {
+		DiagramElementIndex index = getIndex(baseElement);
+		if (index!=null)
+			return findIndexedElement(index, bpmnDiagram, baseElement, BPMNEdge.class);
 		for (DiagramElement de : bpmnDiagram.getPlane().getPlaneElement()) {
 			if (de instanceof BPMNEdge) {
 				if (((BPMNEdge)de).getBpmnElement() == baseElement)
@@ -789,6 +860,9 @@ public class DIUtils {
 	public static DiagramElement findDiagramElement(EObject object) {
 		Definitions definitions = ModelUtil.getDefinitions(object);
 		if (definitions!=null) {
+			DiagramElementIndex index = getIndex(object);
+			if (index!=null)
+				return findIndexedElement(index, definitions, object, DiagramElement.class);
 			for (BPMNDiagram d : definitions.getDiagrams()) {
 				DiagramElement de = findDiagramElement(d, object);
 				if (de!=null)
@@ -799,6 +873,9 @@ public class DIUtils {
 	}
 	
 	public static DiagramElement findDiagramElement(BPMNDiagram bpmnDiagram, EObject object) {
+		DiagramElementIndex index = getIndex(object);
+		if (index!=null)
+			return findIndexedElement(index, bpmnDiagram, object, DiagramElement.class);
 		for (DiagramElement de : bpmnDiagram.getPlane().getPlaneElement()) {
 			EStructuralFeature f = de.eClass().getEStructuralFeature("bpmnElement"); //$NON-NLS-1$
 			if (f!=null) {
@@ -809,6 +886,75 @@ public class DIUtils {
 		return null;
 	}
 	
+	/**
+	 * Returns the DiagramElement index for the Resource that contains the
+	 * given object.
+	 * 
+	 * @param object
+	 * @return the index, or null if the object is not contained in a diagram Resource
+	 */
+	private static DiagramElementIndex getIndex(EObject object) {
+		Resource resource = object==null ? null : object.eResource();
+		return DiagramElementIndex.getIndex(resource);
+	}
+
+	/**
+	 * Returns the first DiagramElement of the given type that refers to the
+	 * given object and is a top-level element of the given BPMNDiagram's plane.
+	 * 
+	 * @param index
+	 * @param bpmnDiagram
+	 * @param object
+	 * @param type
+	 * @return
+	 */
+	private static <T extends DiagramElement> T findIndexedElement(DiagramElementIndex index, BPMNDiagram bpmnDiagram, EObject object, Class<T> type) {
+		BPMNPlane plane = bpmnDiagram.getPlane();
+		for (DiagramElement de : index.getDiagramElements(object)) {
+			if (type.isInstance(de) && plane!=null && de.eContainer()==plane)
+				return type.cast(de);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the DiagramElement of the given type that refers to the given
+	 * object and is a top-level plane element of one of the BPMNDiagrams in
+	 * the given Definitions. If there is more than one, the one in the first
+	 * BPMNDiagram is returned.
+	 * 
+	 * @param index
+	 * @param definitions
+	 * @param object
+	 * @param type
+	 * @return
+	 */
+	private static <T extends DiagramElement> T findIndexedElement(DiagramElementIndex index, Definitions definitions, EObject object, Class<T> type) {
+		T result = null;
+		int resultIndex = Integer.MAX_VALUE;
+		for (DiagramElement de : index.getDiagramElements(object)) {
+			if (!type.isInstance(de) || !(de.eContainer() instanceof BPMNPlane))
+				continue;
+			EObject d = de.eContainer().eContainer();
+			if (d instanceof BPMNDiagram && d.eContainer()==definitions) {
+				if (result==null) {
+					result = type.cast(de);
+				}
+				else {
+					// rare: the object appears in more than one BPMNDiagram
+					if (resultIndex==Integer.MAX_VALUE)
+						resultIndex = definitions.getDiagrams().indexOf(getBPMNDiagram(result));
+					int i = definitions.getDiagrams().indexOf(d);
+					if (i<resultIndex) {
+						result = type.cast(de);
+						resultIndex = i;
+					}
+				}
+			}
+		}
+		return result;
+	}
+	
 	/**
 	 * Returns the BPMNDiagram element that owns the given DiagramElement.
 	 * 
@@ -909,6 +1055,11 @@ public class DIUtils {
 	public static List<PictogramElement> getPictogramElements(ResourceSet resourceSet, BaseElement baseElement) {
 		List<PictogramElement> elements = new ArrayList<PictogramElement>();
 		for (Resource r : resourceSet.getResources()) {
+			DiagramElementIndex index = DiagramElementIndex.getIndex(r);
+			if (index!=null) {
+				elements.addAll(index.getPictogramElements(baseElement));
+				continue;
+			}
 			for (EObject o : r.getContents()) {
 				if (o instanceof Diagram) {
 					Diagram diagram = (Diagram)o;
@@ -950,7 +1101,7 @@ public class DIUtils {
 		DiagramEditor diagramEditor = ModelUtil.getDiagramEditor(baseElement);
 		if (diagramEditor!=null) {
 			Diagram diagram = diagramEditor.getDiagramTypeProvider().getDiagram();
-			for (PictogramElement pe : Graphiti.getLinkService().getPictogramElements(diagram, baseElement)) {
+			for (PictogramElement pe : getPictogramElements(diagram, baseElement)) {
 				if (pe instanceof ContainerShape && BusinessObjectUtil.getFirstElementOfType(pe, BPMNShape.class)!=null) {
 					return (ContainerShape) pe;
 				}
@@ -990,6 +1141,17 @@ public class DIUtils {
 		DiagramEditor diagramEditor = ModelUtil.getDiagramEditor(baseElement);
 		if (diagramEditor!=null) {
 			Diagram diagram = diagramEditor.getDiagramTypeProvider().getDiagram();
+			DiagramElementIndex index = getIndex(diagram);
+			if (index!=null) {
+				for (PictogramElement pe : getPictogramElements(diagram, baseElement)) {
+					if (pe instanceof Connection &&
+							BusinessObjectUtil.getFirstBaseElement(pe) == baseElement &&
+							BusinessObjectUtil.getFirstElementOfType(pe, BPMNEdge.class)!=null) {
+						return (Connection) pe;
+					}
+				}
+				return null;
+			}
 			for (Connection c : diagram.getConnections()) {
 				if ( BusinessObjectUtil.getFirstBaseElement(c) == baseElement &&
 						BusinessObjectUtil.getFirstElementOfType(c, BPMNEdge.class)!=null) {
@@ -1000,6 +1162,27 @@ public class DIUtils {
 		return null;
 	}
 
+	/**
+	 * Returns the PictogramElements in the given Diagram that reference the
+	 * given BaseElement.
+	 * 
+	 * @param diagram
+	 * @param baseElement
+	 * @return
+	 */
+	private static List<PictogramElement> getPictogramElements(Diagram diagram, BaseElement baseElement) {
+		DiagramElementIndex index = getIndex(diagram);
+		if (index!=null) {
+			List<PictogramElement> elements = new ArrayList<PictogramElement>();
+			for (PictogramElement pe : index.getPictogramElements(baseElement)) {
+				if (Graphiti.getPeService().getDiagramForPictogramElement(pe)==diagram)
+					elements.add(pe);
+			}
+			return elements;
+		}
+		return Graphiti.getLinkService().getPictogramElements(diagram, baseElement);
+	}
+
 	public static Diagram getDiagram(BaseElement baseElement) {
 		Resource res = ExtendedPropertiesAdapter.getResource(baseElement);
 		List<PictogramElement> pes = getPictogramElements(res.getResourceSet(), baseElement);
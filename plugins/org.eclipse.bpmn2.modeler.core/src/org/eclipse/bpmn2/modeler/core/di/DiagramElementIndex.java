@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.di;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.di.BPMNEdge;
+import org.eclipse.bpmn2.di.BPMNPlane;
+import org.eclipse.bpmn2.di.BPMNShape;
+import org.eclipse.bpmn2.di.BpmnDiPackage;
+import org.eclipse.bpmn2.modeler.core.model.ModelIndex;
+import org.eclipse.dd.di.DiagramElement;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+import org.eclipse.graphiti.mm.pictograms.PictogramElement;
+import org.eclipse.graphiti.mm.pictograms.PictogramLink;
+import org.eclipse.graphiti.mm.pictograms.PictogramsPackage;
+
+/**
+ * A Resource-scoped index that maps BPMN2 model elements to the BPMN DI
+ * elements (BPMNShape, BPMNEdge and BPMNPlane) and the Graphiti
+ * PictogramElements that refer to them. This is the reverse of the
+ * "bpmnElement" reference of DiagramElements and of the business objects list
+ * of PictogramLinks, so that the DIUtils lookups do not have to scan every
+ * BPMNPlane or every Graphiti Diagram.
+ * <p>
+ * The index is a part of the Resource's {@link ModelIndex} and is kept current
+ * through EMF notifications: DiagramElements and PictogramLinks are added to
+ * or removed from the index as they are added to or removed from the
+ * Resource, and are indexed again whenever the references they hold are
+ * changed. The editor that owns the Resources removes the index when it is
+ * disposed.
+ */
+public class DiagramElementIndex extends ModelIndex.Part {
+
+	/** Model element to DiagramElements that refer to it, in the order they were indexed. */
+	protected Map<EObject, List<DiagramElement>> diagramElements = new HashMap<EObject, List<DiagramElement>>();
+	/** Model element to PictogramLinks that refer to it. */
+	protected Map<EObject, List<PictogramLink>> pictogramLinks = new HashMap<EObject, List<PictogramLink>>();
+	/** The model element each DiagramElement was indexed under. */
+	protected Map<DiagramElement, EObject> indexedDiagramElements = new IdentityHashMap<DiagramElement, EObject>();
+	/** The PictogramElement and business objects each PictogramLink was indexed with. */
+	protected Map<PictogramLink, IndexedLink> indexedLinks = new IdentityHashMap<PictogramLink, IndexedLink>();
+
+	private static class IndexedLink {
+		PictogramElement pictogramElement;
+		List<EObject> businessObjects;
+	}
+
+	/**
+	 * Return the index for the given Resource, installing the Resource's
+	 * {@link ModelIndex} if necessary. Installing the index visits every
+	 * object in the Resource once; all subsequent lookups are proportional to
+	 * the size of the result.
+	 *
+	 * @param resource the Resource
+	 * @return the index or null if the resource is null or is not a diagram
+	 *         Resource
+	 */
+	public static DiagramElementIndex getIndex(Resource resource) {
+		ModelIndex modelIndex = ModelIndex.getIndex(resource);
+		return modelIndex==null ? null : modelIndex.getDiagramElementIndex();
+	}
+
+	/**
+	 * Remove the Resource's {@link ModelIndex}, and with it this index, if one
+	 * was installed.
+	 *
+	 * @param resource the Resource
+	 */
+	public static void removeIndex(Resource resource) {
+		ModelIndex.removeIndex(resource);
+	}
+
+	/**
+	 * Create the index part of the given ModelIndex. Clients should use
+	 * {@link #getIndex(Resource)} instead.
+	 *
+	 * @param modelIndex the ModelIndex
+	 */
+	public DiagramElementIndex(ModelIndex modelIndex) {
+		super(modelIndex);
+	}
+
+	/**
+	 * Return all DiagramElements in the Resource whose "bpmnElement" refers
+	 * to the given object.
+	 *
+	 * @param bpmnElement the BPMN2 model element
+	 * @return a list of DiagramElements, which may be empty but never null
+	 */
+	public List<DiagramElement> getDiagramElements(EObject bpmnElement) {
+		synchronized (modelIndex) {
+			List<DiagramElement> list = diagramElements.get(bpmnElement);
+			if (list==null || list.isEmpty())
+				return Collections.emptyList();
+			return new ArrayList<DiagramElement>(list);
+		}
+	}
+
+	/**
+	 * Return all PictogramElements in the Resource that are linked to the
+	 * given business object. The PictogramElements are returned in the order
+	 * of the Diagrams in the Resource and, within a Diagram, in the order of
+	 * its PictogramLinks, just like
+	 * {@link org.eclipse.graphiti.services.ILinkService#getPictogramElements(Diagram, EObject)}.
+	 *
+	 * @param businessObject the business object
+	 * @return a list of PictogramElements, which may be empty but never null
+	 */
+	public List<PictogramElement> getPictogramElements(EObject businessObject) {
+		synchronized (modelIndex) {
+			List<PictogramLink> list = pictogramLinks.get(businessObject);
+			if (list==null || list.isEmpty())
+				return Collections.emptyList();
+			List<PictogramLink> links = new ArrayList<PictogramLink>(list);
+			if (links.size()>1)
+				Collections.sort(links, LINK_ORDER);
+			List<PictogramElement> elements = new ArrayList<PictogramElement>(links.size());
+			for (PictogramLink link : links)
+				elements.add(indexedLinks.get(link).pictogramElement);
+			return elements;
+		}
+	}
+
+	/**
+	 * Orders PictogramLinks by the position of their Diagram in the Resource
+	 * and by their position in the Diagram's list of PictogramLinks.
+	 */
+	private static final Comparator<PictogramLink> LINK_ORDER = new Comparator<PictogramLink>() {
+		@Override
+		public int compare(PictogramLink l1, PictogramLink l2) {
+			EObject d1 = l1.eContainer();
+			EObject d2 = l2.eContainer();
+			if (d1!=d2) {
+				Resource r = d1==null ? null : d1.eResource();
+				if (r==null || d2==null)
+					return 0;
+				return r.getContents().indexOf(d1) - r.getContents().indexOf(d2);
+			}
+			if (d1 instanceof Diagram) {
+				List<PictogramLink> links = ((Diagram) d1).getPictogramLinks();
+				return links.indexOf(l1) - links.indexOf(l2);
+			}
+			return 0;
+		}
+	};
+
+	@Override
+	protected void added(EObject object) {
+		if (object instanceof DiagramElement)
+			index((DiagramElement) object);
+		else if (object instanceof PictogramLink)
+			index((PictogramLink) object);
+	}
+
+	@Override
+	protected void removed(EObject object) {
+		if (object instanceof DiagramElement)
+			unindex((DiagramElement) object);
+		else if (object instanceof PictogramLink)
+			unindex((PictogramLink) object);
+	}
+
+	@Override
+	protected void notifyChanged(Notification notification) {
+		Object feature = notification.getFeature();
+		Object notifier = notification.getNotifier();
+		if (notifier instanceof DiagramElement && (
+				feature == BpmnDiPackage.Literals.BPMN_SHAPE__BPMN_ELEMENT ||
+				feature == BpmnDiPackage.Literals.BPMN_EDGE__BPMN_ELEMENT ||
+				feature == BpmnDiPackage.Literals.BPMN_PLANE__BPMN_ELEMENT)) {
+			DiagramElement de = (DiagramElement) notifier;
+			unindex(de);
+			index(de);
+		}
+		else if (notifier instanceof PictogramLink && (
+				feature == PictogramsPackage.Literals.PICTOGRAM_LINK__BUSINESS_OBJECTS ||
+				feature == PictogramsPackage.Literals.PICTOGRAM_LINK__PICTOGRAM_ELEMENT)) {
+			PictogramLink link = (PictogramLink) notifier;
+			unindex(link);
+			index(link);
+		}
+	}
+
+	@Override
+	protected void clear() {
+		diagramElements.clear();
+		pictogramLinks.clear();
+		indexedDiagramElements.clear();
+		indexedLinks.clear();
+	}
+
+	private static EObject getBpmnElement(DiagramElement de) {
+		if (de instanceof BPMNShape)
+			return ((BPMNShape) de).getBpmnElement();
+		if (de instanceof BPMNEdge)
+			return ((BPMNEdge) de).getBpmnElement();
+		if (de instanceof BPMNPlane)
+			return ((BPMNPlane) de).getBpmnElement();
+		return null;
+	}
+
+	private void index(DiagramElement de) {
+		EObject bpmnElement = getBpmnElement(de);
+		if (bpmnElement!=null) {
+			add(diagramElements, bpmnElement, de);
+			indexedDiagramElements.put(de, bpmnElement);
+		}
+	}
+
+	private void unindex(DiagramElement de) {
+		EObject bpmnElement = indexedDiagramElements.remove(de);
+		if (bpmnElement!=null)
+			remove(diagramElements, bpmnElement, de);
+	}
+
+	private void index(PictogramLink link) {
+		PictogramElement pe = link.getPictogramElement();
+		if (pe!=null && !link.getBusinessObjects().isEmpty()) {
+			IndexedLink il = new IndexedLink();
+			il.pictogramElement = pe;
+			il.businessObjects = new ArrayList<EObject>(link.getBusinessObjects());
+			for (EObject bo : il.businessObjects)
+				add(pictogramLinks, bo, link);
+			indexedLinks.put(link, il);
+		}
+	}
+
+	private void unindex(PictogramLink link) {
+		IndexedLink il = indexedLinks.remove(link);
+		if (il!=null) {
+			for (EObject bo : il.businessObjects)
+				remove(pictogramLinks, bo, link);
+		}
+	}
+
+	private static <T> void add(Map<EObject, List<T>> map, EObject key, T value) {
+		List<T> list = map.get(key);
+		if (list==null) {
+			list = new ArrayList<T>(1);
+			map.put(key, list);
+		}
+		if (!list.contains(value))
+			list.add(value);
+	}
+
+	private static <T> void remove(Map<EObject, List<T>> map, EObject key, T value) {
+		List<T> list = map.get(key);
+		if (list!=null) {
+			list.remove(value);
+			if (list.isEmpty())
+				map.remove(key);
+		}
+	}
+}
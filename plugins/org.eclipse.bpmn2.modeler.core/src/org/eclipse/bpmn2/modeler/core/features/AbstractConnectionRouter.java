@@ -71,13 +71,7 @@ public abstract class AbstractConnectionRouter implements IConnectionRouter {
 	 */
 	public static String addRoutingInfo(Connection connection, String info) {
 		Assert.isTrue(info!=null && !info.isEmpty());
-		String newInfo = getRoutingInfo(connection);
-		if (!newInfo.isEmpty())
-			newInfo += ","; //$NON-NLS-1$
-		newInfo += info;
-		
-		peService.setPropertyValue(connection, ROUTING_INFO, newInfo);
-		return newInfo;
+		return ConnectionRoutingInfo.getRoutingInfo(connection).add(info);
 	}
 	
 	/**
@@ -86,7 +80,7 @@ public abstract class AbstractConnectionRouter implements IConnectionRouter {
 	 * @param connection the connection
 	 */
 	public static void removeRoutingInfo(Connection connection) {
-		removeRoutingInfo(connection, getRoutingInfo(connection));
+		ConnectionRoutingInfo.getRoutingInfo(connection).clear();
 	}
 	
 	/**
@@ -97,35 +91,7 @@ public abstract class AbstractConnectionRouter implements IConnectionRouter {
 	 * @return the string
 	 */
 	public static String removeRoutingInfo(Connection connection, String info) {
-		String newInfo = null;
-		if (info!=null && !info.isEmpty()) {
-			newInfo = getRoutingInfo(connection);
-			if (newInfo!=null && !newInfo.isEmpty()) {
-				String a[] = newInfo.split(","); //$NON-NLS-1$
-				String b[] = info.split(","); //$NON-NLS-1$
-				for (int i=0; i<a.length; ++i) {
-					for (String sb : b) {
-						if (a[i].startsWith(sb)) {
-							a[i] = null;
-							break;
-						}
-					}
-				}
-				newInfo = ""; //$NON-NLS-1$
-				for (int i=0; i<a.length; ++i) {
-					if (a[i]!=null && !a[i].isEmpty()) {
-						if (!newInfo.isEmpty())
-							newInfo += ","; //$NON-NLS-1$
-						newInfo += a[i];
-					}
-				}
-			}
-		}
-		if (newInfo==null || newInfo.isEmpty())
-			peService.removeProperty(connection, ROUTING_INFO);
-		else
-			peService.setPropertyValue(connection, ROUTING_INFO, newInfo);
-		return newInfo;
+		return ConnectionRoutingInfo.getRoutingInfo(connection).remove(info);
 	}
 	
 	/**
@@ -135,10 +101,7 @@ public abstract class AbstractConnectionRouter implements IConnectionRouter {
 	 * @return the routing info
 	 */
 	public static String getRoutingInfo(Connection connection) {
-		String info = peService.getPropertyValue(connection, ROUTING_INFO);
-		if (info==null || info.isEmpty())
-			return ""; //$NON-NLS-1$
-		return info;
+		return ConnectionRoutingInfo.getRoutingInfo(connection).toString();
 	}
 
 	/**
@@ -150,13 +113,11 @@ public abstract class AbstractConnectionRouter implements IConnectionRouter {
 	 * @return the string
 	 */
 	public static String setRoutingInfoInt(Connection connection, String info, int value) {
-		removeRoutingInfo(connection, info+"="); //$NON-NLS-1$
-		return addRoutingInfo(connection, info+"="+value); //$NON-NLS-1$
+		return ConnectionRoutingInfo.getRoutingInfo(connection).setValue(info, Integer.toString(value));
 	}
 
 	public static String setRoutingInfo(Connection connection, String info, String value) {
-		removeRoutingInfo(connection, info+"="); //$NON-NLS-1$
-		return addRoutingInfo(connection, info+"="+value); //$NON-NLS-1$
+		return ConnectionRoutingInfo.getRoutingInfo(connection).setValue(info, value);
 	}
 
 	/**
@@ -167,35 +128,11 @@ public abstract class AbstractConnectionRouter implements IConnectionRouter {
 	 * @return the routing info
 	 */
 	public static int getRoutingInfoInt(Connection connection, String info) {
-		String oldInfo = getRoutingInfo(connection);
-		String a[] = oldInfo.split(","); //$NON-NLS-1$
-		for (String s : a) {
-			if (s.startsWith(info+"=")) { //$NON-NLS-1$
-				try {
-					String b[] = s.split("="); //$NON-NLS-1$
-					return Integer.parseInt(b[1]);
-				}
-				catch (Exception e) {
-				}
-			}
-		}
-		return -1;
+		return ConnectionRoutingInfo.getRoutingInfo(connection).getIntValue(info);
 	}
 
 	public static String getRoutingInfo(Connection connection, String info) {
-		String oldInfo = getRoutingInfo(connection);
-		String a[] = oldInfo.split(","); //$NON-NLS-1$
-		for (String s : a) {
-			if (s.startsWith(info+"=")) { //$NON-NLS-1$
-				try {
-					String b[] = s.split("="); //$NON-NLS-1$
-					return b[1];
-				}
-				catch (Exception e) {
-				}
-			}
-		}
-		return null;
+		return ConnectionRoutingInfo.getRoutingInfo(connection).getValue(info);
 	}
 
 	/**
@@ -218,6 +155,6 @@ public abstract class AbstractConnectionRouter implements IConnectionRouter {
 	 * @return true, if successful
 	 */
 	public static boolean forceRouting(Connection connection) {
-		return getRoutingInfo(connection).contains(ROUTING_INFO_FORCE);
+		return ConnectionRoutingInfo.getRoutingInfo(connection).contains(ROUTING_INFO_FORCE);
 	}
 }
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.features;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.graphiti.mm.pictograms.Connection;
+import org.eclipse.graphiti.services.Graphiti;
+import org.eclipse.graphiti.services.IPeService;
+
+/**
+ * The parsed form of the routing info of a Connection. Routing info is stored
+ * in the Connection's {@link IConnectionRouter#ROUTING_INFO} property as a
+ * comma-separated list of entries, each of which is either a flag (e.g.
+ * "force") or a "key=value" pair (e.g. "moved.bendpoint=2").
+ * <p>
+ * This adapter is attached to the Connection and holds the entries in a map so
+ * that the property string does not have to be split every time it is
+ * queried. Changes are written back to the property immediately, because
+ * routing info is set by Features whose transactions may be undone; the
+ * property value is checked on every access, and the entries are parsed again
+ * only if the property was changed by something other than this adapter (e.g.
+ * an undo).
+ */
+public class ConnectionRoutingInfo extends AdapterImpl {
+
+	protected static final IPeService peService = Graphiti.getPeService();
+
+	/** The routing info entries, in the order they were added. */
+	private Map<String, String> entries = new LinkedHashMap<String, String>();
+	/** The property value from which the entries were parsed. */
+	private String encoded = ""; //$NON-NLS-1$
+
+	/**
+	 * Return the routing info for the given Connection, creating and attaching
+	 * it if necessary.
+	 *
+	 * @param connection the Connection
+	 * @return the routing info
+	 */
+	public static ConnectionRoutingInfo getRoutingInfo(Connection connection) {
+		ConnectionRoutingInfo info = (ConnectionRoutingInfo) EcoreUtil.getExistingAdapter(connection, ConnectionRoutingInfo.class);
+		if (info==null) {
+			info = new ConnectionRoutingInfo();
+			connection.eAdapters().add(info);
+		}
+		return info;
+	}
+
+	private ConnectionRoutingInfo() {
+	}
+
+	@Override
+	public boolean isAdapterForType(Object type) {
+		return type == ConnectionRoutingInfo.class;
+	}
+
+	/**
+	 * Check if the given flag or key is present.
+	 *
+	 * @param key the flag or key
+	 * @return true if present
+	 */
+	public boolean contains(String key) {
+		sync();
+		return entries.containsKey(key);
+	}
+
+	/**
+	 * Return the value of the given key.
+	 *
+	 * @param key the key
+	 * @return the value or null if the key is not present or is a flag
+	 */
+	public String getValue(String key) {
+		sync();
+		return entries.get(key);
+	}
+
+	/**
+	 * Return the integer value of the given key.
+	 *
+	 * @param key the key
+	 * @return the value or -1 if the key is not present or is not an integer
+	 */
+	public int getIntValue(String key) {
+		String value = getValue(key);
+		if (value!=null) {
+			try {
+				return Integer.parseInt(value);
+			}
+			catch (NumberFormatException e) {
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Set the value of the given key, replacing any existing value.
+	 *
+	 * @param key the key
+	 * @param value the value, or null to set a flag
+	 * @return the encoded routing info
+	 */
+	public String setValue(String key, String value) {
+		sync();
+		entries.remove(key);
+		entries.put(key, value);
+		return store();
+	}
+
+	/**
+	 * Add one or more comma-separated entries in the encoded format.
+	 *
+	 * @param info the entries to add
+	 * @return the encoded routing info
+	 */
+	public String add(String info) {
+		sync();
+		parse(info, entries);
+		return store();
+	}
+
+	/**
+	 * Remove all entries whose encoded form starts with any of the given
+	 * comma-separated prefixes.
+	 *
+	 * @param prefixes the prefixes
+	 * @return the encoded routing info
+	 */
+	public String remove(String prefixes) {
+		sync();
+		if (prefixes!=null && !prefixes.isEmpty()) {
+			String p[] = prefixes.split(","); //$NON-NLS-1$
+			for (Iterator<Entry<String, String>> iter = entries.entrySet().iterator(); iter.hasNext();) {
+				Entry<String, String> e = iter.next();
+				String entry = encode(e);
+				for (String prefix : p) {
+					if (entry.startsWith(prefix)) {
+						iter.remove();
+						break;
+					}
+				}
+			}
+		}
+		return store();
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		sync();
+		entries.clear();
+		store();
+	}
+
+	@Override
+	public String toString() {
+		sync();
+		return encoded;
+	}
+
+	private Connection getConnection() {
+		return (Connection) getTarget();
+	}
+
+	/**
+	 * Make sure the entries reflect the current property value.
+	 */
+	private void sync() {
+		String value = peService.getPropertyValue(getConnection(), IConnectionRouter.ROUTING_INFO);
+		if (value==null)
+			value = ""; //$NON-NLS-1$
+		if (!value.equals(encoded)) {
+			entries.clear();
+			parse(value, entries);
+			encoded = value;
+		}
+	}
+
+	/**
+	 * Write the entries back to the Connection property.
+	 *
+	 * @return the encoded routing info
+	 */
+	private String store() {
+		StringBuilder sb = new StringBuilder();
+		for (Entry<String, String> e : entries.entrySet()) {
+			if (sb.length()>0)
+				sb.append(","); //$NON-NLS-1$
+			sb.append(encode(e));
+		}
+		String value = sb.toString();
+		if (!value.equals(encoded)) {
+			if (value.isEmpty())
+				peService.removeProperty(getConnection(), IConnectionRouter.ROUTING_INFO);
+			else
+				peService.setPropertyValue(getConnection(), IConnectionRouter.ROUTING_INFO, value);
+			encoded = value;
+		}
+		return value;
+	}
+
+	private static String encode(Entry<String, String> e) {
+		if (e.getValue()==null)
+			return e.getKey();
+		return e.getKey() + "=" + e.getValue(); //$NON-NLS-1$
+	}
+
+	/**
+	 * Parse routing info in the encoded format: a comma-separated list of
+	 * flags and "key=value" pairs. Earlier entries take precedence over later
+	 * entries with the same key.
+	 *
+	 * @param info the encoded routing info
+	 * @param entries the map to which the entries are added
+	 */
+	private static void parse(String info, Map<String, String> entries) {
+		if (info==null || info.isEmpty())
+			return;
+		for (String s : info.split(",")) { //$NON-NLS-1$
+			if (s.isEmpty())
+				continue;
+			int i = s.indexOf('=');
+			String key = i<0 ? s : s.substring(0, i);
+			String value = null;
+			if (i>=0) {
+				value = s.substring(i+1);
+				// the original format only used the part up to the next "="
+				int j = value.indexOf('=');
+				if (j>=0)
+					value = value.substring(0, j);
+			}
+			if (!entries.containsKey(key))
+				entries.put(key, value);
+		}
+	}
+}
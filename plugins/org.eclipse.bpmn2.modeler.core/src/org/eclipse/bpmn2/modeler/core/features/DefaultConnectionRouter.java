@@ -15,18 +15,16 @@ package org.eclipse.bpmn2.modeler.core.features;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-import org.eclipse.bpmn2.BaseElement;
-import org.eclipse.bpmn2.FlowElementsContainer;
-import org.eclipse.bpmn2.Lane;
-import org.eclipse.bpmn2.di.BPMNShape;
 import org.eclipse.bpmn2.modeler.core.utils.AnchorType;
 import org.eclipse.bpmn2.modeler.core.utils.AnchorUtil;
-import org.eclipse.bpmn2.modeler.core.utils.BusinessObjectUtil;
+import org.eclipse.bpmn2.modeler.core.utils.DiagramSpatialIndex;
 import org.eclipse.bpmn2.modeler.core.utils.FeatureSupport;
 import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil;
-import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.bpmn2.modeler.core.utils.ISpatialQuery;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.graphiti.features.IFeatureProvider;
 import org.eclipse.graphiti.features.context.IAddConnectionContext;
@@ -61,6 +59,18 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 	/** The all shapes. */
 	protected List<ContainerShape> allShapes;
 	
+	/** The spatial index of the Diagram's shapes and connections. */
+	protected DiagramSpatialIndex spatialIndex;
+
+	/** An immutable copy of the spatial index, used while routes are evaluated concurrently. */
+	protected DiagramSpatialIndex.Snapshot snapshot;
+
+	/** The containers of the source and target shapes at the time the snapshot was taken. */
+	protected EObject sourceContainer, targetContainer;
+
+	/** Connections that are never counted as crossings, determined when the snapshot was taken. */
+	protected Set<Connection> ignoredCrossings;
+
 	/** The connection. */
 	protected Connection connection = null;
 	
@@ -159,36 +169,96 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 		if (allShapes!=null)
 			return allShapes;
 		allShapes = new ArrayList<ContainerShape>();
-		Diagram diagram = fp.getDiagramTypeProvider().getDiagram();
-		TreeIterator<EObject> iter = diagram.eAllContents();
-		while (iter.hasNext()) {
-			EObject o = iter.next();
-			if (o instanceof ContainerShape) {
-				// this is a potential collision shape
-				ContainerShape shape = (ContainerShape)o;
-				BPMNShape bpmnShape = BusinessObjectUtil.getFirstElementOfType(shape, BPMNShape.class);
-				if (bpmnShape==null)
-					continue;
-//				if (shape==source || shape==target)
-//					continue;
-				// ignore containers (like Lane, SubProcess, etc.) if the source
-				// or target shapes are children of the container's hierarchy
-				if (shape==source.eContainer() || shape==target.eContainer())
-					continue;
-				
-				// ignore some containers altogether
-				BaseElement be = bpmnShape.getBpmnElement();
-				if (be instanceof Lane)
-					continue;
-				// TODO: other criteria here?
-	
+		for (ContainerShape shape : getSpatialIndex().getShapes()) {
+			// this is a potential collision shape
+			if (isCollisionCandidate(shape))
 				allShapes.add(shape);
-			}
 		}
 //		GraphicsUtil.dump("All Shapes", allShapes); //$NON-NLS-1$
 		return allShapes;
 	}
 
+	/**
+	 * Return the spatial index of the shapes and connections on the Diagram.
+	 *
+	 * @return the spatial index
+	 */
+	protected DiagramSpatialIndex getSpatialIndex() {
+		if (spatialIndex==null)
+			spatialIndex = DiagramSpatialIndex.getIndex(fp.getDiagramTypeProvider().getDiagram());
+		return spatialIndex;
+	}
+
+	/**
+	 * Return the geometry used for collision and crossing queries: this is the
+	 * spatial index snapshot if one has been taken, otherwise the live index.
+	 *
+	 * @return the spatial query
+	 */
+	protected ISpatialQuery getGeometry() {
+		if (snapshot!=null)
+			return snapshot;
+		return getSpatialIndex();
+	}
+
+	/**
+	 * Take a snapshot of the Diagram geometry and of all other model state that
+	 * is needed to find collisions and crossings of line segments within the
+	 * given rectangle. Until {@link #releaseSnapshot()} is called, these
+	 * queries do not access the Diagram and may be done from any thread.
+	 * <p>
+	 * This must be called on the thread that owns the Diagram.
+	 *
+	 * @param x1 left edge of the rectangle
+	 * @param y1 top edge of the rectangle
+	 * @param x2 right edge of the rectangle
+	 * @param y2 bottom edge of the rectangle
+	 */
+	protected void takeSnapshot(int x1, int y1, int x2, int y2) {
+		snapshot = getSpatialIndex().getSnapshot();
+		sourceContainer = source.eContainer();
+		targetContainer = target.eContainer();
+		ignoredCrossings = new HashSet<Connection>();
+		List<FixPointAnchor> connectionAnchors = AnchorUtil.getAnchors(connection);
+		for (DiagramSpatialIndex.ConnectionPoints points : snapshot.findConnections(x1, y1, x2, y2)) {
+			if (isIgnoredCrossing(points.connection, connectionAnchors))
+				ignoredCrossings.add(points.connection);
+		}
+	}
+
+	/**
+	 * Discard the snapshot taken by {@link #takeSnapshot(int, int, int, int)}.
+	 */
+	protected void releaseSnapshot() {
+		snapshot = null;
+		sourceContainer = null;
+		targetContainer = null;
+		ignoredCrossings = null;
+	}
+
+	/**
+	 * Check if the given shape, which has already been selected by the spatial
+	 * index as a potential collision shape, should be considered when routing
+	 * the current connection.
+	 *
+	 * @param shape the shape
+	 * @return true if the shape is a potential collision shape
+	 */
+	protected boolean isCollisionCandidate(ContainerShape shape) {
+//		if (shape==source || shape==target)
+//			return false;
+		// ignore containers (like Lane, SubProcess, etc.) if the source
+		// or target shapes are children of the container's hierarchy
+		if (snapshot!=null) {
+			if (shape==sourceContainer || shape==targetContainer)
+				return false;
+		}
+		else if (shape==source.eContainer() || shape==target.eContainer())
+			return false;
+		// TODO: other criteria here?
+		return true;
+	}
+
 	/**
 	 * Gets the collision edge.
 	 *
@@ -199,11 +269,26 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 	protected GraphicsUtil.LineSegment getCollisionEdge(Point p1, Point p2) {
 		ContainerShape shape = getCollision(p1, p2);
 		if (shape!=null) {
-			return GraphicsUtil.findNearestEdge(shape, p1);
+			return findNearestEdge(shape, p1);
 		}
 		return null;
 	}
 
+	/**
+	 * Find the edge of the given shape that is nearest to the given point,
+	 * using the shape bounds recorded in the spatial index.
+	 *
+	 * @param shape the shape
+	 * @param p the point
+	 * @return the nearest edge
+	 */
+	protected GraphicsUtil.LineSegment findNearestEdge(ContainerShape shape, Point p) {
+		DiagramSpatialIndex.ShapeBounds bounds = getGeometry().getBounds(shape);
+		if (bounds!=null)
+			return bounds.findNearestEdge(p);
+		return GraphicsUtil.findNearestEdge(shape, p);
+	}
+
 	/**
 	 * Gets the collision.
 	 *
@@ -230,19 +315,19 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 	 */
 	protected List<ContainerShape> findCollisions(Point p1, Point p2) {
 		List<ContainerShape> collisions = new ArrayList<ContainerShape>();
-		if (allShapes==null)
-			findAllShapes();
-		for (ContainerShape shape : allShapes) {
-			if (!FeatureSupport.isGroupShape(shape) && !FeatureSupport.isLabelShape(shape) ) {
-				EObject bo = BusinessObjectUtil.getBusinessObjectForPictogramElement(shape);
-				if (bo instanceof FlowElementsContainer) {
+		for (DiagramSpatialIndex.ShapeBounds bounds : getGeometry().findShapes(p1.getX(), p1.getY(), p2.getX(), p2.getY())) {
+			ContainerShape shape = bounds.shape;
+			if (!isCollisionCandidate(shape))
+				continue;
+			if (!bounds.decoration) {
+				if (bounds.container) {
 					// it's not a collision if the shape is a SubProcess and
 					// both source and target connection points lie inside the SubProcess
-					if (GraphicsUtil.contains(shape, p1) || GraphicsUtil.contains(shape, p2))
+					if (bounds.contains(p1) || bounds.contains(p2))
 						continue;
 				}
 				
-				if (GraphicsUtil.intersectsLine(shape, p1, p2))
+				if (bounds.intersectsLine(p1, p2))
 					collisions.add(shape);
 //				else {
 //					int min = 2;
@@ -275,9 +360,9 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 	
 			@Override
 			public int compare(ContainerShape s1, ContainerShape s2) {
-				GraphicsUtil.LineSegment seg1 = GraphicsUtil.findNearestEdge(s1, p);
+				GraphicsUtil.LineSegment seg1 = findNearestEdge(s1, p);
 				double d1 = seg1.getDistance(p);
-				GraphicsUtil.LineSegment seg2 = GraphicsUtil.findNearestEdge(s2, p);
+				GraphicsUtil.LineSegment seg2 = findNearestEdge(s2, p);
 				double d2 = seg2.getDistance(p);
 				return (int) (d2 - d1);
 			}
@@ -296,39 +381,37 @@ public class DefaultConnectionRouter extends AbstractConnectionRouter {
 	 * @return a list of Connections that cross over the line segment.
 	 */
 	protected List<Connection> findCrossings(Connection connection, Point start, Point end) {
-		// TODO: figure out why this isn't working!
 		List<Connection> crossings = new ArrayList<Connection>();
-		List<Connection> allConnections = fp.getDiagramTypeProvider().getDiagram().getConnections();
-		List<FixPointAnchor> connectionAnchors = AnchorUtil.getAnchors(connection);
-		for (Connection c : allConnections) {
-			if (Graphiti.getPeService().getProperty(c, RoutingNet.CONNECTION)!=null) {
+		List<FixPointAnchor> connectionAnchors = null;
+		if (ignoredCrossings==null)
+			connectionAnchors = AnchorUtil.getAnchors(connection);
+		for (DiagramSpatialIndex.ConnectionPoints points : getGeometry().findConnections(start.getX(), start.getY(), end.getX(), end.getY())) {
+			Connection c = points.connection;
+			if (c==connection)
 				continue;
-			}
-			if (connectionAnchors.contains(c.getStart()) || connectionAnchors.contains(c.getEnd()))
+			if (ignoredCrossings!=null ? ignoredCrossings.contains(c) : isIgnoredCrossing(c, connectionAnchors))
 				continue;
-			Point p1 = GraphicsUtil.createPoint(c.getStart());
-			Point p3 = GraphicsUtil.createPoint(c.getEnd());
-			if (c instanceof FreeFormConnection) {
-				FreeFormConnection ffc = (FreeFormConnection) c;
-				Point p2 = p1;
-				for (Point p : ffc.getBendpoints()) {
-					if (GraphicsUtil.intersects(start, end, p1, p)) {
-						crossings.add(c);
-						break;
-					}
-					p2 = p1 = p;
-				}
-				if (GraphicsUtil.intersects(start, end, p2, p3)) {
-					crossings.add(c);
-				}
-			}
-			else if (GraphicsUtil.intersects(start, end, p1, p3)) {
+			if (points.intersects(start, end))
 				crossings.add(c);
-			}
 		}
 		return crossings;
 	}
 
+	/**
+	 * Check if the given Connection should never be counted as a crossing:
+	 * this is the case for Connections that are part of a Routing Net, and
+	 * for Connections that are attached to the connection being routed.
+	 *
+	 * @param c the Connection to test
+	 * @param connectionAnchors the anchors of the connection being routed
+	 * @return true if the Connection is ignored
+	 */
+	protected boolean isIgnoredCrossing(Connection c, List<FixPointAnchor> connectionAnchors) {
+		if (Graphiti.getPeService().getProperty(c, RoutingNet.CONNECTION)!=null)
+			return true;
+		return connectionAnchors.contains(c.getStart()) || connectionAnchors.contains(c.getEnd());
+	}
+
 	/**
 	 * Length.
 	 *
@@ -13,6 +13,7 @@ package org.eclipse.bpmn2.modeler.core.features;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.bpmn2.modeler.core.utils.DiagramSpatialIndex.ShapeBounds;
 import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil;
 import org.eclipse.graphiti.datatypes.IDimension;
 import org.eclipse.graphiti.datatypes.ILocation;
@@ -87,6 +88,23 @@ public class DetourPoints {
 		calculate(shape);
 	}
 	
+	/**
+	 * Instantiates a new detour points from the indexed bounds of a shape. This
+	 * does not access the shape itself, so it is safe to use with the bounds
+	 * of a {@link org.eclipse.bpmn2.modeler.core.utils.DiagramSpatialIndex.Snapshot}
+	 * from any thread.
+	 *
+	 * @param bounds the shape bounds
+	 * @param margin the margin
+	 */
+	public DetourPoints(ShapeBounds bounds, int margin) {
+		this.leftMargin = margin;
+		this.rightMargin = margin;
+		this.topMargin = margin;
+		this.bottomMargin = margin;
+		calculate(bounds.x, bounds.y, bounds.width, bounds.height);
+	}
+	
 	/**
 	 * Calculate.
 	 *
@@ -95,10 +113,14 @@ public class DetourPoints {
 	protected void calculate(Shape shape) {
 		ILocation loc = BendpointConnectionRouter.peService.getLocationRelativeToDiagram(shape);
 		IDimension size = GraphicsUtil.calculateSize(shape);
-		topLeft = GraphicsUtil.createPoint(loc.getX() - leftMargin, loc.getY() - topMargin);
-		topRight = GraphicsUtil.createPoint(loc.getX() + size.getWidth() + rightMargin, loc.getY() - topMargin);
-		bottomLeft = GraphicsUtil.createPoint(loc.getX() - leftMargin, loc.getY() + size.getHeight() + bottomMargin);
-		bottomRight = GraphicsUtil.createPoint(loc.getX() + size.getWidth() + leftMargin, loc.getY() + size.getHeight() + bottomMargin);
+		calculate(loc.getX(), loc.getY(), size.getWidth(), size.getHeight());
+	}
+
+	private void calculate(int x, int y, int width, int height) {
+		topLeft = GraphicsUtil.createPoint(x - leftMargin, y - topMargin);
+		topRight = GraphicsUtil.createPoint(x + width + rightMargin, y - topMargin);
+		bottomLeft = GraphicsUtil.createPoint(x - leftMargin, y + height + bottomMargin);
+		bottomRight = GraphicsUtil.createPoint(x + width + leftMargin, y + height + bottomMargin);
 	}
 
 	/**
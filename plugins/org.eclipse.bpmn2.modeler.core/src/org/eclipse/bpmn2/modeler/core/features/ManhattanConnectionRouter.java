@@ -15,10 +15,17 @@ package org.eclipse.bpmn2.modeler.core.features;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.bpmn2.modeler.core.utils.AnchorSite;
 import org.eclipse.bpmn2.modeler.core.utils.AnchorType;
 import org.eclipse.bpmn2.modeler.core.utils.AnchorUtil;
+import org.eclipse.bpmn2.modeler.core.utils.DiagramSpatialIndex;
 import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil;
 import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil.LineSegment;
 import org.eclipse.graphiti.datatypes.IDimension;
@@ -45,6 +52,12 @@ public class ManhattanConnectionRouter extends BendpointConnectionRouter {
 	
 	/** The test route solver. */
 	static boolean testRouteSolver = false;
+
+	/** Thread pool shared by all routers for evaluating candidate routes. */
+	private static ExecutorService routeEvaluator;
+
+	/** The edges of the source and target shapes at the time the snapshot was taken. */
+	LineSegment sourceEdges[], targetEdges[];
 	
 	/**
 	 * The connection routing directions.
@@ -258,7 +271,7 @@ public class ManhattanConnectionRouter extends BendpointConnectionRouter {
 		Point end = null;
 
 		if (testRouteSolver) {
-			RouteSolver solver = new RouteSolver(fp, allShapes);
+			RouteSolver solver = new RouteSolver(fp, findAllShapes());
 			boolean b = solver.solve(source, target);
 			if (b) return null;
 		}
@@ -502,32 +515,8 @@ public class ManhattanConnectionRouter extends BendpointConnectionRouter {
 		}
 		else if (allRoutes.size()>1) {
 			GraphicsUtil.dump("Optimizing Routes:\n------------------"); //$NON-NLS-1$
+			evaluateRoutes(allRoutes);
 			for (ConnectionRoute r : allRoutes) {
-				optimize(r);
-			}
-
-			GraphicsUtil.dump("Calculating Crossings:\n------------------"); //$NON-NLS-1$
-			// Connection crossings only participate in determining the best route,
-			// we don't actually try to correct a route crossing a connection.
-			for (ConnectionRoute r : allRoutes) {
-				if (r.getPoints().size()>1) {
-					Point p1 = r.get(0);
-					for (int i=1; i<r.getPoints().size(); ++i) {
-						Point p2 = r.get(i);
-						List<Connection> crossings = findCrossings(connection, p1, p2);
-						for (Connection c : crossings) {
-							if (c!=this.connection)
-								r.addCrossing(c, p1, p2);
-						}
-						ContainerShape shape = getCollision(p1, p2);
-						if (shape!=null) {
-							r.addCollision(shape, p1, p2);
-						}
-						
-						p1 = p2;
-					}
-
-				}
 				GraphicsUtil.dump("    "+r.toString()); //$NON-NLS-1$
 			}
 
@@ -542,6 +531,133 @@ public class ManhattanConnectionRouter extends BendpointConnectionRouter {
 		return route;
 	}
 	
+	/**
+	 * Optimize the candidate routes and determine their collisions and
+	 * Connection crossings. The candidates are independent of each other, so
+	 * they are evaluated concurrently. Everything the evaluation needs to know
+	 * about the Diagram is captured on the calling thread before the work is
+	 * submitted, so the worker threads never access the Diagram. The order of
+	 * the list is preserved so that the choice of the best route does not
+	 * depend on thread scheduling.
+	 *
+	 * @param allRoutes the candidate routes
+	 */
+	void evaluateRoutes(List<ConnectionRoute> allRoutes) {
+		// Optimization only removes route points or moves them within the
+		// bounding box of the route, so crossings can only occur there.
+		int x1 = Integer.MAX_VALUE, y1 = Integer.MAX_VALUE;
+		int x2 = Integer.MIN_VALUE, y2 = Integer.MIN_VALUE;
+		for (ConnectionRoute r : allRoutes) {
+			for (Point p : r.getPoints()) {
+				x1 = Math.min(x1, p.getX());
+				y1 = Math.min(y1, p.getY());
+				x2 = Math.max(x2, p.getX());
+				y2 = Math.max(y2, p.getY());
+			}
+		}
+		takeSnapshot(x1, y1, x2, y2);
+		sourceEdges = GraphicsUtil.getEdges(source);
+		targetEdges = GraphicsUtil.getEdges(target);
+		try {
+			ExecutorService executor = getRouteEvaluator();
+			if (executor==null) {
+				for (ConnectionRoute r : allRoutes)
+					evaluateRoute(r);
+				return;
+			}
+			List<Callable<ConnectionRoute>> tasks = new ArrayList<Callable<ConnectionRoute>>(allRoutes.size());
+			for (final ConnectionRoute r : allRoutes) {
+				tasks.add(new Callable<ConnectionRoute>() {
+					@Override
+					public ConnectionRoute call() throws Exception {
+						evaluateRoute(r);
+						return r;
+					}
+				});
+			}
+			for (Future<ConnectionRoute> f : executor.invokeAll(tasks)) {
+				f.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+		finally {
+			releaseSnapshot();
+			sourceEdges = null;
+			targetEdges = null;
+		}
+	}
+
+	/**
+	 * Optimize a single candidate route and record its collisions and
+	 * Connection crossings. Connection crossings only participate in
+	 * determining the best route, we don't actually try to correct a route
+	 * crossing a connection.
+	 *
+	 * @param r the candidate route
+	 */
+	void evaluateRoute(ConnectionRoute r) {
+		optimize(r);
+		if (r.getPoints().size()>1) {
+			Point p1 = r.get(0);
+			for (int i=1; i<r.getPoints().size(); ++i) {
+				Point p2 = r.get(i);
+				List<Connection> crossings = findCrossings(connection, p1, p2);
+				for (Connection c : crossings) {
+					if (c!=this.connection)
+						r.addCrossing(c, p1, p2);
+				}
+				ContainerShape shape = getCollision(p1, p2);
+				if (shape!=null) {
+					r.addCollision(shape, p1, p2);
+				}
+				
+				p1 = p2;
+			}
+		}
+	}
+
+	/**
+	 * Return the thread pool used to evaluate candidate routes, or null if
+	 * there is only one processor available.
+	 *
+	 * @return the executor service
+	 */
+	static synchronized ExecutorService getRouteEvaluator() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		if (processors<2)
+			return null;
+		if (routeEvaluator==null) {
+			routeEvaluator = Executors.newFixedThreadPool(processors, new ThreadFactory() {
+				private int count = 0;
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "BPMN2 Route Evaluator " + (++count)); //$NON-NLS-1$
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return routeEvaluator;
+	}
+
+	/**
+	 * Shut down the thread pool used to evaluate candidate routes. This is
+	 * called when the plugin is stopped.
+	 */
+	public static synchronized void shutdownRouteEvaluator() {
+		if (routeEvaluator!=null) {
+			routeEvaluator.shutdownNow();
+			routeEvaluator = null;
+		}
+	}
+
 	/**
 	 * Calculate route.
 	 *
@@ -904,20 +1020,33 @@ public class ManhattanConnectionRouter extends BendpointConnectionRouter {
 	}
 	
 	DetourPoints getDetourPoints(ContainerShape shape) {
-		DetourPoints detour = new DetourPoints(shape, margin);
-		if (allShapes==null)
-			findAllShapes();
+		DiagramSpatialIndex.ShapeBounds shapeBounds = getGeometry().getBounds(shape);
+		DetourPoints detour = shapeBounds!=null ?
+				new DetourPoints(shapeBounds, margin) : new DetourPoints(shape, margin);
+		if (shape==source || shape==target)
+			return detour;
 
-		for (int i=0; i<allShapes.size(); ++i) {
-			ContainerShape s = allShapes.get(i);
-			if (shape==s || shape==source || shape==target)
-				continue;
-			DetourPoints d = new DetourPoints(s, margin);
-			if (detour.intersects(d) && !detour.contains(d)) {
-				detour.merge(d);
-				i = -1;
+		// only shapes whose bounds lie within a margin of the detour
+		// rectangle can intersect it; keep merging until the detour
+		// rectangle no longer grows.
+		boolean merged;
+		do {
+			merged = false;
+			for (DiagramSpatialIndex.ShapeBounds bounds : getGeometry().findShapes(
+					detour.topLeft.getX() - margin, detour.topLeft.getY() - margin,
+					detour.topRight.getX() + margin, detour.bottomLeft.getY() + margin)) {
+				ContainerShape s = bounds.shape;
+				if (shape==s || !isCollisionCandidate(s))
+					continue;
+				DetourPoints dp = new DetourPoints(bounds, margin);
+				if (detour.intersects(dp) && !detour.contains(dp)) {
+					detour.merge(dp);
+					merged = true;
+					break;
+				}
 			}
 		}
+		while (merged);
 
 		return detour;
 	}
@@ -991,7 +1120,7 @@ public class ManhattanConnectionRouter extends BendpointConnectionRouter {
 		if (size>1) {
 			// Discourage routes containing starting or ending segments that touch
 			// the source or target shape - it just looks ugly.
-			LineSegment sourceEdges[] = GraphicsUtil.getEdges(source);
+			LineSegment sourceEdges[] = this.sourceEdges!=null ? this.sourceEdges : GraphicsUtil.getEdges(source);
 			p1 = route.get(0);
 			p2 = route.get(1);
 			AnchorSite sourceSite = route.getSourceAnchorSite();
@@ -1019,7 +1148,7 @@ public class ManhattanConnectionRouter extends BendpointConnectionRouter {
 					}
 				}
 				// Same as above, but for the target shape
-				LineSegment targetEdges[] = GraphicsUtil.getEdges(target);
+				LineSegment targetEdges[] = this.targetEdges!=null ? this.targetEdges : GraphicsUtil.getEdges(target);
 				p1 = route.get(size-2);
 				p2 = route.get(size-1);
 				AnchorSite targetSite = route.getTargetAnchorSite();
@@ -13,7 +13,10 @@ package org.eclipse.bpmn2.modeler.core.features;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil;
 import org.eclipse.draw2d.geometry.Rectangle;
@@ -71,6 +74,9 @@ public class RouteSolver {
 	RoutingNet horizontalNet;
 	private boolean rotate = false;
 	
+	/** Shape bounds for the current orientation, cached while a routing net is built. */
+	private Map<ContainerShape, Rectangle> boundsCache = new HashMap<ContainerShape, Rectangle>();
+	
 	/**
 	 * RouteSolver constructor.
 	 * 
@@ -146,6 +152,7 @@ public class RouteSolver {
 		rotate = false;
 		
 		verticalNet = new RoutingNet(fp);
+		boundsCache.clear();
 		Rectangle r = calculateDiagramBounds();
 		sortAllShapes();
 		top = r.y;
@@ -158,6 +165,7 @@ public class RouteSolver {
 		rotate = true;
 		
 		horizontalNet = new RoutingNet(fp);
+		boundsCache.clear();
 		r = calculateDiagramBounds();
 		sortAllShapes();
 		top = r.y;
@@ -168,6 +176,7 @@ public class RouteSolver {
 		horizontalNet.link();
 
 		rotate = false;
+		boundsCache.clear();
 
 		return true;
 	}
@@ -216,7 +225,14 @@ public class RouteSolver {
 	protected void calculateRoutingNet(RoutingNet net) {
 
 		net.add(left, top, leftMargin, bottom-top);
-		for (int i=0; i<allShapes.size(); ++i) {
+		// Sweep from left to right over the shapes, which are sorted by their
+		// left edge. The active list holds the shapes already visited whose
+		// right edge has not yet been passed; together with the shapes that
+		// follow and start before the current shape's right edge, these are
+		// the only shapes that can overlap the current shape horizontally.
+		List<ContainerShape> active = new ArrayList<ContainerShape>();
+		int size = allShapes.size();
+		for (int i=0; i<size; ++i) {
 			ContainerShape shape = allShapes.get(i);
 			if (GraphicsUtil.getDebugText(shape).contains("Task_1")) { //$NON-NLS-1$
 				GraphicsUtil.debug = true;
@@ -226,13 +242,26 @@ public class RouteSolver {
 
 			// get bounding rectangle for current shape
 			Rectangle shapeBounds = getBounds(shape);
+			for (Iterator<ContainerShape> iter = active.iterator(); iter.hasNext();) {
+				if (getBounds(iter.next()).right() < shapeBounds.x)
+					iter.remove();
+			}
+			List<ContainerShape> overlapping = new ArrayList<ContainerShape>(active);
+			for (int n=i+1; n<size; ++n) {
+				ContainerShape s = allShapes.get(n);
+				if (getBounds(s).x > shapeBounds.right())
+					break;
+				overlapping.add(s);
+			}
+			active.add(shape);
+
 			// The rectangular region below the current shape will be sliced
 			// into smaller rectangles (a.k.a. "Routing Lanes"). To do this we'll
 			// create a horizontal slicer that keeps track of the location
 			// and width of each void defined by the top edge of the current
 			// shape, and the left/right edges of the shapes below it.
 			Slice slice = new Slice(shapeBounds.x, shapeBounds.right());
-			List<ContainerShape> below = getShapesBelow(shape);
+			List<ContainerShape> below = getShapesBelow(shape, overlapping);
 			for (ContainerShape shapeBelow : below) {
 				Rectangle shapeBelowBounds = getBounds(shapeBelow);
 				if (slice.remove(shapeBelowBounds.x, shapeBelowBounds.right()) == 0)
@@ -265,7 +294,7 @@ public class RouteSolver {
 
 			// calculate lanes above the current shape
 			slice = new Slice(shapeBounds.x, shapeBounds.right());
-			List<ContainerShape> above = getShapesAbove(shape);
+			List<ContainerShape> above = getShapesAbove(shape, overlapping);
 			for (ContainerShape shapeAbove : above) {
 				Rectangle shapeAboveBounds = getBounds(shapeAbove);
 				if (slice.remove(shapeAboveBounds.x, shapeAboveBounds.right()) == 0)
@@ -300,7 +329,7 @@ public class RouteSolver {
 				c1 = c2;
 			}
 
-			addTrailingAisle(net, shape);
+			addTrailingAisle(net, shape, i, overlapping);
 		}
 		net.add(right-rightMargin, top, rightMargin, bottom-top);
 		
@@ -315,11 +344,21 @@ public class RouteSolver {
 	 * @param shape the shape
 	 */
 	protected void addTrailingAisle(RoutingNet net, ContainerShape shape) {
+		addTrailingAisle(net, shape, allShapes.indexOf(shape), allShapes);
+	}
+
+	/**
+	 * Adds the trailing aisle.
+	 *
+	 * @param net the net
+	 * @param shape the shape
+	 * @param index the index of the shape in the sorted list of all shapes
+	 * @param candidates the shapes that may overlap the shape horizontally
+	 */
+	protected void addTrailingAisle(RoutingNet net, ContainerShape shape, int index, List<ContainerShape> candidates) {
 		Rectangle shapeBounds = getBounds(shape);
 		int x = shapeBounds.right();
-		int size = allShapes.size();
-		for (int i=0; i<size; ++i) {
-			ContainerShape s = allShapes.get(i);
+		for (ContainerShape s : candidates) {
 			if (s!=shape) {
 				Rectangle b = getBounds(s);
 				if (b.x<=x && x<b.right())
@@ -327,17 +366,13 @@ public class RouteSolver {
 			}
 		}
 		
-		for (int i=0; i<size; ++i) {
-			ContainerShape s = allShapes.get(i);
-			if (s==shape) {
-				for (int n=i+1; n<size; ++n) {
-					ContainerShape nextShape = allShapes.get(n);
-					Rectangle nextShapeBounds = getBounds(nextShape);
-					if (nextShapeBounds.x>shapeBounds.right()) {
-						net.add(shapeBounds.right(),top, nextShapeBounds.x - shapeBounds.right(), bottom-top);
-						return;
-					}
-				}
+		int size = allShapes.size();
+		for (int n=index+1; n<size; ++n) {
+			ContainerShape nextShape = allShapes.get(n);
+			Rectangle nextShapeBounds = getBounds(nextShape);
+			if (nextShapeBounds.x>shapeBounds.right()) {
+				net.add(shapeBounds.right(),top, nextShapeBounds.x - shapeBounds.right(), bottom-top);
+				return;
 			}
 		}
 	}
@@ -349,9 +384,20 @@ public class RouteSolver {
 	 * @return the shapes below
 	 */
 	protected List<ContainerShape> getShapesBelow(ContainerShape shape) {
+		return getShapesBelow(shape, allShapes);
+	}
+
+	/**
+	 * Gets the shapes below, considering only the given candidates.
+	 *
+	 * @param shape the shape
+	 * @param candidates the shapes that may overlap the shape horizontally, sorted by x
+	 * @return the shapes below
+	 */
+	protected List<ContainerShape> getShapesBelow(ContainerShape shape, List<ContainerShape> candidates) {
 		final Rectangle bounds = getBounds(shape);
 		List<ContainerShape> shapes = new ArrayList<ContainerShape>();
-		for (ContainerShape s : allShapes) {
+		for (ContainerShape s : candidates) {
 			if (s!=shape) {
 				Rectangle b = getBounds(s);
 				if (b.x>bounds.right())
@@ -406,9 +452,20 @@ public class RouteSolver {
 	 * @return the shapes above
 	 */
 	protected List<ContainerShape> getShapesAbove(ContainerShape shape) {
+		return getShapesAbove(shape, allShapes);
+	}
+
+	/**
+	 * Gets the shapes above, considering only the given candidates.
+	 *
+	 * @param shape the shape
+	 * @param candidates the shapes that may overlap the shape horizontally, sorted by x
+	 * @return the shapes above
+	 */
+	protected List<ContainerShape> getShapesAbove(ContainerShape shape, List<ContainerShape> candidates) {
 		final Rectangle bounds = getBounds(shape);
 		List<ContainerShape> shapes = new ArrayList<ContainerShape>();
-		for (ContainerShape s : allShapes) {
+		for (ContainerShape s : candidates) {
 			if (s!=shape) {
 				Rectangle b = getBounds(s);
 				if (b.x>bounds.right())
@@ -607,6 +664,11 @@ public class RouteSolver {
 	}
 
 	private Rectangle getBounds(ContainerShape shape) {
-		return RoutingNet.getBounds(rotate,shape);
+		Rectangle r = boundsCache.get(shape);
+		if (r==null) {
+			r = RoutingNet.getBounds(rotate,shape);
+			boundsCache.put(shape, r);
+		}
+		return r;
 	}
 }
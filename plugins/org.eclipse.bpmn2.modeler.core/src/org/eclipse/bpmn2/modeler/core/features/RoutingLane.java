@@ -11,6 +11,7 @@
 package org.eclipse.bpmn2.modeler.core.features;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.bpmn2.modeler.core.utils.GraphicsUtil;
@@ -301,6 +302,14 @@ public class RoutingLane {
 		return false;
 	}
 
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return rect.hashCode();
+	}
+
 	/**
 	 * Rotate.
 	 *
@@ -315,22 +324,12 @@ public class RoutingLane {
 	 *
 	 * @param ta the ta
 	 * @param owner the owner
+	 * @deprecated the net is now searched best-first, this adds the paths
+	 *             found by {@link RoutingNet#searchSolutions(List, List)}
+	 *             from this lane to the given lane to the owner's solutions
 	 */
+	@Deprecated
 	public void navigateTo(RoutingLane ta, RoutingNet owner) {
-		owner.push(this);
-		if (this==ta) {
-			owner.solutionFound();
-		}
-		else {
-			for (RoutingLane a : getRight()) {
-				if (!owner.visited(a))
-					a.navigateTo(ta, owner);
-			}
-			for (RoutingLane a : getLeft()) {
-				if (!owner.visited(a))
-					a.navigateTo(ta, owner);
-			}
-		}
-		owner.pop();
+		owner.searchSolutions(Collections.singletonList(this), Collections.singletonList(ta));
 	}
 }
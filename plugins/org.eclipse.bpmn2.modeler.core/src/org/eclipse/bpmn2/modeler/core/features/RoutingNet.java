@@ -13,7 +13,13 @@ package org.eclipse.bpmn2.modeler.core.features;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.Stack;
 
 import org.eclipse.bpmn2.modeler.core.features.RoutingLane.Adjacence;
@@ -85,7 +91,10 @@ public class RoutingNet extends ArrayList<RoutingLane> {
 	/** The target adjacent lanes. */
 	List<RoutingLane> targetAdjacentLanes = new ArrayList<RoutingLane>();
 	
-	/** The solution stack. */
+	/** Bounds of all lanes in the net, used to reject duplicate lanes. */
+	Set<Rectangle> laneBounds = new HashSet<Rectangle>();
+	
+	/** The solution stack, only used by the deprecated depth-first search methods. */
 	Stack<RoutingLane> solutionStack;
 	
 	/** The all solutions. */
@@ -94,6 +103,12 @@ public class RoutingNet extends ArrayList<RoutingLane> {
 	/** The min dist. */
 	int minDist = Integer.MAX_VALUE;
 	
+	/** Maximum number of solutions returned by findSolutions(). */
+	static final int MAX_SOLUTIONS = 16;
+	
+	/** Solutions costing more than this factor times the cheapest solution are pruned. */
+	static final int MAX_COST_FACTOR = 2;
+	
 	/** The fp. */
 	IFeatureProvider fp;
 	
@@ -111,7 +126,7 @@ public class RoutingNet extends ArrayList<RoutingLane> {
 	 */
 	@Override
 	public boolean add(RoutingLane a) {
-		if (!contains(a) && a.getWidth()>0 && a.getHeight()>0)
+		if (a.getWidth()>0 && a.getHeight()>0 && laneBounds.add(new Rectangle(a.rect)))
 			return super.add(a);
 		return false;
 	}
@@ -140,34 +155,106 @@ public class RoutingNet extends ArrayList<RoutingLane> {
 	}
 	
 	/**
-	 * Link.
+	 * Link all lanes that share an edge. Two lanes can only be adjacent if the
+	 * right (or bottom) edge of one lies on the left (or top) edge of the
+	 * other, so the lanes are bucketed by the coordinate of their left and top
+	 * edges, and each bucket is sorted by the lanes' starting coordinate along
+	 * the edge. Each lane is then only tested against the lanes in the bucket
+	 * on its right and bottom edges, stopping as soon as the remaining
+	 * intervals start beyond the lane's extent.
 	 */
 	public void link() {
+		Map<Integer, List<RoutingLane>> leftEdges = new HashMap<Integer, List<RoutingLane>>();
+		Map<Integer, List<RoutingLane>> topEdges = new HashMap<Integer, List<RoutingLane>>();
+		for (RoutingLane a : this) {
+			addToBucket(leftEdges, a.getX(), a);
+			addToBucket(topEdges, a.getY(), a);
+		}
+		for (List<RoutingLane> list : leftEdges.values()) {
+			Collections.sort(list, new Comparator<RoutingLane>() {
+				@Override
+				public int compare(RoutingLane a1, RoutingLane a2) {
+					return a1.getY() - a2.getY();
+				}
+			});
+		}
+		for (List<RoutingLane> list : topEdges.values()) {
+			Collections.sort(list, new Comparator<RoutingLane>() {
+				@Override
+				public int compare(RoutingLane a1, RoutingLane a2) {
+					return a1.getX() - a2.getX();
+				}
+			});
+		}
+		
 		for (RoutingLane a1 : this) {
-			for (RoutingLane a2 : this) {
-				if (a1!=a2) {
-					switch (a1.adjacent(a2)) {
-					case LEFT:
-					case TOP:
-						a1.addLeft(a2);
-						break;
-					case RIGHT:
-					case BOTTOM:
-						a1.addRight(a2);
+			// lanes whose left edge lies on the right edge of this lane
+			List<RoutingLane> list = leftEdges.get(a1.getX() + a1.getWidth());
+			if (list!=null) {
+				int end = a1.getY() + a1.getHeight();
+				for (RoutingLane a2 : list) {
+					if (a2.getY() >= end)
 						break;
-					case NONE:
+					link(a1, a2);
+				}
+			}
+			// lanes whose top edge lies on the bottom edge of this lane
+			list = topEdges.get(a1.getY() + a1.getHeight());
+			if (list!=null) {
+				int end = a1.getX() + a1.getWidth();
+				for (RoutingLane a2 : list) {
+					if (a2.getX() >= end)
 						break;
-					}
+					link(a1, a2);
 				}
 			}
 		}
 	}
 	
+	private static void addToBucket(Map<Integer, List<RoutingLane>> buckets, int key, RoutingLane a) {
+		List<RoutingLane> list = buckets.get(key);
+		if (list==null) {
+			list = new ArrayList<RoutingLane>();
+			buckets.put(key, list);
+		}
+		list.add(a);
+	}
+	
+	private static void link(RoutingLane a1, RoutingLane a2) {
+		if (a1==a2)
+			return;
+		switch (a1.adjacent(a2)) {
+		case LEFT:
+		case TOP:
+			a1.addLeft(a2);
+			break;
+		case RIGHT:
+		case BOTTOM:
+			a1.addRight(a2);
+			break;
+		case NONE:
+			break;
+		}
+		switch (a2.adjacent(a1)) {
+		case LEFT:
+		case TOP:
+			a2.addLeft(a1);
+			break;
+		case RIGHT:
+		case BOTTOM:
+			a2.addRight(a1);
+			break;
+		case NONE:
+			break;
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see java.util.ArrayList#clear()
 	 */
 	public void clear() {
 		super.clear();
+		laneBounds.clear();
 		sourceAdjacentLanes.clear();
 		targetAdjacentLanes.clear();
 		if (solutionStack!=null)
@@ -204,14 +291,9 @@ public class RoutingNet extends ArrayList<RoutingLane> {
 			}
 		}
 		
-		solutionStack = new Stack<RoutingLane>();
 		minDist = Integer.MAX_VALUE;
+		searchSolutions();
 		
-		for (RoutingLane sa : sourceAdjacentLanes) {
-			for (RoutingLane ta : targetAdjacentLanes) {
-				sa.navigateTo(ta, this);
-			}
-		}
 		Collections.sort(allSolutions, new Comparator<List<RoutingLane>>() {
 			@Override
 			public int compare(List<RoutingLane> arg0, List<RoutingLane> arg1) {
@@ -264,6 +346,184 @@ public class RoutingNet extends ArrayList<RoutingLane> {
 		return allSolutions;
 	}
 	
+	/**
+	 * A node in the solution search: a lane and the cheapest known path
+	 * leading to it from one of the source adjacent lanes.
+	 */
+	private static class SearchNode implements Comparable<SearchNode> {
+		final RoutingLane lane;
+		final SearchNode parent;
+		final int cost;
+		final int estimate;
+		final int sequence;
+		
+		SearchNode(RoutingLane lane, SearchNode parent, int cost, int estimate, int sequence) {
+			this.lane = lane;
+			this.parent = parent;
+			this.cost = cost;
+			this.estimate = estimate;
+			this.sequence = sequence;
+		}
+		
+		@Override
+		public int compareTo(SearchNode that) {
+			int i = (this.cost + this.estimate) - (that.cost + that.estimate);
+			if (i==0)
+				i = this.sequence - that.sequence;
+			return i;
+		}
+		
+		List<RoutingLane> getPath() {
+			List<RoutingLane> path = new ArrayList<RoutingLane>();
+			for (SearchNode n = this; n!=null; n = n.parent)
+				path.add(0, n.lane);
+			return path;
+		}
+	}
+	
+	/**
+	 * Search the net for paths from the source adjacent lanes to the target
+	 * adjacent lanes. This is a best-first (A*) search: the cost of a path is
+	 * the Manhattan distance between the centers of consecutive lanes, and the
+	 * estimated remaining cost is the Manhattan distance to the nearest target
+	 * adjacent lane. Each lane is expanded at most once, so the search always
+	 * terminates; the cheapest path to each target adjacent lane is added to
+	 * the solutions, until either MAX_SOLUTIONS have been found or the
+	 * remaining paths cost more than MAX_COST_FACTOR times the cheapest one.
+	 */
+	protected void searchSolutions() {
+		searchSolutions(sourceAdjacentLanes, targetAdjacentLanes);
+	}
+	
+	/**
+	 * Search the net for paths from any of the given starting lanes to any of
+	 * the given ending lanes, and add them to the solutions.
+	 *
+	 * @param startLanes the starting lanes
+	 * @param endLanes the ending lanes
+	 * @see #searchSolutions()
+	 */
+	protected void searchSolutions(List<RoutingLane> startLanes, List<RoutingLane> endLanes) {
+		if (allSolutions==null)
+			allSolutions = new ArrayList< List<RoutingLane> >();
+		if (startLanes.isEmpty() || endLanes.isEmpty())
+			return;
+		
+		Map<RoutingLane, Integer> bestCost = new IdentityHashMap<RoutingLane, Integer>();
+		Map<RoutingLane, Boolean> expanded = new IdentityHashMap<RoutingLane, Boolean>();
+		Map<RoutingLane, Boolean> targets = new IdentityHashMap<RoutingLane, Boolean>();
+		for (RoutingLane ta : endLanes)
+			targets.put(ta, Boolean.TRUE);
+		
+		PriorityQueue<SearchNode> queue = new PriorityQueue<SearchNode>();
+		int sequence = 0;
+		for (RoutingLane sa : startLanes) {
+			if (!bestCost.containsKey(sa)) {
+				bestCost.put(sa, 0);
+				queue.add(new SearchNode(sa, null, 0, estimate(sa, endLanes), sequence++));
+			}
+		}
+		
+		int cheapest = -1;
+		while (!queue.isEmpty() && allSolutions.size() < MAX_SOLUTIONS) {
+			SearchNode node = queue.poll();
+			if (expanded.containsKey(node.lane))
+				continue;
+			if (cheapest>=0 && node.cost + node.estimate > MAX_COST_FACTOR * cheapest)
+				break;
+			expanded.put(node.lane, Boolean.TRUE);
+			
+			if (targets.containsKey(node.lane)) {
+				if (cheapest<0)
+					cheapest = node.cost;
+				allSolutions.add(node.getPath());
+			}
+			
+			for (int side=0; side<2; ++side) {
+				for (RoutingLane next : side==0 ? node.lane.getRight() : node.lane.getLeft()) {
+					if (expanded.containsKey(next))
+						continue;
+					int cost = node.cost + distance(node.lane, next);
+					Integer known = bestCost.get(next);
+					if (known==null || cost < known) {
+						bestCost.put(next, cost);
+						queue.add(new SearchNode(next, node, cost, estimate(next, endLanes), sequence++));
+					}
+				}
+			}
+		}
+	}
+	
+	private static int estimate(RoutingLane lane, List<RoutingLane> endLanes) {
+		int min = Integer.MAX_VALUE;
+		for (RoutingLane ta : endLanes) {
+			int d = distance(lane, ta);
+			if (d<min)
+				min = d;
+		}
+		return min;
+	}
+	
+	private static int distance(RoutingLane a1, RoutingLane a2) {
+		int dx = (2*a1.getX() + a1.getWidth()) - (2*a2.getX() + a2.getWidth());
+		int dy = (2*a1.getY() + a1.getHeight()) - (2*a2.getY() + a2.getHeight());
+		return (Math.abs(dx) + Math.abs(dy)) / 2;
+	}
+
+	/**
+	 * Pop.
+	 *
+	 * @deprecated the solutions are no longer found by a depth-first search,
+	 *             use {@link #findSolutions(Shape, Shape)}
+	 */
+	@Deprecated
+	public void pop() {
+		solutionStack.pop();
+	}
+
+	/**
+	 * Visited.
+	 *
+	 * @param lane the lane
+	 * @return true, if successful
+	 * @deprecated the solutions are no longer found by a depth-first search,
+	 *             use {@link #findSolutions(Shape, Shape)}
+	 */
+	@Deprecated
+	public boolean visited(RoutingLane lane) {
+		return solutionStack!=null && solutionStack.contains(lane);
+	}
+
+	/**
+	 * Push.
+	 *
+	 * @param lane the lane
+	 * @deprecated the solutions are no longer found by a depth-first search,
+	 *             use {@link #findSolutions(Shape, Shape)}
+	 */
+	@Deprecated
+	public void push(RoutingLane lane) {
+		if (solutionStack==null)
+			solutionStack = new Stack<RoutingLane>();
+		solutionStack.push(lane);
+	}
+
+	/**
+	 * Solution found: add the lanes on the solution stack to the solutions.
+	 *
+	 * @return true, if successful
+	 * @deprecated the solutions are no longer found by a depth-first search,
+	 *             use {@link #findSolutions(Shape, Shape)}
+	 */
+	@Deprecated
+	public boolean solutionFound() {
+		if (allSolutions==null)
+			allSolutions = new ArrayList< List<RoutingLane> >();
+		if (solutionStack!=null && !allSolutions.contains(solutionStack))
+			allSolutions.add(new ArrayList<RoutingLane>(solutionStack));
+		return true;
+	}
+
 	/**
 	 * Merit.
 	 *
@@ -328,32 +588,6 @@ public class RoutingNet extends ArrayList<RoutingLane> {
 		return Math.abs((p.getX() - p1.getX()) * (p2.getY() - p1.getY()) - (p.getY() - p1.getY()) * (p2.getX() - p1.getX())) / normalLength;
 	}
 
-	/**
-	 * Pop.
-	 */
-	public void pop() {
-		solutionStack.pop();
-	}
-
-	/**
-	 * Visited.
-	 *
-	 * @param lane the lane
-	 * @return true, if successful
-	 */
-	public boolean visited(RoutingLane lane) {
-		return solutionStack.contains(lane);
-	}
-
-	/**
-	 * Push.
-	 *
-	 * @param lane the lane
-	 */
-	public void push(RoutingLane lane) {
-		solutionStack.push(lane);
-	}
-
 	/**
 	 * Gets the manhattan distance.
 	 *
@@ -453,25 +687,6 @@ public class RoutingNet extends ArrayList<RoutingLane> {
 		return dist;
 	}
 	
-	/**
-	 * Solution found.
-	 *
-	 * @return true, if successful
-	 */
-	public boolean solutionFound() {
-		
-		if (!allSolutions.contains(solutionStack)) {
-//			int d = getManhattanDistance(solutionStack);
-//			if (d - 0.5 * minDist < minDist) {
-//				if (d < minDist)
-//					minDist = d;
-				List<RoutingLane> solution = new ArrayList<RoutingLane>(solutionStack);
-				allSolutions.add(solution);
-//			}
-		}
-		return true;
-	}
-	
 	/**
 	 * Rotate.
 	 *
@@ -479,8 +694,10 @@ public class RoutingNet extends ArrayList<RoutingLane> {
 	 */
 	public void rotate(boolean b) {
 		if (isRotated!=b) {
+			laneBounds.clear();
 			for (RoutingLane node : this) {
 				node.rotate(b);
+				laneBounds.add(new Rectangle(node.rect));
 			}
 			isRotated = b;
 		}
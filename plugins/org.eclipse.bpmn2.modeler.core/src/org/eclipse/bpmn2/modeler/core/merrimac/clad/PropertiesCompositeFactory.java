@@ -15,6 +15,7 @@ package org.eclipse.bpmn2.modeler.core.merrimac.clad;
 
 import java.lang.reflect.Constructor;
 import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime;
 import org.eclipse.bpmn2.modeler.core.Activator;
@@ -49,6 +50,82 @@ public class PropertiesCompositeFactory implements IPropertiesCompositeFactory {
 	
 	public static IPropertiesCompositeFactory INSTANCE = new PropertiesCompositeFactory();
 	
+	// the kinds of composites, used in resolved composite class keys
+	private final static int DETAIL = 0;
+	private final static int LIST = 1;
+	private final static int DIALOG = 2;
+	// marks a resolved composite class lookup that found nothing
+	private final static Object NOT_FOUND = new Object();
+	// the results of the find*CompositeClass() methods; this is cleared whenever a composite is registered
+	private final static ConcurrentHashMap<CompositeKey, Object> resolvedClasses = new ConcurrentHashMap<CompositeKey, Object>();
+	// composite constructors, for each of the three constructor signatures
+	private final static ConcurrentHashMap<Class, CompositeConstructor> sectionConstructors = new ConcurrentHashMap<Class, CompositeConstructor>();
+	private final static ConcurrentHashMap<Class, CompositeConstructor> parentConstructors = new ConcurrentHashMap<Class, CompositeConstructor>();
+	private final static ConcurrentHashMap<Class, CompositeConstructor> dialogConstructors = new ConcurrentHashMap<Class, CompositeConstructor>();
+	
+	/**
+	 * Key for a resolved composite class: the kind of composite, the Target
+	 * Runtime that was current, and the model object class.
+	 */
+	private static class CompositeKey {
+		final int kind;
+		final TargetRuntime rt;
+		final Class eClass;
+		
+		CompositeKey(int kind, TargetRuntime rt, Class eClass) {
+			this.kind = kind;
+			this.rt = rt;
+			this.eClass = eClass;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof CompositeKey) {
+				CompositeKey other = (CompositeKey) obj;
+				return kind==other.kind && rt==other.rt && eClass==other.eClass;
+			}
+			return false;
+		}
+		
+		@Override
+		public int hashCode() {
+			return (31 * System.identityHashCode(rt) + System.identityHashCode(eClass)) * 3 + kind;
+		}
+	}
+	
+	/**
+	 * A resolved composite constructor. Composites may be declared in an
+	 * enclosing class, in which case the constructor takes the (null) enclosing
+	 * instance as its first argument.
+	 */
+	private static class CompositeConstructor {
+		final Constructor ctor;
+		final boolean enclosed;
+		
+		CompositeConstructor(Class clazz, Class... parameterTypes) throws NoSuchMethodException {
+			Class ec = clazz.getEnclosingClass();
+			if (ec!=null) {
+				Class[] types = new Class[parameterTypes.length + 1];
+				types[0] = ec;
+				System.arraycopy(parameterTypes, 0, types, 1, parameterTypes.length);
+				ctor = clazz.getConstructor(types);
+			}
+			else {
+				ctor = clazz.getConstructor(parameterTypes);
+			}
+			enclosed = ec!=null;
+		}
+		
+		Composite newInstance(Object... args) throws Exception {
+			if (enclosed) {
+				Object[] a = new Object[args.length + 1];
+				System.arraycopy(args, 0, a, 1, args.length);
+				args = a;
+			}
+			return (Composite) ctor.newInstance(args);
+		}
+	}
+	
 	public static void register(Class eClass, Class composite) {
 		TargetRuntime rt = TargetRuntime.getCurrentRuntime();
 		Hashtable<Class,Class> map = null;
@@ -72,6 +149,7 @@ public class PropertiesCompositeFactory implements IPropertiesCompositeFactory {
 				detailRegistry.put(rt,map);
 		}
 		map.put(eClass, composite);
+		resolvedClasses.clear();
 		
 		// make sure the constructors are declared
 		try {
@@ -105,12 +183,18 @@ public class PropertiesCompositeFactory implements IPropertiesCompositeFactory {
 	////////////////////////////////////////////////////////////////////////////////
 	public static Class findDetailCompositeClass(Class eClass) {
 		TargetRuntime rt = TargetRuntime.getCurrentRuntime();
+		CompositeKey key = new CompositeKey(DETAIL, rt, eClass);
+		Object resolved = resolvedClasses.get(key);
+		if (resolved!=null)
+			return resolved==NOT_FOUND ? null : (Class)resolved;
+		
 		Class composite = findCompositeClass(detailRegistry.get(rt),eClass);
 		if (composite==null && rt!=TargetRuntime.getDefaultRuntime()) {
 			// fall back to default target runtime
 			rt = TargetRuntime.getDefaultRuntime();
 			composite = findCompositeClass(detailRegistry.get(rt),eClass);
 		}
+		resolvedClasses.put(key, composite==null ? NOT_FOUND : composite);
 		return composite;
 	}
 
@@ -129,12 +213,18 @@ public class PropertiesCompositeFactory implements IPropertiesCompositeFactory {
 	////////////////////////////////////////////////////////////////////////////////
 	public static Class findListCompositeClass(Class eClass) {
 		TargetRuntime rt = TargetRuntime.getCurrentRuntime();
+		CompositeKey key = new CompositeKey(LIST, rt, eClass);
+		Object resolved = resolvedClasses.get(key);
+		if (resolved!=null)
+			return resolved==NOT_FOUND ? null : (Class)resolved;
+		
 		Class composite = findCompositeClass(listRegistry.get(rt),eClass);
 		if (composite==null && rt!=TargetRuntime.getDefaultRuntime()) {
 			// fall back to default target runtime
 			rt = TargetRuntime.getDefaultRuntime();
 			composite = findCompositeClass(listRegistry.get(rt),eClass);
 		}
+		resolvedClasses.put(key, composite==null ? NOT_FOUND : composite);
 		return composite;
 	}
 
@@ -153,12 +243,18 @@ public class PropertiesCompositeFactory implements IPropertiesCompositeFactory {
 	////////////////////////////////////////////////////////////////////////////////
 	public static Class findDialogCompositeClass(Class eClass) {
 		TargetRuntime rt = TargetRuntime.getCurrentRuntime();
+		CompositeKey key = new CompositeKey(DIALOG, rt, eClass);
+		Object resolved = resolvedClasses.get(key);
+		if (resolved!=null)
+			return resolved==NOT_FOUND ? null : (Class)resolved;
+		
 		Class composite = findCompositeClass(dialogRegistry.get(rt),eClass);
 		if (composite==null && rt!=TargetRuntime.getDefaultRuntime()) {
 			// fall back to default target runtime
 			rt = TargetRuntime.getDefaultRuntime();
 			composite = findCompositeClass(dialogRegistry.get(rt),eClass);
 		}
+		resolvedClasses.put(key, composite==null ? NOT_FOUND : composite);
 		return composite;
 	}
 	
@@ -167,17 +263,12 @@ public class PropertiesCompositeFactory implements IPropertiesCompositeFactory {
 		Composite composite = null;
 		for (int i=0; i<2 && composite==null; ++i) {
 			try {
-				Constructor ctor = null;
-				// allow the composite to be declared in an enclosing class
-				Class ec = clazz.getEnclosingClass();
-				if (ec!=null) {
-					ctor = clazz.getConstructor(ec,Composite.class,EClass.class,int.class);
-					composite = (Composite) ctor.newInstance(null,parent,eClass,style);
-				}
-				else {
-					ctor = clazz.getConstructor(Composite.class,EClass.class,int.class);
-					composite = (Composite) ctor.newInstance(parent,eClass,style);
+				CompositeConstructor ctor = dialogConstructors.get(clazz);
+				if (ctor==null) {
+					ctor = new CompositeConstructor(clazz,Composite.class,EClass.class,int.class);
+					dialogConstructors.put(clazz, ctor);
 				}
+				composite = ctor.newInstance(parent,eClass,style);
 			} catch (Exception e) {
 				if (i==0)
 					logError(eClass.getInstanceClass(),e);
@@ -223,17 +314,12 @@ public class PropertiesCompositeFactory implements IPropertiesCompositeFactory {
 		Composite composite = null;
 		if (clazz!=null) {
 			try {
-				Constructor ctor = null;
-				// allow the composite to be declared in an enclosing class
-				Class ec = clazz.getEnclosingClass();
-				if (ec!=null) {
-					ctor = clazz.getConstructor(ec,AbstractBpmn2PropertySection.class);
-					composite = (Composite) ctor.newInstance(null,section);
-				}
-				else {
-					ctor = clazz.getConstructor(AbstractBpmn2PropertySection.class);
-					composite = (Composite) ctor.newInstance(section);
+				CompositeConstructor ctor = sectionConstructors.get(clazz);
+				if (ctor==null) {
+					ctor = new CompositeConstructor(clazz,AbstractBpmn2PropertySection.class);
+					sectionConstructors.put(clazz, ctor);
 				}
+				composite = ctor.newInstance(section);
 			} catch (Exception e) {
 				logError(eClass,e);
 			}
@@ -247,17 +333,12 @@ public class PropertiesCompositeFactory implements IPropertiesCompositeFactory {
 		Composite composite = null;
 		if (clazz!=null) {
 			try {
-				Constructor ctor = null;
-				// allow the composite to be declared in an enclosing class
-				Class ec = clazz.getEnclosingClass();
-				if (ec!=null) {
-					ctor = clazz.getConstructor(ec,Composite.class,int.class);
-					composite = (Composite) ctor.newInstance(null,parent,style);
-				}
-				else {
-					ctor = clazz.getConstructor(Composite.class,int.class);
-					composite = (Composite) ctor.newInstance(parent,style);
+				CompositeConstructor ctor = parentConstructors.get(clazz);
+				if (ctor==null) {
+					ctor = new CompositeConstructor(clazz,Composite.class,int.class);
+					parentConstructors.put(clazz, ctor);
 				}
+				composite = ctor.newInstance(parent,style);
 			} catch (Exception e) {
 				logError(eClass,e);
 			}
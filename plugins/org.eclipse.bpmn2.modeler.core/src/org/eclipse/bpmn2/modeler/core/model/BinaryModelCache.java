@@ -0,0 +1,469 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.Definitions;
+import org.eclipse.bpmn2.Import;
+import org.eclipse.bpmn2.modeler.core.Activator;
+import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime;
+import org.eclipse.bpmn2.modeler.core.utils.ImportUtil;
+import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.FeatureMap;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
+
+/**
+ * A cache of BPMN2 model files in EMF's binary resource format, kept in the
+ * plugin state location. Reading a cached model skips XML parsing and QName
+ * resolution, which makes reopening a large model much faster. The Imports of
+ * a cached model are still loaded by the resource, as they are for a model
+ * read from XML.
+ * <p>
+ * Each cache entry records the content hash of the model file it was created
+ * from, and the content hashes of the files it imports, directly or through
+ * the Imports, includes and redefines of those files. An entry is used only if
+ * all of these still match; otherwise the model is read from XML and the entry
+ * is replaced. Models whose content can not be restored from the binary format
+ * (e.g. because they contain dynamic model extensions or Java Imports) are
+ * never cached.
+ * <p>
+ * The cache is limited to {@link #MAX_CACHE_SIZE} bytes; the least recently
+ * used entries are removed when a new entry would exceed it.
+ */
+public class BinaryModelCache {
+
+	private static final int MAGIC = 0x42504d4e; // "BPMN"
+	private static final int FORMAT_VERSION = 2;
+	private static final String CACHE_FOLDER = "modelcache"; //$NON-NLS-1$
+	private static final String CACHE_FILE_EXTENSION = ".bin"; //$NON-NLS-1$
+	private static final Map<Object, Object> BINARY_OPTIONS = Collections.emptyMap();
+
+	/**
+	 * The maximum total size, in bytes, of the cache entries.
+	 */
+	public static final long MAX_CACHE_SIZE = 64L * 1024 * 1024;
+
+	private static BinaryModelCache instance;
+
+	private final File folder;
+
+	/**
+	 * Return the cache, creating it if necessary.
+	 *
+	 * @return the cache, or null if the plugin is not running
+	 */
+	public static synchronized BinaryModelCache getInstance() {
+		if (instance==null) {
+			Activator plugin = Activator.getDefault();
+			if (plugin==null)
+				return null;
+			instance = new BinaryModelCache(plugin.getStateLocation().append(CACHE_FOLDER).toFile());
+		}
+		return instance;
+	}
+
+	private BinaryModelCache(File folder) {
+		this.folder = folder;
+	}
+
+	/**
+	 * Load the given resource from the cache.
+	 *
+	 * @param resource the resource, which must be empty
+	 * @param content the content of the model file
+	 * @return true if the resource was loaded, false if there is no current
+	 *         cache entry, in which case the resource is unchanged
+	 */
+	public synchronized boolean load(Bpmn2ModelerResourceImpl resource, byte[] content) {
+		File file = getCacheFile(resource.getURI());
+		if (!file.isFile())
+			return false;
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (!isCurrent(in, resource, content)) {
+				in.close();
+				in = null;
+				file.delete();
+				return false;
+			}
+			Bpmn2ModelerFactory.setEnableModelExtensions(false);
+			try {
+				BinaryResourceImpl.EObjectInputStream eis = new BinaryResourceImpl.EObjectInputStream(in, BINARY_OPTIONS);
+				eis.loadResource(resource);
+			}
+			finally {
+				Bpmn2ModelerFactory.setEnableModelExtensions(true);
+			}
+			initialize(resource);
+			file.setLastModified(System.currentTimeMillis());
+			return true;
+		}
+		catch (Exception e) {
+			// the entry is unusable: start over with the XML file
+			resource.getContents().clear();
+			resource.getEObjectToIDMap().clear();
+			resource.getIDToEObjectMap().clear();
+			if (in!=null) {
+				try {
+					in.close();
+				}
+				catch (IOException e1) {
+				}
+				in = null;
+			}
+			file.delete();
+			return false;
+		}
+		finally {
+			if (in!=null) {
+				try {
+					in.close();
+				}
+				catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create or replace the cache entry for the given resource, which has just
+	 * been loaded from the given model file content. Nothing is stored if the
+	 * resource could not be restored from the cache.
+	 *
+	 * @param resource the resource
+	 * @param content the content of the model file
+	 */
+	public synchronized void store(Bpmn2ModelerResourceImpl resource, byte[] content) {
+		File file = getCacheFile(resource.getURI());
+		if (!isCacheable(resource)) {
+			file.delete();
+			return;
+		}
+
+		File temp = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream out = null;
+		try {
+			folder.mkdirs();
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(getEnvironment());
+			out.writeUTF(digest(content));
+			List<URI> dependencies = getDependencies(resource);
+			out.writeInt(dependencies.size());
+			for (URI uri : dependencies) {
+				out.writeUTF(uri.toString());
+				out.writeUTF(digest(resource.getResourceSet(), uri));
+			}
+			out.flush();
+			BinaryResourceImpl.EObjectOutputStream eos = new BinaryResourceImpl.EObjectOutputStream(out, BINARY_OPTIONS);
+			eos.saveResource(resource);
+			eos.flush();
+			out.close();
+			out = null;
+			file.delete();
+			if (!temp.renameTo(file))
+				temp.delete();
+			trim();
+		}
+		catch (Exception e) {
+			Activator.logError(e);
+			temp.delete();
+		}
+		finally {
+			if (out!=null) {
+				try {
+					out.close();
+				}
+				catch (IOException e) {
+				}
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Check if there is a cache entry for the given model file. The entry may
+	 * not be current.
+	 *
+	 * @param uri the URI of the model file
+	 * @return true if there is an entry
+	 */
+	public synchronized boolean contains(URI uri) {
+		return getCacheFile(uri).isFile();
+	}
+
+	/**
+	 * Remove all cache entries.
+	 */
+	public synchronized void clear() {
+		File[] files = folder.listFiles();
+		if (files!=null) {
+			for (File f : files) {
+				if (f.getName().endsWith(CACHE_FILE_EXTENSION))
+					f.delete();
+			}
+		}
+	}
+
+	/**
+	 * Read the given stream to the end.
+	 *
+	 * @param inputStream the stream
+	 * @return the content of the stream
+	 * @throws IOException
+	 */
+	public static byte[] readContent(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(inputStream.available(), 8192));
+		byte[] buffer = new byte[8192];
+		int n;
+		while ((n = inputStream.read(buffer)) > 0)
+			out.write(buffer, 0, n);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Remove the least recently used entries until the cache is no larger than
+	 * {@link #MAX_CACHE_SIZE}.
+	 */
+	private void trim() {
+		File[] files = folder.listFiles();
+		if (files==null)
+			return;
+		List<File> entries = new ArrayList<File>();
+		long size = 0;
+		for (File f : files) {
+			if (f.getName().endsWith(CACHE_FILE_EXTENSION)) {
+				entries.add(f);
+				size += f.length();
+			}
+		}
+		if (size<=MAX_CACHE_SIZE)
+			return;
+		Collections.sort(entries, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				long t1 = f1.lastModified();
+				long t2 = f2.lastModified();
+				return t1<t2 ? -1 : (t1==t2 ? 0 : 1);
+			}
+		});
+		for (File f : entries) {
+			if (size<=MAX_CACHE_SIZE)
+				break;
+			long length = f.length();
+			if (f.delete())
+				size -= length;
+		}
+	}
+
+	private File getCacheFile(URI uri) {
+		return new File(folder, digest(toBytes(uri.toString())) + CACHE_FILE_EXTENSION);
+	}
+
+	/**
+	 * Check the header of a cache entry against the current model file and the
+	 * current content of its Imports.
+	 */
+	private boolean isCurrent(DataInputStream in, Bpmn2ModelerResourceImpl resource, byte[] content) throws IOException {
+		if (in.readInt()!=MAGIC || in.readInt()!=FORMAT_VERSION)
+			return false;
+		if (!getEnvironment().equals(in.readUTF()))
+			return false;
+		if (!digest(content).equals(in.readUTF()))
+			return false;
+		int count = in.readInt();
+		for (int i=0; i<count; ++i) {
+			URI uri = URI.createURI(in.readUTF());
+			String hash = in.readUTF();
+			if (!hash.equals(digest(resource.getResourceSet(), uri)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * The model that is created from a file also depends on the version of the
+	 * editor and the Target Runtime.
+	 */
+	private static String getEnvironment() {
+		StringBuilder sb = new StringBuilder();
+		Activator plugin = Activator.getDefault();
+		if (plugin!=null)
+			sb.append(plugin.getBundle().getVersion().toString());
+		TargetRuntime rt = TargetRuntime.getCurrentRuntime();
+		if (rt!=null)
+			sb.append("/").append(rt.getId()); //$NON-NLS-1$
+		return sb.toString();
+	}
+
+	/**
+	 * Restore the resource's ID map, which is not part of the binary format.
+	 */
+	private static void initialize(Bpmn2ModelerResourceImpl resource) {
+		for (TreeIterator<EObject> iter = EcoreUtil.getAllProperContents(resource, false); iter.hasNext();) {
+			EObject o = iter.next();
+			String id = EcoreUtil.getID(o);
+			if (id!=null)
+				resource.setID(o, id);
+		}
+	}
+
+	/**
+	 * Check if every object and feature in the resource belongs to a
+	 * registered EPackage, so that it can be found again when the cache entry
+	 * is read. Java Imports depend on the Java Project's classpath, which is
+	 * not tracked.
+	 */
+	private static boolean isCacheable(Bpmn2ModelerResourceImpl resource) {
+		if (!resource.getErrors().isEmpty() || resource.getContents().isEmpty())
+			return false;
+		Definitions definitions = ModelUtil.getDefinitions(resource);
+		if (definitions==null)
+			return false;
+		for (Import imp : definitions.getImports()) {
+			if (ImportUtil.IMPORT_TYPE_JAVA.equals(imp.getImportType()))
+				return false;
+		}
+		for (TreeIterator<EObject> iter = EcoreUtil.getAllProperContents(resource, false); iter.hasNext();) {
+			EObject o = iter.next();
+			if (!isRegistered(o.eClass().getEPackage()))
+				return false;
+			for (EStructuralFeature f : o.eClass().getEAllStructuralFeatures()) {
+				if (FeatureMapUtil.isFeatureMap(f) && o.eIsSet(f)) {
+					for (FeatureMap.Entry e : (FeatureMap) o.eGet(f)) {
+						if (!isRegistered(e.getEStructuralFeature().getEContainingClass().getEPackage()))
+							return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean isRegistered(EPackage p) {
+		return p!=null && p.getNsURI()!=null && EPackage.Registry.INSTANCE.getEPackage(p.getNsURI())==p;
+	}
+
+	/**
+	 * Return the resolved locations of the files that were read to create the
+	 * model: its Imports, and the Imports, includes and redefines of those
+	 * files, as far as they have been loaded.
+	 */
+	private static List<URI> getDependencies(Bpmn2ModelerResourceImpl resource) {
+		List<URI> dependencies = new ArrayList<URI>();
+		ResourceSet resourceSet = resource.getResourceSet();
+		ResourceSet importResourceSet = resourceSet!=null ? ModelUtil.slightlyHackedResourceSet(resourceSet) : null;
+		addDependencies(resource, resource.getURI(), resourceSet, importResourceSet, dependencies);
+		dependencies.remove(resource.getURI());
+		return dependencies;
+	}
+
+	private static void addDependencies(Resource resource, URI baseURI, ResourceSet resourceSet,
+			ResourceSet importResourceSet, List<URI> dependencies) {
+		for (String location : ImportUtil.getImportLocations(resource)) {
+			if (location==null || location.isEmpty())
+				continue;
+			URI uri = URI.createURI(location);
+			if (uri.isRelative() && baseURI!=null && !baseURI.isRelative())
+				uri = uri.resolve(baseURI);
+			if (dependencies.contains(uri))
+				continue;
+			dependencies.add(uri);
+			Resource imported = null;
+			if (resourceSet!=null)
+				imported = resourceSet.getResource(uri, false);
+			if (imported==null && importResourceSet!=null)
+				imported = importResourceSet.getResource(uri, false);
+			if (imported!=null)
+				addDependencies(imported, uri, resourceSet, importResourceSet, dependencies);
+		}
+	}
+
+	private static String digest(ResourceSet resourceSet, URI uri) {
+		URIConverter converter = resourceSet!=null ? resourceSet.getURIConverter() : URIConverter.INSTANCE;
+		InputStream in = null;
+		try {
+			in = converter.createInputStream(uri);
+			return digest(readContent(in));
+		}
+		catch (IOException e) {
+			// a missing file is a valid state, as long as it stays missing
+			return ""; //$NON-NLS-1$
+		}
+		finally {
+			if (in!=null) {
+				try {
+					in.close();
+				}
+				catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	private static String digest(byte[] bytes) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			byte[] hash = md.digest(bytes);
+			StringBuilder sb = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+				sb.append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			// every Java platform has SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] toBytes(String s) {
+		try {
+			return s.getBytes("UTF-8"); //$NON-NLS-1$
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
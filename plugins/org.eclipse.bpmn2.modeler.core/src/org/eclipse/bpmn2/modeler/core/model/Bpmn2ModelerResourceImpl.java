@@ -12,6 +12,8 @@
  ******************************************************************************/
 package org.eclipse.bpmn2.modeler.core.model;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -19,9 +21,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.eclipse.bpmn2.Assignment;
 import org.eclipse.bpmn2.BaseElement;
@@ -89,14 +93,17 @@ import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EPackage;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
 import org.eclipse.emf.ecore.util.BasicFeatureMap;
 import org.eclipse.emf.ecore.util.EObjectWithInverseEList;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.ecore.util.ExtendedMetaData;
 import org.eclipse.emf.ecore.util.FeatureMap;
 import org.eclipse.emf.ecore.util.FeatureMapUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
 import org.eclipse.emf.ecore.xmi.XMLHelper;
 import org.eclipse.emf.ecore.xmi.XMLLoad;
 import org.eclipse.emf.ecore.xmi.XMLResource;
@@ -123,9 +130,37 @@ import org.xml.sax.helpers.DefaultHandler;
 public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 
 	public static final String BPMN2_CONTENT_TYPE_ID = "org.eclipse.bpmn2.content-type.xml"; //$NON-NLS-1$
+	/**
+	 * Load option that limits the number of Import files (WSDL and XML Schema)
+	 * that are parsed at the same time. The value is an Integer; if it is less
+	 * than 2 the Imports are loaded one after the other. The default is the
+	 * number of available processors.
+	 */
+	public static final String OPTION_IMPORT_PARALLELISM = "IMPORT_PARALLELISM"; //$NON-NLS-1$
+	/**
+	 * Load option to read the document with a StAX stream reader instead of a
+	 * SAX parser. The value is a Boolean. This produces the same model, but
+	 * allocates less and resolves the deferred ID references through a table
+	 * of all IDs in the document; it is meant for very large documents. If the
+	 * option is not given, the {@link Bpmn2Preferences#getUseStaxParser()}
+	 * preference is used.
+	 */
+	public static final String OPTION_USE_STAX_PARSER = "USE_STAX_PARSER"; //$NON-NLS-1$
+	/**
+	 * Load option to read the model from, and store it in, the
+	 * {@link BinaryModelCache}. The value is a Boolean and the default is
+	 * false. The cached model is used only if the model file and the files it
+	 * imports, directly or indirectly, have not changed since it was stored;
+	 * otherwise the file is read as XML. A model read from the cache still has
+	 * its Imports loaded and processed as if it had been read from XML.
+	 */
+	public static final String OPTION_USE_BINARY_CACHE = "USE_BINARY_CACHE"; //$NON-NLS-1$
 	protected BpmnXmlHelper xmlHelper;
 	protected QNameURIHandler uriHandler;
 	public HashMap xmlNameToFeatureMap = new HashMap();
+	protected Map<String, Long> importLoadTimes = new LinkedHashMap<String, Long>();
+	/** IDs of all objects in this resource; only used while loading with the StAX reader */
+	protected Map<String, EObject> loadIdTable;
 	protected static HashSet<EStructuralFeature> qnameMap = new HashSet<EStructuralFeature>();
 	static {
 		qnameMap.add(Bpmn2Package.eINSTANCE.getExtension_Definition());
@@ -271,6 +306,75 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
         this.eAdapters().add(oppositeReferenceAdapter);
 	}
 
+	/**
+	 * Returns the time in milliseconds it took to load each of the Imports
+	 * when this resource was last loaded, keyed by Import location.
+	 * 
+	 * @return the Import load times, in the order of the Imports.
+	 */
+	public Map<String, Long> getImportLoadTimes() {
+		return importLoadTimes;
+	}
+
+	/**
+	 * Collect the IDs of all objects in this resource, so that the deferred
+	 * ID references can be resolved without searching the resource contents
+	 * for each one.
+	 */
+	protected void buildLoadIdTable() {
+		Map<String, EObject> table = new HashMap<String, EObject>();
+		for (TreeIterator<EObject> iter = EcoreUtil.getAllProperContents(this, false); iter.hasNext();) {
+			EObject o = iter.next();
+			String id = EcoreUtil.getID(o);
+			if (id!=null && !table.containsKey(id))
+				table.put(id, o);
+		}
+		loadIdTable = table;
+	}
+
+	@Override
+	protected EObject getEObjectByID(String id) {
+		Map<String, EObject> table = loadIdTable;
+		if (table!=null) {
+			// the table is complete, so there is no need to search for IDs that are not in it
+			EObject o = table.get(id);
+			if (o==null && idToEObjectMap!=null)
+				o = idToEObjectMap.get(id);
+			return o;
+		}
+		return super.getEObjectByID(id);
+	}
+
+	@Override
+	public void doLoad(InputStream inputStream, Map<?, ?> options) throws IOException {
+		if ((options==null || !options.containsKey(OPTION_USE_STAX_PARSER)) &&
+				!getDefaultLoadOptions().containsKey(OPTION_USE_STAX_PARSER)) {
+			Map<Object, Object> o = new HashMap<Object, Object>();
+			if (options!=null)
+				o.putAll(options);
+			o.put(OPTION_USE_STAX_PARSER, Bpmn2Preferences.getInstance(this).getUseStaxParser());
+			options = o;
+		}
+		BinaryModelCache cache = null;
+		Object useCache = options!=null && options.containsKey(OPTION_USE_BINARY_CACHE) ?
+				options.get(OPTION_USE_BINARY_CACHE) : getDefaultLoadOptions().get(OPTION_USE_BINARY_CACHE);
+		if (Boolean.TRUE.equals(useCache) && getURI()!=null)
+			cache = BinaryModelCache.getInstance();
+		if (cache==null) {
+			super.doLoad(inputStream, options);
+			return;
+		}
+
+		byte[] content = BinaryModelCache.readContent(inputStream);
+		if (cache.load(this, content)) {
+			Bpmn2ModelerXmlHandler handler = new Bpmn2ModelerXmlHandler(this, createXMLHelper(), options);
+			handler.completeCachedLoad();
+			return;
+		}
+		super.doLoad(new ByteArrayInputStream(content), options);
+		cache.store(this, content);
+	}
+
 	public void save(Map<?, ?> options) throws IOException {
 		uriHandler.setBaseURI(getURI());
 		xmlHelper.setResource(this);
@@ -301,7 +405,21 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 			@Override
 			public void load(XMLResource resource, InputStream inputStream, Map<?, ?> options) throws IOException {
 				try {
-					super.load(resource, inputStream, options);
+					if (options!=null && Boolean.TRUE.equals(options.get(OPTION_USE_STAX_PARSER)) &&
+							!(inputStream instanceof URIConverter.Readable)) {
+						// the same setup that super.load() does for the SAX parser
+						this.resource = resource;
+						this.options = options;
+						is = inputStream;
+						if (!is.markSupported())
+							is = new BufferedInputStream(is, 200);
+						resource.setEncoding(getEncoding());
+						handler = new Bpmn2ModelerXmlHandler(resource, helper, options);
+						boolean useLexicalHandler = Boolean.TRUE.equals(options.get(XMLResource.OPTION_USE_LEXICAL_HANDLER));
+						new StAXXMLReader(handler, useLexicalHandler).parse(is);
+					}
+					else
+						super.load(resource, inputStream, options);
 				}
 				catch (Exception e) {
 					BPMNDiagnostic error = new BPMNDiagnostic(e.getMessage());
@@ -312,6 +430,9 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 						resource.getErrors().add(error);
 					throw new IOException(e);
 				}
+				finally {
+					loadIdTable = null;
+				}
 			}
 		};
 	}
@@ -435,9 +556,15 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 		Bpmn2Preferences preferences = null;
 		ImportUtil importHandler = new ImportUtil();
 		String targetNamespace = null;
+		int importParallelism = Runtime.getRuntime().availableProcessors();
+		boolean useIdTable = false;
 
 		public Bpmn2ModelerXmlHandler(XMLResource xmiResource, XMLHelper helper, Map<?, ?> options) {
 			super(xmiResource, helper, options);
+			if (options!=null && options.get(OPTION_IMPORT_PARALLELISM) instanceof Integer)
+				importParallelism = (Integer) options.get(OPTION_IMPORT_PARALLELISM);
+			if (options!=null && Boolean.TRUE.equals(options.get(OPTION_USE_STAX_PARSER)))
+				useIdTable = xmiResource instanceof Bpmn2ModelerResourceImpl;
 		}
 
 		@Override
@@ -450,6 +577,59 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 		@Override
 		public void endDocument() {
 			super.endDocument();
+			completeLoad();
+		}
+
+		/**
+		 * Do the steps of {@link #endDocument()} for a model that was read from
+		 * the {@link BinaryModelCache}. References to objects in other BPMN2
+		 * files, which were resolved by
+		 * {@link #handleForwardReferences(boolean)} when the model was read
+		 * from XML, are stored as proxies; they are resolved here so that the
+		 * other files are loaded into the ResourceSet again.
+		 */
+		void completeCachedLoad() {
+			preferences = Bpmn2Preferences.getInstance(xmlResource);
+			Definitions definitions = ModelUtil.getDefinitions(xmlResource);
+			Set<URI> externals = new HashSet<URI>();
+			for (Import imp : definitions.getImports()) {
+				if (ImportUtil.IMPORT_TYPE_BPMN2.equals(imp.getImportType()) && imp.getLocation()!=null)
+					externals.add(URI.createURI(imp.getLocation()).resolve(xmlResource.getURI()));
+			}
+			if (!externals.isEmpty()) {
+				for (TreeIterator<EObject> iter = EcoreUtil.getAllProperContents(xmlResource, false); iter.hasNext();) {
+					EObject o = iter.next();
+					for (EReference r : o.eClass().getEAllReferences()) {
+						if (r.isContainment() || r.isDerived() || r.isTransient() || !o.eIsSet(r))
+							continue;
+						if (r.isMany()) {
+							List<?> values = (List<?>) o.eGet(r, false);
+							for (int i=0; i<values.size(); ++i) {
+								if (isExternalProxy(((InternalEList<?>) values).basicGet(i), externals))
+									values.get(i);
+							}
+						}
+						else if (isExternalProxy(o.eGet(r, false), externals))
+							o.eGet(r, true);
+					}
+				}
+			}
+			completeLoad();
+		}
+
+		private boolean isExternalProxy(Object value, Set<URI> externals) {
+			if (value instanceof EObject && ((EObject) value).eIsProxy()) {
+				URI uri = ((InternalEObject) value).eProxyURI().trimFragment().resolve(xmlResource.getURI());
+				return externals.contains(uri);
+			}
+			return false;
+		}
+
+		/**
+		 * Finish loading the model once all of its objects and references are
+		 * in place: load the Imports and create the objects they define.
+		 */
+		private void completeLoad() {
 			// Make sure there's a namespace prefix definition for typeLanguage.
 			// We'll need that prefix to qualify data types defined in the type language.
 			Definitions definitions = ModelUtil.getDefinitions(xmlResource);
@@ -465,9 +645,21 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
     			}
 			}
 			// Load all of the Imports and generate Interfaces, Operations, Messages, Faults and ItemDefinitions
-			for (Import imp : definitions.getImports()) {
+			List<Import> imports = new ArrayList<Import>(definitions.getImports());
+			long[] loadTimes = new long[imports.size()];
+			List<Object> importObjects = importHandler.loadImports(imports, importParallelism, loadTimes);
+			if (xmlResource instanceof Bpmn2ModelerResourceImpl) {
+				Map<String, Long> times = ((Bpmn2ModelerResourceImpl)xmlResource).importLoadTimes;
+				times.clear();
+				for (int i=0; i<imports.size(); ++i)
+					times.put(imports.get(i).getLocation(), loadTimes[i]);
+			}
+			for (int i=0; i<imports.size(); ++i) {
+				Import imp = imports.get(i);
 				try {
-	            	Object importObject = importHandler.loadImport(imp);
+	            	Object importObject = importObjects.get(i);
+	            	if (importObject instanceof IllegalArgumentException)
+	            		throw (IllegalArgumentException) importObject;
 	            	if (importObject!=null) {
 	            		importHandler.addImportObjects(imp, importObject);
 	            	}
@@ -494,6 +686,11 @@ public class Bpmn2ModelerResourceImpl extends Bpmn2ResourceImpl {
 		
 		@Override
 		protected void handleForwardReferences(boolean isEndDocument) {
+			if (isEndDocument && useIdTable) {
+				// the document and everything super.endDocument() has added
+				// to it is complete; the deferred ID references are resolved next
+				((Bpmn2ModelerResourceImpl)xmlResource).buildLoadIdTable();
+			}
 			if (isEndDocument) {
 				List<SingleReference> resolved = new ArrayList<SingleReference>();
 				for (SingleReference ref : forwardSingleReferences) {
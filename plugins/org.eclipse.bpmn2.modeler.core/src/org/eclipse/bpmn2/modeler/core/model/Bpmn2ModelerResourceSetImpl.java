@@ -11,8 +11,15 @@
 package org.eclipse.bpmn2.modeler.core.model;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.bpmn2.modeler.core.Activator;
 import org.eclipse.bpmn2.modeler.core.preferences.Bpmn2Preferences;
@@ -232,6 +239,301 @@ public class Bpmn2ModelerResourceSetImpl extends ResourceSetImpl implements IRes
 		return null;
 	}
 	
+	/**
+	 * Load several resources at once, as if by calling
+	 * {@link #getResource(URI, boolean, String)} for each one.
+	 * 
+	 * Resources that are not yet known to this resource set are parsed
+	 * concurrently, each one into its own private resource set so that the
+	 * parsers do not share any state. The private resource sets use this
+	 * resource set's factory registry, URI converter and load options. When
+	 * all of them are done, they are added to this resource set in the order
+	 * of the given URIs, together with any other resources they have loaded,
+	 * so the result does not depend on which parser finished first. If a
+	 * private resource set has loaded a resource that this resource set
+	 * already contains, for example a schema that is imported by two WSDL
+	 * files, its objects would refer to a second copy of that resource; the
+	 * private resource set is then discarded and the resource is loaded again
+	 * on the calling thread. Resources that are already known to this
+	 * resource set are loaded on the calling thread.
+	 * 
+	 * @param uris the URIs of the resources.
+	 * @param kinds the resource kind of each URI, see {@link #getResource(URI, boolean, String)}
+	 * @param parallelism the maximum number of resources parsed at the same time;
+	 *            if less than 2 all resources are loaded on the calling thread.
+	 * @param loadTimes if not null, receives the time in milliseconds it took
+	 *            to load each resource.
+	 * @return for each URI, the loaded resource or null if the URI is empty or
+	 *         the calling thread was interrupted,
+	 *         or the Throwable that was thrown if the resource could not be
+	 *         created. As with demand loading, a resource that could not be
+	 *         loaded is returned in its unloaded state.
+	 */
+	public List<Object> getResources(List<URI> uris, List<String> kinds, int parallelism, long[] loadTimes) {
+		int size = uris.size();
+		List<Object> results = new ArrayList<Object>(size);
+		List<DetachedLoad> loads = new ArrayList<DetachedLoad>();
+		Map<URI, DetachedLoad> pending = new HashMap<URI, DetachedLoad>();
+		URIConverter theURIConverter = getURIConverter();
+
+		for (int i=0; i<size; ++i) {
+			URI uri = uris.get(i);
+			String kind = kinds.get(i);
+			long time = System.currentTimeMillis();
+			try {
+				if (uri==null || uri.isEmpty()) {
+					results.add(null);
+				}
+				else if (parallelism<2 || getResource(uri, false, kind)!=null) {
+					results.add(getResource(uri, true, kind));
+				}
+				else {
+					URI normalizedURI = theURIConverter.normalize(uri);
+					DetachedLoad load = pending.get(normalizedURI);
+					if (load==null) {
+						load = new DetachedLoad(uri, kind, createDetachedResource(uri, kind));
+						pending.put(normalizedURI, load);
+						loads.add(load);
+					}
+					results.add(load);
+				}
+			}
+			catch (Throwable t) {
+				results.add(t);
+			}
+			if (loadTimes!=null)
+				loadTimes[i] = System.currentTimeMillis() - time;
+		}
+
+		if (!loads.isEmpty()) {
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, loads.size()), new ThreadFactory() {
+				private int count = 0;
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "BPMN2 Resource Loader " + (++count)); //$NON-NLS-1$
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			try {
+				setDefaultTimeoutProperties();
+				List<Runnable> tasks = new ArrayList<Runnable>(loads);
+				for (Runnable task : tasks)
+					executor.execute(task);
+				executor.shutdown();
+				while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+					// keep waiting: the loads are bounded by the connection timeout
+				}
+			}
+			catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+			finally {
+				restoreTimeoutProperties();
+			}
+
+			for (DetachedLoad load : loads) {
+				try {
+					attach(load);
+				}
+				catch (Throwable t) {
+					load.attached = t;
+				}
+			}
+
+			for (int i=0; i<size; ++i) {
+				Object result = results.get(i);
+				if (result instanceof DetachedLoad) {
+					DetachedLoad load = (DetachedLoad) result;
+					results.set(i, load.attached);
+					if (loadTimes!=null)
+						loadTimes[i] = load.loadTime;
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Create a resource of the given kind without adding it to this resource set.
+	 * 
+	 * @param uri the URI of the resource.
+	 * @param kind the resource kind.
+	 * @return the new resource.
+	 */
+	protected Resource createDetachedResource(URI uri, String kind) {
+		Resource.Factory factory = getResourceFactoryRegistry().getFactory(uri, kind);
+		if (factory == null) {
+			throw new RuntimeException("Cannot create a resource for '" //$NON-NLS-1$
+					+ uri + "'; a registered resource factory is needed"); //$NON-NLS-1$
+		}
+		return factory.createResource(uri);
+	}
+
+	/**
+	 * Add a resource that was loaded by {@link DetachedLoad} to this resource
+	 * set, along with any other resources that were loaded with it. If any of
+	 * those resources is already part of this resource set, the private
+	 * resource set is discarded and the resource is loaded on the calling
+	 * thread instead. Errors are reported the same way as for demand loading.
+	 */
+	private void attach(DetachedLoad load) {
+		if (!load.done) {
+			// the load was interrupted and may still be running
+			return;
+		}
+		if (load.error==null && load.resource.isLoaded()) {
+			for (Resource r : load.loader.getResources()) {
+				if (getResource(r.getURI(), false, null)!=null) {
+					long time = System.currentTimeMillis();
+					load.attached = getResource(load.uri, true, load.kind);
+					load.loadTime += System.currentTimeMillis() - time;
+					return;
+				}
+			}
+			getResources().addAll(new ArrayList<Resource>(load.loader.getResources()));
+			for (Entry<Resource, Exception> entry : load.loader.errors.entrySet())
+				reportLoadError(entry.getKey(), entry.getValue());
+		}
+		else {
+			Exception e = load.error;
+			if (e==null)
+				e = new Exception(Messages.Bpmn2ModelerResourceSetImpl_Loading_Resource_Not_Found);
+			reportLoadError(load.resource, e);
+			if (getResource(load.uri, false, null)!=null) {
+				load.attached = getResource(load.uri, false, null);
+				return;
+			}
+			getResources().add(load.resource);
+		}
+		Map<URI, Resource> map = getURIResourceMap();
+		if (map != null) {
+			map.put(load.uri, load.resource);
+		}
+		load.attached = load.resource;
+	}
+
+	private void reportLoadError(Resource resource, Exception e) {
+		Activator.logError(e);
+		String msg = NLS.bind(Messages.Bpmn2ModelerResourceSetImpl_Loading_Error_Message,resource.getURI());
+		ErrorDialog dlg = new ErrorDialog(Messages.Bpmn2ModelerResourceSetImpl_Loading_Error, msg, e);
+		dlg.show();
+	}
+
+	/**
+	 * Loads a single resource in a private resource set.
+	 */
+	private class DetachedLoad implements Runnable {
+		final URI uri;
+		final String kind;
+		final Resource resource;
+		final DetachedResourceSet loader = new DetachedResourceSet();
+		Exception error;
+		long loadTime;
+		volatile boolean done;
+		/** The resource, or the Throwable, returned to the caller of getResources() */
+		Object attached;
+
+		DetachedLoad(URI uri, String kind, Resource resource) {
+			this.uri = uri;
+			this.kind = kind;
+			this.resource = resource;
+			loader.getResources().add(resource);
+		}
+
+		@Override
+		public void run() {
+			long time = System.currentTimeMillis();
+			try {
+				resource.eSetDeliver(false);
+				resource.load(loader.getLoadOptions());
+			}
+			catch (Exception e) {
+				error = e;
+			}
+			loadTime = System.currentTimeMillis() - time;
+			done = true;
+		}
+	}
+
+	/**
+	 * The private resource set used by a {@link DetachedLoad}. It shares this
+	 * resource set's URI converter, load options and resource factory
+	 * registry, and records demand load errors instead of reporting them from
+	 * the loader thread.
+	 */
+	private class DetachedResourceSet extends ResourceSetImpl {
+		final Map<Resource, Exception> errors = new LinkedHashMap<Resource, Exception>();
+
+		DetachedResourceSet() {
+			setURIConverter(Bpmn2ModelerResourceSetImpl.this.getURIConverter());
+			getLoadOptions().putAll(Bpmn2ModelerResourceSetImpl.this.getLoadOptions());
+			getLoadOptions().remove(OPTION_PROGRESS_MONITOR);
+			getLoadOptions().remove(SLIGHTLY_HACKED_KEY);
+			setResourceFactoryRegistry(new SynchronizedFactoryRegistry(
+					Bpmn2ModelerResourceSetImpl.this.getResourceFactoryRegistry()));
+		}
+
+		@Override
+		protected void demandLoadHelper(Resource resource) {
+			try {
+				resource.eSetDeliver(false);
+				super.demandLoadHelper(resource);
+				if (!resource.isLoaded()) {
+					throw new Exception(Messages.Bpmn2ModelerResourceSetImpl_Loading_Resource_Not_Found);
+				}
+			}
+			catch (Exception e) {
+				synchronized (errors) {
+					errors.put(resource, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A resource factory registry that serializes access to another registry.
+	 * Our registry updates the global content type map on every lookup, so
+	 * the loader threads must not use it at the same time.
+	 */
+	private static class SynchronizedFactoryRegistry implements Resource.Factory.Registry {
+		private final Resource.Factory.Registry registry;
+
+		SynchronizedFactoryRegistry(Resource.Factory.Registry registry) {
+			this.registry = registry;
+		}
+
+		@Override
+		public Resource.Factory getFactory(URI uri) {
+			synchronized (registry) {
+				return registry.getFactory(uri);
+			}
+		}
+
+		@Override
+		public Resource.Factory getFactory(URI uri, String contentType) {
+			synchronized (registry) {
+				return registry.getFactory(uri, contentType);
+			}
+		}
+
+		@Override
+		public Map<String, Object> getProtocolToFactoryMap() {
+			return registry.getProtocolToFactoryMap();
+		}
+
+		@Override
+		public Map<String, Object> getExtensionToFactoryMap() {
+			return registry.getExtensionToFactoryMap();
+		}
+
+		@Override
+		public Map<String, Object> getContentTypeToFactoryMap() {
+			return registry.getContentTypeToFactoryMap();
+		}
+	}
+
 	public Resource getResource(URI uri, boolean loadOnDemand) {
 		Resource resource = super.getResource(uri, loadOnDemand);
 		int index = resources.indexOf(resource);
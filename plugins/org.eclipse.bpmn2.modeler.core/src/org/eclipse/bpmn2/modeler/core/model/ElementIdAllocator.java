@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+
+/**
+ * A Resource-scoped allocator for BPMN2 element IDs. IDs are composed of a
+ * name, usually the element's type name, and a sequence number starting at 1;
+ * the allocator always hands out the lowest sequence number that is not in
+ * use for a name.
+ * <p>
+ * For each name the allocator keeps a high-water mark below which every
+ * sequence number has been handed out, and the set of numbers below that mark
+ * that have been released again, so that finding a free ID does not have to
+ * probe every ID that is already taken.
+ * <p>
+ * The allocator is attached to the Resource as an adapter, and goes away
+ * together with the Resource.
+ */
+public class ElementIdAllocator extends AdapterImpl {
+
+	protected Resource resource;
+	/** all IDs in use or reserved, and the objects they were allocated for */
+	protected Map<String, EObject> ids = new HashMap<String, EObject>();
+	/** name to the state of its sequence numbers */
+	protected Map<String, Sequence> sequences = new HashMap<String, Sequence>();
+
+	private static class Sequence {
+		/** every sequence number below this one has been handed out */
+		int next = 1;
+		/** the numbers below "next" that have been released since */
+		TreeSet<Integer> free = new TreeSet<Integer>();
+	}
+
+	/**
+	 * Return the ID allocator for the given Resource, creating and attaching
+	 * one if necessary.
+	 *
+	 * @param resource the Resource
+	 * @return the ID allocator or null if the resource is null
+	 */
+	public static ElementIdAllocator getAllocator(Resource resource) {
+		if (resource==null)
+			return null;
+		synchronized (resource) {
+			for (Adapter a : resource.eAdapters()) {
+				if (a instanceof ElementIdAllocator)
+					return (ElementIdAllocator) a;
+			}
+			ElementIdAllocator allocator = new ElementIdAllocator(resource);
+			resource.eAdapters().add(allocator);
+			return allocator;
+		}
+	}
+
+	private ElementIdAllocator(Resource resource) {
+		this.resource = resource;
+	}
+
+	/**
+	 * Allocate an ID for the given object. If "useName" is true and the name
+	 * itself is not in use, the name is the ID; otherwise it is the name
+	 * followed by an underscore and the lowest free sequence number.
+	 *
+	 * @param name the ID name
+	 * @param useName if true, the name may be used as the ID
+	 * @param object the object that will own the ID, may be null
+	 * @return the ID string
+	 */
+	public synchronized String allocate(String name, boolean useName, EObject object) {
+		if (useName && !ids.containsKey(name)) {
+			ids.put(name, object);
+			return name;
+		}
+		Sequence s = getSequence(name);
+		while (!s.free.isEmpty()) {
+			String id = name + "_" + s.free.pollFirst(); //$NON-NLS-1$
+			if (!ids.containsKey(id)) {
+				ids.put(id, object);
+				return id;
+			}
+		}
+		for (;;) {
+			String id = name + "_" + s.next++; //$NON-NLS-1$
+			if (!ids.containsKey(id)) {
+				ids.put(id, object);
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * Reserve a number of IDs at once, e.g. before a batch of objects is
+	 * created. The IDs are allocated as if by {@link #allocate(String, boolean, EObject)}
+	 * and remain in use until they are released.
+	 *
+	 * @param name the ID name
+	 * @param count the number of IDs to reserve
+	 * @return the reserved ID strings
+	 */
+	public synchronized String[] reserve(String name, int count) {
+		String[] result = new String[count];
+		for (int i=0; i<count; ++i)
+			result[i] = allocate(name, false, null);
+		return result;
+	}
+
+	/**
+	 * Mark an existing ID as being in use, e.g. when a model is loaded.
+	 *
+	 * @param id the ID string
+	 * @param object the object that owns the ID
+	 */
+	public synchronized void register(String id, EObject object) {
+		ids.put(id, object);
+	}
+
+	/**
+	 * Check if the given ID is in use or reserved.
+	 *
+	 * @param id the ID string
+	 * @return true if the ID is taken
+	 */
+	public synchronized boolean isTaken(String id) {
+		return ids.containsKey(id);
+	}
+
+	/**
+	 * Release an ID so that it can be allocated again.
+	 *
+	 * @param id the ID string
+	 */
+	public synchronized void release(String id) {
+		if (!ids.containsKey(id))
+			return;
+		ids.remove(id);
+		int i = id.lastIndexOf('_');
+		if (i>0) {
+			Sequence s = sequences.get(id.substring(0, i));
+			if (s!=null) {
+				try {
+					int n = Integer.parseInt(id.substring(i + 1));
+					// "name_05" is not sequence number 5
+					if (n>0 && n<s.next && id.endsWith("_" + n)) //$NON-NLS-1$
+						s.free.add(n);
+				}
+				catch (NumberFormatException e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove this allocator from its Resource and forget all IDs.
+	 */
+	public void dispose() {
+		resource.eAdapters().remove(this);
+		synchronized (this) {
+			ids.clear();
+			sequences.clear();
+		}
+	}
+
+	private Sequence getSequence(String name) {
+		Sequence s = sequences.get(name);
+		if (s==null) {
+			s = new Sequence();
+			sequences.put(name, s);
+		}
+		return s;
+	}
+
+	@Override
+	public boolean isAdapterForType(Object type) {
+		return type == ElementIdAllocator.class;
+	}
+}
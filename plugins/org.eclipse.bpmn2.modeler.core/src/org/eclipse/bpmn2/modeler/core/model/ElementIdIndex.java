@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.BaseElement;
+import org.eclipse.bpmn2.Bpmn2Package;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+
+/**
+ * A Resource-scoped index of BPMN2 element IDs. The index maps an ID string to
+ * all of the BaseElements in the Resource that use that ID, so that duplicate
+ * IDs can be detected without walking the entire model.
+ * <p>
+ * The index is a part of the Resource's {@link ModelIndex} and is kept current
+ * through EMF notifications: elements are added to or removed from the index
+ * as they are added to or removed from the Resource, and the index entry is
+ * moved whenever an element's ID changes.
+ */
+public class ElementIdIndex extends ModelIndex.Part {
+
+	protected Map<String, List<BaseElement>> index = new HashMap<String, List<BaseElement>>();
+
+	/**
+	 * Return the ID index for the given Resource, installing the Resource's
+	 * {@link ModelIndex} if necessary. Installing the index visits every
+	 * object in the Resource once; all subsequent lookups are constant time.
+	 *
+	 * @param resource the Resource
+	 * @return the ID index or null if the resource is null or is not a
+	 *         diagram Resource
+	 */
+	public static ElementIdIndex getIndex(Resource resource) {
+		ModelIndex modelIndex = ModelIndex.getIndex(resource);
+		return modelIndex==null ? null : modelIndex.getIdIndex();
+	}
+
+	ElementIdIndex(ModelIndex modelIndex) {
+		super(modelIndex);
+	}
+
+	/**
+	 * Return all BaseElements in the Resource that have the given ID.
+	 *
+	 * @param id the ID string
+	 * @return a list of BaseElements, which may be empty but never null
+	 */
+	public List<BaseElement> getElements(String id) {
+		synchronized (modelIndex) {
+			List<BaseElement> list = index.get(id);
+			if (list==null || list.isEmpty())
+				return Collections.emptyList();
+			return new ArrayList<BaseElement>(list);
+		}
+	}
+
+	/**
+	 * Check if the given ID is used by more than one BaseElement in the Resource.
+	 *
+	 * @param id the ID string
+	 * @return true if the ID is not unique
+	 */
+	public boolean isDuplicate(String id) {
+		synchronized (modelIndex) {
+			List<BaseElement> list = index.get(id);
+			return list!=null && list.size()>1;
+		}
+	}
+
+	@Override
+	protected void added(EObject object) {
+		if (object instanceof BaseElement)
+			add(((BaseElement) object).getId(), (BaseElement) object);
+	}
+
+	@Override
+	protected void removed(EObject object) {
+		if (object instanceof BaseElement)
+			remove(((BaseElement) object).getId(), (BaseElement) object);
+	}
+
+	@Override
+	protected void notifyChanged(Notification notification) {
+		if (notification.getFeature() == Bpmn2Package.eINSTANCE.getBaseElement_Id() &&
+				notification.getNotifier() instanceof BaseElement) {
+			BaseElement be = (BaseElement) notification.getNotifier();
+			remove((String) notification.getOldValue(), be);
+			add((String) notification.getNewValue(), be);
+		}
+	}
+
+	@Override
+	protected void clear() {
+		index.clear();
+	}
+
+	private void add(String id, BaseElement be) {
+		if (id==null)
+			return;
+		List<BaseElement> list = index.get(id);
+		if (list==null) {
+			list = new ArrayList<BaseElement>(1);
+			index.put(id, list);
+		}
+		if (!list.contains(be))
+			list.add(be);
+	}
+
+	private void remove(String id, BaseElement be) {
+		if (id==null)
+			return;
+		List<BaseElement> list = index.get(id);
+		if (list!=null) {
+			list.remove(be);
+			if (list.isEmpty())
+				index.remove(id);
+		}
+	}
+}
@@ -13,7 +13,9 @@
 package org.eclipse.bpmn2.modeler.core.model;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.bpmn2.Artifact;
 import org.eclipse.bpmn2.Association;
@@ -722,7 +724,12 @@ public class ModelHandler {
 	// TODO: Move all of this model handler crap into BPMN2PersistencyBehavior where it belongs
 	void loadResource() {
 		try {
-			resource.load(null);
+			// the editor reopens the same files often; the binary model cache
+			// can be enabled in the preferences
+			Map<Object, Object> options = new HashMap<Object, Object>();
+			options.put(Bpmn2ModelerResourceImpl.OPTION_USE_BINARY_CACHE,
+					Bpmn2Preferences.getInstance(resource).getUseBinaryCache());
+			resource.load(options);
 			List<Tuple<EObject,EObject>> dups = ModelUtil.findDuplicateIds(resource);
 			if (dups.size()>0) {
 				FixDuplicateIdsDialog dlg = new FixDuplicateIdsDialog(dups);
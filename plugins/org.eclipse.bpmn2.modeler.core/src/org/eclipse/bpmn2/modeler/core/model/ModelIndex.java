@@ -0,0 +1,408 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.bpmn2.Definitions;
+import org.eclipse.bpmn2.DocumentRoot;
+import org.eclipse.bpmn2.modeler.core.di.DiagramElementIndex;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+
+/**
+ * A Resource-scoped index of the objects in a BPMN2 or Graphiti diagram
+ * Resource. It maps each EClass to the objects that are direct instances of
+ * it, so that all instances of a type (including its subtypes) can be
+ * collected without walking the entire model.
+ * <p>
+ * The index of IDs is kept by an {@link ElementIdIndex}, and the index of
+ * DiagramElements and PictogramElements by a {@link DiagramElementIndex}.
+ * Both are parts of this index and share its adapter, so that the Resource is
+ * visited only once.
+ * <p>
+ * The index is only installed on diagram Resources, that is the BPMN2 Resource
+ * that contains the BPMNDiagrams and the Resource that contains the Graphiti
+ * Diagrams; imported WSDL and XML Schema Resources are never visited. It is
+ * installed as a single content adapter and is kept current through EMF
+ * notifications: objects are added to or removed from the index as they are
+ * added to or removed from the Resource. The editor that owns the
+ * Resources removes the index when it is disposed.
+ * <p>
+ * The document order of the objects is kept as a label per object: labels
+ * increase in the order that {@link Resource#getAllContents()} would visit
+ * the objects. An added or moved subtree is labeled in the gap between the
+ * labels of its neighbors, and only if that gap is too small are all labels
+ * spread out again.
+ */
+public class ModelIndex extends EContentAdapter {
+
+	protected Resource resource;
+	/** EClass to its direct instances. */
+	protected Map<EClass, LinkedHashSet<EObject>> types = new HashMap<EClass, LinkedHashSet<EObject>>();
+	/** The document order label of each object in the Resource. */
+	protected Map<EObject, Long> labels = new IdentityHashMap<EObject, Long>();
+	/** The objects in the Resource by their document order label. */
+	protected TreeMap<Long, EObject> order = new TreeMap<Long, EObject>();
+	/** The parts of the index that are kept current by this adapter. */
+	protected ElementIdIndex idIndex = new ElementIdIndex(this);
+	protected DiagramElementIndex diagramElementIndex = new DiagramElementIndex(this);
+	protected List<Part> parts = new ArrayList<Part>();
+
+	/**
+	 * A part of a ModelIndex that is kept current by the ModelIndex's content
+	 * adapter, so that all parts share a single visit of the Resource. The
+	 * ModelIndex is locked while the methods of a part are called, and parts
+	 * must lock it for their lookups too.
+	 */
+	public static abstract class Part {
+
+		protected final ModelIndex modelIndex;
+
+		protected Part(ModelIndex modelIndex) {
+			this.modelIndex = modelIndex;
+		}
+
+		/**
+		 * Called after an object was added to the Resource.
+		 *
+		 * @param object the object
+		 */
+		protected abstract void added(EObject object);
+
+		/**
+		 * Called after an object was removed from the Resource.
+		 *
+		 * @param object the object
+		 */
+		protected abstract void removed(EObject object);
+
+		/**
+		 * Called for every change of an object in the Resource.
+		 *
+		 * @param notification the notification of the change
+		 */
+		protected abstract void notifyChanged(Notification notification);
+
+		/**
+		 * Called when the ModelIndex is disposed.
+		 */
+		protected abstract void clear();
+	}
+
+	/**
+	 * Return the index for the given Resource, creating and installing one if
+	 * necessary. Installing the index visits every object in the Resource
+	 * once; all subsequent lookups are proportional to the size of the result.
+	 *
+	 * @param resource the Resource
+	 * @return the index or null if the resource is null or is not a diagram
+	 *         Resource
+	 */
+	public static ModelIndex getIndex(Resource resource) {
+		if (resource==null)
+			return null;
+		synchronized (resource) {
+			for (Adapter a : resource.eAdapters()) {
+				if (a instanceof ModelIndex)
+					return (ModelIndex) a;
+			}
+			if (!isDiagramResource(resource))
+				return null;
+			ModelIndex index = new ModelIndex(resource);
+			resource.eAdapters().add(index);
+			return index;
+		}
+	}
+
+	/**
+	 * Remove the index from the given Resource, if one was installed.
+	 *
+	 * @param resource the Resource
+	 */
+	public static void removeIndex(Resource resource) {
+		if (resource==null)
+			return;
+		ModelIndex index = null;
+		synchronized (resource) {
+			for (Adapter a : resource.eAdapters()) {
+				if (a instanceof ModelIndex) {
+					index = (ModelIndex) a;
+					break;
+				}
+			}
+		}
+		if (index!=null)
+			index.dispose();
+	}
+
+	private static boolean isDiagramResource(Resource resource) {
+		for (EObject o : resource.getContents()) {
+			if (o instanceof Diagram || o instanceof DocumentRoot || o instanceof Definitions)
+				return true;
+		}
+		return false;
+	}
+
+	private ModelIndex(Resource resource) {
+		this.resource = resource;
+		parts.add(idIndex);
+		parts.add(diagramElementIndex);
+	}
+
+	/**
+	 * @return the index of element IDs
+	 */
+	public ElementIdIndex getIdIndex() {
+		return idIndex;
+	}
+
+	/**
+	 * @return the index of DiagramElements and PictogramElements
+	 */
+	public DiagramElementIndex getDiagramElementIndex() {
+		return diagramElementIndex;
+	}
+
+	/**
+	 * Return all objects in the Resource that are instances of the given
+	 * EClass or any of its subtypes, in the order they appear in the Resource.
+	 *
+	 * @param eClass the EClass
+	 * @return a list of objects, which may be empty but never null
+	 */
+	public synchronized List<EObject> getObjects(EClass eClass) {
+		List<EObject> list = new ArrayList<EObject>();
+		for (Entry<EClass, LinkedHashSet<EObject>> entry : types.entrySet()) {
+			if (eClass.isSuperTypeOf(entry.getKey()))
+				list.addAll(entry.getValue());
+		}
+		if (list.size()>1)
+			Collections.sort(list, documentOrder);
+		return list;
+	}
+
+	/**
+	 * Orders objects by their position in the Resource; objects that are not
+	 * in the Resource come last.
+	 */
+	private final Comparator<EObject> documentOrder = new Comparator<EObject>() {
+		@Override
+		public int compare(EObject o1, EObject o2) {
+			Long l1 = labels.get(o1);
+			Long l2 = labels.get(o2);
+			long i1 = l1==null ? Long.MAX_VALUE : l1;
+			long i2 = l2==null ? Long.MAX_VALUE : l2;
+			return i1<i2 ? -1 : (i1==i2 ? 0 : 1);
+		}
+	};
+
+	/** The distance between the labels of consecutive objects after relabeling. */
+	private static final long LABEL_STEP = 1L << 32;
+
+	/**
+	 * Label the given object and all of its contents in document order, in
+	 * the gap between the label of the object that precedes it in the
+	 * Resource and the next label.
+	 *
+	 * @param root the object
+	 */
+	private void label(EObject root) {
+		List<EObject> subtree = new ArrayList<EObject>();
+		subtree.add(root);
+		for (TreeIterator<EObject> iter = root.eAllContents(); iter.hasNext();)
+			subtree.add(iter.next());
+		for (EObject o : subtree) {
+			Long l = labels.remove(o);
+			if (l!=null)
+				order.remove(l);
+		}
+
+		EObject predecessor = getPredecessor(root);
+		while (predecessor!=null && !labels.containsKey(predecessor))
+			predecessor = getPredecessor(predecessor);
+		int n = subtree.size();
+		long low = 0;
+		long step = 0;
+		for (int attempt = 0; attempt<2 && step<1; ++attempt) {
+			if (attempt>0)
+				relabel();
+			low = predecessor==null ? 0 : labels.get(predecessor);
+			Long high = order.higherKey(low);
+			if (high==null)
+				step = low <= Long.MAX_VALUE - LABEL_STEP * (n + 1) ? LABEL_STEP : 0;
+			else
+				step = (high - low) / (n + 1);
+		}
+		long label = low;
+		for (EObject o : subtree) {
+			label += Math.max(step, 1);
+			labels.put(o, label);
+			order.put(label, o);
+		}
+	}
+
+	/**
+	 * Spread out the labels of all objects evenly.
+	 */
+	private void relabel() {
+		List<EObject> objects = new ArrayList<EObject>(order.values());
+		long step = Math.min(LABEL_STEP, Long.MAX_VALUE / (2L * (objects.size() + 1)));
+		order.clear();
+		long label = 0;
+		for (EObject o : objects) {
+			label += step;
+			labels.put(o, label);
+			order.put(label, o);
+		}
+	}
+
+	/**
+	 * Return the object that precedes the given one in document order: the
+	 * last of the contents of its previous sibling, or its container.
+	 *
+	 * @param object the object
+	 * @return the preceding object or null if the object is the first one
+	 */
+	private EObject getPredecessor(EObject object) {
+		EObject container = object.eContainer();
+		List<EObject> siblings = container!=null ? container.eContents() : resource.getContents();
+		int i = siblings.indexOf(object);
+		if (i<=0)
+			return container;
+		EObject predecessor = siblings.get(i - 1);
+		for (List<EObject> contents = predecessor.eContents(); !contents.isEmpty(); contents = predecessor.eContents())
+			predecessor = contents.get(contents.size() - 1);
+		return predecessor;
+	}
+
+	/**
+	 * Return the objects that were moved within the Resource by the given
+	 * change: objects that are added to a containment list or moved within it
+	 * while they already have a label.
+	 */
+	private List<EObject> getMovedObjects(Notification notification) {
+		boolean containment;
+		Object feature = notification.getFeature();
+		if (feature instanceof EReference)
+			containment = ((EReference) feature).isContainment();
+		else
+			containment = notification.getNotifier() instanceof Resource &&
+					notification.getFeatureID(Resource.class) == Resource.RESOURCE__CONTENTS;
+		if (!containment)
+			return Collections.emptyList();
+
+		List<EObject> moved = new ArrayList<EObject>();
+		switch (notification.getEventType()) {
+		case Notification.ADD:
+		case Notification.SET:
+		case Notification.MOVE:
+			if (labels.containsKey(notification.getNewValue()))
+				moved.add((EObject) notification.getNewValue());
+			break;
+		case Notification.ADD_MANY:
+			for (Object o : (Collection<?>) notification.getNewValue()) {
+				if (labels.containsKey(o))
+					moved.add((EObject) o);
+			}
+			break;
+		}
+		return moved;
+	}
+
+	/**
+	 * Remove this index from its Resource and all of the Resource contents.
+	 */
+	public void dispose() {
+		resource.eAdapters().remove(this);
+		synchronized (this) {
+			types.clear();
+			labels.clear();
+			order.clear();
+			for (Part part : parts)
+				part.clear();
+		}
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		List<EObject> moved;
+		synchronized (this) {
+			moved = getMovedObjects(notification);
+		}
+		super.notifyChanged(notification);
+		synchronized (this) {
+			// moving an object within the Resource does not always set or
+			// unset its target, so it is labeled here
+			for (EObject o : moved)
+				label(o);
+			for (Part part : parts)
+				part.notifyChanged(notification);
+		}
+	}
+
+	@Override
+	protected void setTarget(EObject target) {
+		synchronized (this) {
+			// the contents are labeled along with the target, before their
+			// targets are set
+			if (!labels.containsKey(target))
+				label(target);
+		}
+		super.setTarget(target);
+		synchronized (this) {
+			LinkedHashSet<EObject> set = types.get(target.eClass());
+			if (set==null) {
+				set = new LinkedHashSet<EObject>();
+				types.put(target.eClass(), set);
+			}
+			set.add(target);
+			for (Part part : parts)
+				part.added(target);
+		}
+	}
+
+	@Override
+	protected void unsetTarget(EObject target) {
+		super.unsetTarget(target);
+		synchronized (this) {
+			LinkedHashSet<EObject> set = types.get(target.eClass());
+			if (set!=null) {
+				set.remove(target);
+				if (set.isEmpty())
+					types.remove(target.eClass());
+			}
+			Long label = labels.remove(target);
+			if (label!=null)
+				order.remove(label);
+			for (Part part : parts)
+				part.removed(target);
+		}
+	}
+}
@@ -29,6 +29,16 @@ public final class ProxyURIConverterImplExtension extends ExtensibleURIConverter
 		this.baseUri = baseUri;
 	}
 	
+	/**
+	 * Change the base URI used to resolve relative URIs. This allows a single
+	 * ResourceSet to be shared for loading several model files.
+	 * 
+	 * @param baseUri the new base URI
+	 */
+	public void setBaseUri(URI baseUri) {
+		this.baseUri = baseUri;
+	}
+	
 	/**
 	 * We provide local copies for some files from the web. Local copy names are requested url without starting
 	 * "http://" and all '/' are replaced with '_'
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.eclipse.emf.ecore.resource.Resource;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.ext.Locator2;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Drives an EMF XML handler from a StAX stream reader instead of a SAX
+ * parser. The handler sees exactly the events that EMF's non namespace aware
+ * SAX parser would deliver (qualified element names, with namespace
+ * declarations reported as "xmlns" attributes), so the resulting model is the
+ * same.
+ * <p>
+ * The reader allocates much less than the SAX path: element and attribute
+ * names are interned once per document in a name table, a single mutable
+ * Attributes object is reused for every element, and character data is passed
+ * to the handler straight from the reader's buffer.
+ */
+public class StAXXMLReader {
+
+	private static XMLInputFactory inputFactory;
+
+	private final DefaultHandler handler;
+	private final LexicalHandler lexicalHandler;
+	/** prefix to local name to qualified name */
+	private final Map<String, Map<String, String>> names = new HashMap<String, Map<String, String>>();
+	private final ReusableAttributes attributes = new ReusableAttributes();
+	private XMLStreamReader reader;
+
+	/**
+	 * Create a reader for the given handler.
+	 *
+	 * @param handler the handler that receives the parse events
+	 * @param useLexicalHandler if true, and the handler is a LexicalHandler,
+	 *            comments and CDATA sections are also reported
+	 */
+	public StAXXMLReader(DefaultHandler handler, boolean useLexicalHandler) {
+		this.handler = handler;
+		this.lexicalHandler = useLexicalHandler && handler instanceof LexicalHandler ? (LexicalHandler) handler : null;
+	}
+
+	private static synchronized XMLInputFactory getInputFactory() {
+		if (inputFactory==null) {
+			inputFactory = XMLInputFactory.newInstance();
+			inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+			inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+			inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		}
+		return inputFactory;
+	}
+
+	/**
+	 * Parse the given document.
+	 *
+	 * @param inputStream the document
+	 * @throws IOException if the document is not well formed, or the handler
+	 *             reports an error
+	 */
+	public void parse(InputStream inputStream) throws IOException {
+		try {
+			reader = getInputFactory().createXMLStreamReader(inputStream);
+			try {
+				handler.setDocumentLocator(new StAXLocator());
+				handler.startDocument();
+				while (reader.hasNext()) {
+					switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						startElement();
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						handler.endElement("", "", getName(reader.getPrefix(), reader.getLocalName())); //$NON-NLS-1$ //$NON-NLS-2$
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.SPACE:
+						handler.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						break;
+					case XMLStreamConstants.CDATA:
+						if (lexicalHandler!=null)
+							lexicalHandler.startCDATA();
+						handler.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						if (lexicalHandler!=null)
+							lexicalHandler.endCDATA();
+						break;
+					case XMLStreamConstants.COMMENT:
+						if (lexicalHandler!=null)
+							lexicalHandler.comment(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						break;
+					case XMLStreamConstants.PROCESSING_INSTRUCTION:
+						handler.processingInstruction(reader.getPITarget(), reader.getPIData());
+						break;
+					}
+				}
+				handler.endDocument();
+			}
+			finally {
+				reader.close();
+				reader = null;
+			}
+		}
+		catch (XMLStreamException e) {
+			throw new Resource.IOWrappedException(e);
+		}
+		catch (SAXException e) {
+			Exception cause = e.getException();
+			throw new Resource.IOWrappedException(cause!=null ? cause : e);
+		}
+	}
+
+	private void startElement() throws SAXException {
+		attributes.clear();
+		int count = reader.getNamespaceCount();
+		for (int i=0; i<count; ++i) {
+			String prefix = reader.getNamespacePrefix(i);
+			String uri = reader.getNamespaceURI(i);
+			if (prefix==null || prefix.isEmpty())
+				attributes.add("xmlns", uri==null ? "" : uri); //$NON-NLS-1$ //$NON-NLS-2$
+			else
+				attributes.add(getName("xmlns", prefix), uri==null ? "" : uri); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		count = reader.getAttributeCount();
+		for (int i=0; i<count; ++i) {
+			attributes.add(getName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+		}
+		handler.startElement("", "", getName(reader.getPrefix(), reader.getLocalName()), attributes); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Return the interned qualified name for the given prefix and local name.
+	 */
+	private String getName(String prefix, String localName) {
+		if (prefix==null)
+			prefix = ""; //$NON-NLS-1$
+		Map<String, String> map = names.get(prefix);
+		if (map==null) {
+			map = new HashMap<String, String>();
+			names.put(prefix, map);
+		}
+		String name = map.get(localName);
+		if (name==null) {
+			name = prefix.isEmpty() ? localName : prefix + ":" + localName; //$NON-NLS-1$
+			map.put(localName, name);
+		}
+		return name;
+	}
+
+	/**
+	 * Reports the current position of the stream reader, and the XML version
+	 * and encoding of the document.
+	 */
+	private class StAXLocator implements Locator2 {
+
+		private Location getLocation() {
+			return reader==null ? null : reader.getLocation();
+		}
+
+		@Override
+		public String getPublicId() {
+			Location l = getLocation();
+			return l==null ? null : l.getPublicId();
+		}
+
+		@Override
+		public String getSystemId() {
+			Location l = getLocation();
+			return l==null ? null : l.getSystemId();
+		}
+
+		@Override
+		public int getLineNumber() {
+			Location l = getLocation();
+			return l==null ? -1 : l.getLineNumber();
+		}
+
+		@Override
+		public int getColumnNumber() {
+			Location l = getLocation();
+			return l==null ? -1 : l.getColumnNumber();
+		}
+
+		@Override
+		public String getXMLVersion() {
+			String version = reader==null ? null : reader.getVersion();
+			return version==null ? "1.0" : version; //$NON-NLS-1$
+		}
+
+		@Override
+		public String getEncoding() {
+			return reader==null ? null : reader.getEncoding();
+		}
+	}
+
+	/**
+	 * An Attributes implementation that is filled again for every element.
+	 */
+	private static class ReusableAttributes implements Attributes {
+		private String[] qNames = new String[8];
+		private String[] values = new String[8];
+		private int length;
+
+		void clear() {
+			for (int i=0; i<length; ++i)
+				values[i] = null;
+			length = 0;
+		}
+
+		void add(String qName, String value) {
+			if (length==qNames.length) {
+				String[] n = new String[length * 2];
+				String[] v = new String[length * 2];
+				System.arraycopy(qNames, 0, n, 0, length);
+				System.arraycopy(values, 0, v, 0, length);
+				qNames = n;
+				values = v;
+			}
+			qNames[length] = qName;
+			values[length] = value;
+			++length;
+		}
+
+		@Override
+		public int getLength() {
+			return length;
+		}
+
+		@Override
+		public String getURI(int index) {
+			return index>=0 && index<length ? "" : null; //$NON-NLS-1$
+		}
+
+		@Override
+		public String getLocalName(int index) {
+			return index>=0 && index<length ? "" : null; //$NON-NLS-1$
+		}
+
+		@Override
+		public String getQName(int index) {
+			return index>=0 && index<length ? qNames[index] : null;
+		}
+
+		@Override
+		public String getType(int index) {
+			return index>=0 && index<length ? "CDATA" : null; //$NON-NLS-1$
+		}
+
+		@Override
+		public String getValue(int index) {
+			return index>=0 && index<length ? values[index] : null;
+		}
+
+		@Override
+		public int getIndex(String uri, String localName) {
+			return -1;
+		}
+
+		@Override
+		public int getIndex(String qName) {
+			for (int i=0; i<length; ++i) {
+				if (qNames[i].equals(qName))
+					return i;
+			}
+			return -1;
+		}
+
+		@Override
+		public String getType(String uri, String localName) {
+			return null;
+		}
+
+		@Override
+		public String getType(String qName) {
+			return getIndex(qName)<0 ? null : "CDATA"; //$NON-NLS-1$
+		}
+
+		@Override
+		public String getValue(String uri, String localName) {
+			return null;
+		}
+
+		@Override
+		public String getValue(String qName) {
+			int i = getIndex(qName);
+			return i<0 ? null : values[i];
+		}
+	}
+}
@@ -20,6 +20,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.WeakHashMap;
 
 import org.eclipse.bpmn2.Activity;
 import org.eclipse.bpmn2.AdHocSubProcess;
@@ -116,6 +117,11 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 	public final static String PREF_CONNECTION_TIMEOUT = "connection.timeout"; //$NON-NLS-1$
 	public final static String PREF_CONNECTION_TIMEOUT_LABEL = Messages.Bpmn2Preferences_Timeout;
 
+	public final static String PREF_USE_STAX_PARSER = "use.stax.parser"; //$NON-NLS-1$
+	public final static String PREF_USE_STAX_PARSER_LABEL = Messages.Bpmn2Preferences_Use_StAX_Parser;
+	public final static String PREF_USE_BINARY_CACHE = "use.binary.cache"; //$NON-NLS-1$
+	public final static String PREF_USE_BINARY_CACHE_LABEL = Messages.Bpmn2Preferences_Use_Binary_Cache;
+
 	public final static String PREF_USE_POPUP_DIALOG_FOR_LISTS = "popup.detail.dialog"; //$NON-NLS-1$
 	public final static String PREF_USE_POPUP_DIALOG_FOR_LISTS_LABEL = Messages.Bpmn2Preferences_Use_Popup_Dialog_For_Lists;
 
@@ -196,12 +202,16 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 	private BPMNDIAttributeDefault isMarkerVisible;
 	private boolean saveBPMNLabels;
 	private int connectionTimeout;
+	private boolean useStaxParser;
+	private boolean useBinaryCache;
 	private int popupConfigDialog;
 	private boolean popupConfigDialogFor[] = new boolean[6];
 	private int resolveExternals;
 	private int textLimit;
 
 	private HashMap<String, ShapeStyle> shapeStyles = new HashMap<String, ShapeStyle>();
+	// EClass to the ShapeStyle name of its instances, see getShapeStyleName()
+	private static final Map<EClass, String> shapeStyleNames = new WeakHashMap<EClass, String>();
 
 	private Bpmn2Preferences(IProject project) {
 		this.project = project;
@@ -376,6 +386,8 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 			defaultPreferences.putBoolean(PREF_ALLOW_MULTIPLE_CONNECTIONS, false);
 
 			defaultPreferences.putInt(PREF_CONNECTION_TIMEOUT, 60000);
+			defaultPreferences.putBoolean(PREF_USE_STAX_PARSER, false);
+			defaultPreferences.putBoolean(PREF_USE_BINARY_CACHE, false);
 			defaultPreferences.putInt(PREF_RESOLVE_EXTERNALS, 2);
 			defaultPreferences.putInt(PREF_TEXT_LIMIT, 255);
 			
@@ -529,6 +541,8 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 			isMarkerVisible = getBPMNDIAttributeDefault(PREF_IS_MARKER_VISIBLE, BPMNDIAttributeDefault.USE_DI_VALUE);
 			saveBPMNLabels = getBoolean(PREF_SAVE_BPMNLABELS, true);
 			connectionTimeout = getInt(PREF_CONNECTION_TIMEOUT, 60000); //$NON-NLS-1$
+			useStaxParser = getBoolean(PREF_USE_STAX_PARSER, false);
+			useBinaryCache = getBoolean(PREF_USE_BINARY_CACHE, false);
 			resolveExternals = getInt(PREF_RESOLVE_EXTERNALS, 2); //$NON-NLS-1$
 			textLimit = getInt(PREF_TEXT_LIMIT, 255); //$NON-NLS-1$
 			
@@ -570,6 +584,8 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 				putBoolean(PREF_SAVE_BPMNLABELS, saveBPMNLabels);
 				
 				putInt(PREF_CONNECTION_TIMEOUT, connectionTimeout);
+				putBoolean(PREF_USE_STAX_PARSER, useStaxParser);
+				putBoolean(PREF_USE_BINARY_CACHE, useBinaryCache);
 				putInt(PREF_RESOLVE_EXTERNALS, resolveExternals);
 				putInt(PREF_TEXT_LIMIT, textLimit);
 	
@@ -609,12 +625,38 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 	}
 	
 	public static String getShapeStyleId(TargetRuntime rt, EObject object) {
-		try {
-			Class clazz = Class.forName(object.eClass().getInstanceClassName());
-			return getShapeStyleKey(rt, clazz);
-		} catch (ClassNotFoundException e) {
-			return getShapeStyleKey(rt, object.getClass());
+		return getShapeStyleKey(rt, getShapeStyleName(object));
+	}
+	
+	/**
+	 * Return the name under which the ShapeStyle for the given object is stored:
+	 * the simple name of its EClass's instance class, or of the object's own
+	 * class if the instance class can not be loaded. The instance class is
+	 * loaded only once for each EClass.
+	 * 
+	 * @param object a model object
+	 * @return the ShapeStyle name
+	 */
+	private static String getShapeStyleName(EObject object) {
+		EClass eClass = object.eClass();
+		String name;
+		synchronized (shapeStyleNames) {
+			name = shapeStyleNames.get(eClass);
+		}
+		if (name==null) {
+			try {
+				name = Class.forName(eClass.getInstanceClassName()).getSimpleName();
+			} catch (ClassNotFoundException e) {
+				// an empty name means "use the object's class"
+				name = ""; //$NON-NLS-1$
+			}
+			synchronized (shapeStyleNames) {
+				shapeStyleNames.put(eClass, name);
+			}
 		}
+		if (name.isEmpty())
+			return object.getClass().getSimpleName();
+		return name;
 	}
 	
 	public static String getShapeStyleKey(TargetRuntime rt, Class clazz) {
@@ -631,14 +673,10 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 	}
 
 	public ShapeStyle getShapeStyle(EObject object) {
-		Class clazz;
 		try {
-			clazz = Class.forName(object.eClass().getInstanceClassName());
-			return getShapeStyle(clazz);
-		} catch (ClassNotFoundException e) {
-			return getShapeStyle(object.getClass());
+			return getShapeStyle(getShapeStyleName(object));
 		}
-		catch (Exception e2) {
+		catch (Exception e) {
 		}
 		return null;
 	}
@@ -696,13 +734,7 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 	}
 
 	public void setShapeStyle(EObject object, ShapeStyle ss) {
-		Class clazz;
-		try {
-			clazz = Class.forName(object.eClass().getInstanceClassName());
-			setShapeStyle(clazz, ss);
-		} catch (ClassNotFoundException e) {
-			setShapeStyle(object.getClass(), ss);
-		}
+		setShapeStyle(getShapeStyleName(object), ss);
 	}
 	
 	public void setShapeStyle(Class clazz, ShapeStyle style) {
@@ -1289,6 +1321,24 @@ public class Bpmn2Preferences implements IResourceChangeListener, IPropertyChang
 		connectionTimeout = value;
 	}
 
+	public boolean getUseStaxParser() {
+		return useStaxParser;
+	}
+	
+	public void setUseStaxParser(boolean enable) {
+		putBoolean(PREF_USE_STAX_PARSER, enable);
+		useStaxParser = enable;
+	}
+
+	public boolean getUseBinaryCache() {
+		return useBinaryCache;
+	}
+	
+	public void setUseBinaryCache(boolean enable) {
+		putBoolean(PREF_USE_BINARY_CACHE, enable);
+		useBinaryCache = enable;
+	}
+
 	public int getResolveExternals() {
 		return resolveExternals;
 	}
@@ -44,6 +44,8 @@ public class Messages extends NLS {
 	public static String Bpmn2Preferences_Simplify_Lists;
 	public static String Bpmn2Preferences_Target_Runtime;
 	public static String Bpmn2Preferences_Timeout;
+	public static String Bpmn2Preferences_Use_StAX_Parser;
+	public static String Bpmn2Preferences_Use_Binary_Cache;
 	public static String Bpmn2Preferences_True_if_not_set;
 	public static String Bpmn2Preferences_Resolve_Externals;
 	public static String Bpmn2Preferences_Text_Limit;
@@ -11,10 +11,13 @@
 package org.eclipse.bpmn2.modeler.core.preferences;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.eclipse.bpmn2.Bpmn2Package;
@@ -39,7 +42,27 @@ public class ModelEnablements {
 	private TargetRuntime targetRuntime = null;
 	private String id = ""; //$NON-NLS-1$
 	private int enableIdAttribute = -1;
+	// the class map compiled for isEnabled(), rebuilt after any change
+	private volatile CompiledEnablements compiled;
 	
+	/**
+	 * The class map compiled into a bitset with one bit for each (EClass
+	 * ordinal, feature id) pair. The features of the first enabled supertype
+	 * of each EClass are already included in its bits.
+	 */
+	private static class CompiledEnablements {
+		// enabled EClass name to its ordinal
+		final Map<String, Integer> classIds = new HashMap<String, Integer>();
+		// enabled feature name to its id
+		final Map<String, Integer> featureIds = new HashMap<String, Integer>();
+		int featureCount;
+		BitSet features;
+		// EClasses that have all of their features enabled
+		final BitSet allFeatures = new BitSet();
+		// EClasses that were not found, so their supertypes are unknown
+		final BitSet unresolved = new BitSet();
+	}
+
 	// require a TargetRuntime!
 	@SuppressWarnings("unused")
 	private ModelEnablements() {
@@ -93,6 +116,7 @@ public class ModelEnablements {
 		else {
 			classes.clear();
 		}
+		compiled = null;
 	}
 	
 	public void copy(ModelEnablements me) {
@@ -104,6 +128,7 @@ public class ModelEnablements {
 			features.addAll(entry.getValue());
 			classes.put(className, features);
 		}
+		compiled = null;
 	}
 	
 	private void setEnabled(List<EClass> eClasses, boolean enabled) {
@@ -182,6 +207,7 @@ public class ModelEnablements {
 				return;
 			classes.remove(className);
 		}
+		compiled = null;
 	}
 	
 	/**
@@ -244,6 +270,7 @@ public class ModelEnablements {
 				}
 			}
 		}
+		compiled = null;
 	}
 	
 	/**
@@ -301,6 +328,7 @@ public class ModelEnablements {
 				}
 			}
 		}
+		compiled = null;
 	}
 	
 	public void setEnabled(String className, String featureName, boolean enabled) {
@@ -350,6 +378,7 @@ public class ModelEnablements {
 		}
 		else
 			setEnabled(className, enabled);
+		compiled = null;
 	}
 
 	public boolean isEnabled(String className, String featureName) {
@@ -368,41 +397,79 @@ public class ModelEnablements {
 
 		if (className==null)
 			return true;
-		if (classes.containsKey(className)) { // && isOverride()) {
-			if (featureName!=null && !featureName.isEmpty()) {
-				// the "anyAttribute" FeatureMap should always be enabled,
-				// although the features contained in the map may not be
-				if ("anyAttribute".equals(featureName)) //$NON-NLS-1$
-					return true;
-				
-				HashSet<String> features = classes.get(className);
-				if (features.contains(featureName) || features.isEmpty())
-					return true;
-				
-				// check all supertypes of the requested EClass
-				EClass eClass = getEClass(className);
-				if (eClass!=null) {
-					for (EClass st : eClass.getEAllSuperTypes()) {
-						String cn = st.getName();
-						if (classes.containsKey(cn)) { // && isOverride()) {
-							if (featureName!=null && !featureName.isEmpty()) {
-								features = classes.get(cn);
-								if (features.contains(featureName))
-									return true;
-								break;
-							}
-							return true;
-						}
-					}
-				}
-				return false;
-			}
+		CompiledEnablements c = getCompiled();
+		Integer ordinal = c.classIds.get(className);
+		if (ordinal==null)
+			return false;
+		if (featureName==null || featureName.isEmpty())
+			return true;
+		// the "anyAttribute" FeatureMap should always be enabled,
+		// although the features contained in the map may not be
+		if ("anyAttribute".equals(featureName)) //$NON-NLS-1$
+			return true;
+		if (c.allFeatures.get(ordinal))
 			return true;
+		Integer featureId = c.featureIds.get(featureName);
+		if (featureId!=null && c.features.get(ordinal * c.featureCount + featureId))
+			return true;
+		if (c.unresolved.get(ordinal) && getEClass(className)!=null) {
+			// the EClass has been defined since the class map was compiled
+			compiled = null;
+			return isEnabled(className, featureName);
 		}
-
 		return false;
 	}
 	
+	private CompiledEnablements getCompiled() {
+		CompiledEnablements c = compiled;
+		if (c==null) {
+			c = compile();
+			compiled = c;
+		}
+		return c;
+	}
+	
+	private CompiledEnablements compile() {
+		CompiledEnablements c = new CompiledEnablements();
+		for (Entry<String, HashSet<String>> entry : classes.entrySet()) {
+			c.classIds.put(entry.getKey(), c.classIds.size());
+			for (String featureName : entry.getValue()) {
+				if (!c.featureIds.containsKey(featureName))
+					c.featureIds.put(featureName, c.featureIds.size());
+			}
+		}
+		c.featureCount = c.featureIds.size();
+		c.features = new BitSet(c.classIds.size() * c.featureCount);
+		for (Entry<String, HashSet<String>> entry : classes.entrySet()) {
+			String className = entry.getKey();
+			HashSet<String> features = entry.getValue();
+			int ordinal = c.classIds.get(className);
+			if (features.isEmpty()) {
+				c.allFeatures.set(ordinal);
+				continue;
+			}
+			int base = ordinal * c.featureCount;
+			for (String featureName : features)
+				c.features.set(base + c.featureIds.get(featureName));
+			
+			// add the features of the first enabled supertype of the EClass
+			EClass eClass = getEClass(className);
+			if (eClass==null) {
+				c.unresolved.set(ordinal);
+				continue;
+			}
+			for (EClass st : eClass.getEAllSuperTypes()) {
+				features = classes.get(st.getName());
+				if (features!=null) {
+					for (String featureName : features)
+						c.features.set(base + c.featureIds.get(featureName));
+					break;
+				}
+			}
+		}
+		return c;
+	}
+	
 	public boolean isEnabled(EClass eClass, EStructuralFeature feature) {
 		if (feature==null)
 			return isEnabled(eClass);
@@ -18,9 +18,12 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.eclipse.bpmn2.Bpmn2Package;
 import org.eclipse.bpmn2.modeler.core.IBpmn2RuntimeExtension;
@@ -90,6 +93,16 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 	protected List<ExpressionLanguageDescriptor> expressionLanguageDescriptors;
 	protected List<ServiceImplementationDescriptor> serviceImplementationDescriptors;
 
+	// lookup indexes for the Custom Task, Feature Container and Model Extension
+	// descriptor lists; each one remembers the modification count of its list
+	// at the time it was built, and is rebuilt when the list has changed since.
+	private Map<String, CustomTaskDescriptor> customTaskIndex;
+	private int customTaskIndexVersion = -1;
+	private Map<String, Integer> featureContainerIndex;
+	private int featureContainerIndexVersion = -1;
+	private Map<EClass, ModelExtensionDescriptor> modelExtensionIndex;
+	private int modelExtensionIndexVersion = -1;
+
 	// all of the extension descriptor classes in the order in which they need to be processed
 	static Class extensionDescriptorClasses[] = {
 		TargetRuntime.class,
@@ -474,24 +487,36 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 	/*
 	 * Custom Task convenience methods
 	 */
-	public CustomTaskDescriptor getCustomTask( String id ) {
-		Iterator<CustomTaskDescriptor> ctIter = customTaskDescriptors.iterator();
-		while (ctIter.hasNext()) {
-			CustomTaskDescriptor ctd = ctIter.next();
-			if (ctd.getId().equalsIgnoreCase(id)) 
-				return ctd;
+	public synchronized CustomTaskDescriptor getCustomTask( String id ) {
+		if (id==null)
+			return null;
+		DescriptorList<CustomTaskDescriptor> list = (DescriptorList<CustomTaskDescriptor>) getCustomTaskDescriptors();
+		if (customTaskIndex==null || customTaskIndexVersion!=list.getModificationCount()) {
+			// Custom Task IDs are compared ignoring case; the first one wins
+			customTaskIndex = new HashMap<String, CustomTaskDescriptor>();
+			for (CustomTaskDescriptor ctd : list) {
+				String key = ctd.getId().toLowerCase(Locale.ENGLISH);
+				if (!customTaskIndex.containsKey(key))
+					customTaskIndex.put(key, ctd);
+			}
+			customTaskIndexVersion = list.getModificationCount();
 		}
-		return null;
+		return customTaskIndex.get(id.toLowerCase(Locale.ENGLISH));
+	}
+
+	/**
+	 * Return the modification count of the Custom Task descriptor list. Lookup
+	 * tables built from {@link #getCustomTaskDescriptors()} are current as
+	 * long as this count does not change.
+	 * 
+	 * @return the modification count
+	 */
+	public int getCustomTaskModificationCount() {
+		return ((DescriptorList<CustomTaskDescriptor>) getCustomTaskDescriptors()).getModificationCount();
 	}
 
 	public boolean customTaskExists ( String id ) {
-		Iterator<CustomTaskDescriptor> ctIter = customTaskDescriptors.iterator();
-		while (ctIter.hasNext()) {
-			CustomTaskDescriptor ctd = ctIter.next();
-			if (ctd.getId().equalsIgnoreCase(id)) 
-				return true;
-		}
-		return false;
+		return getCustomTask(id)!=null;
 	}
 	
 	public void addCustomTask(CustomTaskDescriptor ct) {
@@ -547,21 +572,31 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 		getFeatureContainerDescriptors().add(me);
 	}
 
-	public FeatureContainerDescriptor getFeatureContainer(EClass clazz) {
-		for (FeatureContainerDescriptor fcd : getFeatureContainerDescriptors()) {
-			String className = clazz.getInstanceClassName();
-			if (className.equals(fcd.type))
-				return fcd;
-			// well, that didn't work...
-			// The "type" name should be the BPMN2 element's interface definition;
-			// if it's an implementation class name, try to convert it to its
-			// interface name.
-			className = className.replaceFirst("\\.impl\\.", "."); //$NON-NLS-1$ //$NON-NLS-2$
-			className = className.replaceFirst("Impl$", ""); //$NON-NLS-1$ //$NON-NLS-2$
-			if (className.equals(fcd.type))
-				return fcd;
+	public synchronized FeatureContainerDescriptor getFeatureContainer(EClass clazz) {
+		DescriptorList<FeatureContainerDescriptor> list = (DescriptorList<FeatureContainerDescriptor>) getFeatureContainerDescriptors();
+		if (featureContainerIndex==null || featureContainerIndexVersion!=list.getModificationCount()) {
+			// map each type name to the position of the first descriptor for it
+			featureContainerIndex = new HashMap<String, Integer>();
+			for (int i=0; i<list.size(); ++i) {
+				String type = list.get(i).type;
+				if (type!=null && !featureContainerIndex.containsKey(type))
+					featureContainerIndex.put(type, i);
+			}
+			featureContainerIndexVersion = list.getModificationCount();
 		}
-		return null;
+		String className = clazz.getInstanceClassName();
+		Integer index = featureContainerIndex.get(className);
+		// well, that didn't work...
+		// The "type" name should be the BPMN2 element's interface definition;
+		// if it's an implementation class name, try to convert it to its
+		// interface name.
+		className = className.replaceFirst("\\.impl\\.", "."); //$NON-NLS-1$ //$NON-NLS-2$
+		className = className.replaceFirst("Impl$", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		Integer index2 = featureContainerIndex.get(className);
+		// either name may match; the descriptor that comes first wins
+		if (index==null || (index2!=null && index2<index))
+			index = index2;
+		return index==null ? null : list.get(index);
 	}
 	
 	/*
@@ -876,7 +911,7 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 	public List<CustomTaskDescriptor> getCustomTaskDescriptors()
 	{
 		if (customTaskDescriptors==null) {
-			customTaskDescriptors = new ArrayList<CustomTaskDescriptor>();
+			customTaskDescriptors = new DescriptorList<CustomTaskDescriptor>();
 		}
 		return customTaskDescriptors;
 	}
@@ -884,7 +919,7 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 	public List<ModelExtensionDescriptor> getModelExtensionDescriptors()
 	{
 		if (modelExtensionDescriptors==null) {
-			modelExtensionDescriptors = new ArrayList<ModelExtensionDescriptor>();
+			modelExtensionDescriptors = new DescriptorList<ModelExtensionDescriptor>();
 		}
 		return modelExtensionDescriptors;
 	}
@@ -897,9 +932,24 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 		return list;
 	}
 
-	public ModelExtensionDescriptor getModelExtensionDescriptor(EObject object) {
+	public synchronized ModelExtensionDescriptor getModelExtensionDescriptor(EObject object) {
 		EClass eClass = (EClass) ((object instanceof EClass) ? object : object.eClass());
 		
+		DescriptorList<ModelExtensionDescriptor> list = (DescriptorList<ModelExtensionDescriptor>) getModelExtensionDescriptors();
+		if (modelExtensionIndex==null || modelExtensionIndexVersion!=list.getModificationCount()) {
+			modelExtensionIndex = new WeakHashMap<EClass, ModelExtensionDescriptor>();
+			modelExtensionIndexVersion = list.getModificationCount();
+		}
+		// the result for an EClass, including null, is resolved only once;
+		// this also resolves the supertypes only once each
+		if (modelExtensionIndex.containsKey(eClass))
+			return modelExtensionIndex.get(eClass);
+		ModelExtensionDescriptor md = findModelExtensionDescriptor(eClass);
+		modelExtensionIndex.put(eClass, md);
+		return md;
+	}
+
+	private ModelExtensionDescriptor findModelExtensionDescriptor(EClass eClass) {
 		for (ModelExtensionDescriptor md : getModelExtensionDescriptors()) {
 			String type = eClass.getName();
 			if (md.getType().equals(type))
@@ -1027,7 +1077,7 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 	public List<FeatureContainerDescriptor> getFeatureContainerDescriptors()
 	{
 		if (featureContainerDescriptors==null) {
-			featureContainerDescriptors = new ArrayList<FeatureContainerDescriptor>();
+			featureContainerDescriptors = new DescriptorList<FeatureContainerDescriptor>();
 		}
 		return featureContainerDescriptors;
 	}
@@ -1091,6 +1141,29 @@ public class TargetRuntime extends BaseRuntimeExtensionDescriptor implements IRu
 		return serviceImplementationDescriptors;
 	}
 	
+	/**
+	 * A descriptor list that can tell the lookup indexes built from it whether
+	 * it has been modified since. These lists are also modified by the Target
+	 * Runtime extension implementations, so this can not be tracked by the add
+	 * and remove methods of this class.
+	 * <p>
+	 * ArrayList does not count {@link #set(int, Object)} as a modification,
+	 * but replacing a descriptor changes the lookups as much as adding one.
+	 */
+	@SuppressWarnings("serial")
+	protected static class DescriptorList<T> extends ArrayList<T> {
+		int getModificationCount() {
+			return modCount;
+		}
+
+		@Override
+		public T set(int index, T element) {
+			T old = super.set(index, element);
+			++modCount;
+			return old;
+		}
+	}
+
 	public static class ConfigurationElementSorter {
 		public static void sort(IConfigurationElement[] elements) {
 			Arrays.sort(elements, new Comparator<IConfigurationElement>() {
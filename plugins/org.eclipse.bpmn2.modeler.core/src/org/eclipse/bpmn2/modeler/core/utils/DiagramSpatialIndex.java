@@ -0,0 +1,581 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.bpmn2.FlowElementsContainer;
+import org.eclipse.bpmn2.Lane;
+import org.eclipse.bpmn2.di.BPMNShape;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.graphiti.datatypes.IDimension;
+import org.eclipse.graphiti.datatypes.ILocation;
+import org.eclipse.graphiti.mm.algorithms.AlgorithmsPackage;
+import org.eclipse.graphiti.mm.algorithms.GraphicsAlgorithm;
+import org.eclipse.graphiti.mm.algorithms.styles.Point;
+import org.eclipse.graphiti.mm.pictograms.Anchor;
+import org.eclipse.graphiti.mm.pictograms.Connection;
+import org.eclipse.graphiti.mm.pictograms.ContainerShape;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+import org.eclipse.graphiti.mm.pictograms.FreeFormConnection;
+import org.eclipse.graphiti.mm.pictograms.PictogramElement;
+import org.eclipse.graphiti.mm.pictograms.PictogramLink;
+import org.eclipse.graphiti.mm.pictograms.PictogramsPackage;
+import org.eclipse.graphiti.mm.pictograms.Shape;
+import org.eclipse.graphiti.services.Graphiti;
+
+/**
+ * A spatial index of the shape bounds and connection line segments of a
+ * Diagram, used by the Connection Routers to find collisions and crossings
+ * without testing every shape and connection on the Diagram.
+ * <p>
+ * The index divides the Diagram into a grid of square cells and records which
+ * shapes and connections overlap each cell. It is installed as a content
+ * adapter on the Diagram and is kept current as shapes are moved or resized,
+ * anchors are relocated and bendpoints are changed: only the affected shapes
+ * and connections are re-indexed. Adding or removing shapes or connections
+ * causes the index to be rebuilt the next time it is queried.
+ * <p>
+ * The indexed shapes are the ContainerShapes that are linked to a BPMNShape,
+ * excluding Lanes; these are the shapes that are potential collision shapes for
+ * a connection route.
+ */
+public class DiagramSpatialIndex extends EContentAdapter implements ISpatialQuery {
+
+	/** Width and height of a grid cell in Diagram coordinates. */
+	private static final int CELL_SIZE = 128;
+
+	/**
+	 * An immutable copy of the index. A Snapshot is not affected by later
+	 * changes to the Diagram and may be queried concurrently from several
+	 * threads.
+	 */
+	public static class Snapshot implements ISpatialQuery {
+		private final Map<ContainerShape, ShapeBounds> shapes;
+		private final Map<Long, List<ShapeBounds>> shapeCells;
+		private final Map<Long, List<ConnectionPoints>> connectionCells;
+
+		Snapshot(Map<ContainerShape, ShapeBounds> shapes, Map<Long, List<ShapeBounds>> shapeCells, Map<Long, List<ConnectionPoints>> connectionCells) {
+			this.shapes = new HashMap<ContainerShape, ShapeBounds>(shapes);
+			this.shapeCells = new HashMap<Long, List<ShapeBounds>>(shapeCells.size());
+			for (Map.Entry<Long, List<ShapeBounds>> e : shapeCells.entrySet())
+				this.shapeCells.put(e.getKey(), new ArrayList<ShapeBounds>(e.getValue()));
+			this.connectionCells = new HashMap<Long, List<ConnectionPoints>>(connectionCells.size());
+			for (Map.Entry<Long, List<ConnectionPoints>> e : connectionCells.entrySet())
+				this.connectionCells.put(e.getKey(), new ArrayList<ConnectionPoints>(e.getValue()));
+		}
+
+		@Override
+		public List<ShapeBounds> findShapes(int x1, int y1, int x2, int y2) {
+			return DiagramSpatialIndex.findShapes(shapeCells, x1, y1, x2, y2);
+		}
+
+		@Override
+		public List<ConnectionPoints> findConnections(int x1, int y1, int x2, int y2) {
+			return DiagramSpatialIndex.findConnections(connectionCells, x1, y1, x2, y2);
+		}
+
+		@Override
+		public ShapeBounds getBounds(ContainerShape shape) {
+			return shapes.get(shape);
+		}
+	}
+
+	/**
+	 * The Diagram-relative bounds of an indexed shape.
+	 */
+	public static class ShapeBounds {
+		public final ContainerShape shape;
+		public final int x, y, width, height;
+		/** true if the shape is a Group or a label */
+		public final boolean decoration;
+		/** true if the shape's business object is a FlowElementsContainer */
+		public final boolean container;
+		final int order;
+		int minCol, minRow, maxCol, maxRow;
+
+		ShapeBounds(ContainerShape shape, int order) {
+			this.shape = shape;
+			this.order = order;
+			decoration = FeatureSupport.isGroupShape(shape) || FeatureSupport.isLabelShape(shape);
+			container = BusinessObjectUtil.getBusinessObjectForPictogramElement(shape) instanceof FlowElementsContainer;
+			ILocation loc = Graphiti.getPeService().getLocationRelativeToDiagram(shape);
+			IDimension size = GraphicsUtil.calculateSize(shape);
+			x = loc.getX();
+			y = loc.getY();
+			width = size==null ? 0 : size.getWidth();
+			height = size==null ? 0 : size.getHeight();
+		}
+
+		/**
+		 * Same as {@link GraphicsUtil#contains(Shape, Point)}
+		 */
+		public boolean contains(Point p) {
+			int px = p.getX();
+			int py = p.getY();
+			return px>x && px<x + width && py>y && py<y + height;
+		}
+
+		/**
+		 * Same as {@link GraphicsUtil#intersectsLine(Shape, Point, Point)}
+		 */
+		public boolean intersectsLine(Point p1, Point p2) {
+			int rx = x;
+			int ry = y;
+			int rw = width;
+			int rh = height;
+			// adjust the shape rectangle so that a point touching one of the edges
+			// is not considered to be "intersecting"
+			if (rw>2) {
+				rx += 1;
+				rw -= 2;
+			}
+			if (rh>2) {
+				ry += 1;
+				rh -= 2;
+			}
+			return GraphicsUtil.RectangleIntersectsLine.intersectsLine(
+					p1.getX(), p1.getY(), p2.getX(), p2.getY(),
+					rx, ry, rw, rh);
+		}
+
+		/**
+		 * Same as {@link GraphicsUtil#getEdges(Shape)}
+		 */
+		public GraphicsUtil.LineSegment[] getEdges() {
+			return GraphicsUtil.getEdges(x, y, width, height);
+		}
+
+		/**
+		 * Same as {@link GraphicsUtil#findNearestEdge(Shape, Point)}
+		 */
+		public GraphicsUtil.LineSegment findNearestEdge(Point p) {
+			return GraphicsUtil.findNearestEdge(getEdges(), p);
+		}
+	}
+
+	/**
+	 * The Diagram-relative points of an indexed connection, including the
+	 * start and end anchor locations.
+	 */
+	public static class ConnectionPoints {
+		public final Connection connection;
+		final int xs[];
+		final int ys[];
+		final int order;
+		final Set<Long> cells = new HashSet<Long>();
+
+		ConnectionPoints(Connection connection, int order) {
+			this.connection = connection;
+			this.order = order;
+			List<Point> points = new ArrayList<Point>();
+			if (connection.getStart()!=null && connection.getEnd()!=null) {
+				points.add(GraphicsUtil.createPoint(connection.getStart()));
+				if (connection instanceof FreeFormConnection)
+					points.addAll(((FreeFormConnection)connection).getBendpoints());
+				points.add(GraphicsUtil.createPoint(connection.getEnd()));
+			}
+			xs = new int[points.size()];
+			ys = new int[points.size()];
+			for (int i=0; i<xs.length; ++i) {
+				xs[i] = points.get(i).getX();
+				ys[i] = points.get(i).getY();
+			}
+		}
+
+		/**
+		 * Check if any line segment of this connection intersects the given
+		 * line segment.
+		 *
+		 * @param start starting point of the line segment
+		 * @param end ending point of the line segment
+		 * @return true if the line segments intersect
+		 */
+		public boolean intersects(Point start, Point end) {
+			for (int i=1; i<xs.length; ++i) {
+				if (GraphicsUtil.isLineIntersectingLine(
+						start.getX(), start.getY(), end.getX(), end.getY(),
+						xs[i-1], ys[i-1], xs[i], ys[i]))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	private static final Comparator<ShapeBounds> shapeOrder = new Comparator<ShapeBounds>() {
+		@Override
+		public int compare(ShapeBounds s1, ShapeBounds s2) {
+			return s1.order - s2.order;
+		}
+	};
+
+	private static final Comparator<ConnectionPoints> connectionOrder = new Comparator<ConnectionPoints>() {
+		@Override
+		public int compare(ConnectionPoints c1, ConnectionPoints c2) {
+			return c1.order - c2.order;
+		}
+	};
+
+	protected Diagram diagram;
+	// indexed shapes and connections, in Diagram document order
+	private Map<ContainerShape, ShapeBounds> shapes = new LinkedHashMap<ContainerShape, ShapeBounds>();
+	private Map<Connection, ConnectionPoints> connections = new LinkedHashMap<Connection, ConnectionPoints>();
+	// the grid cells
+	private Map<Long, List<ShapeBounds>> shapeCells = new HashMap<Long, List<ShapeBounds>>();
+	private Map<Long, List<ConnectionPoints>> connectionCells = new HashMap<Long, List<ConnectionPoints>>();
+	// shapes and connections that need to be re-indexed before the next query
+	private Set<Shape> dirtyShapes = new HashSet<Shape>();
+	private Set<Connection> dirtyConnections = new HashSet<Connection>();
+	private boolean valid = false;
+	// the snapshot of the current state of the index, shared by all callers
+	// of getSnapshot() until the index changes
+	private Snapshot snapshot;
+
+	/**
+	 * Return the spatial index for the given Diagram, creating and installing
+	 * one if necessary.
+	 *
+	 * @param diagram the Diagram
+	 * @return the spatial index
+	 */
+	public static DiagramSpatialIndex getIndex(Diagram diagram) {
+		for (Adapter a : diagram.eAdapters()) {
+			if (a instanceof DiagramSpatialIndex)
+				return (DiagramSpatialIndex) a;
+		}
+		DiagramSpatialIndex index = new DiagramSpatialIndex(diagram);
+		diagram.eAdapters().add(index);
+		return index;
+	}
+
+	private DiagramSpatialIndex(Diagram diagram) {
+		this.diagram = diagram;
+	}
+
+	/**
+	 * Remove this index from the Diagram.
+	 */
+	public void dispose() {
+		diagram.eAdapters().remove(this);
+		invalidate();
+	}
+
+	/**
+	 * Return all indexed shapes in Diagram document order.
+	 *
+	 * @return list of shapes
+	 */
+	public List<ContainerShape> getShapes() {
+		update();
+		return new ArrayList<ContainerShape>(shapes.keySet());
+	}
+
+	@Override
+	public ShapeBounds getBounds(ContainerShape shape) {
+		update();
+		return shapes.get(shape);
+	}
+
+	@Override
+	public List<ShapeBounds> findShapes(int x1, int y1, int x2, int y2) {
+		update();
+		return findShapes(shapeCells, x1, y1, x2, y2);
+	}
+
+	@Override
+	public List<ConnectionPoints> findConnections(int x1, int y1, int x2, int y2) {
+		update();
+		return findConnections(connectionCells, x1, y1, x2, y2);
+	}
+
+	/**
+	 * Return an immutable copy of the current state of the index. The copy is
+	 * only made if the index has changed since the last call, otherwise the
+	 * same Snapshot is returned.
+	 *
+	 * @return the snapshot
+	 */
+	public Snapshot getSnapshot() {
+		update();
+		if (snapshot==null)
+			snapshot = new Snapshot(shapes, shapeCells, connectionCells);
+		return snapshot;
+	}
+
+	/**
+	 * Force the index to be rebuilt the next time it is queried.
+	 */
+	public void invalidate() {
+		valid = false;
+		dirtyShapes.clear();
+		dirtyConnections.clear();
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		super.notifyChanged(notification);
+		if (!valid || notification.isTouch())
+			return;
+
+		Object notifier = notification.getNotifier();
+		Object feature = notification.getFeature();
+		if (notifier instanceof GraphicsAlgorithm) {
+			if (feature==AlgorithmsPackage.Literals.GRAPHICS_ALGORITHM__X ||
+					feature==AlgorithmsPackage.Literals.GRAPHICS_ALGORITHM__Y ||
+					feature==AlgorithmsPackage.Literals.GRAPHICS_ALGORITHM__WIDTH ||
+					feature==AlgorithmsPackage.Literals.GRAPHICS_ALGORITHM__HEIGHT) {
+				PictogramElement pe = ((GraphicsAlgorithm)notifier).getPictogramElement();
+				if (pe instanceof Shape)
+					shapeChanged((Shape)pe);
+				else if (pe instanceof Anchor)
+					anchorChanged((Anchor)pe);
+			}
+		}
+		else if (notifier instanceof Point) {
+			// a bendpoint or anchor location has changed
+			EObject container = ((Point)notifier).eContainer();
+			if (container instanceof Connection)
+				dirtyConnections.add((Connection)container);
+			else if (container instanceof Anchor)
+				anchorChanged((Anchor)container);
+		}
+		else if (notifier instanceof Connection) {
+			if (feature==PictogramsPackage.Literals.FREE_FORM_CONNECTION__BENDPOINTS ||
+					feature==PictogramsPackage.Literals.CONNECTION__START ||
+					feature==PictogramsPackage.Literals.CONNECTION__END)
+				dirtyConnections.add((Connection)notifier);
+		}
+		else if (notifier instanceof Anchor) {
+			if (feature==PictogramsPackage.Literals.FIX_POINT_ANCHOR__LOCATION)
+				anchorChanged((Anchor)notifier);
+		}
+		else if (notifier instanceof Shape) {
+			if (feature==PictogramsPackage.Literals.CONTAINER_SHAPE__CHILDREN ||
+					feature==PictogramsPackage.Literals.DIAGRAM__CONNECTIONS ||
+					feature==PictogramsPackage.Literals.PICTOGRAM_ELEMENT__LINK)
+				valid = false;
+			else if (feature==PictogramsPackage.Literals.PICTOGRAM_ELEMENT__GRAPHICS_ALGORITHM)
+				shapeChanged((Shape)notifier);
+		}
+		else if (notifier instanceof PictogramLink) {
+			// the business object of a shape may have changed
+			valid = false;
+		}
+	}
+
+	private void shapeChanged(Shape shape) {
+		dirtyShapes.add(shape);
+		for (Anchor a : shape.getAnchors())
+			anchorChanged(a);
+		if (shape instanceof ContainerShape) {
+			for (Shape child : ((ContainerShape)shape).getChildren())
+				shapeChanged(child);
+		}
+	}
+
+	private void anchorChanged(Anchor anchor) {
+		dirtyConnections.addAll(anchor.getIncomingConnections());
+		dirtyConnections.addAll(anchor.getOutgoingConnections());
+	}
+
+	private void update() {
+		if (!valid) {
+			rebuild();
+			snapshot = null;
+			return;
+		}
+		if (!dirtyShapes.isEmpty()) {
+			snapshot = null;
+			for (Shape s : dirtyShapes) {
+				ShapeBounds sb = shapes.get(s);
+				if (sb!=null) {
+					remove(sb);
+					insert(new ShapeBounds(sb.shape, sb.order));
+				}
+			}
+			dirtyShapes.clear();
+		}
+		if (!dirtyConnections.isEmpty()) {
+			snapshot = null;
+			for (Connection c : dirtyConnections) {
+				ConnectionPoints cp = connections.get(c);
+				if (cp!=null) {
+					remove(cp);
+					insert(new ConnectionPoints(c, cp.order));
+				}
+			}
+			dirtyConnections.clear();
+		}
+	}
+
+	private void rebuild() {
+		shapes.clear();
+		connections.clear();
+		shapeCells.clear();
+		connectionCells.clear();
+		dirtyShapes.clear();
+		dirtyConnections.clear();
+
+		int order = 0;
+		TreeIterator<EObject> iter = diagram.eAllContents();
+		while (iter.hasNext()) {
+			EObject o = iter.next();
+			if (o instanceof ContainerShape) {
+				ContainerShape shape = (ContainerShape)o;
+				BPMNShape bpmnShape = BusinessObjectUtil.getFirstElementOfType(shape, BPMNShape.class);
+				if (bpmnShape==null || bpmnShape.getBpmnElement() instanceof Lane)
+					continue;
+				insert(new ShapeBounds(shape, order++));
+			}
+		}
+		order = 0;
+		for (Connection c : diagram.getConnections()) {
+			insert(new ConnectionPoints(c, order++));
+		}
+		valid = true;
+	}
+
+	private void insert(ShapeBounds sb) {
+		shapes.put(sb.shape, sb);
+		sb.minCol = cell(sb.x);
+		sb.minRow = cell(sb.y);
+		sb.maxCol = cell(sb.x + sb.width);
+		sb.maxRow = cell(sb.y + sb.height);
+		for (int col=sb.minCol; col<=sb.maxCol; ++col) {
+			for (int row=sb.minRow; row<=sb.maxRow; ++row) {
+				Long key = key(col, row);
+				List<ShapeBounds> list = shapeCells.get(key);
+				if (list==null) {
+					list = new ArrayList<ShapeBounds>();
+					shapeCells.put(key, list);
+				}
+				list.add(sb);
+			}
+		}
+	}
+
+	private void remove(ShapeBounds sb) {
+		shapes.remove(sb.shape);
+		for (int col=sb.minCol; col<=sb.maxCol; ++col) {
+			for (int row=sb.minRow; row<=sb.maxRow; ++row) {
+				Long key = key(col, row);
+				List<ShapeBounds> list = shapeCells.get(key);
+				if (list!=null) {
+					list.remove(sb);
+					if (list.isEmpty())
+						shapeCells.remove(key);
+				}
+			}
+		}
+	}
+
+	private void insert(ConnectionPoints cp) {
+		connections.put(cp.connection, cp);
+		for (int i=1; i<cp.xs.length; ++i) {
+			int minCol = cell(Math.min(cp.xs[i-1], cp.xs[i]));
+			int maxCol = cell(Math.max(cp.xs[i-1], cp.xs[i]));
+			int minRow = cell(Math.min(cp.ys[i-1], cp.ys[i]));
+			int maxRow = cell(Math.max(cp.ys[i-1], cp.ys[i]));
+			for (int col=minCol; col<=maxCol; ++col) {
+				for (int row=minRow; row<=maxRow; ++row) {
+					Long key = key(col, row);
+					if (cp.cells.add(key)) {
+						List<ConnectionPoints> list = connectionCells.get(key);
+						if (list==null) {
+							list = new ArrayList<ConnectionPoints>();
+							connectionCells.put(key, list);
+						}
+						list.add(cp);
+					}
+				}
+			}
+		}
+	}
+
+	private void remove(ConnectionPoints cp) {
+		connections.remove(cp.connection);
+		for (Long key : cp.cells) {
+			List<ConnectionPoints> list = connectionCells.get(key);
+			if (list!=null) {
+				list.remove(cp);
+				if (list.isEmpty())
+					connectionCells.remove(key);
+			}
+		}
+	}
+
+	private static List<ShapeBounds> findShapes(Map<Long, List<ShapeBounds>> cells, int x1, int y1, int x2, int y2) {
+		int minX = Math.min(x1, x2);
+		int minY = Math.min(y1, y2);
+		int maxX = Math.max(x1, x2);
+		int maxY = Math.max(y1, y2);
+		Map<ShapeBounds, Boolean> found = new IdentityHashMap<ShapeBounds, Boolean>();
+		for (int col=cell(minX); col<=cell(maxX); ++col) {
+			for (int row=cell(minY); row<=cell(maxY); ++row) {
+				List<ShapeBounds> list = cells.get(key(col, row));
+				if (list!=null) {
+					for (ShapeBounds sb : list) {
+						if (!found.containsKey(sb) &&
+								sb.x <= maxX && minX <= sb.x + sb.width &&
+								sb.y <= maxY && minY <= sb.y + sb.height) {
+							found.put(sb, Boolean.TRUE);
+						}
+					}
+				}
+			}
+		}
+		List<ShapeBounds> result = new ArrayList<ShapeBounds>(found.keySet());
+		Collections.sort(result, shapeOrder);
+		return result;
+	}
+
+	private static List<ConnectionPoints> findConnections(Map<Long, List<ConnectionPoints>> cells, int x1, int y1, int x2, int y2) {
+		int minX = Math.min(x1, x2);
+		int minY = Math.min(y1, y2);
+		int maxX = Math.max(x1, x2);
+		int maxY = Math.max(y1, y2);
+		Map<ConnectionPoints, Boolean> found = new IdentityHashMap<ConnectionPoints, Boolean>();
+		for (int col=cell(minX); col<=cell(maxX); ++col) {
+			for (int row=cell(minY); row<=cell(maxY); ++row) {
+				List<ConnectionPoints> list = cells.get(key(col, row));
+				if (list!=null) {
+					for (ConnectionPoints cp : list)
+						found.put(cp, Boolean.TRUE);
+				}
+			}
+		}
+		List<ConnectionPoints> result = new ArrayList<ConnectionPoints>(found.keySet());
+		Collections.sort(result, connectionOrder);
+		return result;
+	}
+
+	private static int cell(int coordinate) {
+		// floor division, so that negative coordinates map to their own cells
+		return coordinate>=0 ? coordinate / CELL_SIZE : (coordinate - CELL_SIZE + 1) / CELL_SIZE;
+	}
+
+	private static Long key(int col, int row) {
+		return Long.valueOf(((long)col << 32) | (row & 0xffffffffL));
+	}
+}
@@ -600,19 +600,38 @@ public class GraphicsUtil {
 	public static LineSegment[] getEdges(Shape shape) {
 		ILocation loc = peService.getLocationRelativeToDiagram(shape);
 		IDimension size = calculateSize(shape);
-		LineSegment top = new LineSegment(loc.getX(),loc.getY(),
-				loc.getX()+size.getWidth(), loc.getY());
-		LineSegment left = new LineSegment(loc.getX(),loc.getY(), loc.getX(),
-				loc.getY()+size.getHeight());
-		LineSegment bottom = new LineSegment(loc.getX(), loc.getY()+size.getHeight(),
-				loc.getX()+size.getWidth(), loc.getY()+size.getHeight());
-		LineSegment right = new LineSegment(loc.getX()+size.getWidth(), loc.getY(),
-				loc.getX()+size.getWidth(), loc.getY()+size.getHeight());
+		return getEdges(loc.getX(), loc.getY(), size.getWidth(), size.getHeight());
+	}
+
+	/**
+	 * Return the edges of a rectangle in the order top, bottom, left, right.
+	 * 
+	 * @param x left edge of the rectangle
+	 * @param y top edge of the rectangle
+	 * @param width width of the rectangle
+	 * @param height height of the rectangle
+	 * @return the edges
+	 */
+	public static LineSegment[] getEdges(int x, int y, int width, int height) {
+		LineSegment top = new LineSegment(x, y, x+width, y);
+		LineSegment left = new LineSegment(x, y, x, y+height);
+		LineSegment bottom = new LineSegment(x, y+height, x+width, y+height);
+		LineSegment right = new LineSegment(x+width, y, x+width, y+height);
 		return new LineSegment[] {top, bottom, left, right};
 	}
 
 	public static LineSegment findNearestEdge(Shape shape, Point p) {
-		LineSegment edges[] = getEdges(shape);
+		return findNearestEdge(getEdges(shape), p);
+	}
+
+	/**
+	 * Return the edge nearest to the given point.
+	 * 
+	 * @param edges the edges of a rectangle, as returned by getEdges()
+	 * @param p the point
+	 * @return the nearest edge
+	 */
+	public static LineSegment findNearestEdge(LineSegment edges[], Point p) {
 		LineSegment top = edges[0];
 		LineSegment bottom = edges[1];
 		LineSegment left = edges[2];
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.core.utils;
+
+import java.util.List;
+
+import org.eclipse.bpmn2.modeler.core.utils.DiagramSpatialIndex.ConnectionPoints;
+import org.eclipse.bpmn2.modeler.core.utils.DiagramSpatialIndex.ShapeBounds;
+import org.eclipse.graphiti.mm.pictograms.ContainerShape;
+
+/**
+ * Spatial queries supported by a {@link DiagramSpatialIndex} and by its
+ * immutable {@link DiagramSpatialIndex.Snapshot}s.
+ */
+public interface ISpatialQuery {
+
+	/**
+	 * Return the shapes whose bounds intersect the given rectangle. This is a
+	 * conservative test, callers must still check for an exact intersection.
+	 *
+	 * @param x1 left edge of the rectangle
+	 * @param y1 top edge of the rectangle
+	 * @param x2 right edge of the rectangle
+	 * @param y2 bottom edge of the rectangle
+	 * @return list of shape bounds, in Diagram document order
+	 */
+	List<ShapeBounds> findShapes(int x1, int y1, int x2, int y2);
+
+	/**
+	 * Return the connections that have a line segment whose bounding box
+	 * intersects the given rectangle. This is a conservative test, callers must
+	 * still check for an exact intersection.
+	 *
+	 * @param x1 left edge of the rectangle
+	 * @param y1 top edge of the rectangle
+	 * @param x2 right edge of the rectangle
+	 * @param y2 bottom edge of the rectangle
+	 * @return list of connection points, in Diagram document order
+	 */
+	List<ConnectionPoints> findConnections(int x1, int y1, int x2, int y2);
+
+	/**
+	 * Return the bounds of the given shape.
+	 *
+	 * @param shape the shape
+	 * @return the shape bounds or null if the shape is not indexed
+	 */
+	ShapeBounds getBounds(ContainerShape shape);
+}
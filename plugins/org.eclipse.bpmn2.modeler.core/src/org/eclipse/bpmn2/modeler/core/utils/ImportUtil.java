@@ -30,13 +30,10 @@ import org.eclipse.bpmn2.Process;
 import org.eclipse.bpmn2.modeler.core.Activator;
 import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceSetImpl;
 import org.eclipse.bpmn2.util.Bpmn2Resource;
-import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.ResourcesPlugin;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.common.util.URI;
@@ -65,6 +62,8 @@ import org.eclipse.wst.wsdl.PortType;
 import org.eclipse.wst.wsdl.Types;
 import org.eclipse.xsd.XSDElementDeclaration;
 import org.eclipse.xsd.XSDSchema;
+import org.eclipse.xsd.XSDSchemaContent;
+import org.eclipse.xsd.XSDSchemaDirective;
 
 /**
  * @author Bob Brodt
@@ -89,7 +88,89 @@ public class ImportUtil {
 			ResourceSet rs =  imp.eResource().getResourceSet();
 			fHackedResourceSet = ModelUtil.slightlyHackedResourceSet(rs);
 		}
-		URI uri;
+		return loadImport(getImportURI(imp), getKindForImport(imp));
+	}
+
+	/**
+	 * Load all of the given Imports. WSDL and XML Schema files that have not
+	 * been loaded yet are parsed concurrently, and are then added to the
+	 * ResourceSet in the order of the Imports; all other Imports are loaded
+	 * one after the other, as by {@link #loadImport(Import)}.
+	 * 
+	 * @param imports the Imports to load
+	 * @param parallelism the maximum number of files parsed at the same time
+	 * @param loadTimes if not null, receives the time in milliseconds it took
+	 *            to load each Import
+	 * @return for each Import, the same object that {@link #loadImport(Import)}
+	 *         would return, or the IllegalArgumentException that it would have
+	 *         thrown if the Import type is not supported
+	 */
+	public List<Object> loadImports(List<Import> imports, int parallelism, long[] loadTimes) {
+		int size = imports.size();
+		List<Object> results = new ArrayList<Object>(size);
+		if (size==0)
+			return results;
+		if (fHackedResourceSet==null) {
+			ResourceSet rs =  imports.get(0).eResource().getResourceSet();
+			fHackedResourceSet = ModelUtil.slightlyHackedResourceSet(rs);
+		}
+
+		List<URI> uris = new ArrayList<URI>();
+		List<String> kinds = new ArrayList<String>();
+		List<Integer> indexes = new ArrayList<Integer>();
+		for (int i=0; i<size; ++i) {
+			Import imp = imports.get(i);
+			long time = System.currentTimeMillis();
+			Object result = null;
+			try {
+				URI uri = getImportURI(imp);
+				String kind = getKindForImport(imp);
+				if (IMPORT_KIND_WSDL.equals(kind) || IMPORT_KIND_XML_SCHEMA.equals(kind)) {
+					// these are loaded below
+					uris.add(uri);
+					kinds.add(kind);
+					indexes.add(i);
+				}
+				else {
+					// Java types are looked up in the workspace and BPMN2
+					// files are loaded with the BPMN2 loader, which is not
+					// thread safe; load these here.
+					result = loadImport(uri, kind);
+				}
+			}
+			catch (IllegalArgumentException e) {
+				result = e;
+			}
+			results.add(result);
+			if (loadTimes!=null)
+				loadTimes[i] = System.currentTimeMillis() - time;
+		}
+
+		if (!uris.isEmpty()) {
+			long[] times = new long[uris.size()];
+			List<Object> resources = fHackedResourceSet.getResources(uris, kinds, parallelism, times);
+			for (int j=0; j<resources.size(); ++j) {
+				int i = indexes.get(j);
+				Object result = resources.get(j);
+				if (result instanceof Resource)
+					result = getImportObject((Resource)result, kinds.get(j));
+				results.set(i, result);
+				if (loadTimes!=null)
+					loadTimes[i] = times[j];
+			}
+		}
+		return results;
+	}
+
+	private static URI getImportURI(Import imp) {
+		String location = imp.getLocation();
+		if (location==null) {
+			location = ""; //$NON-NLS-1$
+		}
+		return URI.createURI(location);
+	}
+
+	private static String getKindForImport(Import imp) {
 		String type = imp.getImportType();
 		String kind = null;
 		if (IMPORT_TYPE_WSDL.equals(type))
@@ -103,12 +184,7 @@ public class ImportUtil {
 		else {
 			throw new IllegalArgumentException("Unsupported Import type: "+type); //$NON-NLS-1$
 		}
-		String location = imp.getLocation();
-		if (location==null) {
-			location = ""; //$NON-NLS-1$
-		}
-		uri = URI.createURI(location);
-		return loadImport(uri,kind);
+		return kind;
 	}
 	
 	public Import findImportForNamespace(Resource resource, String namespace) {
@@ -318,6 +394,47 @@ public class ImportUtil {
 		return name;
 	}
 	
+	/**
+	 * Return the import locations of a BPMN2, WSDL or XML Schema Resource.
+	 * 
+	 * @param resource the Resource
+	 * @return list of import locations, possibly relative to the Resource URI
+	 */
+	public static List<String> getImportLocations(Resource resource) {
+		List<String> locations = new ArrayList<String>();
+		if (resource.getContents().isEmpty())
+			return locations;
+		EObject root = resource.getContents().get(0);
+		Definitions definitions = ModelUtil.getDefinitions(resource);
+		if (definitions!=null) {
+			for (Import imp : definitions.getImports())
+				locations.add(imp.getLocation());
+		}
+		else if (root instanceof Definition) {
+			Definition wsdlDefinition = (Definition) root;
+			for (Object imp : wsdlDefinition.getEImports())
+				locations.add(((org.eclipse.wst.wsdl.Import) imp).getLocationURI());
+			Types t = wsdlDefinition.getETypes();
+			if (t!=null) {
+				for (Object s : t.getSchemas()) {
+					if (s instanceof XSDSchema)
+						addSchemaLocations((XSDSchema) s, locations);
+				}
+			}
+		}
+		else if (root instanceof XSDSchema) {
+			addSchemaLocations((XSDSchema) root, locations);
+		}
+		return locations;
+	}
+
+	private static void addSchemaLocations(XSDSchema schema, List<String> locations) {
+		for (XSDSchemaContent c : schema.getContents()) {
+			if (c instanceof XSDSchemaDirective)
+				locations.add(((XSDSchemaDirective) c).getSchemaLocation());
+		}
+	}
+
 	// FIXME: {@see ICustomElementFeatureContainer#getId(EObject)}
 	public static String getImportKind(Object object) {
 		String kind = null;
@@ -366,16 +483,19 @@ public class ImportUtil {
 			} catch (Throwable t) {
 				return t;
 			}
-		
-			if (resource!=null && resource.getErrors().isEmpty() && resource.isLoaded() && resource.getContents().size()>0) {
-				if (!resource.isTrackingModification()) {
-					// set modification tracking on so Graphiti's EMFService doesn't try to save this thing!
-					resource.setTrackingModification(true);
-				}
-				if (kind.equals(IMPORT_KIND_BPMN2))
-					return ModelUtil.getDefinitions(resource);
-				return resource.getContents().get(0);
+			return getImportObject(resource, kind);
+		}
+	}
+
+	private Object getImportObject(Resource resource, String kind) {
+		if (resource!=null && resource.getErrors().isEmpty() && resource.isLoaded() && resource.getContents().size()>0) {
+			if (!resource.isTrackingModification()) {
+				// set modification tracking on so Graphiti's EMFService doesn't try to save this thing!
+				resource.setTrackingModification(true);
 			}
+			if (kind.equals(IMPORT_KIND_BPMN2))
+				return ModelUtil.getDefinitions(resource);
+			return resource.getContents().get(0);
 		}
 		return null;
 	}
@@ -390,7 +510,8 @@ public class ImportUtil {
 	 * current Project. The referencing object and feature are used to determine
 	 * the type of object being referenced. Currently only CallableElements,
 	 * XSDElementDeclarations and WSDL PortTypes are supported as referenced
-	 * objects.
+	 * objects. The Project's {@link ProjectSymbolIndex} is used to find the
+	 * files that declare the referenced object, so that only those are loaded.
 	 * 
 	 * @param object the referencing object
 	 * @param feature the feature of the referencing object that identifies the
@@ -398,99 +519,97 @@ public class ImportUtil {
 	 * @param id the ID string of the referenced object
 	 */
 	public EObject resolveExternalReference(EObject object, EStructuralFeature feature, String id) {
-		Resource resource = object.eResource();
-		Bpmn2ModelerResourceSetImpl rs = new Bpmn2ModelerResourceSetImpl();
-		IWorkspace workspace = ResourcesPlugin.getWorkspace();
-		IFile file = workspace.getRoot().getFile(new Path(resource.getURI().toPlatformString(true)));
-		IContainer container = file.getProject();
-		List<IFile> files = new ArrayList<IFile>();
+		String kind = null;
 		if (object instanceof CallActivity) {
 			if (feature == Bpmn2Package.eINSTANCE.getCallActivity_CalledElementRef()) {
 				// search other BPMN2 files in this project for a CallableElement
-				findAllFiles(container, new String[] {"bpmn","bpmn2"}, files); //$NON-NLS-1$ //$NON-NLS-2$
-				for (IFile f : files) {
-					if (f==file)
-						continue;
-					Object root = loadImport(rs, f, IMPORT_KIND_BPMN2);
-					if (root instanceof Definitions) {
-						TreeIterator<EObject> iter = ((Definitions)root).eAllContents();
-						while (iter.hasNext()) {
-							EObject o = iter.next();
-							if (o instanceof CallableElement) {
-								if (id.equals( ((CallableElement)o).getId() )) {
-									return o;
-								}
-							}
-						}
-					}
-				}
+				kind = IMPORT_KIND_BPMN2;
 			}
 		}
 		else if (object instanceof ItemDefinition) {
 			if (feature == Bpmn2Package.eINSTANCE.getItemDefinition_StructureRef()) {
-				findAllFiles(container, new String[] {"xml","xsd"}, files); //$NON-NLS-1$ //$NON-NLS-2$
-				for (IFile f : files) {
-					if (f==file)
-						continue;
-					Object root = loadImport(rs, f, IMPORT_KIND_XML_SCHEMA);
-					if (root instanceof XSDSchema) {
-						TreeIterator<EObject> iter = ((XSDSchema)root).eAllContents();
-						while (iter.hasNext()) {
-							EObject o = iter.next();
-							if (o instanceof XSDElementDeclaration) {
-								String name = getLocalnameForObject(o);
-								if ( id.equals(name) )
-									return o;
-							}
-						}
-					}
-				}
+				kind = IMPORT_KIND_XML_SCHEMA;
 			}			
 		}
 		else if (object instanceof Interface) {
 			if (feature == Bpmn2Package.eINSTANCE.getInterface_ImplementationRef()) {
 				// Look for a WSDL PortType or a Java type
-				findAllFiles(container, new String[] {"wsdl"}, files); //$NON-NLS-1$
-				for (IFile f : files) {
-					if (f==file)
-						continue;
-					Object root = loadImport(rs, f, IMPORT_KIND_WSDL);
-					if (root instanceof org.eclipse.wst.wsdl.Definition) {
-						TreeIterator<EObject> iter = ((Definition)root).eAllContents();
-						while (iter.hasNext()) {
-							EObject o = iter.next();
-							if (o instanceof PortType) {
-								String name = getLocalnameForObject(o);
-								if ( id.equals(name) )
-									return o;
-							}
-						}
-					}
-				}
+				kind = IMPORT_KIND_WSDL;
 			}
 		}
+		if (kind==null || id==null)
+			return null;
+
+		Resource resource = object.eResource();
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		IFile file = workspace.getRoot().getFile(new Path(resource.getURI().toPlatformString(true)));
+		// only load the files that are known to declare the symbol
+		ProjectSymbolIndex index = ProjectSymbolIndex.getIndex(file.getProject());
+		if (index==null)
+			return null;
+		Bpmn2ModelerResourceSetImpl rs = null;
+		for (ProjectSymbolIndex.Symbol symbol : index.findSymbols(kind, null, id)) {
+			if (symbol.file.equals(file))
+				continue;
+			if (rs==null)
+				rs = new Bpmn2ModelerResourceSetImpl();
+			Object root = loadImport(rs, symbol.file, kind);
+			EObject o = findSymbol(root, symbol.fragment, id);
+			if (o!=null)
+				return o;
+		}
 		return null;
 	}
-	
-	private void findAllFiles(IContainer container, String[] extensions, List<IFile> files) {
-		try {
-			for (IResource res : container.members()) {
-				if (res instanceof IFile) {
-					String ext = ((IFile)res).getFileExtension();
-					for (String s : extensions) {
-						if (s.equals(ext)) {
-							files.add((IFile)res);
-						}
+
+	/**
+	 * Search a loaded file for a CallableElement, XSDElementDeclaration or WSDL
+	 * PortType with the given ID or name.
+	 * 
+	 * @param root the root object of the file, as returned by loadImport()
+	 * @param fragment the URI fragment of the object, if known
+	 * @param id the ID or name of the object
+	 * @return the object or null if it was not found
+	 */
+	private EObject findSymbol(Object root, String fragment, String id) {
+		if (root instanceof Definitions) {
+			if (fragment!=null && ((Definitions)root).eResource()!=null) {
+				EObject o = ((Definitions)root).eResource().getEObject(fragment);
+				if (o instanceof CallableElement && id.equals( ((CallableElement)o).getId() ))
+					return o;
+			}
+			TreeIterator<EObject> iter = ((Definitions)root).eAllContents();
+			while (iter.hasNext()) {
+				EObject o = iter.next();
+				if (o instanceof CallableElement) {
+					if (id.equals( ((CallableElement)o).getId() )) {
+						return o;
 					}
 				}
-				else if (res instanceof IContainer) {
-					findAllFiles((IContainer)res, extensions, files);
+			}
+		}
+		else if (root instanceof XSDSchema) {
+			TreeIterator<EObject> iter = ((XSDSchema)root).eAllContents();
+			while (iter.hasNext()) {
+				EObject o = iter.next();
+				if (o instanceof XSDElementDeclaration) {
+					String name = getLocalnameForObject(o);
+					if ( id.equals(name) )
+						return o;
+				}
+			}
+		}
+		else if (root instanceof org.eclipse.wst.wsdl.Definition) {
+			TreeIterator<EObject> iter = ((Definition)root).eAllContents();
+			while (iter.hasNext()) {
+				EObject o = iter.next();
+				if (o instanceof PortType) {
+					String name = getLocalnameForObject(o);
+					if ( id.equals(name) )
+						return o;
 				}
 			}
-		} catch (CoreException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
 		}
+		return null;
 	}
 
 	/**
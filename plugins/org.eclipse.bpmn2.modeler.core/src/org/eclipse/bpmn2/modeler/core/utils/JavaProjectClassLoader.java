@@ -17,17 +17,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaCore;
-import org.eclipse.jdt.core.search.IJavaSearchConstants;
-import org.eclipse.jdt.core.search.IJavaSearchScope;
-import org.eclipse.jdt.core.search.SearchEngine;
-import org.eclipse.jdt.core.search.SearchPattern;
-import org.eclipse.jdt.core.search.TypeNameMatch;
-import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
 
 public class JavaProjectClassLoader {
 	private IJavaProject javaProject;
@@ -58,49 +50,17 @@ public class JavaProjectClassLoader {
 		return results;
 	}
 	
+	/**
+	 * Find all classes and interfaces on this project's classpath whose name
+	 * matches the given pattern. The lookup is answered by the project's
+	 * {@link JavaTypeIndex}.
+	 * 
+	 * @param classNamePattern a type name prefix, optionally qualified with
+	 *            a package name
+	 * @param results receives the matching types
+	 */
 	public void findClasses(String classNamePattern, final List<IType> results) {
-		SearchEngine searchEngine = new SearchEngine();
-		IJavaSearchScope scope = SearchEngine.createJavaSearchScope((IJavaElement[]) new IJavaProject[] {javaProject});
-        char[] packageName = null;
-        char[] typeName = null;
-        int index = classNamePattern.lastIndexOf('.');
-        int packageMatch = SearchPattern.R_EXACT_MATCH;
-        int typeMatch = SearchPattern.R_PREFIX_MATCH;
-
-        if (index == -1) {
-            // There is no package qualification
-            // Perform the search only on the type name
-            typeName = classNamePattern.toCharArray();
-        } else if ((index + 1) == classNamePattern.length()) {
-            // There is a package qualification and the last character is a
-            // dot
-            // Perform the search for all types under the given package
-            // Pattern for all types
-            typeName = "".toCharArray(); //$NON-NLS-1$
-            // Package name without the trailing dot
-            packageName = classNamePattern.substring(0, index).toCharArray();
-        } else {
-            // There is a package qualification, followed by a dot, and 
-            // a type fragment
-            // Type name without the package qualification
-            typeName = classNamePattern.substring(index + 1).toCharArray();
-            // Package name without the trailing dot
-            packageName = classNamePattern.substring(0, index).toCharArray();
-        }
-
-        try {
-            TypeNameMatchRequestor req = new TypeNameMatchRequestor() {
-                public void acceptTypeNameMatch(TypeNameMatch match) {
-                    results.add(match.getType());
-                }
-            };
-            // Note:  Do not use the search() method, its performance is
-            // bad compared to the searchAllTypeNames() method
-            searchEngine.searchAllTypeNames(packageName, packageMatch, typeName,
-                    typeMatch, IJavaSearchConstants.CLASS_AND_INTERFACE, scope, req,
-                    IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
-        } catch (CoreException e) {
-        }
+		JavaTypeIndex.getIndex(javaProject).findTypes(classNamePattern, results);
 	}
 	
 }
\ No newline at end of file
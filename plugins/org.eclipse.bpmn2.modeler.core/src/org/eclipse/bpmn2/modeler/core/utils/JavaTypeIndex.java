@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+/**
+ * A Java Project-scoped index of all of the classes and interfaces that are
+ * visible on the Project's classpath, including its source folders, required
+ * projects and jars. The index is built with a single JDT type name search
+ * (which reads JDT's own index of source and class files and does not load any
+ * classes) the first time it is queried, and answers type name and package
+ * queries with a binary search. Only type names are kept; the IType handles
+ * are created for the types that match a query.
+ * <p>
+ * The index is rebuilt on the next query after a Java element change event
+ * that may add or remove types in, or changes the classpath of, the Project or
+ * one of the Projects it requires.
+ */
+public class JavaTypeIndex {
+
+	private static final Map<IJavaProject, JavaTypeIndex> indexes = new HashMap<IJavaProject, JavaTypeIndex>();
+	private static IElementChangedListener listener;
+
+	/**
+	 * An indexed type.
+	 */
+	private static class Entry {
+		final String packageName;
+		/** type name qualified with the names of its enclosing types */
+		final String typeQualifiedName;
+		/** lower case simple type name, the sort key */
+		final String key;
+
+		Entry(String packageName, String typeQualifiedName, String typeName) {
+			this.packageName = packageName;
+			this.typeQualifiedName = typeQualifiedName;
+			this.key = typeName.toLowerCase();
+		}
+	}
+
+	private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			int result = e1.key.compareTo(e2.key);
+			if (result==0)
+				result = e1.packageName.compareTo(e2.packageName);
+			return result;
+		}
+	};
+
+	private final IJavaProject javaProject;
+	/** all types, sorted by lower case type name */
+	private Entry[] entries;
+	/** incremented whenever the index must be rebuilt */
+	private final AtomicInteger generation = new AtomicInteger();
+	/** the generation the index was built in */
+	private int builtGeneration = -1;
+	/** lower case package name to types in that package */
+	private Map<String, List<Entry>> packages;
+
+	/**
+	 * Return the type index for the given Java Project, creating one if
+	 * necessary.
+	 *
+	 * @param javaProject the Java Project
+	 * @return the index
+	 */
+	public static JavaTypeIndex getIndex(IJavaProject javaProject) {
+		synchronized (indexes) {
+			JavaTypeIndex index = indexes.get(javaProject);
+			if (index==null) {
+				if (listener==null) {
+					listener = new ElementChangedListener();
+					JavaCore.addElementChangedListener(listener, ElementChangedEvent.POST_CHANGE);
+				}
+				index = new JavaTypeIndex(javaProject);
+				indexes.put(javaProject, index);
+			}
+			return index;
+		}
+	}
+
+	private JavaTypeIndex(IJavaProject javaProject) {
+		this.javaProject = javaProject;
+	}
+
+	/**
+	 * Find classes and interfaces that match the given pattern. The pattern has
+	 * the same form as for a JDT type name search: a type name prefix, a
+	 * package name followed by a '.' for all types in that package, or a
+	 * package name followed by a type name prefix. Matching is case
+	 * insensitive.
+	 *
+	 * @param classNamePattern the pattern
+	 * @param results receives the matching types, ordered by type name
+	 */
+	public synchronized void findTypes(String classNamePattern, List<IType> results) {
+		int g = generation.get();
+		if (entries==null || builtGeneration!=g) {
+			build();
+			builtGeneration = g;
+		}
+
+		String packageName = null;
+		String typeName;
+		int index = classNamePattern.lastIndexOf('.');
+		if (index == -1) {
+			typeName = classNamePattern;
+		}
+		else {
+			typeName = classNamePattern.substring(index + 1);
+			packageName = classNamePattern.substring(0, index).toLowerCase();
+		}
+		typeName = typeName.toLowerCase();
+
+		if (packageName!=null && typeName.isEmpty()) {
+			// all types in a package
+			List<Entry> list = packages.get(packageName);
+			if (list!=null) {
+				for (Entry e : list)
+					addType(e, results);
+			}
+			return;
+		}
+
+		// binary search for the first type name with the prefix
+		int low = 0;
+		int high = entries.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (entries[mid].key.compareTo(typeName) < 0)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		for (int i=low; i<entries.length && entries[i].key.startsWith(typeName); ++i) {
+			Entry e = entries[i];
+			if (packageName==null || packageName.equalsIgnoreCase(e.packageName))
+				addType(e, results);
+		}
+	}
+
+	private void addType(Entry e, List<IType> results) {
+		try {
+			IType type = javaProject.findType(e.packageName, e.typeQualifiedName);
+			if (type!=null)
+				results.add(type);
+		}
+		catch (JavaModelException ex) {
+			// the type is no longer on the classpath
+		}
+	}
+
+	/**
+	 * Check if this index includes the types of any of the given Projects,
+	 * that is if its Project is one of them or requires one of them, directly
+	 * or indirectly.
+	 */
+	private boolean dependsOn(Set<String> projectNames) {
+		Set<String> visited = new HashSet<String>();
+		List<IJavaProject> projects = new ArrayList<IJavaProject>();
+		projects.add(javaProject);
+		while (!projects.isEmpty()) {
+			IJavaProject p = projects.remove(projects.size()-1);
+			if (!visited.add(p.getElementName()))
+				continue;
+			if (projectNames.contains(p.getElementName()))
+				return true;
+			if (!p.exists())
+				continue;
+			try {
+				for (String name : p.getRequiredProjectNames())
+					projects.add(p.getJavaModel().getJavaProject(name));
+			}
+			catch (JavaModelException e) {
+				// the classpath can not be read: rebuild to be safe
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void build() {
+		final List<Entry> list = new ArrayList<Entry>();
+		if (javaProject.exists()) {
+			SearchEngine searchEngine = new SearchEngine();
+			IJavaSearchScope scope = SearchEngine.createJavaSearchScope((IJavaElement[]) new IJavaProject[] {javaProject});
+			try {
+				TypeNameMatchRequestor req = new TypeNameMatchRequestor() {
+					public void acceptTypeNameMatch(TypeNameMatch match) {
+						list.add(new Entry(match.getPackageName(), match.getTypeQualifiedName(), match.getSimpleTypeName()));
+					}
+				};
+				searchEngine.searchAllTypeNames(null, SearchPattern.R_PATTERN_MATCH, null,
+						SearchPattern.R_PATTERN_MATCH, IJavaSearchConstants.CLASS_AND_INTERFACE, scope, req,
+						IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+			} catch (CoreException e) {
+			}
+		}
+		entries = list.toArray(new Entry[list.size()]);
+		Arrays.sort(entries, ENTRY_COMPARATOR);
+		packages = new HashMap<String, List<Entry>>();
+		for (Entry e : entries) {
+			String key = e.packageName.toLowerCase();
+			List<Entry> p = packages.get(key);
+			if (p==null) {
+				p = new ArrayList<Entry>();
+				packages.put(key, p);
+			}
+			p.add(e);
+		}
+	}
+
+	/**
+	 * Invalidates the indexes when types are added or removed, or when a
+	 * classpath changes. Since a Project's index includes the types of the
+	 * Projects it requires, the indexes of the changed Projects and of all
+	 * Projects that require them are invalidated; they are rebuilt only when
+	 * they are queried again.
+	 */
+	private static class ElementChangedListener implements IElementChangedListener {
+
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			// do not lock an index here: it may be waiting for the JDT indexer
+			Set<String> changed = new HashSet<String>();
+			for (IJavaElementDelta child : event.getDelta().getAffectedChildren()) {
+				if (child.getElement() instanceof IJavaProject && isStructuralChange(child))
+					changed.add(child.getElement().getElementName());
+			}
+			if (!changed.isEmpty()) {
+				List<JavaTypeIndex> list;
+				synchronized (indexes) {
+					list = new ArrayList<JavaTypeIndex>(indexes.values());
+				}
+				for (JavaTypeIndex index : list) {
+					if (index.dependsOn(changed))
+						index.generation.incrementAndGet();
+				}
+			}
+			removeDeletedProjects(event.getDelta());
+		}
+
+		private static boolean isStructuralChange(IJavaElementDelta delta) {
+			int kind = delta.getKind();
+			int flags = delta.getFlags();
+			int type = delta.getElement().getElementType();
+			if (type==IJavaElement.TYPE ||
+					type==IJavaElement.COMPILATION_UNIT ||
+					type==IJavaElement.CLASS_FILE ||
+					type==IJavaElement.PACKAGE_FRAGMENT ||
+					type==IJavaElement.PACKAGE_FRAGMENT_ROOT ||
+					type==IJavaElement.JAVA_PROJECT) {
+				if (kind==IJavaElementDelta.ADDED || kind==IJavaElementDelta.REMOVED)
+					return true;
+			}
+			if ((flags & (IJavaElementDelta.F_CLASSPATH_CHANGED |
+					IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED |
+					IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED |
+					IJavaElementDelta.F_OPENED |
+					IJavaElementDelta.F_CLOSED |
+					IJavaElementDelta.F_ADDED_TO_CLASSPATH |
+					IJavaElementDelta.F_REMOVED_FROM_CLASSPATH)) != 0)
+				return true;
+			if (type==IJavaElement.TYPE) {
+				// members of a type do not matter
+				return false;
+			}
+			if (type==IJavaElement.COMPILATION_UNIT &&
+					(flags & IJavaElementDelta.F_CONTENT)!=0 &&
+					(flags & IJavaElementDelta.F_FINE_GRAINED)==0) {
+				// the changed types are not known
+				return true;
+			}
+			for (IJavaElementDelta child : delta.getAffectedChildren()) {
+				if (isStructuralChange(child))
+					return true;
+			}
+			return false;
+		}
+
+		private static void removeDeletedProjects(IJavaElementDelta delta) {
+			for (IJavaElementDelta child : delta.getAffectedChildren()) {
+				if (child.getElement() instanceof IJavaProject) {
+					if (child.getKind()==IJavaElementDelta.REMOVED ||
+							(child.getFlags() & IJavaElementDelta.F_CLOSED)!=0) {
+						synchronized (indexes) {
+							indexes.remove(child.getElement());
+						}
+					}
+				}
+			}
+		}
+	}
+}
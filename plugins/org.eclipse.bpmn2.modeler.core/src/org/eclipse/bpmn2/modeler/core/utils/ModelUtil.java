@@ -51,7 +51,9 @@ import org.eclipse.bpmn2.modeler.core.adapters.ExtendedPropertiesProvider;
 import org.eclipse.bpmn2.modeler.core.adapters.InsertionAdapter;
 import org.eclipse.bpmn2.modeler.core.adapters.ObjectPropertyProvider;
 import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceSetImpl;
+import org.eclipse.bpmn2.modeler.core.model.ElementIdAllocator;
 import org.eclipse.bpmn2.modeler.core.model.ModelDecorator;
+import org.eclipse.bpmn2.modeler.core.model.ModelIndex;
 import org.eclipse.bpmn2.modeler.core.validation.SyntaxCheckerUtils;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.emf.common.notify.Adapter;
@@ -90,14 +92,11 @@ import org.eclipse.xsd.XSDElementDeclaration;
 
 public class ModelUtil {
 
-	// TODO: need to determine whether IDs need to be unique within a Resource or ResourceSet - see getKey()
+	// TODO: need to determine whether IDs need to be unique within a Resource or ResourceSet - see getAllocator()
 	
-	// Map of EMF resource sets to ID mapping tables. The ID mapping tables map a BPMN2 element ID string to the EObject.
-	// The EObject is not used anywhere (yet!) just a placeholder to allow use of a HashMap for fast lookups of the ID string.
+	// The IDs of each EMF Resource are allocated by an ElementIdAllocator attached to that Resource.
 	// The ID strings are composed from the BPMN2 element description name and a sequence number (starting at 1).
-	// When a new ID is requested, generateID() simply increments the sequence number until an ID is found that isn't
-	// already in the table.
-	public static HashMap<Object, Hashtable<String, EObject>> ids = new  HashMap<Object, Hashtable<String, EObject>>();
+	// When a new ID is requested, generateID() asks the allocator for the lowest free sequence number.
 	// Map of ID strings and sequential counters for each BPMN2 element description.
 	public static HashMap<String, Integer> defaultIds = new HashMap<String, Integer>();
 
@@ -136,7 +135,10 @@ public class ModelUtil {
 	 * @param res - the EMF Resource that was used to generate the ID strings.
 	 */
 	public static void clearIDs(Resource res, boolean all) {
-		ids.remove( getKey(res) );
+		Assert.isTrue(res!=null);
+		ElementIdAllocator allocator = (ElementIdAllocator) EcoreUtil.getExistingAdapter(res, ElementIdAllocator.class);
+		if (allocator!=null)
+			allocator.dispose();
 		if (all) {
 			defaultIds.clear();
 		}
@@ -162,28 +164,20 @@ public class ModelUtil {
 		return name;
 	}
 	
-	private static Object getKey(EObject obj) {
+	private static ElementIdAllocator getAllocator(EObject obj) {
 		Resource resource = ObjectPropertyProvider.getResource(obj);
 		if (resource==null) {
 //			System.out.println("The object type "+obj.getClass().getName()+" is not contained in a Resource");
 			return null;
 		}
 		Assert.isTrue(obj!=null);
-		return getKey(resource);
+		return getAllocator(resource);
 	}
 	
-	private static Object getKey(Resource res) {
+	private static ElementIdAllocator getAllocator(Resource res) {
 		Assert.isTrue(res!=null);
 		// we may have more than one Bpmn2Resource in our ResourceSet asking for IDs
-		String key = null;
-		if (res.getResourceSet()!=null) {
-			key = Integer.toString(res.getResourceSet().hashCode());
-			key += "-" + res.getResourceSet().getResources().indexOf(res); //$NON-NLS-1$
-		}
-		else {
-			key = Integer.toString(res.hashCode());
-		}
-		return key;
+		return ElementIdAllocator.getAllocator(res);
 	}
 	
 	/**
@@ -222,27 +216,13 @@ public class ModelUtil {
 	public static String generateID(EObject obj, Resource res, String name) {
 		if (res==null)
 			res = ObjectPropertyProvider.getResource(obj);
-		Object key = (res==null ? getKey(obj) : getKey(res));
-		if (key!=null) {
-			Hashtable<String, EObject> tab = ids.get(key);
-			if (tab==null) {
-				tab = new Hashtable<String, EObject>();
-				ids.put(key, tab);
-			}
-			
-			String id = name;
-			if (name==null) {
+		ElementIdAllocator allocator = (res==null ? getAllocator(obj) : getAllocator(res));
+		if (allocator!=null) {
+			// a given name is used as is if it is still free
+			boolean useName = name!=null;
+			if (name==null)
 				name = getObjectName(obj);
-				id = name + "_" + 1; //$NON-NLS-1$
-			}
-			
-			for (int i=1;; ++i) {
-				if (tab.get(id)==null) {
-					tab.put(id, obj);
-					return id;
-				}
-				id = name + "_" + i; //$NON-NLS-1$
-			}
+			return allocator.allocate(name, useName, obj);
 		}
 		return generateDefaultID(obj, name);
 	}
@@ -253,12 +233,9 @@ public class ModelUtil {
 			Object value = obj.eGet(feature);
 			if (value instanceof String) {
 				String id = (String)value;
-				Object key = getKey(resource);
-				if (key!=null) {
-					Hashtable<String, EObject> tab = ids.get(key);
-					if (tab!=null) {
-						tab.remove(id);
-					}
+				ElementIdAllocator allocator = getAllocator(resource);
+				if (allocator!=null) {
+					allocator.release(id);
 				}
 			}
 		}
@@ -295,9 +272,9 @@ public class ModelUtil {
 	 * @param id - the object's ID string
 	 */
 	public static void addID(EObject obj, String id) {
-		Object key = getKey(obj);
+		ElementIdAllocator allocator = getAllocator(obj);
 		String name = getObjectName(obj);
-		if (key==null || id.startsWith("_" + name + "_")) { //$NON-NLS-1$ //$NON-NLS-2$
+		if (allocator==null || id.startsWith("_" + name + "_")) { //$NON-NLS-1$ //$NON-NLS-2$
 			int newValue = 0;
 			try {
 				int i = id.lastIndexOf('_') + 1;
@@ -310,12 +287,7 @@ public class ModelUtil {
 				defaultIds.put(name, Integer.valueOf(newValue));
 		}
 		else {	
-			Hashtable<String, EObject> tab = ids.get(key);
-			if (tab==null) {
-				tab = new Hashtable<String, EObject>();
-				ids.put(key, tab);
-			}
-			tab.put(id, obj);
+			allocator.register(id, obj);
 		}
 	}
 
@@ -855,13 +827,7 @@ public class ModelUtil {
 				EClass eClass = (EClass)feature.getEType();
 				if (eClass != EcorePackage.eINSTANCE.getEObject()) {
 					list = new ArrayList<EObject>();
-					TreeIterator<EObject> contents = resource.getAllContents();
-					while (contents.hasNext()) {
-						Object item = contents.next();
-						if (eClass.isInstance(item)) {
-							list.add((EObject)item);
-						}
-					}
+					addAllInstances(resource, eClass, list);
 				}
 			}
 		}
@@ -874,18 +840,32 @@ public class ModelUtil {
 		if (resource!=null) {
 			list = new ArrayList<EObject>();
 			if (eClass != EcorePackage.eINSTANCE.getEObject()) {
-				TreeIterator<EObject> contents = resource.getAllContents();
-				while (contents.hasNext()) {
-					Object item = contents.next();
-					if (eClass.isInstance(item)) {
-						list.add((EObject)item);
-					}
-				}
+				addAllInstances(resource, eClass, list);
 			}
 		}
 		return list;
 	}
 
+	/**
+	 * Add all instances of the given EClass in the given Resource to a list,
+	 * in the order they appear in the Resource. This uses the Resource's
+	 * {@link ModelIndex} if it has one.
+	 */
+	private static void addAllInstances(Resource resource, EClass eClass, List<EObject> list) {
+		ModelIndex index = ModelIndex.getIndex(resource);
+		if (index!=null) {
+			list.addAll(index.getObjects(eClass));
+			return;
+		}
+		TreeIterator<EObject> contents = resource.getAllContents();
+		while (contents.hasNext()) {
+			EObject item = contents.next();
+			if (eClass.isInstance(item)) {
+				list.add(item);
+			}
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	public static <T> List<T> getAllRootElements(Definitions definitions, final Class<T> class1) {
 		ArrayList<T> list = new ArrayList<T>();
@@ -0,0 +1,385 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.bpmn2.modeler.core.utils;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.eclipse.bpmn2.modeler.core.Activator;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A Project-scoped index of the symbols that can be the target of an external
+ * reference: BPMN2 CallableElements (by ID), XML Schema element declarations
+ * (by name) and WSDL PortTypes (by name). The index maps the kind and name of
+ * a symbol to the files that declare it, so that an unresolved reference can
+ * be resolved by loading only the file that declares the symbol.
+ * <p>
+ * Files are scanned with a SAX parser, which is much cheaper than loading
+ * them as EMF models, and only when a lookup is made after a file has been
+ * added or changed. The index is kept current by a workspace resource change
+ * listener, and is discarded when its Project is closed or deleted.
+ */
+public class ProjectSymbolIndex {
+
+	private static final String BPMN2_NAMESPACE = "http://www.omg.org/spec/BPMN/20100524/MODEL"; //$NON-NLS-1$
+	private static final String XSD_NAMESPACE = "http://www.w3.org/2001/XMLSchema"; //$NON-NLS-1$
+	private static final String WSDL_NAMESPACE = "http://schemas.xmlsoap.org/wsdl/"; //$NON-NLS-1$
+
+	/** BPMN2 elements that are CallableElements */
+	private static final Set<String> CALLABLE_ELEMENTS = new HashSet<String>(Arrays.asList(new String[] {
+			"process", //$NON-NLS-1$
+			"globalTask", //$NON-NLS-1$
+			"globalUserTask", //$NON-NLS-1$
+			"globalManualTask", //$NON-NLS-1$
+			"globalScriptTask", //$NON-NLS-1$
+			"globalBusinessRuleTask", //$NON-NLS-1$
+	}));
+
+	/** File extensions that are indexed, and the kind of symbols they declare */
+	private static final Map<String, String> EXTENSIONS = new HashMap<String, String>();
+	static {
+		EXTENSIONS.put("bpmn", ImportUtil.IMPORT_KIND_BPMN2); //$NON-NLS-1$
+		EXTENSIONS.put("bpmn2", ImportUtil.IMPORT_KIND_BPMN2); //$NON-NLS-1$
+		EXTENSIONS.put("xml", ImportUtil.IMPORT_KIND_XML_SCHEMA); //$NON-NLS-1$
+		EXTENSIONS.put("xsd", ImportUtil.IMPORT_KIND_XML_SCHEMA); //$NON-NLS-1$
+		EXTENSIONS.put("wsdl", ImportUtil.IMPORT_KIND_WSDL); //$NON-NLS-1$
+	}
+
+	private static final Map<IProject, ProjectSymbolIndex> indexes = new HashMap<IProject, ProjectSymbolIndex>();
+	private static IResourceChangeListener listener;
+	private static SAXParserFactory parserFactory;
+
+	/**
+	 * A symbol declared in a file.
+	 */
+	public static class Symbol {
+		/** one of the ImportUtil.IMPORT_KIND_* constants */
+		public final String kind;
+		/** the target namespace of the declaring document, may be null */
+		public final String namespace;
+		/** the ID or name of the symbol */
+		public final String id;
+		/** the declaring file */
+		public final IFile file;
+		/** the URI fragment of the symbol, or null if it has to be searched for */
+		public final String fragment;
+
+		Symbol(String kind, String namespace, String id, IFile file, String fragment) {
+			this.kind = kind;
+			this.namespace = namespace;
+			this.id = id;
+			this.file = file;
+			this.fragment = fragment;
+		}
+	}
+
+	/** the symbols declared by each scanned file */
+	private Map<IFile, List<Symbol>> files = new HashMap<IFile, List<Symbol>>();
+	/** files that have been added or changed since they were last scanned */
+	private Set<IFile> dirty = new LinkedHashSet<IFile>();
+	/** kind and ID to symbols */
+	private Map<String, List<Symbol>> symbols = new HashMap<String, List<Symbol>>();
+
+	/**
+	 * Return the symbol index for the given Project, creating one if necessary.
+	 *
+	 * @param project the Project
+	 * @return the index or null if the Project is null or not open
+	 */
+	public static ProjectSymbolIndex getIndex(IProject project) {
+		if (project==null || !project.isOpen())
+			return null;
+		synchronized (indexes) {
+			ProjectSymbolIndex index = indexes.get(project);
+			if (index==null) {
+				if (listener==null) {
+					listener = new ResourceChangeListener();
+					ResourcesPlugin.getWorkspace().addResourceChangeListener(listener,
+							IResourceChangeEvent.POST_CHANGE |
+							IResourceChangeEvent.PRE_CLOSE |
+							IResourceChangeEvent.PRE_DELETE);
+				}
+				index = new ProjectSymbolIndex(project);
+				indexes.put(project, index);
+			}
+			return index;
+		}
+	}
+
+	private ProjectSymbolIndex(IProject project) {
+		try {
+			project.accept(new IResourceVisitor() {
+				@Override
+				public boolean visit(IResource resource) throws CoreException {
+					if (resource instanceof IFile && getKind((IFile)resource)!=null)
+						dirty.add((IFile)resource);
+					return true;
+				}
+			});
+		}
+		catch (CoreException e) {
+			Activator.logError(e);
+		}
+	}
+
+	/**
+	 * Return the files in this Project that declare a symbol of the given
+	 * kind and ID, ordered by file path.
+	 *
+	 * @param kind one of the ImportUtil.IMPORT_KIND_* constants
+	 * @param namespace the target namespace of the declaring document, or null
+	 *            to match any namespace
+	 * @param id the ID or name of the symbol
+	 * @return a list of symbols, which may be empty but never null
+	 */
+	public synchronized List<Symbol> findSymbols(String kind, String namespace, String id) {
+		scanDirtyFiles();
+		List<Symbol> list = symbols.get(kind + ":" + id); //$NON-NLS-1$
+		if (list==null || list.isEmpty())
+			return Collections.emptyList();
+		List<Symbol> result = new ArrayList<Symbol>(list.size());
+		for (Symbol s : list) {
+			if (namespace==null || namespace.equals(s.namespace))
+				result.add(s);
+		}
+		if (result.size()>1) {
+			Collections.sort(result, new Comparator<Symbol>() {
+				@Override
+				public int compare(Symbol s1, Symbol s2) {
+					return s1.file.getFullPath().toString().compareTo(s2.file.getFullPath().toString());
+				}
+			});
+		}
+		return result;
+	}
+
+	private static String getKind(IFile file) {
+		String ext = file.getFileExtension();
+		return ext==null ? null : EXTENSIONS.get(ext);
+	}
+
+	private synchronized void fileChanged(IFile file) {
+		dirty.add(file);
+	}
+
+	private synchronized void fileRemoved(IFile file) {
+		dirty.remove(file);
+		removeSymbols(file);
+	}
+
+	private void removeSymbols(IFile file) {
+		List<Symbol> old = files.remove(file);
+		if (old!=null) {
+			for (Symbol s : old) {
+				String key = s.kind + ":" + s.id; //$NON-NLS-1$
+				List<Symbol> list = symbols.get(key);
+				if (list!=null) {
+					list.remove(s);
+					if (list.isEmpty())
+						symbols.remove(key);
+				}
+			}
+		}
+	}
+
+	private void scanDirtyFiles() {
+		if (dirty.isEmpty())
+			return;
+		for (IFile file : dirty) {
+			removeSymbols(file);
+			List<Symbol> declared = scan(file);
+			files.put(file, declared);
+			for (Symbol s : declared) {
+				String key = s.kind + ":" + s.id; //$NON-NLS-1$
+				List<Symbol> list = symbols.get(key);
+				if (list==null) {
+					list = new ArrayList<Symbol>(1);
+					symbols.put(key, list);
+				}
+				list.add(s);
+			}
+		}
+		dirty.clear();
+	}
+
+	private static List<Symbol> scan(IFile file) {
+		List<Symbol> declared = new ArrayList<Symbol>();
+		String kind = getKind(file);
+		if (kind==null || !file.exists())
+			return declared;
+		InputStream is = null;
+		try {
+			is = file.getContents(true);
+			getParser().parse(is, new SymbolHandler(file, kind, declared));
+		}
+		catch (Exception e) {
+			// not a well-formed file, or not readable: it declares nothing
+		}
+		finally {
+			if (is!=null) {
+				try {
+					is.close();
+				}
+				catch (Exception e) {
+				}
+			}
+		}
+		return declared;
+	}
+
+	private static synchronized SAXParser getParser() throws Exception {
+		if (parserFactory==null) {
+			parserFactory = SAXParserFactory.newInstance();
+			parserFactory.setNamespaceAware(true);
+			parserFactory.setValidating(false);
+		}
+		return parserFactory.newSAXParser();
+	}
+
+	/**
+	 * Collects the symbol declarations of a single file.
+	 */
+	private static class SymbolHandler extends DefaultHandler {
+		final IFile file;
+		final String kind;
+		final List<Symbol> declared;
+		final Stack<String> namespaces = new Stack<String>();
+
+		SymbolHandler(IFile file, String kind, List<Symbol> declared) {
+			this.file = file;
+			this.kind = kind;
+			this.declared = declared;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) {
+			String namespace = namespaces.isEmpty() ? null : namespaces.peek();
+			if (ImportUtil.IMPORT_KIND_BPMN2.equals(kind)) {
+				if (BPMN2_NAMESPACE.equals(uri)) {
+					if ("definitions".equals(localName)) //$NON-NLS-1$
+						namespace = attributes.getValue("targetNamespace"); //$NON-NLS-1$
+					else if (CALLABLE_ELEMENTS.contains(localName))
+						add(namespace, attributes.getValue("id"), true); //$NON-NLS-1$
+				}
+			}
+			else if (ImportUtil.IMPORT_KIND_XML_SCHEMA.equals(kind)) {
+				if (XSD_NAMESPACE.equals(uri)) {
+					if ("schema".equals(localName)) //$NON-NLS-1$
+						namespace = attributes.getValue("targetNamespace"); //$NON-NLS-1$
+					else if ("element".equals(localName)) //$NON-NLS-1$
+						add(namespace, attributes.getValue("name"), false); //$NON-NLS-1$
+				}
+			}
+			else if (ImportUtil.IMPORT_KIND_WSDL.equals(kind)) {
+				if (WSDL_NAMESPACE.equals(uri)) {
+					if ("definitions".equals(localName)) //$NON-NLS-1$
+						namespace = attributes.getValue("targetNamespace"); //$NON-NLS-1$
+					else if ("portType".equals(localName)) //$NON-NLS-1$
+						add(namespace, attributes.getValue("name"), false); //$NON-NLS-1$
+				}
+			}
+			namespaces.push(namespace);
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			namespaces.pop();
+		}
+
+		private void add(String namespace, String id, boolean isFragment) {
+			if (id!=null && !id.isEmpty())
+				declared.add(new Symbol(kind, namespace, id, file, isFragment ? id : null));
+		}
+	}
+
+	/**
+	 * Marks files as changed or removed, and discards the index of a Project
+	 * when it is closed or deleted.
+	 */
+	private static class ResourceChangeListener implements IResourceChangeListener {
+
+		@Override
+		public void resourceChanged(IResourceChangeEvent event) {
+			if (event.getType()==IResourceChangeEvent.PRE_CLOSE || event.getType()==IResourceChangeEvent.PRE_DELETE) {
+				if (event.getResource() instanceof IProject) {
+					synchronized (indexes) {
+						indexes.remove(event.getResource());
+					}
+				}
+				return;
+			}
+			IResourceDelta delta = event.getDelta();
+			if (delta==null)
+				return;
+			try {
+				delta.accept(new IResourceDeltaVisitor() {
+					@Override
+					public boolean visit(IResourceDelta delta) throws CoreException {
+						IResource resource = delta.getResource();
+						if (resource instanceof IProject) {
+							synchronized (indexes) {
+								if (!indexes.containsKey(resource))
+									return false;
+								if (delta.getKind()==IResourceDelta.REMOVED) {
+									indexes.remove(resource);
+									return false;
+								}
+							}
+						}
+						else if (resource instanceof IFile && getKind((IFile)resource)!=null) {
+							ProjectSymbolIndex index;
+							synchronized (indexes) {
+								index = indexes.get(resource.getProject());
+							}
+							if (index!=null) {
+								if (delta.getKind()==IResourceDelta.REMOVED)
+									index.fileRemoved((IFile)resource);
+								else if (delta.getKind()==IResourceDelta.ADDED ||
+										(delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED))!=0)
+									index.fileChanged((IFile)resource);
+							}
+						}
+						return true;
+					}
+				});
+			}
+			catch (CoreException e) {
+				Activator.logError(e);
+			}
+		}
+	}
+}
@@ -11,8 +11,25 @@
 package org.eclipse.bpmn2.modeler.core.validation;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.bpmn2.modeler.core.Activator;
 import org.eclipse.bpmn2.modeler.core.adapters.ExtendedPropertiesAdapter;
@@ -22,21 +39,36 @@ import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceSetImpl;
 import org.eclipse.bpmn2.modeler.core.model.ProxyURIConverterImplExtension;
 import org.eclipse.bpmn2.modeler.core.preferences.Bpmn2Preferences;
 import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime;
+import org.eclipse.bpmn2.modeler.core.utils.ImportUtil;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IProjectDescription;
 import org.eclipse.core.resources.IProjectNature;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ProjectScope;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.content.IContentDescription;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.INodeChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.NodeChangeEvent;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
+import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
@@ -44,6 +76,7 @@ import org.eclipse.emf.ecore.EValidator;
 import org.eclipse.emf.ecore.InternalEObject;
 import org.eclipse.emf.ecore.impl.ENotificationImpl;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.validation.marker.MarkerUtil;
 import org.eclipse.emf.validation.model.EvaluationMode;
@@ -61,20 +94,42 @@ import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.part.FileEditorInput;
 import org.eclipse.wst.validation.AbstractValidator;
+import org.eclipse.wst.validation.IDependencyIndex;
 import org.eclipse.wst.validation.ValidationEvent;
 import org.eclipse.wst.validation.ValidationFramework;
 import org.eclipse.wst.validation.ValidationResult;
 import org.eclipse.wst.validation.ValidationState;
 import org.eclipse.wst.validation.Validator;
 import org.eclipse.wst.validation.ValidatorMessage;
+import org.osgi.service.prefs.BackingStoreException;
+import org.osgi.service.prefs.Preferences;
 
 public class BPMN2ProjectValidator extends AbstractValidator {
 
-	private IFile modelFile;
-	private TargetRuntime targetRuntime;
+	// the ID of this validator, as declared in plugin.xml
+	private static final String VALIDATOR_ID = Activator.PLUGIN_ID + ".projectValidator"; //$NON-NLS-1$
+	// results of the most recent validation of each model file
+	private static final Map<IPath, ValidationCacheEntry> validationCache = new ConcurrentHashMap<IPath, ValidationCacheEntry>();
+	// discards cache entries of deleted files and of closed or deleted projects
+	private static IResourceChangeListener resourceChangeListener;
+	// the plugin whose preferences hold the EMF Validation constraint enablements
+	private static final String EMF_VALIDATION_PLUGIN_ID = "org.eclipse.emf.validation"; //$NON-NLS-1$
+	// incremented whenever a preference that may affect the validation results
+	// changes; it is part of the settings key of the cache entries
+	private static final AtomicInteger settingsGeneration = new AtomicInteger();
+	// absolute paths of the preference nodes observed by the preferenceWatcher
+	private static final Set<String> watchedPreferenceNodes = new HashSet<String>();
+	private static final PreferenceWatcher preferenceWatcher = new PreferenceWatcher();
+	// the maximum number of model files validated concurrently
+	private static final int MAX_WORKERS = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+
+	// the current validation pass, or null if files are validated one at a time
+	private ValidationPass pass;
+	// the number of nested validationStarting() calls of the current pass
+	private int passDepth;
 
     @Override
-    public synchronized ValidationResult validate(ValidationEvent event, ValidationState state, IProgressMonitor monitor) {
+    public ValidationResult validate(ValidationEvent event, ValidationState state, IProgressMonitor monitor) {
     	IResource file = event.getResource();
         if ((event.getKind() & IResourceDelta.REMOVED) != 0 
         		|| file.isDerived(IResource.CHECK_ANCESTORS)
@@ -82,47 +137,593 @@ public class BPMN2ProjectValidator extends AbstractValidator {
             return new ValidationResult();
         }
 
-        // TODO: temporary hack until I can figure out how to associate
-        // a Bpmn2ModelerFactory instance with a Resource.
-        targetRuntime = null;
-        TargetRuntime currentRuntime = TargetRuntime.getCurrentRuntime();
-        
-        ValidationResult result = null;
-    	modelFile = (IFile) file;
-    	try {
-			modelFile.deleteMarkers(null, true, IProject.DEPTH_INFINITE);
-
-	    	Bpmn2ModelerResourceSetImpl rs = new Bpmn2ModelerResourceSetImpl();
-			getTargetRuntime().registerExtensionResourceFactory(rs);
-			URI modelUri = URI.createPlatformResourceURI(modelFile.getFullPath().toString(), true);
-			rs.setURIConverter(new ProxyURIConverterImplExtension(modelUri));
-	    	Map<Object,Object> options = new HashMap<Object,Object>();
-	    	options.put(Bpmn2ModelerResourceSetImpl.OPTION_PROGRESS_MONITOR, monitor);
-	    	rs.setLoadOptions(options);
-	
-			Resource resource = rs.createResource(modelUri, Bpmn2ModelerResourceImpl.BPMN2_CONTENT_TYPE_ID);
-            resource.load(null);
-	        result = new ValidationResult();
-	        if (resource.getContents().isEmpty()) {
-	            ValidatorMessage message = ValidatorMessage.create(Messages.BPMN2ProjectValidator_Invalid_File, modelFile);
-	            message.setType(getTargetRuntime().getProblemMarkerId());
-	            result.add(message);
-	        } else {
-	            IBatchValidator validator = ModelValidationService.getInstance().newValidator(EvaluationMode.BATCH);
-	            processStatus(validator.validate(resource.getContents(), monitor), modelFile, result);
-	        }
-		} catch (CoreException e1) {
-			e1.printStackTrace();
-        } catch (IOException e2) {
-            e2.printStackTrace();
-        }
-    	finally {
-    		// TODO: see to-do comment above
-    		TargetRuntime.setCurrentRuntime(currentRuntime);
-    	}
-	        
+        IFile modelFile = (IFile) file;
+		addResourceChangeListener();
+		watchPreferences(modelFile.getProject());
+		// the project preferences are created lazily, make sure this does not
+		// happen concurrently on the worker threads
+		Bpmn2Preferences.getInstance(modelFile.getProject());
+
+		// If neither the file, any of the files it imports directly or
+		// indirectly, nor the validation settings have changed since the
+		// last validation, reuse the results of that validation.
+		TargetRuntime runtime = getTargetRuntime(modelFile);
+		String settingsKey = runtime.getId() + "#" + settingsGeneration.get(); //$NON-NLS-1$
+		ValidationCacheEntry entry = validationCache.get(modelFile.getFullPath());
+		if (entry!=null && !entry.isCurrent(settingsKey))
+			entry = null;
+
+		synchronized (this) {
+			if (pass!=null) {
+				// The markers are created when the pass is finished, and the
+				// dependencies of files that are validated by the workers are
+				// recorded then as well.
+				if (entry!=null)
+					pass.add(modelFile, entry);
+				else
+					pass.submit(modelFile, runtime, settingsKey);
+				ValidationResult result = new ValidationResult();
+				if (entry!=null)
+					result.setDependsOn(entry.dependsOn);
+				return result;
+			}
+		}
+
+		// TODO: temporary hack until I can figure out how to associate
+		// a Bpmn2ModelerFactory instance with a Resource.
+		TargetRuntime currentRuntime = TargetRuntime.getCurrentRuntime();
+		Map<IFile, ValidatorMessage[]> messages = new HashMap<IFile, ValidatorMessage[]>();
+		try {
+			if (entry==null) {
+				TargetRuntime.setCurrentRuntime(runtime);
+				Bpmn2ModelerResourceSetImpl rs = createResourceSet(runtime);
+				entry = validateFile(modelFile, runtime, rs, settingsKey, monitor);
+				disposeResourceSet(rs);
+			}
+			messages.put(modelFile, entry==null ? new ValidatorMessage[0] : entry.messages);
+			applyMarkers(messages, monitor);
+		}
+		finally {
+			// TODO: see to-do comment above
+			TargetRuntime.setCurrentRuntime(currentRuntime);
+		}
+
+		ValidationResult result = new ValidationResult();
+		if (entry!=null)
+			result.setDependsOn(entry.dependsOn);
         return result;
     }
+
+    @Override
+	public void validationStarting(IProject project, ValidationState state, IProgressMonitor monitor) {
+		super.validationStarting(project, state, monitor);
+		// The pass starts with a call for all projects (null) and then one
+		// for each project; the markers are created when the outermost call
+		// is finished.
+		synchronized (this) {
+			if (passDepth++ == 0)
+				pass = new ValidationPass(monitor);
+		}
+	}
+
+	@Override
+	public void validationFinishing(IProject project, ValidationState state, IProgressMonitor monitor) {
+		super.validationFinishing(project, state, monitor);
+		ValidationPass finished = null;
+		synchronized (this) {
+			if (passDepth>0 && --passDepth == 0) {
+				finished = pass;
+				pass = null;
+			}
+		}
+		if (finished!=null)
+			finished.finish(monitor);
+	}
+
+	/**
+	 * Load and validate the given model file, and cache the results.
+	 * 
+	 * @param modelFile the model file
+	 * @param runtime the Target Runtime of the model file
+	 * @param rs the ResourceSet to load the file into
+	 * @param settingsKey the settings key of the new cache entry
+	 * @param monitor progress monitor
+	 * @return the new cache entry, or null if the file could not be loaded
+	 */
+	private static ValidationCacheEntry validateFile(IFile modelFile, TargetRuntime runtime, Bpmn2ModelerResourceSetImpl rs, String settingsKey, IProgressMonitor monitor) {
+		// record the state of the file before it is read, so that changes
+		// made while it is validated are not mistaken for validated ones
+		FileState fileState = new FileState(modelFile);
+		URI modelUri = URI.createPlatformResourceURI(modelFile.getFullPath().toString(), true);
+		Resource resource;
+		try {
+			resource = loadResource(rs, modelUri, monitor);
+		}
+		catch (IOException e) {
+			Activator.logError(e);
+			return null;
+		}
+
+		List<ValidatorMessage> messages = new ArrayList<ValidatorMessage>();
+		if (resource.getContents().isEmpty()) {
+			ValidatorMessage message = ValidatorMessage.create(Messages.BPMN2ProjectValidator_Invalid_File, modelFile);
+			message.setType(runtime.getProblemMarkerId());
+			messages.add(message);
+		} else {
+			IBatchValidator validator = ModelValidationService.getInstance().newValidator(EvaluationMode.BATCH);
+			processStatus(validator.validate(resource.getContents(), monitor), modelFile, runtime, messages);
+		}
+
+		List<IFile> dependencies = getDependencies(resource);
+		ValidationCacheEntry entry = new ValidationCacheEntry(settingsKey, fileState, dependencies,
+				messages.toArray(new ValidatorMessage[messages.size()]));
+		validationCache.put(modelFile.getFullPath(), entry);
+		unloadResource(resource);
+		return entry;
+	}
+
+	/**
+	 * Replace the markers of the given files by markers for the given messages.
+	 * All marker changes are made in a single workspace operation, so that
+	 * listeners are notified only once.
+	 * 
+	 * @param messages the validation messages of each file
+	 * @param monitor progress monitor
+	 */
+	private static void applyMarkers(final Map<IFile, ValidatorMessage[]> messages, IProgressMonitor monitor) {
+		if (messages.isEmpty())
+			return;
+		IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (Entry<IFile, ValidatorMessage[]> e : messages.entrySet()) {
+					IFile file = e.getKey();
+					if (!file.exists())
+						continue;
+					file.deleteMarkers(null, true, IResource.DEPTH_INFINITE);
+					for (ValidatorMessage message : e.getValue()) {
+						IMarker marker = file.createMarker(message.getType());
+						marker.setAttributes(message.getAttributes());
+					}
+				}
+			}
+		};
+		try {
+			ResourcesPlugin.getWorkspace().run(runnable, null, IWorkspace.AVOID_UPDATE, monitor);
+		}
+		catch (CoreException e) {
+			Activator.logError(e);
+		}
+	}
+
+	/**
+	 * The model files validated in one validation pass. Files that are not
+	 * cached are loaded and validated by a bounded pool of worker threads, each
+	 * of which loads its files into its own ResourceSet, so that imported WSDL,
+	 * XSD and BPMN2 files are parsed only once per worker. The markers of all
+	 * files are created when the pass is finished.
+	 * <p>
+	 * Since the current Target Runtime is global, the workers only validate
+	 * files of one Target Runtime at a time: the pending files are drained
+	 * whenever the next file uses a different runtime.
+	 */
+	private static class ValidationPass {
+		private final IProgressMonitor monitor;
+		private final ExecutorService executor;
+		// ResourceSets of the current worker thread, keyed by Target Runtime ID
+		private final ThreadLocal<Map<String, Bpmn2ModelerResourceSetImpl>> workerResourceSets =
+				new ThreadLocal<Map<String, Bpmn2ModelerResourceSetImpl>>() {
+			@Override
+			protected Map<String, Bpmn2ModelerResourceSetImpl> initialValue() {
+				return new HashMap<String, Bpmn2ModelerResourceSetImpl>();
+			}
+		};
+		// all ResourceSets of all workers, disposed at the end of the pass
+		private final List<Bpmn2ModelerResourceSetImpl> resourceSets = new ArrayList<Bpmn2ModelerResourceSetImpl>();
+		private final Map<IFile, Future<ValidationCacheEntry>> pending = new LinkedHashMap<IFile, Future<ValidationCacheEntry>>();
+		private final Map<IFile, ValidatorMessage[]> messages = new LinkedHashMap<IFile, ValidatorMessage[]>();
+		private final Map<IFile, IResource[]> dependencies = new LinkedHashMap<IFile, IResource[]>();
+		// TODO: see to-do comment in validate()
+		private final TargetRuntime previousRuntime = TargetRuntime.getCurrentRuntime();
+		private TargetRuntime runtime;
+
+		ValidationPass(IProgressMonitor monitor) {
+			this.monitor = monitor==null ? new NullProgressMonitor() : monitor;
+			executor = Executors.newFixedThreadPool(MAX_WORKERS, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "BPMN2 Validation Worker"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		void add(IFile file, ValidationCacheEntry entry) {
+			messages.put(file, entry.messages);
+			dependencies.put(file, entry.dependsOn);
+		}
+
+		void submit(final IFile file, final TargetRuntime rt, final String settingsKey) {
+			if (rt!=runtime) {
+				drain();
+				runtime = rt;
+				TargetRuntime.setCurrentRuntime(rt);
+			}
+			pending.put(file, executor.submit(new Callable<ValidationCacheEntry>() {
+				public ValidationCacheEntry call() {
+					if (monitor.isCanceled())
+						return null;
+					return validateFile(file, rt, getResourceSet(rt), settingsKey, new NullProgressMonitor());
+				}
+			}));
+		}
+
+		private Bpmn2ModelerResourceSetImpl getResourceSet(TargetRuntime rt) {
+			Map<String, Bpmn2ModelerResourceSetImpl> map = workerResourceSets.get();
+			Bpmn2ModelerResourceSetImpl rs = map.get(rt.getId());
+			if (rs==null) {
+				rs = createResourceSet(rt);
+				map.put(rt.getId(), rs);
+				synchronized (resourceSets) {
+					resourceSets.add(rs);
+				}
+			}
+			return rs;
+		}
+
+		private void drain() {
+			for (Entry<IFile, Future<ValidationCacheEntry>> e : pending.entrySet()) {
+				try {
+					ValidationCacheEntry entry = e.getValue().get();
+					if (entry!=null)
+						add(e.getKey(), entry);
+					else if (!monitor.isCanceled())
+						messages.put(e.getKey(), new ValidatorMessage[0]);
+				}
+				catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					e.getValue().cancel(true);
+				}
+				catch (ExecutionException ee) {
+					Activator.logError(ee.getCause() instanceof Exception ? (Exception) ee.getCause() : ee);
+				}
+			}
+			pending.clear();
+		}
+
+		void finish(IProgressMonitor finishMonitor) {
+			try {
+				drain();
+				executor.shutdown();
+				applyMarkers(messages, finishMonitor);
+				IDependencyIndex index = ValidationFramework.getDefault().getDependencyIndex();
+				for (Entry<IFile, IResource[]> e : dependencies.entrySet())
+					index.set(VALIDATOR_ID, e.getKey(), e.getValue());
+			}
+			finally {
+				for (Bpmn2ModelerResourceSetImpl rs : resourceSets)
+					disposeResourceSet(rs);
+				resourceSets.clear();
+				TargetRuntime.setCurrentRuntime(previousRuntime);
+			}
+		}
+	}
+
+	private static Bpmn2ModelerResourceSetImpl createResourceSet(TargetRuntime runtime) {
+		Bpmn2ModelerResourceSetImpl rs = new Bpmn2ModelerResourceSetImpl();
+		runtime.registerExtensionResourceFactory(rs);
+		rs.setURIConverter(new ProxyURIConverterImplExtension(null));
+		return rs;
+	}
+
+	/**
+	 * Load the model file. The model file itself is always reloaded, but
+	 * files it imports may already have been loaded into the ResourceSet for
+	 * some other model file.
+	 * 
+	 * @param rs the ResourceSet
+	 * @param modelUri URI of the model file
+	 * @param monitor progress monitor
+	 * @return the loaded Resource
+	 * @throws IOException
+	 */
+	private static Resource loadResource(Bpmn2ModelerResourceSetImpl rs, URI modelUri, IProgressMonitor monitor) throws IOException {
+		((ProxyURIConverterImplExtension)rs.getURIConverter()).setBaseUri(modelUri);
+		// the model file may already have been loaded as an import of some other file
+		Resource oldResource = rs.getResource(modelUri, false);
+		if (oldResource!=null)
+			unloadResource(oldResource);
+    	Map<Object,Object> options = new HashMap<Object,Object>();
+    	options.put(Bpmn2ModelerResourceSetImpl.OPTION_PROGRESS_MONITOR, monitor);
+    	rs.setLoadOptions(options);
+
+		Resource resource = rs.createResource(modelUri, Bpmn2ModelerResourceImpl.BPMN2_CONTENT_TYPE_ID);
+        resource.load(null);
+        return resource;
+	}
+	
+	private static void unloadResource(Resource resource) {
+		ResourceSet rs = resource.getResourceSet();
+		resource.unload();
+		if (rs!=null)
+			rs.getResources().remove(resource);
+	}
+
+	private static void disposeResourceSet(ResourceSet rs) {
+		for (Resource r : rs.getResources())
+			r.unload();
+		rs.getResources().clear();
+	}
+	
+	/**
+	 * Return the workspace files imported by the given model Resource, either
+	 * directly or through the imports of other imported files.
+	 * 
+	 * @param resource the model Resource
+	 * @return list of imported files
+	 */
+	private static List<IFile> getDependencies(Resource resource) {
+		List<IFile> dependencies = new ArrayList<IFile>();
+		Set<URI> visited = new HashSet<URI>();
+		visited.add(resource.getURI());
+		addDependencies(resource, visited, dependencies);
+		return dependencies;
+	}
+
+	private static void addDependencies(Resource resource, Set<URI> visited, List<IFile> dependencies) {
+		ResourceSet rs = resource.getResourceSet();
+		for (String location : ImportUtil.getImportLocations(resource)) {
+			if (location==null || location.isEmpty())
+				continue;
+			try {
+				URI uri = URI.createURI(location).resolve(resource.getURI());
+				if (!visited.add(uri) || !uri.isPlatformResource())
+					continue;
+				IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(
+						new Path(uri.toPlatformString(true)));
+				dependencies.add(file);
+				if (rs!=null && file.exists()) {
+					Resource imported = rs.getResource(uri, false);
+					if (imported==null)
+						imported = rs.getResource(uri, true);
+					addDependencies(imported, visited, dependencies);
+				}
+			}
+			catch (Exception e) {
+				// the invalid import itself is reported by the validator, but
+				// the files imported through it are not tracked
+				Activator.logError(e);
+			}
+		}
+	}
+
+	/**
+	 * Start observing the preferences the validation results depend on: the
+	 * BPMN2 Modeler preferences (including the tool profile model enablements)
+	 * and EMF Validation constraint enablements in effect for the given
+	 * project. Any change to these increments the settings generation, which
+	 * invalidates all cache entries.
+	 * 
+	 * @param project the project containing the model file
+	 */
+	private static void watchPreferences(IProject project) {
+		synchronized (watchedPreferenceNodes) {
+			watchPreferences("/" + InstanceScope.SCOPE + "/" + Activator.PLUGIN_ID); //$NON-NLS-1$ //$NON-NLS-2$
+			watchPreferences("/" + InstanceScope.SCOPE + "/" + EMF_VALIDATION_PLUGIN_ID); //$NON-NLS-1$ //$NON-NLS-2$
+			watchPreferences("/" + ProjectScope.SCOPE + "/" + project.getName() + "/" + Activator.PLUGIN_ID); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	private static void watchPreferences(String path) {
+		if (watchedPreferenceNodes.contains(path))
+			return;
+		// node() creates a missing node, so that preferences stored later are noticed
+		Preferences node = Platform.getPreferencesService().getRootNode().node(path);
+		if (node instanceof IEclipsePreferences)
+			addPreferenceListeners((IEclipsePreferences) node);
+	}
+
+	private static void addPreferenceListeners(IEclipsePreferences node) {
+		synchronized (watchedPreferenceNodes) {
+			if (!watchedPreferenceNodes.add(node.absolutePath()))
+				return;
+			node.addPreferenceChangeListener(preferenceWatcher);
+			node.addNodeChangeListener(preferenceWatcher);
+			try {
+				for (String child : node.childrenNames()) {
+					Preferences childNode = node.node(child);
+					if (childNode instanceof IEclipsePreferences)
+						addPreferenceListeners((IEclipsePreferences) childNode);
+				}
+			}
+			catch (BackingStoreException e) {
+				Activator.logError(e);
+			}
+		}
+	}
+
+	private static void unwatchPreferences(String prefix) {
+		synchronized (watchedPreferenceNodes) {
+			Iterator<String> iter = watchedPreferenceNodes.iterator();
+			while (iter.hasNext()) {
+				String path = iter.next();
+				if (path.equals(prefix) || path.startsWith(prefix + "/")) //$NON-NLS-1$
+					iter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Increments the settings generation whenever an observed preference
+	 * changes, and observes new child nodes of the observed nodes.
+	 */
+	private static class PreferenceWatcher implements IPreferenceChangeListener, INodeChangeListener {
+
+		public void preferenceChange(PreferenceChangeEvent event) {
+			settingsGeneration.incrementAndGet();
+		}
+
+		public void added(NodeChangeEvent event) {
+			settingsGeneration.incrementAndGet();
+			if (event.getChild() instanceof IEclipsePreferences)
+				addPreferenceListeners((IEclipsePreferences) event.getChild());
+		}
+
+		public void removed(NodeChangeEvent event) {
+			settingsGeneration.incrementAndGet();
+			// the listeners are gone with the node, observe it again if it is recreated
+			unwatchPreferences(event.getChild().absolutePath());
+		}
+	}
+
+	private static synchronized void addResourceChangeListener() {
+		if (resourceChangeListener==null) {
+			resourceChangeListener = new ValidationCacheCleaner();
+			ResourcesPlugin.getWorkspace().addResourceChangeListener(resourceChangeListener,
+					IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.POST_CHANGE);
+		}
+	}
+
+	private static void removeCacheEntries(IPath prefix) {
+		for (IPath path : validationCache.keySet()) {
+			if (prefix.isPrefixOf(path))
+				validationCache.remove(path);
+		}
+	}
+
+	/**
+	 * Removes the cached validation results of files that are deleted, and of
+	 * all files in projects that are closed or deleted.
+	 */
+	private static class ValidationCacheCleaner implements IResourceChangeListener, IResourceDeltaVisitor {
+
+		public void resourceChanged(IResourceChangeEvent event) {
+			if (event.getType()==IResourceChangeEvent.POST_CHANGE) {
+				if (event.getDelta()!=null) {
+					try {
+						event.getDelta().accept(this);
+					} catch (CoreException e) {
+						Activator.logError(e);
+					}
+				}
+			}
+			else if (event.getResource()!=null) {
+				removeCacheEntries(event.getResource().getFullPath());
+				// the project preferences are discarded along with the project
+				unwatchPreferences("/" + ProjectScope.SCOPE + "/" + event.getResource().getName()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+
+		public boolean visit(IResourceDelta delta) throws CoreException {
+			if (delta.getKind()==IResourceDelta.REMOVED) {
+				removeCacheEntries(delta.getResource().getFullPath());
+				return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Compute a hash of the given file's contents.
+	 * 
+	 * @param file the file
+	 * @return the hash as a hex string, or null if the file does not exist or
+	 *         can not be read.
+	 */
+	private static String computeHash(IFile file) {
+		if (!file.exists())
+			return null;
+		InputStream is = null;
+		try {
+			MessageDigest md = MessageDigest.getInstance("MD5"); //$NON-NLS-1$
+			is = file.getContents(true);
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = is.read(buffer)) > 0) {
+				md.update(buffer, 0, n);
+			}
+			return toHexString(md.digest());
+		}
+		catch (Exception e) {
+			Activator.logError(e);
+			return null;
+		}
+		finally {
+			if (is!=null) {
+				try {
+					is.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	private static String toHexString(byte[] digest) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest) {
+			sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The modification stamp and content hash of a file at the time it was
+	 * validated. The contents are hashed again only if the stamp changes, so
+	 * that files that were touched but not changed still match.
+	 */
+	private static class FileState {
+		final IFile file;
+		final String contentHash;
+		volatile long modificationStamp;
+
+		FileState(IFile file) {
+			this.file = file;
+			this.modificationStamp = file.getModificationStamp();
+			this.contentHash = computeHash(file);
+		}
+
+		boolean isCurrent() {
+			long stamp = file.getModificationStamp();
+			if (stamp==modificationStamp)
+				return true;
+			String hash = computeHash(file);
+			if (hash==null ? contentHash!=null : !hash.equals(contentHash))
+				return false;
+			modificationStamp = stamp;
+			return true;
+		}
+	}
+
+	/**
+	 * The results of the last validation of a model file, along with the
+	 * validation settings and the state of the file and all of its imported
+	 * files at the time.
+	 */
+	private static class ValidationCacheEntry {
+		final String settingsKey;
+		final List<FileState> fileStates = new ArrayList<FileState>();
+		final ValidatorMessage[] messages;
+		final IResource[] dependsOn;
+		
+		ValidationCacheEntry(String settingsKey, FileState fileState, List<IFile> dependencies, ValidatorMessage[] messages) {
+			this.settingsKey = settingsKey;
+			fileStates.add(fileState);
+			for (IFile f : dependencies) {
+				fileStates.add(new FileState(f));
+			}
+			this.dependsOn = dependencies.toArray(new IResource[dependencies.size()]);
+			this.messages = messages;
+		}
+		
+		boolean isCurrent(String settingsKey) {
+			if (!this.settingsKey.equals(settingsKey))
+				return false;
+			for (FileState fs : fileStates) {
+				if (!fs.isCurrent())
+					return false;
+			}
+			return true;
+		}
+	}
     
     public static void validate(IResource resource, IProgressMonitor monitor) {
 		if (isBPMN2File(resource)) {
@@ -264,16 +865,27 @@ public class BPMN2ProjectValidator extends AbstractValidator {
     }
     
     public void processStatus(IStatus status, IResource resource, ValidationResult result) {
+    	List<ValidatorMessage> messages = new ArrayList<ValidatorMessage>();
+    	processStatus(status, resource, getTargetRuntime(resource), messages);
+    	for (ValidatorMessage m : messages)
+    		result.add(m);
+    }
+
+    private static void processStatus(IStatus status, IResource resource, TargetRuntime runtime, List<ValidatorMessage> messages) {
         if (status.isMultiStatus()) {
             for (IStatus child : status.getChildren()) {
-                processStatus(child, resource, result);
+                processStatus(child, resource, runtime, messages);
             }
         } else if (!status.isOK()) {
-            result.add(createValidationMessage(status, resource));
+            messages.add(createValidationMessage(status, resource, runtime));
         }
     }
 
     public ValidatorMessage createValidationMessage(IStatus status, IResource resource) {
+    	return createValidationMessage(status, resource, getTargetRuntime(resource));
+    }
+
+    private static ValidatorMessage createValidationMessage(IStatus status, IResource resource, TargetRuntime runtime) {
         ValidatorMessage message = ValidatorMessage.create(status.getMessage(), resource);
         switch (status.getSeverity()) {
         case IStatus.INFO:
@@ -312,7 +924,7 @@ public class BPMN2ProjectValidator extends AbstractValidator {
             }
         }
 
-        message.setType(getTargetRuntime().getProblemMarkerId());
+        message.setType(runtime.getProblemMarkerId());
 
         return message;
     }
@@ -320,6 +932,7 @@ public class BPMN2ProjectValidator extends AbstractValidator {
     @Override
     public void clean(IProject project, ValidationState state, IProgressMonitor monitor) {
         super.clean(project, state, monitor);
+        removeCacheEntries(project.getFullPath());
         try {
             project.deleteMarkers(null, false, IProject.DEPTH_INFINITE);
         } catch (CoreException e) {
@@ -327,13 +940,9 @@ public class BPMN2ProjectValidator extends AbstractValidator {
         }
     }
 	
-    protected TargetRuntime getTargetRuntime() {
-		Assert.isTrue(modelFile!=null);
-		if (targetRuntime==null) {
-			IEditorInput input = new FileEditorInput(modelFile);
-			targetRuntime = TargetRuntime.getRuntime(input);
-    		TargetRuntime.setCurrentRuntime(targetRuntime);
-		}
-		return targetRuntime;
+    private static TargetRuntime getTargetRuntime(IResource resource) {
+		Assert.isTrue(resource instanceof IFile);
+		IEditorInput input = new FileEditorInput((IFile) resource);
+		return TargetRuntime.getRuntime(input);
 	}
 }
@@ -10,15 +10,23 @@
  *******************************************************************************/
 package org.eclipse.bpmn2.modeler.core.validation;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.bpmn2.modeler.core.preferences.Bpmn2Preferences;
 import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime;
 import org.eclipse.bpmn2.modeler.core.validation.validators.AbstractBpmn2ElementValidator;
 import org.eclipse.bpmn2.modeler.core.validation.validators.IBpmn2ElementValidator;
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IRegistryEventListener;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.emf.ecore.EClass;
@@ -42,7 +50,35 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 
 	public final static String CATEGORY_ID = "org.eclipse.bpmn2.modeler.core.validation.category.override"; //$NON-NLS-1$
 
-	protected StatusList result = new StatusList();
+	private final static String CONSTRAINT_PROVIDERS_EXTENSION_ID = "org.eclipse.emf.validation.constraintProviders"; //$NON-NLS-1$
+	private final static int BATCH_MODE = 1;
+	private final static int LIVE_MODE = 2;
+
+	// Target Runtime ID -> (EClass name -> validation modes) for the constraints
+	// that override the default BPMN2 Modeler validations.
+	private static final Map<String, Map<String, Integer>> constraintOverrides = new ConcurrentHashMap<String, Map<String, Integer>>();
+	// EClass -> its super types, from the most specialized type up to BaseElement.
+	// The keys are weak so that dynamic and extension EClasses can be collected
+	// once their packages are unloaded. The lists are plain values that do not
+	// contain the key itself; the registry listener also clears the map.
+	private static final Map<EClass, List<EClass>> superTypes = new WeakHashMap<EClass, List<EClass>>();
+	// guards superTypes, cacheGeneration and the registry listener, and
+	// orders the puts into both tables after the listener's clear()
+	private static final Object cacheLock = new Object();
+	// incremented whenever the tables are cleared, so that tables computed
+	// before that are not put back
+	private static int cacheGeneration;
+	private static IRegistryEventListener registryListener;
+
+	// The results of the current validation. Project validation evaluates the
+	// constraints of several model files concurrently, so each thread needs its
+	// own list (see initialize()).
+	protected final ThreadLocal<StatusList> result = new ThreadLocal<StatusList>() {
+		@Override
+		protected StatusList initialValue() {
+			return new StatusList();
+		}
+	};
 	
 	public BPMN2ValidationConstraints() {
 	}
@@ -60,11 +96,8 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 			// all the way to BaseElement. Unfortunately, EClass#getEAllSuperTypes()
 			// returns the class hierarchy in reverse order, from BaseElement down
 			// to more specialized types, so we'll have to make a copy and reverse
-			// the list.
-			List<EClass> types = new ArrayList<EClass>();
-			types.addAll(object.eClass().getEAllSuperTypes());
-			types.add(object.eClass());
-			Collections.reverse(types);
+			// the list. These reversed lists are cached for each EClass.
+			List<EClass> types = getTypeHierarchy(object.eClass());
 			IBpmn2ElementValidator baseValidator = null;
 			IBpmn2ElementValidator validator = null;
 			for (EClass eClass : types) {
@@ -102,7 +135,7 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 	 * Subclasses should override this method for additional initialization.
 	 */
 	protected void initialize() {
-		result.clear();
+		result.get().clear();
 	}
 	
 	/**
@@ -148,7 +181,7 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 	 * @param status
 	 */
 	protected void addStatus(IStatus status) {
-		result.add(status);
+		result.get().add(status);
 	}
 	
 	/**
@@ -159,11 +192,12 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 	 * @return an IStatus object
 	 */
 	protected IStatus getResult(IValidationContext ctx) {
-		if (result.isEmpty())
+		StatusList list = result.get();
+		if (list.isEmpty())
 			return ctx.createSuccessStatus();
-		if (result.size()==1)
-			return result.get(0);
-		return ConstraintStatus.createMultiStatus(ctx, result);
+		if (list.size()==1)
+			return list.get(0);
+		return ConstraintStatus.createMultiStatus(ctx, list);
 	}
 	
 	/**
@@ -217,32 +251,70 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 	private boolean deferValidationToTargetRuntime(IValidationContext ctx, EObject object) {
 		TargetRuntime rt = TargetRuntime.getCurrentRuntime();
 		if (rt != TargetRuntime.getDefaultRuntime()) {
-			ClassLoader cl = rt.getRuntimeExtension().getClass().getClassLoader();
-			Bundle b = ((BundleReference)cl).getBundle();
-			String pluginId = b.getSymbolicName();
-			IConfigurationElement[] elements = Platform.getExtensionRegistry().getConfigurationElementsFor("org.eclipse.emf.validation.constraintProviders"); //$NON-NLS-1$
-			for (IConfigurationElement e : elements) {
-				if (pluginId.equals(e.getDeclaringExtension().getContributor().getName())) {
-					if ("constraintProvider".equals(e.getName())) { //$NON-NLS-1$
-						for (IConfigurationElement e1 : e.getChildren("constraints")) { //$NON-NLS-1$
-							String categories = e1.getAttribute("categories"); //$NON-NLS-1$
-							if (categories!=null && categories.contains(CATEGORY_ID)) {
-								for (IConfigurationElement e2 : e1.getChildren("constraint")) { //$NON-NLS-1$
-									for (IConfigurationElement e3 : e2.getChildren("target")) { //$NON-NLS-1$
-										String className = e3.getAttribute("class"); //$NON-NLS-1$
-										int i = className.indexOf(':');
-										if (i>0) {
-											className = className.substring(0,i);
-										}
-										if (object.eClass().getName().equals(className)) {
-											String mode = isLiveValidation(ctx) ? "Live" : "Batch"; //$NON-NLS-1$ //$NON-NLS-2$
-											String m = e2.getAttribute("mode"); //$NON-NLS-1$
-											if (m==null)
-												m = "Batch"; //$NON-NLS-1$
-											if (mode.equals(m))
-												return true;
-										}
+			Map<String, Integer> overrides = getConstraintOverrides(rt);
+			Integer modes = overrides.get(object.eClass().getName());
+			if (modes!=null) {
+				int mode = isLiveValidation(ctx) ? LIVE_MODE : BATCH_MODE;
+				return (modes.intValue() & mode) != 0;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the table of validation constraint overrides defined by the given
+	 * Target Runtime. The table maps an EClass name to a bit mask of the
+	 * validation modes (Live and/or Batch) for which the Target Runtime
+	 * provides its own constraint. The table is built once per Target Runtime
+	 * and is discarded whenever constraint providers are added to or removed
+	 * from the extension registry.
+	 * 
+	 * @param rt the Target Runtime
+	 * @return an immutable map of EClass names to validation modes
+	 */
+	private static Map<String, Integer> getConstraintOverrides(TargetRuntime rt) {
+		Map<String, Integer> overrides = constraintOverrides.get(rt.getId());
+		if (overrides==null) {
+			int generation;
+			synchronized (cacheLock) {
+				if (registryListener==null) {
+					registryListener = new ConstraintProviderRegistryListener();
+					Platform.getExtensionRegistry().addListener(registryListener, CONSTRAINT_PROVIDERS_EXTENSION_ID);
+				}
+				generation = cacheGeneration;
+			}
+			overrides = createConstraintOverrides(rt);
+			synchronized (cacheLock) {
+				if (generation==cacheGeneration)
+					constraintOverrides.put(rt.getId(), overrides);
+			}
+		}
+		return overrides;
+	}
+
+	private static Map<String, Integer> createConstraintOverrides(TargetRuntime rt) {
+		Map<String, Integer> overrides = new HashMap<String, Integer>();
+		ClassLoader cl = rt.getRuntimeExtension().getClass().getClassLoader();
+		Bundle b = ((BundleReference)cl).getBundle();
+		String pluginId = b.getSymbolicName();
+		IConfigurationElement[] elements = Platform.getExtensionRegistry().getConfigurationElementsFor(CONSTRAINT_PROVIDERS_EXTENSION_ID);
+		for (IConfigurationElement e : elements) {
+			if (pluginId.equals(e.getDeclaringExtension().getContributor().getName())) {
+				if ("constraintProvider".equals(e.getName())) { //$NON-NLS-1$
+					for (IConfigurationElement e1 : e.getChildren("constraints")) { //$NON-NLS-1$
+						String categories = e1.getAttribute("categories"); //$NON-NLS-1$
+						if (categories!=null && categories.contains(CATEGORY_ID)) {
+							for (IConfigurationElement e2 : e1.getChildren("constraint")) { //$NON-NLS-1$
+								String m = e2.getAttribute("mode"); //$NON-NLS-1$
+								int mode = "Live".equals(m) ? LIVE_MODE : ("Batch".equals(m) || m==null ? BATCH_MODE : 0); //$NON-NLS-1$ //$NON-NLS-2$
+								for (IConfigurationElement e3 : e2.getChildren("target")) { //$NON-NLS-1$
+									String className = e3.getAttribute("class"); //$NON-NLS-1$
+									int i = className.indexOf(':');
+									if (i>0) {
+										className = className.substring(0,i);
 									}
+									Integer modes = overrides.get(className);
+									overrides.put(className, Integer.valueOf(modes==null ? mode : modes.intValue() | mode));
 								}
 							}
 						}
@@ -250,6 +322,84 @@ public class BPMN2ValidationConstraints extends AbstractModelConstraint {
 				}
 			}
 		}
-		return false;
+		return Collections.unmodifiableMap(overrides);
+	}
+
+	/**
+	 * Return the type hierarchy of the given EClass, starting with the EClass
+	 * itself and working up through its super types.
+	 * 
+	 * @param eClass
+	 * @return an immutable list of EClasses
+	 */
+	private static List<EClass> getTypeHierarchy(EClass eClass) {
+		List<EClass> types;
+		int generation;
+		synchronized (cacheLock) {
+			types = superTypes.get(eClass);
+			generation = cacheGeneration;
+		}
+		if (types==null) {
+			types = new ArrayList<EClass>(eClass.getEAllSuperTypes());
+			Collections.reverse(types);
+			synchronized (cacheLock) {
+				if (generation==cacheGeneration)
+					superTypes.put(eClass, types);
+			}
+		}
+		return new TypeHierarchy(eClass, types);
+	}
+
+	/**
+	 * An EClass followed by its super types.
+	 */
+	private static class TypeHierarchy extends AbstractList<EClass> {
+		private final EClass eClass;
+		private final List<EClass> superTypes;
+
+		TypeHierarchy(EClass eClass, List<EClass> superTypes) {
+			this.eClass = eClass;
+			this.superTypes = superTypes;
+		}
+
+		@Override
+		public EClass get(int index) {
+			return index==0 ? eClass : superTypes.get(index-1);
+		}
+
+		@Override
+		public int size() {
+			return superTypes.size() + 1;
+		}
+	}
+
+	private static void clearCaches() {
+		synchronized (cacheLock) {
+			++cacheGeneration;
+			constraintOverrides.clear();
+			superTypes.clear();
+		}
+	}
+
+	/**
+	 * Discards the constraint override tables and the cached type hierarchies
+	 * when constraint providers are added to or removed from the extension
+	 * registry.
+	 */
+	private static class ConstraintProviderRegistryListener implements IRegistryEventListener {
+
+		public void added(IExtension[] extensions) {
+			clearCaches();
+		}
+
+		public void removed(IExtension[] extensions) {
+			clearCaches();
+		}
+
+		public void added(IExtensionPoint[] extensionPoints) {
+		}
+
+		public void removed(IExtensionPoint[] extensionPoints) {
+		}
 	}
 }
@@ -13,15 +13,24 @@
 
 package org.eclipse.bpmn2.modeler.core.validation.validators;
 
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.bpmn2.Bpmn2Package;
 import org.eclipse.bpmn2.modeler.core.adapters.ExtendedPropertiesProvider;
+import org.eclipse.bpmn2.modeler.core.runtime.TargetRuntime;
 import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
 import org.eclipse.bpmn2.modeler.core.validation.StatusList;
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.IRegistryEventListener;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
@@ -49,6 +58,23 @@ public abstract class AbstractBpmn2ElementValidator<T extends EObject> implement
 		this.result = parent.result;
 	}
 
+	// Cache of validator constructors, keyed by BPMN2 element class. Classes
+	// that do not have a validator are mapped to NO_VALIDATOR so that misses
+	// are resolved only once, instead of on every validation call.
+	private static final Map<Class<?>, ValidatorConstructors> validatorCache = new ConcurrentHashMap<Class<?>, ValidatorConstructors>();
+	private static final ValidatorConstructors NO_VALIDATOR = new ValidatorConstructors(null, null);
+	private static IRegistryEventListener registryListener;
+
+	private static class ValidatorConstructors {
+		final Constructor<?> contextConstructor;
+		final Constructor<?> parentConstructor;
+
+		ValidatorConstructors(Constructor<?> contextConstructor, Constructor<?> parentConstructor) {
+			this.contextConstructor = contextConstructor;
+			this.parentConstructor = parentConstructor;
+		}
+	}
+
 	/**
 	 * Factory method for creating a validator object. The names of the Java
 	 * classes that implement a validator must be in the form <BPMN2 type
@@ -56,6 +82,9 @@ public abstract class AbstractBpmn2ElementValidator<T extends EObject> implement
 	 * for such classes in the same package as this
 	 * AbstractBpmn2ElementValidator base class. If such a class is found, a new
 	 * instance is constructed and returned; otherwise null is returned.
+	 * <p>
+	 * The result of the class lookup is cached, so the search is only done once
+	 * for each BPMN2 element type.
 	 * 
 	 * @param ctx the IValidationContext used to construct the validator class
 	 * @param c the BPMN2 element type. If this is an implementation class and
@@ -64,37 +93,95 @@ public abstract class AbstractBpmn2ElementValidator<T extends EObject> implement
 	 * @return a validator class if found, otherwise null.
 	 */
 	public static IBpmn2ElementValidator<?> getValidator(IValidationContext ctx, Class<?> c) {
-		String className = AbstractBpmn2ElementValidator.class.getPackage().getName() + "." + c.getSimpleName(); //$NON-NLS-1$
-		if (className.endsWith("Impl")) { //$NON-NLS-1$
-			className = className.replaceFirst("Impl$", ""); //$NON-NLS-1$ //$NON-NLS-2$
-		}
-		className += "Validator"; //$NON-NLS-1$
-		try {
-			Class<?> validatorClass = AbstractBpmn2ElementValidator.class.getClassLoader().loadClass(className);
-			if (validatorClass != null) {
-				return (AbstractBpmn2ElementValidator<?>) validatorClass.getConstructor(IValidationContext.class)
-						.newInstance(ctx);
+		return newValidator(getValidatorConstructors(c).contextConstructor, ctx);
+	}
+
+	public static IBpmn2ElementValidator<?> getValidator(IBpmn2ElementValidator<?> parent, Class<?> c) {
+		return newValidator(getValidatorConstructors(c).parentConstructor, parent);
+	}
+
+	/**
+	 * Clear the validator class cache. This is done automatically whenever
+	 * Target Runtime extensions are added to or removed from the extension
+	 * registry, so that the cache does not hold on to classes of plugins that
+	 * have been unloaded.
+	 */
+	public static void clearValidatorCache() {
+		validatorCache.clear();
+	}
+
+	private static IBpmn2ElementValidator<?> newValidator(Constructor<?> ctor, Object arg) {
+		if (ctor!=null) {
+			try {
+				return (AbstractBpmn2ElementValidator<?>) ctor.newInstance(arg);
+			} catch (Exception e) {
 			}
-		} catch (Exception e) {
 		}
 		return null;
 	}
 
-	public static IBpmn2ElementValidator<?> getValidator(IBpmn2ElementValidator<?> parent, Class<?> c) {
-		String className = AbstractBpmn2ElementValidator.class.getPackage().getName() + "." + c.getSimpleName(); //$NON-NLS-1$
-		if (className.endsWith("Impl")) { //$NON-NLS-1$
-			className = className.replaceFirst("Impl$", ""); //$NON-NLS-1$ //$NON-NLS-2$
+	private static ValidatorConstructors getValidatorConstructors(Class<?> c) {
+		ValidatorConstructors vc = validatorCache.get(c);
+		if (vc==null) {
+			addRegistryListener();
+			vc = NO_VALIDATOR;
+			String className = AbstractBpmn2ElementValidator.class.getPackage().getName() + "." + c.getSimpleName(); //$NON-NLS-1$
+			if (className.endsWith("Impl")) { //$NON-NLS-1$
+				className = className.replaceFirst("Impl$", ""); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			className += "Validator"; //$NON-NLS-1$
+			try {
+				Class<?> validatorClass = AbstractBpmn2ElementValidator.class.getClassLoader().loadClass(className);
+				if (AbstractBpmn2ElementValidator.class.isAssignableFrom(validatorClass)) {
+					Constructor<?> contextConstructor = null;
+					Constructor<?> parentConstructor = null;
+					try {
+						contextConstructor = validatorClass.getConstructor(IValidationContext.class);
+					} catch (NoSuchMethodException e) {
+					}
+					try {
+						parentConstructor = validatorClass.getConstructor(AbstractBpmn2ElementValidator.class);
+					} catch (NoSuchMethodException e) {
+					}
+					if (contextConstructor!=null || parentConstructor!=null)
+						vc = new ValidatorConstructors(contextConstructor, parentConstructor);
+				}
+			} catch (Exception e) {
+			}
+			validatorCache.put(c, vc);
 		}
-		className += "Validator"; //$NON-NLS-1$
-		try {
-			Class<?> validatorClass = AbstractBpmn2ElementValidator.class.getClassLoader().loadClass(className);
-			if (validatorClass != null) {
-				return (AbstractBpmn2ElementValidator<?>) validatorClass.getConstructor(AbstractBpmn2ElementValidator.class)
-						.newInstance(parent);
+		return vc;
+	}
+
+	private static synchronized void addRegistryListener() {
+		if (registryListener==null) {
+			IExtensionRegistry registry = Platform.getExtensionRegistry();
+			if (registry!=null) {
+				registryListener = new RuntimeRegistryListener();
+				registry.addListener(registryListener, TargetRuntime.RUNTIME_EXTENSION_ID);
 			}
-		} catch (Exception e) {
 		}
-		return null;
+	}
+
+	/**
+	 * Discards the validator class cache when Target Runtime extensions are
+	 * added to or removed from the extension registry.
+	 */
+	private static class RuntimeRegistryListener implements IRegistryEventListener {
+
+		public void added(IExtension[] extensions) {
+			clearValidatorCache();
+		}
+
+		public void removed(IExtension[] extensions) {
+			clearValidatorCache();
+		}
+
+		public void added(IExtensionPoint[] extensionPoints) {
+		}
+
+		public void removed(IExtensionPoint[] extensionPoints) {
+		}
 	}
 
 	protected AbstractBpmn2ElementValidator() {
@@ -18,6 +18,7 @@ import java.util.HashSet;
 import org.eclipse.bpmn2.BaseElement;
 import org.eclipse.bpmn2.Bpmn2Package;
 import org.eclipse.bpmn2.Definitions;
+import org.eclipse.bpmn2.modeler.core.model.ElementIdIndex;
 import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
 import org.eclipse.bpmn2.modeler.core.validation.SyntaxCheckerUtils;
 import org.eclipse.core.runtime.IStatus;
@@ -68,30 +69,45 @@ public class BaseElementValidator extends AbstractBpmn2ElementValidator<BaseElem
 				addStatus(object, "id", Status.ERROR, Messages.BaseElementValidator_ID_Is_Invalid, object.eClass().getName(), id); //$NON-NLS-1$
 			}
 			
-			Definitions definitions = ModelUtil.getDefinitions(object);
-			TreeIterator<EObject> iter = definitions.eAllContents();
-			while (iter.hasNext()) {
-				EObject o2 = iter.next();
-				if (o2 instanceof BaseElement && object!=o2) {
-					String id2;
-					id2 = ((BaseElement)o2).getId();
-					if (id!=null && id2!=null) {
-						if (id.equals(id2)) {
-							addStatus(object, Status.ERROR,
-								Messages.BaseElementValidator_Duplicate_IDs,
-								getLabel(object)+" "+getName(object), //$NON-NLS-1$
-								getLabel(o2)+" "+getName(o2) //$NON-NLS-1$
-							);
+			if (id!=null) {
+				ElementIdIndex index = ElementIdIndex.getIndex(object.eResource());
+				if (index!=null) {
+					if (index.isDuplicate(id)) {
+						for (BaseElement o2 : index.getElements(id)) {
+							if (object!=o2)
+								addDuplicateIdStatus(object, o2);
+						}
+					}
+				}
+				else {
+					// the object is not contained in a diagram Resource,
+					// so fall back to searching its Definitions
+					Definitions definitions = ModelUtil.getDefinitions(object);
+					if (definitions!=null) {
+						TreeIterator<EObject> iter = definitions.eAllContents();
+						while (iter.hasNext()) {
+							EObject o2 = iter.next();
+							if (o2 instanceof BaseElement && object!=o2) {
+								if (id.equals(((BaseElement)o2).getId()))
+									addDuplicateIdStatus(object, o2);
+							}
 						}
 					}
 				}
 			}
-
 		}
 		
 		return getResult();
 	}
 	
+	private void addDuplicateIdStatus(BaseElement object, EObject o2) {
+		addStatus(object, Status.ERROR,
+			Messages.BaseElementValidator_Duplicate_IDs,
+			getLabel(object)+" "+getName(object), //$NON-NLS-1$
+			getLabel(o2)+" "+getName(o2) //$NON-NLS-1$
+		);
+	}
+
 	public boolean doLiveValidation() {
 		return true;
 	}
@@ -17,8 +17,8 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.eclipse.bpmn2.Activity;
@@ -71,7 +71,7 @@ import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.property.JbpmSendTaskDetail
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.property.JbpmSequenceFlowDetailComposite;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.property.JbpmTaskDetailComposite;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid.WIDException;
-import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid.WIDHandler;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid.WIDCache;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid.WorkItemDefinition;
 import org.eclipse.bpmn2.modeler.ui.DefaultBpmn2RuntimeExtension.RootElementParser;
 import org.eclipse.bpmn2.modeler.ui.editor.BPMN2Editor;
@@ -96,7 +96,29 @@ public class JBPM5RuntimeExtension implements IBpmn2RuntimeExtension {
 	public final static String JBPM5_RUNTIME_ID = "org.jboss.runtime.jbpm5"; //$NON-NLS-1$
 	
 	private static final String DROOLS_NAMESPACE = "http://www.jboss.org/drools"; //$NON-NLS-1$
-	private List<WorkItemDefinition> workItemDefinitions;
+	private WorkItemDefinitionList workItemDefinitions;
+	/** name to WorkItemDefinition index over workItemDefinitions */
+	private Map<String, WorkItemDefinition> workItemDefinitionIndex;
+	private int indexedModificationCount;
+
+	/**
+	 * A list that can tell the workItemDefinitionIndex whether it has been
+	 * modified since the index was built. Clients modify the list directly,
+	 * and replacing a definition with set() counts as a modification too.
+	 */
+	@SuppressWarnings("serial")
+	private static class WorkItemDefinitionList extends ArrayList<WorkItemDefinition> {
+		int getModificationCount() {
+			return modCount;
+		}
+
+		@Override
+		public WorkItemDefinition set(int index, WorkItemDefinition element) {
+			WorkItemDefinition old = super.set(index, element);
+			++modCount;
+			return old;
+		}
+	}
 	
 	/* (non-Javadoc)
 	 * Check if the given input file is a drools-generated (jBPM) process file.
@@ -117,18 +139,24 @@ public class JBPM5RuntimeExtension implements IBpmn2RuntimeExtension {
 
 	public List<WorkItemDefinition> getWorkItemDefinitions() {
 		if (workItemDefinitions==null)
-			workItemDefinitions = new ArrayList<WorkItemDefinition>();
+			workItemDefinitions = new WorkItemDefinitionList();
 		return workItemDefinitions;
 	}
 
 	public WorkItemDefinition getWorkItemDefinition(String taskName) {
-		List<WorkItemDefinition> wids = getWorkItemDefinitions();
-		for (WorkItemDefinition wid : wids) {
-			if (taskName.equals(wid.getName())) {
-				return wid;
+		getWorkItemDefinitions();
+		WorkItemDefinitionList wids = workItemDefinitions;
+		if (workItemDefinitionIndex==null || indexedModificationCount!=wids.getModificationCount()) {
+			// the list may have been modified by a client: rebuild the index,
+			// the first definition with a given name wins
+			workItemDefinitionIndex = new HashMap<String, WorkItemDefinition>();
+			for (WorkItemDefinition wid : wids) {
+				if (wid.getName()!=null && !workItemDefinitionIndex.containsKey(wid.getName()))
+					workItemDefinitionIndex.put(wid.getName(), wid);
 			}
+			indexedModificationCount = wids.getModificationCount();
 		}
-		return null;
+		return workItemDefinitionIndex.get(taskName);
 	}
 	
 	@Override
@@ -166,6 +194,7 @@ public class JBPM5RuntimeExtension implements IBpmn2RuntimeExtension {
 				// initialize workItemDefinitions list if necessary
 				getWorkItemDefinitions();
 				workItemDefinitions.clear();
+				workItemDefinitionIndex = null;
 				try {
 					final WIDResourceVisitor visitor = new WIDResourceVisitor();
 					folder.accept(visitor, IResource.DEPTH_INFINITE, false);
@@ -173,10 +202,14 @@ public class JBPM5RuntimeExtension implements IBpmn2RuntimeExtension {
 						Iterator<IFile> fileIter = visitor.getWIDFiles().iterator();
 						while (fileIter.hasNext()) {
 							IFile file = fileIter.next();
-							HashMap<String, WorkItemDefinition> widMap = 
-									new LinkedHashMap<String, WorkItemDefinition>();
-							WIDHandler.evaluateWorkDefinitions(widMap, file);
-							workItemDefinitions.addAll(widMap.values());
+							// files that have not changed since they were last
+							// parsed are not parsed again
+							try {
+								workItemDefinitions.addAll(WIDCache.getWorkDefinitions(file).values());
+							} catch (WIDException e) {
+								// don't let one bad file hide the definitions in all others
+								Activator.logError(e);
+							}
 						}
 					}
 					if (!workItemDefinitions.isEmpty()) {
@@ -212,9 +245,7 @@ public class JBPM5RuntimeExtension implements IBpmn2RuntimeExtension {
 						}
 					}
 				} catch (CoreException e) {
-					e.printStackTrace();
-				} catch (WIDException e) {
-					e.printStackTrace();
+					Activator.logError(e);
 				}
 			}
 		}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.BpsimPackage;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ElementParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.Scenario;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ScenarioParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.TimeUnit;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+/**
+ * A Scenario-scoped index of BPSim ElementParameters by the ID of the process
+ * element they refer to, and a cache of the Samplers compiled from them.
+ * <p>
+ * The index is installed as a content adapter on the Scenario and is kept
+ * current through EMF notifications: adding ElementParameters updates the
+ * index, while removing them or changing an element reference causes it to be
+ * rebuilt on the next lookup. Any change to an element's parameters discards
+ * that element's compiled Samplers, and a change to the scenario parameters
+ * (e.g. the base time unit) discards all of them.
+ * <p>
+ * Lookups may be done from any thread, but the Scenario itself must only be
+ * changed from one thread at a time, as usual for EMF models. Samplers that
+ * were being compiled while the parameters changed are not cached.
+ */
+public class ElementParametersIndex extends EContentAdapter {
+
+	/** guards the installation of indexes on Scenarios */
+	private static final Object INSTALL_LOCK = new Object();
+
+	protected Scenario scenario;
+	/** guards index, samplers and modificationCount */
+	private final Object lock = new Object();
+	/** element ID to the first ElementParameters that refer to it; null if it must be rebuilt */
+	private Map<String, ElementParameters> index;
+	private Map<ElementParameters, ElementSamplers> samplers = new HashMap<ElementParameters, ElementSamplers>();
+	/** incremented whenever compiled Samplers are discarded */
+	private int modificationCount;
+
+	/**
+	 * Return the index for the given Scenario, creating and installing one if
+	 * necessary.
+	 *
+	 * @param scenario the Scenario
+	 * @return the index or null if the scenario is null
+	 */
+	public static ElementParametersIndex getIndex(Scenario scenario) {
+		if (scenario==null)
+			return null;
+		synchronized (INSTALL_LOCK) {
+			for (Adapter a : scenario.eAdapters()) {
+				if (a instanceof ElementParametersIndex)
+					return (ElementParametersIndex) a;
+			}
+			ElementParametersIndex index = new ElementParametersIndex(scenario);
+			scenario.eAdapters().add(index);
+			return index;
+		}
+	}
+
+	private ElementParametersIndex(Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	/**
+	 * Return the ElementParameters that refer to the given process element.
+	 *
+	 * @param elementRef the ID of the process element
+	 * @return the first ElementParameters in the Scenario that refer to the
+	 *         element, or null if there are none
+	 */
+	public ElementParameters getElementParameters(String elementRef) {
+		synchronized (lock) {
+			if (index==null) {
+				index = new HashMap<String, ElementParameters>();
+				for (ElementParameters ep : scenario.getElementParameters())
+					add(ep);
+			}
+			return index.get(elementRef);
+		}
+	}
+
+	/**
+	 * Return the compiled Samplers of the given process element's parameters.
+	 * The Samplers are compiled on first use and kept until the parameters
+	 * change.
+	 *
+	 * @param elementRef the ID of the process element
+	 * @return the Samplers, or null if there are no ElementParameters for the
+	 *         element
+	 * @throws SimulationException if a parameter is invalid
+	 */
+	public ElementSamplers getElementSamplers(String elementRef) throws SimulationException {
+		ElementParameters ep;
+		int count;
+		synchronized (lock) {
+			ep = getElementParameters(elementRef);
+			if (ep==null)
+				return null;
+			ElementSamplers es = samplers.get(ep);
+			if (es!=null)
+				return es;
+			count = modificationCount;
+		}
+		// compile outside of the lock, Samplers may take a while to build
+		ElementSamplers es = new ElementSamplers(ep, getBaseTimeUnit());
+		synchronized (lock) {
+			if (count==modificationCount)
+				samplers.put(ep, es);
+		}
+		return es;
+	}
+
+	/**
+	 * @return the Scenario's base time unit, in which all compiled times are
+	 *         expressed
+	 */
+	public TimeUnit getBaseTimeUnit() {
+		ScenarioParameters sp = scenario.getScenarioParameters();
+		return sp!=null && sp.isSetBaseTimeUnit() ? sp.getBaseTimeUnit() : TimeUnit.MS;
+	}
+
+	/**
+	 * Remove this index from its Scenario and all of the Scenario contents.
+	 */
+	public void dispose() {
+		scenario.eAdapters().remove(this);
+		synchronized (lock) {
+			index = null;
+			clearSamplers(null);
+		}
+	}
+
+	/**
+	 * Discard the compiled Samplers of the given ElementParameters, or all of
+	 * them if it is null. Must be called with the lock held.
+	 */
+	private void clearSamplers(Object ep) {
+		if (ep==null)
+			samplers.clear();
+		else
+			samplers.remove(ep);
+		++modificationCount;
+	}
+
+	private void add(ElementParameters ep) {
+		String ref = ep.getElementRef();
+		if (ref!=null && !index.containsKey(ref))
+			index.put(ref, ep);
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		super.notifyChanged(notification);
+		if (notification.isTouch())
+			return;
+
+		Object feature = notification.getFeature();
+		if (notification.getNotifier()==scenario) {
+			if (feature==BpsimPackage.eINSTANCE.getScenario_ElementParameters()) {
+				List<ElementParameters> list = scenario.getElementParameters();
+				synchronized (lock) {
+					if (index!=null) {
+						if (notification.getEventType()==Notification.ADD
+								&& notification.getPosition()==list.size()-1) {
+							// the common case: new parameters appended to the list
+							add((ElementParameters) notification.getNewValue());
+						}
+						else
+							index = null;
+					}
+					if (notification.getEventType()!=Notification.ADD)
+						clearSamplers(null);
+				}
+			}
+			else if (feature==BpsimPackage.eINSTANCE.getScenario_ScenarioParameters()) {
+				synchronized (lock) {
+					clearSamplers(null);
+				}
+			}
+			return;
+		}
+
+		// find the ElementParameters or ScenarioParameters that contain the change
+		Object o = notification.getNotifier();
+		while (o instanceof EObject && o!=scenario) {
+			if (o instanceof ElementParameters) {
+				synchronized (lock) {
+					if (feature==BpsimPackage.eINSTANCE.getElementParameters_ElementRef())
+						index = null;
+					clearSamplers(o);
+				}
+				return;
+			}
+			if (o instanceof ScenarioParameters) {
+				synchronized (lock) {
+					clearSamplers(null);
+				}
+				return;
+			}
+			o = ((EObject) o).eContainer();
+		}
+	}
+}
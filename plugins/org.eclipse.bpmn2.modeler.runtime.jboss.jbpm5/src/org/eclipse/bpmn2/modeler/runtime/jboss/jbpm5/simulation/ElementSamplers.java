@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ControlParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.CostParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ElementParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ResourceParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.TimeParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.TimeUnit;
+
+/**
+ * The BPSim parameters of a single process element, compiled into Samplers.
+ * Times are converted to the scenario's base time unit. Each getter returns
+ * null if the corresponding parameter is not defined.
+ * <p>
+ * Instances are immutable and may be shared by any number of threads.
+ */
+public final class ElementSamplers {
+
+	private final Sampler transferTime;
+	private final Sampler queueTime;
+	private final Sampler waitTime;
+	private final Sampler setUpTime;
+	private final Sampler processingTime;
+	private final Sampler validationTime;
+	private final Sampler reworkTime;
+	private final Sampler quantity;
+	private final Sampler fixedCost;
+	private final Sampler unitCost;
+	private final Sampler probability;
+	private final Sampler interTriggerTimer;
+	private final Sampler triggerCount;
+
+	/**
+	 * Compile the parameters of an element.
+	 *
+	 * @param ep the element's parameters
+	 * @param baseTimeUnit the scenario's base time unit
+	 * @throws SimulationException if a parameter is invalid
+	 */
+	public ElementSamplers(ElementParameters ep, TimeUnit baseTimeUnit) throws SimulationException {
+		TimeParameters tp = ep.getTimeParameters();
+		if (tp != null) {
+			transferTime = SamplerFactory.createSampler(tp.getTransferTime(), baseTimeUnit);
+			queueTime = SamplerFactory.createSampler(tp.getQueueTime(), baseTimeUnit);
+			waitTime = SamplerFactory.createSampler(tp.getWaitTime(), baseTimeUnit);
+			setUpTime = SamplerFactory.createSampler(tp.getSetUpTime(), baseTimeUnit);
+			processingTime = SamplerFactory.createSampler(tp.getProcessingTime(), baseTimeUnit);
+			validationTime = SamplerFactory.createSampler(tp.getValidationTime(), baseTimeUnit);
+			reworkTime = SamplerFactory.createSampler(tp.getReworkTime(), baseTimeUnit);
+		}
+		else {
+			transferTime = queueTime = waitTime = null;
+			setUpTime = processingTime = validationTime = reworkTime = null;
+		}
+		ResourceParameters rp = ep.getResourceParameters();
+		quantity = rp != null ? SamplerFactory.createSampler(rp.getQuantity(), null) : null;
+		CostParameters cp = ep.getCostParameters();
+		if (cp != null) {
+			fixedCost = SamplerFactory.createSampler(cp.getFixedCost(), null);
+			unitCost = SamplerFactory.createSampler(cp.getUnitCost(), null);
+		}
+		else {
+			fixedCost = unitCost = null;
+		}
+		ControlParameters ctp = ep.getControlParameters();
+		if (ctp != null) {
+			probability = SamplerFactory.createSampler(ctp.getProbability(), null);
+			interTriggerTimer = SamplerFactory.createSampler(ctp.getInterTriggerTimer(), baseTimeUnit);
+			triggerCount = SamplerFactory.createSampler(ctp.getTriggerCount(), null);
+		}
+		else {
+			probability = interTriggerTimer = triggerCount = null;
+		}
+	}
+
+	public Sampler getTransferTime() {
+		return transferTime;
+	}
+
+	public Sampler getQueueTime() {
+		return queueTime;
+	}
+
+	public Sampler getWaitTime() {
+		return waitTime;
+	}
+
+	public Sampler getSetUpTime() {
+		return setUpTime;
+	}
+
+	public Sampler getProcessingTime() {
+		return processingTime;
+	}
+
+	public Sampler getValidationTime() {
+		return validationTime;
+	}
+
+	public Sampler getReworkTime() {
+		return reworkTime;
+	}
+
+	public Sampler getQuantity() {
+		return quantity;
+	}
+
+	public Sampler getFixedCost() {
+		return fixedCost;
+	}
+
+	public Sampler getUnitCost() {
+		return unitCost;
+	}
+
+	/**
+	 * @return the probability, in percent, that a token takes a sequence flow
+	 */
+	public Sampler getProbability() {
+		return probability;
+	}
+
+	public Sampler getInterTriggerTimer() {
+		return interTriggerTimer;
+	}
+
+	public Sampler getTriggerCount() {
+		return triggerCount;
+	}
+}
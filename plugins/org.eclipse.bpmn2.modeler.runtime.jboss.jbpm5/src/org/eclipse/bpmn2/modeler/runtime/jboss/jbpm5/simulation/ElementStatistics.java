@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+/**
+ * Simulation statistics of a single process element. Times are in the
+ * scenario's base time unit.
+ */
+public class ElementStatistics {
+
+	private final String id;
+	private final String name;
+	private final Statistics cycleTime = new Statistics();
+	private final Statistics waitTime = new Statistics();
+	private final Statistics processingTime = new Statistics();
+	private final Statistics cost = new Statistics();
+	private final Statistics utilization = new Statistics();
+
+	public ElementStatistics(String id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the time from a token's arrival at the element to its departure
+	 */
+	public Statistics getCycleTime() {
+		return cycleTime;
+	}
+
+	/**
+	 * @return the time tokens spend waiting for a resource
+	 */
+	public Statistics getWaitTime() {
+		return waitTime;
+	}
+
+	/**
+	 * @return the time resources spend processing tokens
+	 */
+	public Statistics getProcessingTime() {
+		return processingTime;
+	}
+
+	/**
+	 * @return the cost of each token passing through the element
+	 */
+	public Statistics getCost() {
+		return cost;
+	}
+
+	/**
+	 * @return the fraction of the simulated time the element's resources
+	 *         were busy, one observation per replication; empty if the
+	 *         element has unlimited resources
+	 */
+	public Statistics getUtilization() {
+		return utilization;
+	}
+
+	public void merge(ElementStatistics other) {
+		cycleTime.merge(other.cycleTime);
+		waitTime.merge(other.waitTime);
+		processingTime.merge(other.processingTime);
+		cost.merge(other.cost);
+		utilization.merge(other.utilization);
+	}
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+/**
+ * Draws values from a probability distribution. Samplers are immutable: all
+ * state is kept in the random generator that is passed in, so a single
+ * Sampler may be shared by any number of threads.
+ *
+ * @see Samplers
+ */
+public interface Sampler {
+
+	/**
+	 * Draw the next value.
+	 *
+	 * @param random the random stream of the calling thread
+	 * @return the value
+	 */
+	double sample(SimulationRandom random);
+}
@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.BetaDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.BinomialDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.BooleanParameterType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.DistributionParameter;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.DurationParameterType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ErlangDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.FloatingParameterType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.GammaDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.LogNormalDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.NegativeExponentialDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.NormalDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.NumericParameterType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.Parameter;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ParameterValue;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.PoissonDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.TimeUnit;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.TriangularDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.TruncatedNormalDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.UniformDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.UserDistributionDataPointType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.UserDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.WeibullDistributionType;
+
+/**
+ * Compiles BPSim Parameters into Samplers. Constant values (floating,
+ * numeric, boolean and duration parameters) become constant Samplers, and
+ * every BPSim distribution type becomes the corresponding Sampler from
+ * {@link Samplers}. String, enum, date/time and expression parameters can not
+ * be sampled and are ignored.
+ * <p>
+ * If a base time unit is given, values that specify their own time unit are
+ * converted to the base time unit.
+ */
+public class SamplerFactory {
+
+	private SamplerFactory() {
+	}
+
+	/**
+	 * Create a Sampler for the first value of a Parameter that can be sampled.
+	 *
+	 * @param parameter the Parameter, may be null
+	 * @param baseTimeUnit the time unit of the result, or null if the
+	 *            parameter is not a time
+	 * @return the Sampler, or null if the parameter is null or has no value
+	 *         that can be sampled
+	 * @throws SimulationException if the distribution parameters are invalid
+	 */
+	public static Sampler createSampler(Parameter parameter, TimeUnit baseTimeUnit) throws SimulationException {
+		if (parameter == null)
+			return null;
+		for (ParameterValue value : parameter.getParameterValue()) {
+			Sampler sampler = createSampler(value, baseTimeUnit);
+			if (sampler != null)
+				return sampler;
+		}
+		return null;
+	}
+
+	/**
+	 * Create a Sampler for a ParameterValue.
+	 *
+	 * @param value the ParameterValue
+	 * @param baseTimeUnit the time unit of the result, or null if the
+	 *            value is not a time
+	 * @return the Sampler, or null if the value can not be sampled
+	 * @throws SimulationException if the distribution parameters are invalid
+	 */
+	public static Sampler createSampler(ParameterValue value, TimeUnit baseTimeUnit) throws SimulationException {
+		try {
+			if (value instanceof FloatingParameterType) {
+				FloatingParameterType v = (FloatingParameterType) value;
+				return Samplers.scale(Samplers.constant(v.getValue()),
+						getTimeUnitFactor(v.isSetTimeUnit() ? v.getTimeUnit() : null, baseTimeUnit));
+			}
+			if (value instanceof NumericParameterType) {
+				NumericParameterType v = (NumericParameterType) value;
+				return Samplers.scale(Samplers.constant(v.getValue()),
+						getTimeUnitFactor(v.isSetTimeUnit() ? v.getTimeUnit() : null, baseTimeUnit));
+			}
+			if (value instanceof BooleanParameterType) {
+				return Samplers.constant(((BooleanParameterType) value).isValue() ? 1 : 0);
+			}
+			if (value instanceof DurationParameterType) {
+				DurationParameterType v = (DurationParameterType) value;
+				if (v.getValue() == null)
+					return null;
+				double ms = v.getValue().getTimeInMillis(new Date(0));
+				return Samplers.scale(Samplers.constant(ms), getTimeUnitFactor(TimeUnit.MS,
+						baseTimeUnit == null ? TimeUnit.MS : baseTimeUnit));
+			}
+			if (value instanceof DistributionParameter) {
+				DistributionParameter v = (DistributionParameter) value;
+				Sampler sampler = createDistributionSampler(v, baseTimeUnit);
+				if (sampler == null)
+					return null;
+				return Samplers.scale(sampler,
+						getTimeUnitFactor(v.isSetTimeUnit() ? v.getTimeUnit() : null, baseTimeUnit));
+			}
+		}
+		catch (IllegalArgumentException e) {
+			throw new SimulationException(e.getMessage(), e);
+		}
+		return null;
+	}
+
+	private static Sampler createDistributionSampler(DistributionParameter value, TimeUnit baseTimeUnit)
+			throws SimulationException {
+		if (value instanceof UniformDistributionType) {
+			UniformDistributionType d = (UniformDistributionType) value;
+			return Samplers.uniform(d.getMin(), d.getMax());
+		}
+		if (value instanceof NormalDistributionType) {
+			NormalDistributionType d = (NormalDistributionType) value;
+			return Samplers.normal(d.getMean(), d.getStandardDeviation());
+		}
+		if (value instanceof TruncatedNormalDistributionType) {
+			TruncatedNormalDistributionType d = (TruncatedNormalDistributionType) value;
+			return Samplers.truncatedNormal(d.getMean(), d.getStandardDeviation(), d.getMin(), d.getMax());
+		}
+		if (value instanceof LogNormalDistributionType) {
+			LogNormalDistributionType d = (LogNormalDistributionType) value;
+			return Samplers.logNormal(d.getMean(), d.getStandardDeviation());
+		}
+		if (value instanceof NegativeExponentialDistributionType) {
+			return Samplers.negativeExponential(((NegativeExponentialDistributionType) value).getMean());
+		}
+		if (value instanceof PoissonDistributionType) {
+			return Samplers.poisson(((PoissonDistributionType) value).getMean());
+		}
+		if (value instanceof GammaDistributionType) {
+			GammaDistributionType d = (GammaDistributionType) value;
+			return Samplers.gamma(d.getShape(), d.getScale());
+		}
+		if (value instanceof ErlangDistributionType) {
+			ErlangDistributionType d = (ErlangDistributionType) value;
+			return Samplers.erlang(d.getK(), d.getMean());
+		}
+		if (value instanceof WeibullDistributionType) {
+			WeibullDistributionType d = (WeibullDistributionType) value;
+			return Samplers.weibull(d.getShape(), d.getScale());
+		}
+		if (value instanceof TriangularDistributionType) {
+			TriangularDistributionType d = (TriangularDistributionType) value;
+			return Samplers.triangular(d.getMin(), d.getMode(), d.getMax());
+		}
+		if (value instanceof BinomialDistributionType) {
+			BinomialDistributionType d = (BinomialDistributionType) value;
+			return Samplers.binomial(d.getTrials(), d.getProbability());
+		}
+		if (value instanceof BetaDistributionType) {
+			BetaDistributionType d = (BetaDistributionType) value;
+			return Samplers.beta(d.getShape(), d.getScale());
+		}
+		if (value instanceof UserDistributionType) {
+			return createUserSampler((UserDistributionType) value, baseTimeUnit);
+		}
+		return null;
+	}
+
+	/**
+	 * If all data points of a user distribution are constants, the values are
+	 * interpolated as BPSim requires for continuous distributions; otherwise
+	 * one of the data point distributions is chosen and sampled.
+	 */
+	private static Sampler createUserSampler(UserDistributionType value, TimeUnit baseTimeUnit)
+			throws SimulationException {
+		List<UserDistributionDataPointType> points = value.getUserDistributionDataPoint();
+		int n = points.size();
+		if (n == 0)
+			return null;
+		Sampler[] samplers = new Sampler[n];
+		double[] values = new double[n];
+		double[] probabilities = new double[n];
+		boolean constant = true;
+		for (int i = 0; i < n; ++i) {
+			UserDistributionDataPointType point = points.get(i);
+			// data point values are in the user distribution's time unit
+			samplers[i] = createSampler(point.getParameterValue(), null);
+			if (samplers[i] == null)
+				throw new SimulationException("User: data point " + (i + 1) + " has no value"); //$NON-NLS-1$ //$NON-NLS-2$
+			if (samplers[i] instanceof Samplers.Constant)
+				values[i] = ((Samplers.Constant) samplers[i]).getValue();
+			else
+				constant = false;
+			probabilities[i] = point.getProbability();
+		}
+		if (constant)
+			return Samplers.user(values, probabilities, value.isDiscrete());
+		return Samplers.mixture(samplers, probabilities);
+	}
+
+	/**
+	 * @return the factor that converts values in one time unit into another,
+	 *         or 1 if either time unit is null
+	 */
+	public static double getTimeUnitFactor(TimeUnit from, TimeUnit to) {
+		if (from == null || to == null || from == to)
+			return 1;
+		return getSeconds(from) / getSeconds(to);
+	}
+
+	private static double getSeconds(TimeUnit unit) {
+		switch (unit) {
+		case MS:
+			return 0.001;
+		case MIN:
+			return 60;
+		case HOUR:
+			return 3600;
+		case DAY:
+			return 86400;
+		case YEAR:
+			return 365 * 86400;
+		default:
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,428 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Factory methods for the Samplers of all distributions defined by BPSim.
+ * Distribution parameters are checked when the Sampler is created, so that
+ * sampling itself never fails.
+ */
+public class Samplers {
+
+	private Samplers() {
+	}
+
+	/**
+	 * A Sampler that always returns the same value.
+	 */
+	public static final class Constant implements Sampler {
+		private final double value;
+
+		private Constant(double value) {
+			this.value = value;
+		}
+
+		public double getValue() {
+			return value;
+		}
+
+		@Override
+		public double sample(SimulationRandom random) {
+			return value;
+		}
+	}
+
+	public static Constant constant(double value) {
+		return new Constant(value);
+	}
+
+	public static Sampler uniform(final double min, final double max) {
+		check(min <= max, "Uniform: min > max"); //$NON-NLS-1$
+		if (min == max)
+			return constant(min);
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				return min + (max - min) * random.nextDouble();
+			}
+		};
+	}
+
+	public static Sampler normal(final double mean, final double standardDeviation) {
+		check(standardDeviation >= 0, "Normal: negative standard deviation"); //$NON-NLS-1$
+		if (standardDeviation == 0)
+			return constant(mean);
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				return mean + standardDeviation * random.nextGaussian();
+			}
+		};
+	}
+
+	/**
+	 * A normal distribution restricted to the range [min, max]. Values outside
+	 * the range are rejected; if the range lies so far in the tail that
+	 * rejection keeps failing, the value is clamped instead.
+	 */
+	public static Sampler truncatedNormal(final double mean, final double standardDeviation,
+			final double min, final double max) {
+		check(standardDeviation >= 0, "TruncatedNormal: negative standard deviation"); //$NON-NLS-1$
+		check(min <= max, "TruncatedNormal: min > max"); //$NON-NLS-1$
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				double x = mean;
+				for (int i = 0; i < 100; ++i) {
+					x = mean + standardDeviation * random.nextGaussian();
+					if (x >= min && x <= max)
+						return x;
+				}
+				return Math.min(max, Math.max(min, x));
+			}
+		};
+	}
+
+	/**
+	 * A log-normal distribution. As in BPSim, the mean and standard deviation
+	 * are those of the distribution itself, not of the underlying normal
+	 * distribution.
+	 */
+	public static Sampler logNormal(double mean, double standardDeviation) {
+		check(mean > 0, "LogNormal: mean must be positive"); //$NON-NLS-1$
+		check(standardDeviation >= 0, "LogNormal: negative standard deviation"); //$NON-NLS-1$
+		final double sigma2 = Math.log(1 + (standardDeviation * standardDeviation) / (mean * mean));
+		final double mu = Math.log(mean) - sigma2 / 2;
+		final double sigma = Math.sqrt(sigma2);
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				return Math.exp(mu + sigma * random.nextGaussian());
+			}
+		};
+	}
+
+	public static Sampler negativeExponential(final double mean) {
+		check(mean >= 0, "NegativeExponential: negative mean"); //$NON-NLS-1$
+		if (mean == 0)
+			return constant(0);
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				return -mean * Math.log(1 - random.nextDouble());
+			}
+		};
+	}
+
+	/**
+	 * A Poisson distribution. Small means are sampled exactly, large means
+	 * with a normal approximation.
+	 */
+	public static Sampler poisson(final double mean) {
+		check(mean >= 0, "Poisson: negative mean"); //$NON-NLS-1$
+		if (mean == 0)
+			return constant(0);
+		if (mean < 30) {
+			final double limit = Math.exp(-mean);
+			return new Sampler() {
+				@Override
+				public double sample(SimulationRandom random) {
+					int k = 0;
+					double p = random.nextDouble();
+					while (p > limit) {
+						++k;
+						p *= random.nextDouble();
+					}
+					return k;
+				}
+			};
+		}
+		final double sd = Math.sqrt(mean);
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				return Math.max(0, Math.round(mean + sd * random.nextGaussian()));
+			}
+		};
+	}
+
+	public static Sampler gamma(final double shape, final double scale) {
+		check(shape > 0, "Gamma: shape must be positive"); //$NON-NLS-1$
+		check(scale > 0, "Gamma: scale must be positive"); //$NON-NLS-1$
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				return scale * sampleGamma(shape, random);
+			}
+		};
+	}
+
+	/**
+	 * An Erlang distribution of k phases with the given overall mean.
+	 */
+	public static Sampler erlang(double k, final double mean) {
+		check(k >= 1, "Erlang: k must be at least 1"); //$NON-NLS-1$
+		check(mean >= 0, "Erlang: negative mean"); //$NON-NLS-1$
+		final int phases = (int) Math.round(k);
+		final double phaseMean = mean / phases;
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				double sum = 0;
+				for (int i = 0; i < phases; ++i)
+					sum -= Math.log(1 - random.nextDouble());
+				return phaseMean * sum;
+			}
+		};
+	}
+
+	public static Sampler weibull(double shape, final double scale) {
+		check(shape > 0, "Weibull: shape must be positive"); //$NON-NLS-1$
+		check(scale > 0, "Weibull: scale must be positive"); //$NON-NLS-1$
+		final double exponent = 1 / shape;
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				return scale * Math.pow(-Math.log(1 - random.nextDouble()), exponent);
+			}
+		};
+	}
+
+	public static Sampler triangular(final double min, final double mode, final double max) {
+		check(min <= mode && mode <= max, "Triangular: mode must lie between min and max"); //$NON-NLS-1$
+		if (min == max)
+			return constant(min);
+		final double split = (mode - min) / (max - min);
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				double u = random.nextDouble();
+				if (u < split)
+					return min + Math.sqrt(u * (max - min) * (mode - min));
+				return max - Math.sqrt((1 - u) * (max - min) * (max - mode));
+			}
+		};
+	}
+
+	/**
+	 * A binomial distribution. Up to 100 trials are sampled exactly, more
+	 * with a normal approximation.
+	 */
+	public static Sampler binomial(final long trials, final double probability) {
+		check(trials >= 0, "Binomial: negative number of trials"); //$NON-NLS-1$
+		check(probability >= 0 && probability <= 1, "Binomial: probability must be between 0 and 1"); //$NON-NLS-1$
+		if (trials <= 100) {
+			return new Sampler() {
+				@Override
+				public double sample(SimulationRandom random) {
+					int k = 0;
+					for (long i = 0; i < trials; ++i) {
+						if (random.nextDouble() < probability)
+							++k;
+					}
+					return k;
+				}
+			};
+		}
+		final double mean = trials * probability;
+		final double sd = Math.sqrt(mean * (1 - probability));
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				return Math.min(trials, Math.max(0, Math.round(mean + sd * random.nextGaussian())));
+			}
+		};
+	}
+
+	/**
+	 * A beta distribution; BPSim calls its two shape parameters "shape" and
+	 * "scale".
+	 */
+	public static Sampler beta(final double alpha, final double beta) {
+		check(alpha > 0 && beta > 0, "Beta: shape and scale must be positive"); //$NON-NLS-1$
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				double x = sampleGamma(alpha, random);
+				double y = sampleGamma(beta, random);
+				return x / (x + y);
+			}
+		};
+	}
+
+	/**
+	 * A user defined distribution of data points with constant values. A
+	 * discrete distribution returns one of the values; a continuous one
+	 * interpolates linearly between neighbouring values.
+	 *
+	 * @param values the data point values, in ascending order for a continuous
+	 *            distribution
+	 * @param probabilities the data point probabilities; they are normalized,
+	 *            so they need not add up to 1
+	 * @param discrete true for a discrete distribution
+	 */
+	public static Sampler user(double[] values, double[] probabilities, final boolean discrete) {
+		check(values.length > 0 && values.length == probabilities.length,
+				"User: one probability is required for each value"); //$NON-NLS-1$
+		final double[] v = Arrays.copyOf(values, values.length);
+		final double[] cumulative = cumulative(probabilities);
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				double u = random.nextDouble();
+				int i = find(cumulative, u);
+				if (discrete || i == 0)
+					return v[i];
+				double low = cumulative[i - 1];
+				double f = (u - low) / (cumulative[i] - low);
+				return v[i - 1] + f * (v[i] - v[i - 1]);
+			}
+		};
+	}
+
+	/**
+	 * A user defined distribution whose data points are themselves
+	 * distributions: one of them is chosen and sampled.
+	 *
+	 * @param samplers the data point distributions
+	 * @param probabilities the data point probabilities; they are normalized
+	 */
+	public static Sampler mixture(Sampler[] samplers, double[] probabilities) {
+		check(samplers.length > 0 && samplers.length == probabilities.length,
+				"User: one probability is required for each value"); //$NON-NLS-1$
+		final Sampler[] s = Arrays.copyOf(samplers, samplers.length);
+		final double[] cumulative = cumulative(probabilities);
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				return s[find(cumulative, random.nextDouble())].sample(random);
+			}
+		};
+	}
+
+	/**
+	 * @return a Sampler that returns the values of the given Sampler
+	 *         multiplied by a factor, e.g. to convert between time units
+	 */
+	public static Sampler scale(final Sampler sampler, final double factor) {
+		if (factor == 1)
+			return sampler;
+		if (sampler instanceof Constant)
+			return constant(((Constant) sampler).getValue() * factor);
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				return factor * sampler.sample(random);
+			}
+		};
+	}
+
+	/**
+	 * @return a Sampler that returns the sum of the values of the given
+	 *         Samplers, ignoring null entries, or null if all entries are null
+	 */
+	public static Sampler sum(Sampler... samplers) {
+		final List<Sampler> list = new ArrayList<Sampler>();
+		double constant = 0;
+		for (Sampler s : samplers) {
+			if (s instanceof Constant)
+				constant += ((Constant) s).getValue();
+			else if (s != null)
+				list.add(s);
+		}
+		if (list.isEmpty()) {
+			for (Sampler s : samplers) {
+				if (s != null)
+					return constant(constant);
+			}
+			return null;
+		}
+		if (constant != 0)
+			list.add(constant(constant));
+		if (list.size() == 1)
+			return list.get(0);
+		final Sampler[] s = list.toArray(new Sampler[list.size()]);
+		return new Sampler() {
+			@Override
+			public double sample(SimulationRandom random) {
+				double sum = 0;
+				for (Sampler sampler : s)
+					sum += sampler.sample(random);
+				return sum;
+			}
+		};
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalArgumentException(message);
+	}
+
+	private static double[] cumulative(double[] probabilities) {
+		double total = 0;
+		for (double p : probabilities) {
+			check(p >= 0, "User: negative probability"); //$NON-NLS-1$
+			total += p;
+		}
+		check(total > 0, "User: probabilities add up to 0"); //$NON-NLS-1$
+		double[] cumulative = new double[probabilities.length];
+		double sum = 0;
+		for (int i = 0; i < probabilities.length; ++i) {
+			sum += probabilities[i];
+			cumulative[i] = sum / total;
+		}
+		cumulative[cumulative.length - 1] = 1;
+		return cumulative;
+	}
+
+	/**
+	 * @return the index of the first cumulative probability greater than u
+	 */
+	private static int find(double[] cumulative, double u) {
+		int i = Arrays.binarySearch(cumulative, u);
+		i = i < 0 ? -i - 1 : i;
+		// skip over data points with probability 0
+		while (i < cumulative.length - 1 && cumulative[i] <= u)
+			++i;
+		return i;
+	}
+
+	/**
+	 * Marsaglia and Tsang's method for a gamma distribution with scale 1.
+	 */
+	private static double sampleGamma(double shape, SimulationRandom random) {
+		if (shape < 1) {
+			// boost the shape and correct the result
+			double u = random.nextDouble();
+			return sampleGamma(shape + 1, random) * Math.pow(u, 1 / shape);
+		}
+		double d = shape - 1.0 / 3;
+		double c = 1 / Math.sqrt(9 * d);
+		for (;;) {
+			double x, v;
+			do {
+				x = random.nextGaussian();
+				v = 1 + c * x;
+			}
+			while (v <= 0);
+			v = v * v * v;
+			double u = random.nextDouble();
+			if (u < 1 - 0.0331 * x * x * x * x)
+				return d * v;
+			if (Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v)))
+				return d * v;
+		}
+	}
+}
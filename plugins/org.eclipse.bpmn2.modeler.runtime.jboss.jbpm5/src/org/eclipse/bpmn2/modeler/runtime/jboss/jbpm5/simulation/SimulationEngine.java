@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.Node;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.NodeKind;
+
+/**
+ * A headless discrete-event simulation engine for BPSim scenarios. The engine
+ * runs the configured number of replications of a SimulationModel, in
+ * parallel, and combines their results. Typical use is
+ *
+ * <pre>
+ * SimulationModel model = SimulationModelBuilder.build(process, scenario);
+ * SimulationResults results = new SimulationEngine(model).run();
+ * </pre>
+ *
+ * Every replication draws its random numbers from its own stream, split off
+ * from a root stream seeded with the scenario seed before any replication
+ * starts. The results of a scenario with a given seed are therefore the same
+ * no matter how many threads are used.
+ */
+public class SimulationEngine {
+
+	/** the default limit of the number of process instances per replication */
+	public static final long DEFAULT_MAX_INSTANCES = 10000;
+
+	private final SimulationModel model;
+	private long maxInstances = DEFAULT_MAX_INSTANCES;
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	public SimulationEngine(SimulationModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * Limit the number of process instances created in each replication. This
+	 * keeps scenarios with an unbounded arrival process and no duration from
+	 * running forever.
+	 *
+	 * @param maxInstances the maximum number of instances, or 0 for no limit
+	 */
+	public void setMaxInstances(long maxInstances) {
+		this.maxInstances = maxInstances;
+	}
+
+	/**
+	 * @param threadCount the maximum number of replications to run at the
+	 *            same time
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Run all replications of the scenario.
+	 *
+	 * @return the combined results; the results of the individual
+	 *         replications are available from
+	 *         {@link SimulationResults#getReplications()}
+	 * @throws SimulationException if the model has no start node, or a
+	 *             replication fails
+	 */
+	public SimulationResults run() throws SimulationException {
+		boolean hasStart = false;
+		for (Node node : model.getNodes()) {
+			if (node.getKind() == NodeKind.START)
+				hasStart = true;
+		}
+		if (!hasStart)
+			throw new SimulationException("The process has no start event"); //$NON-NLS-1$
+
+		int count = Math.max(1, model.getReplications());
+		SimulationRandom root = new SimulationRandom(model.getSeed());
+		List<Callable<SimulationResults>> tasks = new ArrayList<Callable<SimulationResults>>();
+		for (int i = 0; i < count; ++i) {
+			final SimulationRandom random = root.split();
+			tasks.add(new Callable<SimulationResults>() {
+				@Override
+				public SimulationResults call() {
+					return runReplication(random);
+				}
+			});
+		}
+
+		SimulationResults results = new SimulationResults(model);
+		int threads = Math.min(threadCount, count);
+		if (threads <= 1) {
+			for (Callable<SimulationResults> task : tasks)
+				results.addReplication(runReplication(task));
+			return results;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (Future<SimulationResults> f : executor.invokeAll(tasks))
+				results.addReplication(f.get());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SimulationException("The simulation was interrupted", e); //$NON-NLS-1$
+		}
+		catch (ExecutionException e) {
+			throw new SimulationException(e.getCause().toString(), e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+	/**
+	 * Run a single replication on the calling thread.
+	 *
+	 * @param random the random stream of the replication
+	 * @return the results of the replication
+	 */
+	public SimulationResults runReplication(SimulationRandom random) {
+		return new SimulationRun(model, random, maxInstances).run();
+	}
+
+	private static SimulationResults runReplication(Callable<SimulationResults> task) throws SimulationException {
+		try {
+			return task.call();
+		}
+		catch (Exception e) {
+			throw new SimulationException(e.toString(), e);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+/**
+ * Thrown when a process or its BPSim scenario can not be simulated, or a
+ * simulation run fails.
+ */
+public class SimulationException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public SimulationException(String message) {
+		super(message);
+	}
+
+	public SimulationException(String message, Throwable exception) {
+		super(message, exception);
+	}
+}
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The process graph and BPSim parameters in the form the SimulationEngine
+ * executes them: nodes connected by flows, with the distributions of all
+ * times, costs and probabilities already compiled into Samplers. All times
+ * are expressed in the scenario's base time unit.
+ * <p>
+ * A model is created by a {@link SimulationModelBuilder}, either from a
+ * Process and its BPSim Scenario or node by node, and can not be changed
+ * afterwards, so replications running in parallel can share it.
+ */
+public class SimulationModel {
+
+	/**
+	 * The seed of a model whose Scenario does not specify one, so that the
+	 * results of a simulation can always be reproduced.
+	 */
+	public static final long DEFAULT_SEED = 1;
+
+	public enum NodeKind {
+		/** creates process instances */
+		START,
+		/** consumes tokens */
+		END,
+		/** a Task, SubProcess or CallActivity: may queue for resources, takes time and costs money */
+		ACTIVITY,
+		/** an intermediate event: delays tokens */
+		EVENT,
+		/** passes each token on along one of its outgoing flows */
+		EXCLUSIVE_GATEWAY,
+		/** synchronizes all incoming flows and activates all outgoing flows */
+		PARALLEL_GATEWAY,
+		/** synchronizes all active incoming flows and activates any number of outgoing flows */
+		INCLUSIVE_GATEWAY
+	}
+
+	public static class Node {
+		private final String id;
+		private final String name;
+		private final NodeKind kind;
+		private final int index;
+		private final List<Flow> outgoing = new ArrayList<Flow>();
+		private int incomingCount;
+		private Sampler delay;
+		private Sampler processingTime;
+		private int resourceQuantity;
+		private Sampler fixedCost;
+		private Sampler unitCost;
+		private Sampler interArrivalTime;
+		private long triggerCount;
+
+		private Node(String id, String name, NodeKind kind, int index) {
+			this.id = id;
+			this.name = name;
+			this.kind = kind;
+			this.index = index;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public NodeKind getKind() {
+			return kind;
+		}
+
+		/**
+		 * @return the position of this node in the model's node list
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		public List<Flow> getOutgoing() {
+			return Collections.unmodifiableList(outgoing);
+		}
+
+		public int getIncomingCount() {
+			return incomingCount;
+		}
+
+		/**
+		 * @return the time a token spends at this node before it is
+		 *         processed, e.g. transfer or queue time; may be null
+		 */
+		public Sampler getDelay() {
+			return delay;
+		}
+
+		void setDelay(Sampler delay) {
+			this.delay = delay;
+		}
+
+		/**
+		 * @return the time it takes to process a token, during which a
+		 *         resource is in use; may be null
+		 */
+		public Sampler getProcessingTime() {
+			return processingTime;
+		}
+
+		void setProcessingTime(Sampler processingTime) {
+			this.processingTime = processingTime;
+		}
+
+		/**
+		 * @return the number of resources available for processing tokens,
+		 *         or 0 if resources are unlimited
+		 */
+		public int getResourceQuantity() {
+			return resourceQuantity;
+		}
+
+		void setResourceQuantity(int resourceQuantity) {
+			this.resourceQuantity = resourceQuantity;
+		}
+
+		/**
+		 * @return the cost of processing one token; may be null
+		 */
+		public Sampler getFixedCost() {
+			return fixedCost;
+		}
+
+		void setFixedCost(Sampler fixedCost) {
+			this.fixedCost = fixedCost;
+		}
+
+		/**
+		 * @return the cost per time unit of processing; may be null
+		 */
+		public Sampler getUnitCost() {
+			return unitCost;
+		}
+
+		void setUnitCost(Sampler unitCost) {
+			this.unitCost = unitCost;
+		}
+
+		/**
+		 * @return for START nodes, the time between two process instances, or
+		 *         null if only a single batch of instances is created
+		 */
+		public Sampler getInterArrivalTime() {
+			return interArrivalTime;
+		}
+
+		void setInterArrivalTime(Sampler interArrivalTime) {
+			this.interArrivalTime = interArrivalTime;
+		}
+
+		/**
+		 * @return for START nodes, the number of process instances to create,
+		 *         or 0 if there is no limit
+		 */
+		public long getTriggerCount() {
+			return triggerCount;
+		}
+
+		void setTriggerCount(long triggerCount) {
+			this.triggerCount = triggerCount;
+		}
+
+		public boolean isConverging() {
+			return incomingCount > 1;
+		}
+
+		public boolean isDiverging() {
+			return outgoing.size() > 1;
+		}
+
+		@Override
+		public String toString() {
+			return kind + " " + (name!=null ? name : id); //$NON-NLS-1$
+		}
+	}
+
+	public static class Flow {
+		private final String id;
+		private final Node source;
+		private final Node target;
+		private double probability = 1;
+
+		private Flow(String id, Node source, Node target) {
+			this.id = id;
+			this.source = source;
+			this.target = target;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public Node getSource() {
+			return source;
+		}
+
+		public Node getTarget() {
+			return target;
+		}
+
+		/**
+		 * @return the probability, between 0 and 1, that a token leaving an
+		 *         exclusive or inclusive gateway takes this flow; the
+		 *         probabilities of an exclusive gateway's flows are weights
+		 *         and need not add up to 1
+		 */
+		public double getProbability() {
+			return probability;
+		}
+
+		void setProbability(double probability) {
+			this.probability = probability;
+		}
+	}
+
+	private final List<Node> nodes = new ArrayList<Node>();
+	private final List<Flow> flows = new ArrayList<Flow>();
+	private double duration = Double.POSITIVE_INFINITY;
+	private int replications = 1;
+	private long seed = DEFAULT_SEED;
+
+	SimulationModel() {
+	}
+
+	Node addNode(String id, String name, NodeKind kind) {
+		Node node = new Node(id, name, kind, nodes.size());
+		nodes.add(node);
+		return node;
+	}
+
+	Flow addFlow(String id, Node source, Node target) {
+		Flow flow = new Flow(id, source, target);
+		source.outgoing.add(flow);
+		++target.incomingCount;
+		flows.add(flow);
+		return flow;
+	}
+
+	public List<Node> getNodes() {
+		return Collections.unmodifiableList(nodes);
+	}
+
+	public List<Flow> getFlows() {
+		return Collections.unmodifiableList(flows);
+	}
+
+	/**
+	 * @return the simulated time after which no more events are processed, or
+	 *         infinity if the simulation runs until all instances are done
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+	void setDuration(double duration) {
+		this.duration = duration;
+	}
+
+	public int getReplications() {
+		return replications;
+	}
+
+	void setReplications(int replications) {
+		this.replications = replications;
+	}
+
+	/**
+	 * @return the seed from which the random streams of all replications are
+	 *         derived
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	void setSeed(long seed) {
+		this.seed = seed;
+	}
+}
@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.Activity;
+import org.eclipse.bpmn2.BoundaryEvent;
+import org.eclipse.bpmn2.EndEvent;
+import org.eclipse.bpmn2.FlowElement;
+import org.eclipse.bpmn2.FlowNode;
+import org.eclipse.bpmn2.Gateway;
+import org.eclipse.bpmn2.InclusiveGateway;
+import org.eclipse.bpmn2.ParallelGateway;
+import org.eclipse.bpmn2.Process;
+import org.eclipse.bpmn2.SequenceFlow;
+import org.eclipse.bpmn2.StartEvent;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.Scenario;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ScenarioParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.Flow;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.Node;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.NodeKind;
+
+/**
+ * Builds a SimulationModel, either from a Process and one of its BPSim
+ * Scenarios with {@link #build(Process, Scenario)}, or node by node with the
+ * instance methods of this class. The model is built on the calling thread, so
+ * the simulation itself never touches the EMF model. Once {@link #build()} has
+ * returned the model, the builder can not be used any more, so the model can
+ * not be changed.
+ * <p>
+ * The BPSim parameters are interpreted as follows:
+ * <ul>
+ * <li>Scenario: the replication count and the seed are used as is. If there is
+ * no seed, {@link SimulationModel#DEFAULT_SEED} is used, so that every
+ * simulation can be reproduced. The duration is the simulated time after which
+ * no more events are processed.</li>
+ * <li>Start events: the control parameters' inter trigger timer is the time
+ * between process instances, and the trigger count their number.</li>
+ * <li>Activities: transfer, queue and wait time delay a token before it is
+ * processed; set-up, processing, validation and rework time make up the
+ * processing time. The resource quantity is the number of resources that can
+ * process tokens at the same time, 0 meaning unlimited. The fixed cost is
+ * charged for every token, the unit cost per time unit of processing.</li>
+ * <li>Intermediate events: all time parameters delay a token.</li>
+ * <li>Sequence flows: the control parameters' probability, in percent, is the
+ * probability that a token leaving a gateway takes the flow.</li>
+ * </ul>
+ * Sub-processes and call activities are simulated as single activities, and
+ * boundary events are not triggered.
+ */
+public class SimulationModelBuilder {
+
+	private SimulationModel model = new SimulationModel();
+
+	/**
+	 * Create a builder for a model without nodes, with one replication, no
+	 * duration limit and the default seed.
+	 */
+	public SimulationModelBuilder() {
+	}
+
+	/**
+	 * Build the simulation model of a process.
+	 *
+	 * @param process the Process
+	 * @param scenario the BPSim Scenario with the process' simulation
+	 *            parameters
+	 * @return the simulation model
+	 * @throws SimulationException if a parameter is invalid
+	 */
+	public static SimulationModel build(Process process, Scenario scenario) throws SimulationException {
+		SimulationModelBuilder builder = new SimulationModelBuilder();
+		builder.add(process, scenario);
+		return builder.build();
+	}
+
+	/**
+	 * Return the model. The builder can not be used afterwards.
+	 *
+	 * @return the model
+	 */
+	public SimulationModel build() {
+		SimulationModel result = getModel();
+		model = null;
+		return result;
+	}
+
+	/**
+	 * Add a node to the model.
+	 *
+	 * @param id the ID of the node, under which its statistics are reported
+	 * @param name the name of the node, may be null
+	 * @param kind the kind of node
+	 * @return the node
+	 */
+	public Node addNode(String id, String name, NodeKind kind) {
+		return getModel().addNode(id, name, kind);
+	}
+
+	/**
+	 * Add a flow between two nodes of the model.
+	 *
+	 * @param id the ID of the flow
+	 * @param source the source node
+	 * @param target the target node
+	 * @return the flow, which is taken with a probability of 1
+	 */
+	public Flow addFlow(String id, Node source, Node target) {
+		checkNode(source);
+		checkNode(target);
+		return getModel().addFlow(id, source, target);
+	}
+
+	/**
+	 * @see Node#getDelay()
+	 */
+	public void setDelay(Node node, Sampler delay) {
+		checkNode(node);
+		node.setDelay(delay);
+	}
+
+	/**
+	 * @see Node#getProcessingTime()
+	 */
+	public void setProcessingTime(Node node, Sampler processingTime) {
+		checkNode(node);
+		node.setProcessingTime(processingTime);
+	}
+
+	/**
+	 * @see Node#getResourceQuantity()
+	 */
+	public void setResourceQuantity(Node node, int resourceQuantity) {
+		checkNode(node);
+		node.setResourceQuantity(resourceQuantity);
+	}
+
+	/**
+	 * @see Node#getFixedCost()
+	 */
+	public void setFixedCost(Node node, Sampler fixedCost) {
+		checkNode(node);
+		node.setFixedCost(fixedCost);
+	}
+
+	/**
+	 * @see Node#getUnitCost()
+	 */
+	public void setUnitCost(Node node, Sampler unitCost) {
+		checkNode(node);
+		node.setUnitCost(unitCost);
+	}
+
+	/**
+	 * @see Node#getInterArrivalTime()
+	 */
+	public void setInterArrivalTime(Node node, Sampler interArrivalTime) {
+		checkNode(node);
+		node.setInterArrivalTime(interArrivalTime);
+	}
+
+	/**
+	 * @see Node#getTriggerCount()
+	 */
+	public void setTriggerCount(Node node, long triggerCount) {
+		checkNode(node);
+		node.setTriggerCount(triggerCount);
+	}
+
+	/**
+	 * @see Flow#getProbability()
+	 */
+	public void setProbability(Flow flow, double probability) {
+		checkNode(flow.getSource());
+		if (!flow.getSource().getOutgoing().contains(flow))
+			throw new IllegalArgumentException("The flow is not part of this model"); //$NON-NLS-1$
+		flow.setProbability(probability);
+	}
+
+	/**
+	 * @see SimulationModel#getDuration()
+	 */
+	public void setDuration(double duration) {
+		getModel().setDuration(duration);
+	}
+
+	/**
+	 * @see SimulationModel#getReplications()
+	 */
+	public void setReplications(int replications) {
+		getModel().setReplications(replications);
+	}
+
+	/**
+	 * @see SimulationModel#getSeed()
+	 */
+	public void setSeed(long seed) {
+		getModel().setSeed(seed);
+	}
+
+	private SimulationModel getModel() {
+		if (model == null)
+			throw new IllegalStateException("The model has already been built"); //$NON-NLS-1$
+		return model;
+	}
+
+	private void checkNode(Node node) {
+		List<Node> nodes = getModel().getNodes();
+		if (node.getIndex() >= nodes.size() || nodes.get(node.getIndex()) != node)
+			throw new IllegalArgumentException("The node is not part of this model"); //$NON-NLS-1$
+	}
+
+	private void add(Process process, Scenario scenario) throws SimulationException {
+		ElementParametersIndex index = ElementParametersIndex.getIndex(scenario);
+		ScenarioParameters sp = scenario.getScenarioParameters();
+		if (sp != null) {
+			if (sp.isSetReplication() && sp.getReplication() > 0)
+				setReplications(sp.getReplication());
+			if (sp.isSetSeed())
+				setSeed(sp.getSeed());
+			Sampler duration = SamplerFactory.createSampler(sp.getDuration(), index.getBaseTimeUnit());
+			if (duration != null)
+				setDuration(getConstant(duration, "duration")); //$NON-NLS-1$
+		}
+
+		Map<FlowNode, Node> nodes = new HashMap<FlowNode, Node>();
+		for (FlowElement fe : process.getFlowElements()) {
+			if (fe instanceof FlowNode && !(fe instanceof BoundaryEvent)) {
+				Node node = createNode(index, (FlowNode) fe);
+				nodes.put((FlowNode) fe, node);
+			}
+		}
+		for (FlowElement fe : process.getFlowElements()) {
+			if (fe instanceof SequenceFlow) {
+				SequenceFlow sf = (SequenceFlow) fe;
+				Node source = nodes.get(sf.getSourceRef());
+				Node target = nodes.get(sf.getTargetRef());
+				if (source != null && target != null) {
+					Flow flow = addFlow(sf.getId(), source, target);
+					ElementSamplers es = index.getElementSamplers(sf.getId());
+					if (es != null && es.getProbability() != null)
+						flow.setProbability(getConstant(es.getProbability(), "probability") / 100); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+
+	private Node createNode(ElementParametersIndex index, FlowNode fn) throws SimulationException {
+		NodeKind kind;
+		if (fn instanceof StartEvent)
+			kind = NodeKind.START;
+		else if (fn instanceof EndEvent)
+			kind = NodeKind.END;
+		else if (fn instanceof ParallelGateway)
+			kind = NodeKind.PARALLEL_GATEWAY;
+		else if (fn instanceof InclusiveGateway)
+			kind = NodeKind.INCLUSIVE_GATEWAY;
+		else if (fn instanceof Gateway)
+			kind = NodeKind.EXCLUSIVE_GATEWAY;
+		else if (fn instanceof Activity)
+			kind = NodeKind.ACTIVITY;
+		else
+			kind = NodeKind.EVENT;
+
+		Node node = addNode(fn.getId(), fn.getName(), kind);
+		ElementSamplers es = index.getElementSamplers(fn.getId());
+		if (es == null)
+			return node;
+
+		if (kind == NodeKind.ACTIVITY) {
+			node.setDelay(Samplers.sum(es.getTransferTime(), es.getQueueTime(), es.getWaitTime()));
+			node.setProcessingTime(Samplers.sum(es.getSetUpTime(), es.getProcessingTime(),
+					es.getValidationTime(), es.getReworkTime()));
+			if (es.getQuantity() != null)
+				node.setResourceQuantity((int) Math.max(0, Math.round(getConstant(es.getQuantity(), "quantity")))); //$NON-NLS-1$
+			node.setFixedCost(es.getFixedCost());
+			node.setUnitCost(es.getUnitCost());
+		}
+		else if (kind == NodeKind.EVENT) {
+			node.setDelay(Samplers.sum(es.getTransferTime(), es.getQueueTime(), es.getWaitTime(),
+					es.getSetUpTime(), es.getProcessingTime(), es.getValidationTime(), es.getReworkTime()));
+		}
+		else if (kind == NodeKind.START) {
+			node.setInterArrivalTime(es.getInterTriggerTimer());
+			if (es.getTriggerCount() != null)
+				node.setTriggerCount(Math.max(0, Math.round(getConstant(es.getTriggerCount(), "triggerCount")))); //$NON-NLS-1$
+		}
+		return node;
+	}
+
+	private static double getConstant(Sampler sampler, String name) throws SimulationException {
+		if (sampler instanceof Samplers.Constant)
+			return ((Samplers.Constant) sampler).getValue();
+		throw new SimulationException("The " + name + " parameter must be a constant"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
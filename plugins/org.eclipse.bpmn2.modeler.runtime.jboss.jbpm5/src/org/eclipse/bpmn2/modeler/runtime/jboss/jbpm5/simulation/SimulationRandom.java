@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+/**
+ * A splittable pseudo-random number generator based on the SplitMix64
+ * algorithm. A generator can be split into a new generator whose sequence is
+ * statistically independent of its parent's, which is how every simulation
+ * replication gets its own random stream from a single scenario seed.
+ * <p>
+ * Instances are not thread safe; each thread must use its own generator,
+ * usually one obtained from {@link #split()}.
+ */
+public final class SimulationRandom {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+	private long seed;
+	private final long gamma;
+
+	/**
+	 * Create a generator whose sequence is determined by the given seed.
+	 *
+	 * @param seed the initial seed
+	 */
+	public SimulationRandom(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	private SimulationRandom(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Create a new generator that shares no state with this one. The parent
+	 * advances, so repeated calls return different generators.
+	 *
+	 * @return a new generator
+	 */
+	public SimulationRandom split() {
+		return new SimulationRandom(mix64(nextSeed()), mixGamma(nextSeed()));
+	}
+
+	/**
+	 * @return a uniformly distributed long value
+	 */
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+
+	/**
+	 * @return a uniformly distributed value in the range [0, 1)
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	 * @return a normally distributed value with mean 0 and standard deviation 1
+	 */
+	public double nextGaussian() {
+		// Marsaglia's polar method
+		double v1, v2, s;
+		do {
+			v1 = 2 * nextDouble() - 1;
+			v2 = 2 * nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		}
+		while (s >= 1 || s == 0);
+		return v1 * Math.sqrt(-2 * Math.log(s) / s);
+	}
+
+	private long nextSeed() {
+		return seed += gamma;
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		// the gamma must be odd and have enough bit transitions
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return n < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.Node;
+
+/**
+ * The results of a simulation: either of a single replication, or the
+ * combined results of all replications of a scenario. Times are in the
+ * scenario's base time unit.
+ */
+public class SimulationResults {
+
+	private final Map<String, ElementStatistics> elements = new LinkedHashMap<String, ElementStatistics>();
+	private final Statistics cycleTime = new Statistics();
+	private final Statistics instanceCost = new Statistics();
+	private final Statistics totalCost = new Statistics();
+	private final Statistics simulatedTime = new Statistics();
+	private long startedInstances;
+	private long completedInstances;
+	private final List<SimulationResults> replications = new ArrayList<SimulationResults>();
+
+	public SimulationResults(SimulationModel model) {
+		for (Node node : model.getNodes())
+			elements.put(node.getId(), new ElementStatistics(node.getId(), node.getName()));
+	}
+
+	/**
+	 * @return the statistics of all process elements, in model order
+	 */
+	public Map<String, ElementStatistics> getElementStatistics() {
+		return Collections.unmodifiableMap(elements);
+	}
+
+	/**
+	 * @param id the ID of a process element
+	 * @return the statistics of the process element, or null if the element
+	 *         is not part of the simulation
+	 */
+	public ElementStatistics getElementStatistics(String id) {
+		return elements.get(id);
+	}
+
+	/**
+	 * @return the time from the start to the completion of each process
+	 *         instance
+	 */
+	public Statistics getCycleTime() {
+		return cycleTime;
+	}
+
+	/**
+	 * @return the cost of each completed process instance
+	 */
+	public Statistics getInstanceCost() {
+		return instanceCost;
+	}
+
+	/**
+	 * @return the cost of all instances, one observation per replication
+	 */
+	public Statistics getTotalCost() {
+		return totalCost;
+	}
+
+	/**
+	 * @return the simulated time, one observation per replication
+	 */
+	public Statistics getSimulatedTime() {
+		return simulatedTime;
+	}
+
+	public long getStartedInstances() {
+		return startedInstances;
+	}
+
+	public long getCompletedInstances() {
+		return completedInstances;
+	}
+
+	/**
+	 * @return the results of the individual replications; empty for the
+	 *         results of a single replication
+	 */
+	public List<SimulationResults> getReplications() {
+		return Collections.unmodifiableList(replications);
+	}
+
+	void instanceStarted() {
+		++startedInstances;
+	}
+
+	void instanceCompleted(double time, double cost) {
+		++completedInstances;
+		cycleTime.add(time);
+		instanceCost.add(cost);
+	}
+
+	/**
+	 * Add the results of a replication to these combined results.
+	 *
+	 * @param replication the results of a single replication
+	 */
+	void addReplication(SimulationResults replication) {
+		replications.add(replication);
+		for (ElementStatistics es : replication.elements.values()) {
+			ElementStatistics mine = elements.get(es.getId());
+			if (mine!=null)
+				mine.merge(es);
+		}
+		cycleTime.merge(replication.cycleTime);
+		instanceCost.merge(replication.instanceCost);
+		totalCost.merge(replication.totalCost);
+		simulatedTime.merge(replication.simulatedTime);
+		startedInstances += replication.startedInstances;
+		completedInstances += replication.completedInstances;
+	}
+}
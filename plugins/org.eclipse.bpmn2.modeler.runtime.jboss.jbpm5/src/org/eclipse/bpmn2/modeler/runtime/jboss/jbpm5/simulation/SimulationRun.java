@@ -0,0 +1,377 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.Flow;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.Node;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.NodeKind;
+
+/**
+ * A single replication of a simulation. Process instances are created at the
+ * START nodes and their tokens move through the model; everything that takes
+ * time is an event in a queue ordered by simulated time. Events scheduled for
+ * the same time are processed in the order in which they were scheduled, so
+ * that a replication is completely determined by its random stream.
+ */
+class SimulationRun {
+
+	private final SimulationModel model;
+	private final SimulationRandom random;
+	private final long maxInstances;
+	private final SimulationResults results;
+	private final ElementStatistics[] statistics;
+	private final ResourcePool[] pools;
+	private final PriorityQueue<Event> events = new PriorityQueue<Event>();
+	private double now;
+	private long sequence;
+	private long startedInstances;
+	private double totalCost;
+
+	private abstract class Event implements Comparable<Event> {
+		final double time;
+		final long order;
+
+		Event(double time) {
+			this.time = time;
+			this.order = sequence++;
+		}
+
+		abstract void fire();
+
+		@Override
+		public int compareTo(Event other) {
+			if (time != other.time)
+				return time < other.time ? -1 : 1;
+			return order < other.order ? -1 : order == other.order ? 0 : 1;
+		}
+	}
+
+	private static class Instance {
+		final double startTime;
+		/** number of tokens of this instance, including those waiting at joins */
+		int activeTokens = 1;
+		double cost;
+		/** converging gateways to the number of tokens waiting there */
+		Map<Node, int[]> joins;
+
+		Instance(double startTime) {
+			this.startTime = startTime;
+		}
+	}
+
+	private static class Waiting {
+		final Instance instance;
+		final double arrivalTime;
+		final double queueTime;
+
+		Waiting(Instance instance, double arrivalTime, double queueTime) {
+			this.instance = instance;
+			this.arrivalTime = arrivalTime;
+			this.queueTime = queueTime;
+		}
+	}
+
+	private class ResourcePool {
+		final int capacity;
+		int busy;
+		final LinkedList<Waiting> queue = new LinkedList<Waiting>();
+		/** integral of the number of busy resources over time */
+		double busyTime;
+		double lastChange;
+
+		ResourcePool(int capacity) {
+			this.capacity = capacity;
+		}
+
+		void update() {
+			busyTime += busy * (now - lastChange);
+			lastChange = now;
+		}
+	}
+
+	SimulationRun(SimulationModel model, SimulationRandom random, long maxInstances) {
+		this.model = model;
+		this.random = random;
+		this.maxInstances = maxInstances;
+		this.results = new SimulationResults(model);
+		List<Node> nodes = model.getNodes();
+		statistics = new ElementStatistics[nodes.size()];
+		pools = new ResourcePool[nodes.size()];
+		for (Node node : nodes) {
+			statistics[node.getIndex()] = results.getElementStatistics(node.getId());
+			if (node.getKind() == NodeKind.ACTIVITY && node.getResourceQuantity() > 0)
+				pools[node.getIndex()] = new ResourcePool(node.getResourceQuantity());
+		}
+	}
+
+	SimulationResults run() {
+		for (Node node : model.getNodes()) {
+			if (node.getKind() == NodeKind.START)
+				scheduleArrival(node, 0, 0);
+		}
+
+		double duration = model.getDuration();
+		while (!events.isEmpty()) {
+			Event e = events.peek();
+			if (e.time > duration)
+				break;
+			events.poll();
+			now = e.time;
+			e.fire();
+		}
+		if (!events.isEmpty())
+			now = duration;
+
+		for (Node node : model.getNodes()) {
+			ResourcePool pool = pools[node.getIndex()];
+			if (pool != null && now > 0) {
+				pool.update();
+				statistics[node.getIndex()].getUtilization().add(pool.busyTime / (pool.capacity * now));
+			}
+		}
+		results.getTotalCost().add(totalCost);
+		results.getSimulatedTime().add(now);
+		return results;
+	}
+
+	private void scheduleArrival(final Node start, double time, final long count) {
+		events.add(new Event(time) {
+			@Override
+			void fire() {
+				arrival(start, count);
+			}
+		});
+	}
+
+	private void arrival(Node start, long count) {
+		if (maxInstances > 0 && startedInstances >= maxInstances)
+			return;
+		++startedInstances;
+		results.instanceStarted();
+		route(start, new Instance(now));
+
+		long triggerCount = start.getTriggerCount();
+		if (triggerCount > 0 && count + 1 >= triggerCount)
+			return;
+		if (start.getInterArrivalTime() != null)
+			scheduleArrival(start, now + sampleTime(start.getInterArrivalTime()), count + 1);
+		else if (triggerCount > 0)
+			scheduleArrival(start, now, count + 1);
+	}
+
+	private void arrive(final Node node, final Instance instance) {
+		switch (node.getKind()) {
+		case END:
+			finish(instance);
+			break;
+		case PARALLEL_GATEWAY:
+		case INCLUSIVE_GATEWAY:
+			if (node.isConverging())
+				join(node, instance);
+			else
+				route(node, instance);
+			break;
+		case EXCLUSIVE_GATEWAY:
+		case START:
+			route(node, instance);
+			break;
+		default:
+			final double arrivalTime = now;
+			double delay = sampleTime(node.getDelay());
+			if (delay > 0) {
+				events.add(new Event(now + delay) {
+					@Override
+					void fire() {
+						acquire(node, instance, arrivalTime);
+					}
+				});
+			}
+			else
+				acquire(node, instance, arrivalTime);
+			break;
+		}
+	}
+
+	private void acquire(Node node, Instance instance, double arrivalTime) {
+		ResourcePool pool = pools[node.getIndex()];
+		if (pool != null) {
+			if (pool.busy == pool.capacity) {
+				pool.queue.add(new Waiting(instance, arrivalTime, now));
+				return;
+			}
+			pool.update();
+			++pool.busy;
+		}
+		process(node, instance, arrivalTime, now);
+	}
+
+	private void process(final Node node, final Instance instance, final double arrivalTime, double queueTime) {
+		ElementStatistics es = statistics[node.getIndex()];
+		if (pools[node.getIndex()] != null)
+			es.getWaitTime().add(now - queueTime);
+		final double processingTime = sampleTime(node.getProcessingTime());
+		if (node.getProcessingTime() != null)
+			es.getProcessingTime().add(processingTime);
+		// always go through the event queue, even for zero processing time,
+		// so that loops in the process can not recurse without bounds
+		events.add(new Event(now + processingTime) {
+			@Override
+			void fire() {
+				complete(node, instance, arrivalTime, processingTime);
+			}
+		});
+	}
+
+	private void complete(Node node, Instance instance, double arrivalTime, double processingTime) {
+		ResourcePool pool = pools[node.getIndex()];
+		if (pool != null) {
+			if (pool.queue.isEmpty()) {
+				pool.update();
+				--pool.busy;
+			}
+			else {
+				Waiting w = pool.queue.removeFirst();
+				process(node, w.instance, w.arrivalTime, w.queueTime);
+			}
+		}
+
+		ElementStatistics es = statistics[node.getIndex()];
+		if (node.getFixedCost() != null || node.getUnitCost() != null) {
+			double cost = 0;
+			if (node.getFixedCost() != null)
+				cost += node.getFixedCost().sample(random);
+			if (node.getUnitCost() != null)
+				cost += node.getUnitCost().sample(random) * processingTime;
+			es.getCost().add(cost);
+			instance.cost += cost;
+			totalCost += cost;
+		}
+		es.getCycleTime().add(now - arrivalTime);
+		route(node, instance);
+	}
+
+	private void join(Node node, Instance instance) {
+		if (instance.joins == null)
+			instance.joins = new HashMap<Node, int[]>();
+		int[] waiting = instance.joins.get(node);
+		if (waiting == null) {
+			waiting = new int[1];
+			instance.joins.put(node, waiting);
+		}
+		++waiting[0];
+		if (isJoinComplete(node, instance, waiting[0]))
+			fireJoin(node, instance, waiting);
+	}
+
+	/**
+	 * A parallel join waits for a token on every incoming flow; an inclusive
+	 * join waits until no tokens of the instance are left elsewhere, i.e.
+	 * until all of them have arrived at the join.
+	 */
+	private boolean isJoinComplete(Node node, Instance instance, int waiting) {
+		if (node.getKind() == NodeKind.PARALLEL_GATEWAY)
+			return waiting >= node.getIncomingCount();
+		return waiting >= instance.activeTokens;
+	}
+
+	private void fireJoin(Node node, Instance instance, int[] waiting) {
+		instance.activeTokens -= waiting[0] - 1;
+		instance.joins.remove(node);
+		route(node, instance);
+	}
+
+	private void route(Node node, Instance instance) {
+		List<Flow> outgoing = node.getOutgoing();
+		if (outgoing.isEmpty()) {
+			// implicit end event
+			finish(instance);
+			return;
+		}
+		if (outgoing.size() == 1) {
+			arrive(outgoing.get(0).getTarget(), instance);
+			return;
+		}
+		switch (node.getKind()) {
+		case EXCLUSIVE_GATEWAY:
+			arrive(choose(outgoing).getTarget(), instance);
+			break;
+		case INCLUSIVE_GATEWAY:
+			List<Flow> taken = new ArrayList<Flow>();
+			for (Flow f : outgoing) {
+				if (random.nextDouble() < f.getProbability())
+					taken.add(f);
+			}
+			if (taken.isEmpty())
+				taken.add(choose(outgoing));
+			split(taken, instance);
+			break;
+		default:
+			// parallel gateways, and uncontrolled flow out of other nodes
+			split(outgoing, instance);
+			break;
+		}
+	}
+
+	private void split(List<Flow> flows, Instance instance) {
+		instance.activeTokens += flows.size() - 1;
+		for (Flow f : flows)
+			arrive(f.getTarget(), instance);
+	}
+
+	/**
+	 * Choose one of the flows, using their probabilities as weights; if all
+	 * weights are 0, every flow is equally likely.
+	 */
+	private Flow choose(List<Flow> flows) {
+		double total = 0;
+		for (Flow f : flows)
+			total += Math.max(0, f.getProbability());
+		if (total <= 0)
+			return flows.get((int) (random.nextDouble() * flows.size()));
+		double u = random.nextDouble() * total;
+		for (Flow f : flows) {
+			u -= Math.max(0, f.getProbability());
+			if (u < 0)
+				return f;
+		}
+		return flows.get(flows.size() - 1);
+	}
+
+	private void finish(Instance instance) {
+		if (--instance.activeTokens == 0) {
+			results.instanceCompleted(now - instance.startTime, instance.cost);
+			return;
+		}
+		// tokens waiting at an inclusive join may now be the only ones left
+		if (instance.joins != null) {
+			for (Entry<Node, int[]> entry : instance.joins.entrySet()) {
+				Node node = entry.getKey();
+				if (node.getKind() == NodeKind.INCLUSIVE_GATEWAY
+						&& isJoinComplete(node, instance, entry.getValue()[0])) {
+					fireJoin(node, instance, entry.getValue());
+					break;
+				}
+			}
+		}
+	}
+
+	private double sampleTime(Sampler sampler) {
+		return sampler == null ? 0 : Math.max(0, sampler.sample(random));
+	}
+}
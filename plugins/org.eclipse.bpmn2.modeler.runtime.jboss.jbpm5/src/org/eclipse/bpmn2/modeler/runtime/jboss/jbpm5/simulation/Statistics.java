@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation;
+
+/**
+ * Summary statistics of a series of observations, computed incrementally
+ * without storing the observations. Two Statistics objects can be merged, so
+ * that the results of independent replications can be combined.
+ */
+public class Statistics {
+
+	private long count;
+	private double mean;
+	/** sum of squared differences from the mean */
+	private double m2;
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+	private double sum;
+
+	/**
+	 * Add an observation.
+	 *
+	 * @param x the observed value
+	 */
+	public void add(double x) {
+		++count;
+		double delta = x - mean;
+		mean += delta / count;
+		m2 += delta * (x - mean);
+		sum += x;
+		if (count == 1) {
+			min = max = x;
+		}
+		else {
+			if (x < min)
+				min = x;
+			if (x > max)
+				max = x;
+		}
+	}
+
+	/**
+	 * Add all observations of another Statistics object to this one.
+	 *
+	 * @param other the other Statistics
+	 */
+	public void merge(Statistics other) {
+		if (other.count == 0)
+			return;
+		if (count == 0) {
+			count = other.count;
+			mean = other.mean;
+			m2 = other.m2;
+			min = other.min;
+			max = other.max;
+			sum = other.sum;
+			return;
+		}
+		long n = count + other.count;
+		double delta = other.mean - mean;
+		mean += delta * other.count / n;
+		m2 += other.m2 + delta * delta * count * other.count / n;
+		count = n;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the mean, or NaN if there are no observations
+	 */
+	public double getMean() {
+		return count == 0 ? Double.NaN : mean;
+	}
+
+	/**
+	 * @return the sample standard deviation, or NaN if there are fewer than
+	 *         two observations
+	 */
+	public double getStandardDeviation() {
+		return count < 2 ? Double.NaN : Math.sqrt(m2 / (count - 1));
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	public double getSum() {
+		return sum;
+	}
+
+	@Override
+	public String toString() {
+		return "n=" + count + ", mean=" + getMean() + ", sd=" + getStandardDeviation() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ ", min=" + min + ", max=" + max; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -56,6 +56,7 @@ import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.drools.DroolsFactory;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.drools.DroolsPackage;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.drools.GlobalType;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.drools.ImportType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.ElementParametersIndex;
 import org.eclipse.bpmn2.modeler.ui.adapters.properties.ItemDefinitionPropertiesAdapter;
 import org.eclipse.bpmn2.modeler.ui.property.dialogs.DefaultSchemaImportDialog;
 import org.eclipse.bpmn2.modeler.ui.property.dialogs.SchemaImportDialog;
@@ -462,13 +463,7 @@ public class JbpmModelUtil {
 		BPSimDataType processAnalysisData = getBPSimData(be);
 		Scenario scenario = processAnalysisData.getScenario().get(0);
 		String id = be.getId();
-		for (ElementParameters ep : scenario.getElementParameters()) {
-			
-			if (id.equals(ep.getElementRef())) {
-				elementParams = ep;
-				break;
-			}
-		}
+		elementParams = ElementParametersIndex.getIndex(scenario).getElementParameters(id);
 		if (elementParams==null) {
 			elementParams = BpsimFactory.eINSTANCE.createElementParameters();
 			elementParams.setElementRef(id);
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.Activator;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Remembers the WorkItemDefinitions parsed from each *.wid/*.conf file, so
+ * that a file is only parsed again after it has changed. A file is considered
+ * changed when either its workspace modification stamp or its local file
+ * system timestamp differs from the ones it had when it was parsed. The
+ * entries of files that are deleted, and of all files in projects that are
+ * closed or deleted, are removed.
+ */
+public class WIDCache {
+
+	private static final Map<IFile, Entry> entries = new HashMap<IFile, Entry>();
+	private static IResourceChangeListener resourceChangeListener;
+
+	private static class Entry {
+		long modificationStamp;
+		long localTimeStamp;
+		Map<String, WorkItemDefinition> definitions;
+	}
+
+	private WIDCache() {
+	}
+
+	/**
+	 * Return the WorkItemDefinitions defined in the given file, parsing the
+	 * file only if it has not been seen before or has changed since.
+	 *
+	 * @param file a *.wid or *.conf file
+	 * @return an unmodifiable map of work item names to definitions, in the
+	 *         order in which they appear in the file
+	 * @throws WIDException if the file can not be read or parsed
+	 */
+	public static Map<String, WorkItemDefinition> getWorkDefinitions(IFile file) throws WIDException {
+		addResourceChangeListener();
+		long modificationStamp = file.getModificationStamp();
+		long localTimeStamp = file.getLocalTimeStamp();
+		synchronized (entries) {
+			Entry entry = entries.get(file);
+			if (entry!=null && entry.modificationStamp==modificationStamp && entry.localTimeStamp==localTimeStamp)
+				return entry.definitions;
+		}
+
+		Map<String, WorkItemDefinition> widMap = new LinkedHashMap<String, WorkItemDefinition>();
+		try {
+			WIDHandler.evaluateWorkDefinitions(widMap, file);
+		}
+		catch (WIDException e) {
+			remove(file);
+			throw e;
+		}
+
+		Entry entry = new Entry();
+		entry.modificationStamp = modificationStamp;
+		entry.localTimeStamp = localTimeStamp;
+		entry.definitions = Collections.unmodifiableMap(widMap);
+		synchronized (entries) {
+			entries.put(file, entry);
+		}
+		return entry.definitions;
+	}
+
+	/**
+	 * Forget the WorkItemDefinitions of the given file.
+	 *
+	 * @param file a *.wid or *.conf file
+	 */
+	public static void remove(IFile file) {
+		synchronized (entries) {
+			entries.remove(file);
+		}
+	}
+
+	/**
+	 * Forget the WorkItemDefinitions of all files.
+	 */
+	public static void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	private static synchronized void addResourceChangeListener() {
+		if (resourceChangeListener==null) {
+			resourceChangeListener = new WIDCacheCleaner();
+			ResourcesPlugin.getWorkspace().addResourceChangeListener(resourceChangeListener,
+					IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.POST_CHANGE);
+		}
+	}
+
+	private static void removeEntries(IPath prefix) {
+		synchronized (entries) {
+			List<IFile> removed = new ArrayList<IFile>();
+			for (IFile file : entries.keySet()) {
+				if (prefix.isPrefixOf(file.getFullPath()))
+					removed.add(file);
+			}
+			for (IFile file : removed)
+				entries.remove(file);
+		}
+	}
+
+	/**
+	 * Removes the entries of files that are deleted, and of all files in
+	 * projects that are closed or deleted.
+	 */
+	private static class WIDCacheCleaner implements IResourceChangeListener, IResourceDeltaVisitor {
+
+		public void resourceChanged(IResourceChangeEvent event) {
+			if (event.getType()==IResourceChangeEvent.POST_CHANGE) {
+				if (event.getDelta()!=null) {
+					try {
+						event.getDelta().accept(this);
+					} catch (CoreException e) {
+						Activator.logError(e);
+					}
+				}
+			}
+			else if (event.getResource()!=null) {
+				removeEntries(event.getResource().getFullPath());
+			}
+		}
+
+		public boolean visit(IResourceDelta delta) throws CoreException {
+			if (delta.getKind()==IResourceDelta.REMOVED) {
+				removeEntries(delta.getResource().getFullPath());
+				return false;
+			}
+			return true;
+		}
+	}
+}
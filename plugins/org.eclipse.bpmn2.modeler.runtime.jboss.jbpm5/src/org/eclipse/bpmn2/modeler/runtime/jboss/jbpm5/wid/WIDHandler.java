@@ -12,16 +12,23 @@
  ******************************************************************************/
 package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid;
 
+import java.io.BufferedReader;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Map.Entry;
 
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.drools.process.core.datatype.DataType;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.drools.process.core.datatype.DataTypeFactory;
 import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.drools.process.core.datatype.DataTypeRegistry;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid.WIDTokenizer.Token;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.IPath;
 
@@ -36,16 +43,24 @@ public class WIDHandler {
 	}
 	
     /**
-     * Takes in the String content of a *.wid/*.conf file from jbpm5 and 
-     * parses it into a HashMap of WorkItemDefinition classes
+     * Takes in a *.wid/*.conf file from jbpm5 and parses it into a HashMap
+     * of WorkItemDefinition classes
      * @param widDefinitions
-     * @param content
+     * @param file
      * @throws WIDException
      */
     public static void evaluateWorkDefinitions(
     		Map<String, WorkItemDefinition> widDefinitions, IFile file) throws WIDException {
-		String content = getFile(file);
-		processWorkDefinitionsContent(widDefinitions, content);
+		Reader reader = getFileReader(file);
+		try {
+			processWorkDefinitionsContent(widDefinitions, reader);
+		}
+		finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+			}
+		}
 		Iterator<WorkItemDefinition> iter = widDefinitions.values().iterator();
 		while (iter.hasNext()) {
 			WorkItemDefinitionImpl wid = (WorkItemDefinitionImpl)iter.next();
@@ -53,143 +68,242 @@ public class WIDHandler {
 		}
     }
     
+    /**
+     * Takes in the String content of a *.wid/*.conf file from jbpm5 and 
+     * parses it into a HashMap of WorkItemDefinition classes
+     * @param widDefinitions
+     * @param content
+     * @throws WIDException
+     */
     public static void evaluateWorkDefinitions(
     		Map<String, WorkItemDefinition> widDefinitions, String content) throws WIDException {
-		processWorkDefinitionsContent(widDefinitions, content);
+		if (content == null) {
+			WIDException widException = 
+					new WIDException(
+							"No data passed to WIDHandler.processWorkDefinitionsContent method"); //$NON-NLS-1$
+			throw widException;
+		}
+		processWorkDefinitionsContent(widDefinitions, new StringReader(content));
     }
 	
 	/*
-	 * Get the contents of the file
+	 * Open a reader on the contents of the file
 	 * @param resource
 	 * @return
 	 */
-	private static String getFile( IFile resource ) {
-		String filepath = null;
-		if (resource != null) {
-			IPath path = resource.getLocation().makeAbsolute();
-			filepath = path.toOSString();
+	private static Reader getFileReader( IFile resource ) throws WIDException {
+		if (resource == null || resource.getLocation() == null) {
+			throw new WIDException(
+					"No data passed to WIDHandler.processWorkDefinitionsContent method"); //$NON-NLS-1$
+		}
+		IPath path = resource.getLocation().makeAbsolute();
+		try {
+			return new BufferedReader(new InputStreamReader(new FileInputStream(path.toOSString()), "UTF-8")); //$NON-NLS-1$
+		} catch (IOException e) {
+			throw new WIDException(e.getMessage(), e);
 		}
-
-		StringBuilder text = new StringBuilder();
-	    String NL = System.getProperty("line.separator"); //$NON-NLS-1$
-	    Scanner scanner = null;
-	    try {
-	    	scanner = new Scanner(new FileInputStream(filepath), "UTF-8"); //$NON-NLS-1$
-	    	while (scanner.hasNextLine()){
-	    		text.append(scanner.nextLine() + NL);
-	    	}
-	    	return text.toString();
-	    } catch (FileNotFoundException e) {
-	    	e.printStackTrace();
-	    } finally {
-	    	if (scanner != null)
-	    		scanner.close();
-	    }	
-	    return null;
 	}
 
     /*
-     * Actually does the work to parse the content using RegEx and brute force 
+     * Parse the content in a single pass over the token stream. The content
+     * is a list of work definitions, each of which is a map; the "parameters"
+     * and "results" entries of a work definition are themselves maps of
+     * names to data types.
      * @param widDefinitions
-     * @param content
+     * @param reader
      * @throws WIDException
      */
     private static void processWorkDefinitionsContent (Map<String, WorkItemDefinition> widDefinitions, 
-    		String content) throws WIDException {
-    	 
-          if (content == null) {
-        	  WIDException widException = 
-        			  new WIDException(
-        					  "No data passed to WIDHandler.processWorkDefinitionsContent method"); //$NON-NLS-1$
-        	  throw widException;
-          }
-          if (widDefinitions != null) {
-        	  widDefinitions.clear();
-          }
-          
-          String strings[] = content.split("[\n]+"); //$NON-NLS-1$
-    	  int openBrackets = 0;
-    	  WorkItemDefinition currentWid = new WorkItemDefinitionImpl();
-    	  
-    	  Section current = Section.PARAMETERS;
-    	  
-          for (int i = 0; i < strings.length; i++) {
-        	  String trim = strings[i].trim();
-        	  if (trim.length() == 0) continue;
-        	  if (trim.startsWith("[") || trim.endsWith("[") || trim.endsWith(":")) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-        		  if (trim.endsWith(":") && i < strings.length - 1) { //$NON-NLS-1$
-        			  trim = strings[i].trim() + strings[i+1].trim();
-        		  } else {
-        			  openBrackets++;
-        		  }
-        		  String[] nameValue = trim.split("[:]+"); //$NON-NLS-1$
-        		  if (nameValue.length == 2) {
-        			  String name = nameValue[0].replace('"', ' ').trim();
-        			  if (name.equalsIgnoreCase("parameters")) { //$NON-NLS-1$
-	    				  current = Section.PARAMETERS;
-	    			  } else if (name.equalsIgnoreCase("results")) { //$NON-NLS-1$
-	    				  current = Section.RESULTS;
-	    			  } else if (name.equalsIgnoreCase("dependencies")) { //$NON-NLS-1$
-	    				  current = Section.DEPENDENCIES;
-	    			  }
-        		  }
-        	  }
-        	  if (trim.startsWith("]") || trim.endsWith("]")) { //$NON-NLS-1$ //$NON-NLS-2$
-        		  openBrackets--;
-        		  if (openBrackets == 1) {
-	    			  if (currentWid != null && currentWid.getName() != null) {
-	    				  widDefinitions.put(currentWid.getName(), currentWid);
-	    			  }
-	    			  currentWid = new WorkItemDefinitionImpl();
-        		  }
-        	  }
-        	  if (trim.contains(":")) { //$NON-NLS-1$
-        		  String[] nameValue = trim.split("[:]+"); //$NON-NLS-1$
-        		  if (nameValue.length == 2 || nameValue.length == 3) {
-        			  String name = nameValue[0].replace('"', ' ').trim();
-        			  int valueIndex = 1;
-        			  if (nameValue.length == 3) {
-        				  valueIndex = 2;
-        				  name = name + ':' + nameValue[1].replace('"', ' ').trim();
-        			  }
-        			  String value = nameValue[valueIndex].replace('"', ' ').replace(',', ' ').
-        					  replace('[',' ').trim();
-        			  if (openBrackets == 2 && value.trim().length() > 0) {
-        				  if (name.equalsIgnoreCase("name")) { //$NON-NLS-1$
-        					  currentWid.setName(value);
-        				  } else if (name.equalsIgnoreCase("displayName")) { //$NON-NLS-1$
-        					  currentWid.setDispalyName(value);
-						  } else if (name.equalsIgnoreCase("description")) { //$NON-NLS-1$
-							  currentWid.setDescription(value);
-						  } else if (name.equalsIgnoreCase("category")) { //$NON-NLS-1$
-							  currentWid.setCategory(value);
-        				  } else if (name.equalsIgnoreCase("icon")) { //$NON-NLS-1$
-        					  currentWid.setIcon(value);
-        				  } else if (name.equalsIgnoreCase("customEditor")) { //$NON-NLS-1$
-        					  currentWid.setCustomEditor(value);
-        				  } else if (name.equalsIgnoreCase("eclipse:customEditor")) { //$NON-NLS-1$
-        					  currentWid.setEclipseCustomEditor(value);
-        				  }
-        			  } else if (openBrackets == 3 && value.trim().length() > 0) {
-        				  if (value.startsWith("new") && value.indexOf("(")>0) { //$NON-NLS-1$ //$NON-NLS-2$
-        					  int index = value.indexOf("("); //$NON-NLS-1$
-        					  value = value.substring(3,index).trim();
-        					  // look up the DataType in the registry and replace the DataType
-        					  // name with its Java type equivalent name
-        					  DataTypeFactory dtf = DataTypeRegistry.getFactory(value);
-        					  if (dtf!=null) {
-        						  DataType dt = dtf.createDataType();
-        						  value = dt.getStringType();
-        					  }
-        				  }
-        				  if (current == Section.PARAMETERS)
-        					  currentWid.getParameters().put(name, value);
-        				  else if (current == Section.RESULTS)
-        					  currentWid.getResults().put(name, value);
-        			  }
-        		  }
-        	  }
-          }
-     }
+    		Reader reader) throws WIDException {
+    	if (widDefinitions != null) {
+    		widDefinitions.clear();
+    	}
+
+    	WIDTokenizer tokenizer = new WIDTokenizer(reader);
+    	tokenizer.next();
+    	// skip any import statements
+    	while (tokenizer.getToken() == Token.WORD && "import".equals(tokenizer.getValue())) { //$NON-NLS-1$
+    		while (tokenizer.getToken() != Token.SEMICOLON && tokenizer.getToken() != Token.EOF)
+    			tokenizer.next();
+    		tokenizer.next();
+    	}
+    	if (tokenizer.getToken() == Token.EOF)
+    		return;
 
-}
\ No newline at end of file
+    	Object content = parseValue(tokenizer);
+    	if (tokenizer.getToken() == Token.SEMICOLON)
+    		tokenizer.next();
+    	if (tokenizer.getToken() != Token.EOF)
+    		throw unexpected(tokenizer);
+    	if (!(content instanceof List))
+    		throw new WIDException("Expected a list of work definitions"); //$NON-NLS-1$
+
+    	for (Object o : (List<?>)content) {
+    		if (!(o instanceof Map))
+    			continue;
+    		WorkItemDefinition currentWid = createWorkItemDefinition((Map<?,?>)o);
+    		if (currentWid.getName() != null && widDefinitions != null) {
+    			widDefinitions.put(currentWid.getName(), currentWid);
+    		}
+    	}
+    }
+
+    private static WorkItemDefinition createWorkItemDefinition(Map<?,?> map) {
+    	WorkItemDefinition currentWid = new WorkItemDefinitionImpl();
+    	for (Entry<?,?> entry : map.entrySet()) {
+    		String name = (String)entry.getKey();
+    		Object v = entry.getValue();
+    		if (name.equalsIgnoreCase("parameters")) { //$NON-NLS-1$
+    			addDataTypes(currentWid.getParameters(), v);
+    			continue;
+    		}
+    		else if (name.equalsIgnoreCase("results")) { //$NON-NLS-1$
+    			addDataTypes(currentWid.getResults(), v);
+    			continue;
+    		}
+    		if (!(v instanceof String))
+    			continue;
+    		String value = ((String)v).trim();
+    		if (value.length() == 0)
+    			continue;
+    		if (name.equalsIgnoreCase("name")) { //$NON-NLS-1$
+    			currentWid.setName(value);
+    		} else if (name.equalsIgnoreCase("displayName")) { //$NON-NLS-1$
+    			currentWid.setDispalyName(value);
+    		} else if (name.equalsIgnoreCase("description")) { //$NON-NLS-1$
+    			currentWid.setDescription(value);
+    		} else if (name.equalsIgnoreCase("category")) { //$NON-NLS-1$
+    			currentWid.setCategory(value);
+    		} else if (name.equalsIgnoreCase("icon")) { //$NON-NLS-1$
+    			currentWid.setIcon(value);
+    		} else if (name.equalsIgnoreCase("customEditor")) { //$NON-NLS-1$
+    			currentWid.setCustomEditor(value);
+    		} else if (name.equalsIgnoreCase("eclipse:customEditor")) { //$NON-NLS-1$
+    			currentWid.setEclipseCustomEditor(value);
+    		}
+    	}
+    	return currentWid;
+    }
+
+    private static void addDataTypes(Map<String, String> dataTypes, Object v) {
+    	if (!(v instanceof Map))
+    		return;
+    	for (Entry<?,?> entry : ((Map<?,?>)v).entrySet()) {
+    		String value = null;
+    		if (entry.getValue() instanceof NewInstance) {
+    			value = ((NewInstance)entry.getValue()).type;
+    			// look up the DataType in the registry and replace the DataType
+    			// name with its Java type equivalent name
+    			DataTypeFactory dtf = DataTypeRegistry.getFactory(value);
+    			if (dtf!=null) {
+    				DataType dt = dtf.createDataType();
+    				value = dt.getStringType();
+    			}
+    		}
+    		else if (entry.getValue() instanceof String) {
+    			value = ((String)entry.getValue()).trim();
+    		}
+    		if (value != null && value.length() > 0)
+    			dataTypes.put((String)entry.getKey(), value);
+    	}
+    }
+
+    /*
+     * A constructor expression, e.g. "new StringDataType()"; only the type
+     * name is of interest.
+     */
+    private static class NewInstance {
+    	String type;
+    }
+
+    /*
+     * Parse a value starting at the current token and leave the tokenizer
+     * positioned at the token following the value. The result is a String,
+     * a NewInstance, a List of values or a Map of names to values.
+     */
+    private static Object parseValue(WIDTokenizer tokenizer) throws WIDException {
+    	switch (tokenizer.getToken()) {
+    	case STRING:
+    		String s = tokenizer.getValue();
+    		tokenizer.next();
+    		return s;
+    	case WORD:
+    		String w = tokenizer.getValue();
+    		if ("new".equals(w)) { //$NON-NLS-1$
+    			if (tokenizer.next() != Token.WORD)
+    				throw unexpected(tokenizer);
+    			NewInstance n = new NewInstance();
+    			n.type = tokenizer.getValue();
+    			if (tokenizer.next() == Token.LPAREN) {
+    				// constructor arguments are not needed
+    				tokenizer.next();
+    				while (tokenizer.getToken() != Token.RPAREN) {
+    					parseValue(tokenizer);
+    					if (tokenizer.getToken() == Token.COMMA)
+    						tokenizer.next();
+    					else if (tokenizer.getToken() != Token.RPAREN)
+    						throw unexpected(tokenizer);
+    				}
+    				tokenizer.next();
+    			}
+    			return n;
+    		}
+    		tokenizer.next();
+    		return w;
+    	case LBRACKET:
+    		return parseListOrMap(tokenizer);
+    	default:
+    		throw unexpected(tokenizer);
+    	}
+    }
+
+    /*
+     * Parse a "[ ... ]" expression. It is a map if its first element is
+     * followed by a colon, otherwise a list. Missing commas between elements
+     * are tolerated, since hand written files frequently have them.
+     */
+    private static Object parseListOrMap(WIDTokenizer tokenizer) throws WIDException {
+    	if (tokenizer.next() == Token.RBRACKET) {
+    		tokenizer.next();
+    		return new ArrayList<Object>();
+    	}
+    	Object first = parseValue(tokenizer);
+    	if (tokenizer.getToken() == Token.COLON) {
+    		Map<String, Object> map = new LinkedHashMap<String, Object>();
+    		Object key = first;
+    		for (;;) {
+    			if (!(key instanceof String))
+    				throw unexpected(tokenizer);
+    			if (tokenizer.getToken() != Token.COLON)
+    				throw unexpected(tokenizer);
+    			tokenizer.next();
+    			map.put((String)key, parseValue(tokenizer));
+    			if (tokenizer.getToken() == Token.COMMA)
+    				tokenizer.next();
+    			if (tokenizer.getToken() == Token.RBRACKET)
+    				break;
+    			key = parseValue(tokenizer);
+    		}
+    		tokenizer.next();
+    		return map;
+    	}
+    	List<Object> list = new ArrayList<Object>();
+    	list.add(first);
+    	for (;;) {
+    		if (tokenizer.getToken() == Token.COMMA)
+    			tokenizer.next();
+    		if (tokenizer.getToken() == Token.RBRACKET)
+    			break;
+    		list.add(parseValue(tokenizer));
+    	}
+    	tokenizer.next();
+    	return list;
+    }
+
+    private static WIDException unexpected(WIDTokenizer tokenizer) {
+    	String text = tokenizer.getToken() == Token.EOF ?
+    			"end of file" : //$NON-NLS-1$
+    			tokenizer.getValue() != null ? "\"" + tokenizer.getValue() + "\"" : tokenizer.getToken().name(); //$NON-NLS-1$ //$NON-NLS-2$
+    	return new WIDException("Unexpected " + text + " at line " + tokenizer.getLine()); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.wid;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits the MVEL-like content of a *.wid/*.conf file into tokens in a single
+ * pass over a character stream. Whitespace and Java style comments are
+ * skipped. String literals may be enclosed in double or single quotes, and
+ * may contain the usual backslash escapes.
+ */
+public class WIDTokenizer {
+
+	public enum Token {
+		LBRACKET, RBRACKET, LPAREN, RPAREN, COLON, COMMA, SEMICOLON,
+		/** a quoted string literal */
+		STRING,
+		/** anything else: identifiers, qualified names, numbers, keywords */
+		WORD,
+		EOF
+	}
+
+	private final Reader reader;
+	private final StringBuilder text = new StringBuilder();
+	private int peeked = -2;
+	private int line = 1;
+
+	private Token token;
+	private String value;
+
+	public WIDTokenizer(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Advance to the next token.
+	 *
+	 * @return the token type
+	 * @throws WIDException if a string literal or comment is not terminated
+	 */
+	public Token next() throws WIDException {
+		value = null;
+		int c = skipWhitespace();
+		switch (c) {
+		case -1:
+			return token = Token.EOF;
+		case '[':
+			return token = Token.LBRACKET;
+		case ']':
+			return token = Token.RBRACKET;
+		case '(':
+			return token = Token.LPAREN;
+		case ')':
+			return token = Token.RPAREN;
+		case ':':
+			return token = Token.COLON;
+		case ',':
+			return token = Token.COMMA;
+		case ';':
+			return token = Token.SEMICOLON;
+		case '"':
+		case '\'':
+			value = readString(c);
+			return token = Token.STRING;
+		}
+		text.setLength(0);
+		text.append((char) c);
+		for (;;) {
+			c = peek();
+			if (c==-1 || Character.isWhitespace(c) || isDelimiter(c))
+				break;
+			text.append((char) read());
+		}
+		value = text.toString();
+		return token = Token.WORD;
+	}
+
+	/**
+	 * @return the current token type
+	 */
+	public Token getToken() {
+		return token;
+	}
+
+	/**
+	 * @return the text of the current STRING or WORD token, null for any
+	 *         other token
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the line number of the current position, starting at 1
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	private static boolean isDelimiter(int c) {
+		return c=='[' || c==']' || c=='(' || c==')' || c==':' || c==',' || c==';' || c=='"' || c=='\'';
+	}
+
+	private int skipWhitespace() throws WIDException {
+		for (;;) {
+			int c = read();
+			if (c=='/') {
+				int c2 = peek();
+				if (c2=='/') {
+					// line comment
+					while (c!=-1 && c!='\n')
+						c = read();
+					continue;
+				}
+				if (c2=='*') {
+					// block comment
+					read();
+					int prev = 0;
+					for (;;) {
+						c = read();
+						if (c==-1)
+							throw new WIDException("Unterminated comment at line " + line); //$NON-NLS-1$
+						if (prev=='*' && c=='/')
+							break;
+						prev = c;
+					}
+					continue;
+				}
+			}
+			if (c==-1 || !Character.isWhitespace(c))
+				return c;
+		}
+	}
+
+	private String readString(int quote) throws WIDException {
+		int startLine = line;
+		text.setLength(0);
+		for (;;) {
+			int c = read();
+			if (c==-1)
+				throw new WIDException("Unterminated string starting at line " + startLine); //$NON-NLS-1$
+			if (c==quote)
+				break;
+			if (c=='\\') {
+				c = read();
+				switch (c) {
+				case 'n':
+					c = '\n';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				case -1:
+					throw new WIDException("Unterminated string starting at line " + startLine); //$NON-NLS-1$
+				}
+			}
+			text.append((char) c);
+		}
+		return text.toString();
+	}
+
+	private int peek() throws WIDException {
+		if (peeked==-2)
+			peeked = readChar();
+		return peeked;
+	}
+
+	private int read() throws WIDException {
+		int c;
+		if (peeked!=-2) {
+			c = peeked;
+			peeked = -2;
+		}
+		else
+			c = readChar();
+		if (c=='\n')
+			++line;
+		return c;
+	}
+
+	private int readChar() throws WIDException {
+		try {
+			return reader.read();
+		}
+		catch (IOException e) {
+			throw new WIDException(e.getMessage());
+		}
+	}
+}
@@ -13,9 +13,12 @@
 package org.eclipse.bpmn2.modeler.ui.diagram;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.bpmn2.AdHocSubProcess;
 import org.eclipse.bpmn2.Association;
@@ -82,6 +85,8 @@ import org.eclipse.bpmn2.modeler.core.di.DIImport;
 import org.eclipse.bpmn2.modeler.core.features.AbstractBpmn2AddFeature;
 import org.eclipse.bpmn2.modeler.core.features.AbstractBpmn2CreateConnectionFeature;
 import org.eclipse.bpmn2.modeler.core.features.AbstractBpmn2CreateFeature;
+import org.eclipse.bpmn2.modeler.core.features.BaseElementConnectionFeatureContainer;
+import org.eclipse.bpmn2.modeler.core.features.BaseElementFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.BPMNDiagramFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.CustomConnectionFeatureContainer;
 import org.eclipse.bpmn2.modeler.core.features.CustomElementFeatureContainer;
@@ -227,6 +232,20 @@ public class BPMN2FeatureProvider extends DefaultFeatureProvider implements IBpm
 	private HashMap<Class,IFeature> mapBusinessObjectClassToCreateFeature = new HashMap<Class,IFeature>();
 	private DefaultCopyBPMNElementFeature defaultCopyFeature = new DefaultCopyBPMNElementFeature(this);
 	private DefaultPasteBPMNElementFeature defaultPasteFeature = new DefaultPasteBPMNElementFeature(this);
+
+	// Dispatch tables for getFeatureContainer(IContext); see buildDispatchTables()
+	private static final int DISPATCH_DYNAMIC = 0;
+	private static final int DISPATCH_SHAPE = 1;
+	private static final int DISPATCH_CONNECTION = 2;
+	private IFeatureContainer[] searchOrder;
+	private int[] dispatchKinds;
+	private IFeatureContainer shapeDispatchContainer;
+	private IFeatureContainer connectionDispatchContainer;
+	private List<IFeatureContainer> customElementContainers;
+	private HashMap<Class,int[]> dispatchTable = new HashMap<Class,int[]>();
+	private TargetRuntime customTaskRuntime;
+	private int customTaskModificationCount;
+	private HashMap<String,ICustomElementFeatureContainer> customTaskDispatchTable = new HashMap<String,ICustomElementFeatureContainer>();
 	
 	public BPMN2FeatureProvider(IDiagramTypeProvider dtp) {
 		super(dtp);
@@ -316,6 +335,7 @@ public class BPMN2FeatureProvider extends DefaultFeatureProvider implements IBpm
 		// and replace the ones in our list of FeatureContainers
 		BPMN2Editor editor = BPMN2Editor.getActiveEditor(); //(BPMN2Editor)getDiagramTypeProvider().getDiagramEditor();;
 		TargetRuntime rt = editor.getTargetRuntime();
+		Map<IFeatureContainer,Object> runtimeContainers = new IdentityHashMap<IFeatureContainer,Object>();
 		for (FeatureContainerDescriptor fcd : rt.getFeatureContainerDescriptors()) {
 			IFeatureContainer fc = fcd.getFeatureContainer();
 			if (fc instanceof IConnectionFeatureContainer) {
@@ -323,15 +343,18 @@ public class BPMN2FeatureProvider extends DefaultFeatureProvider implements IBpm
 						.getCreateConnectionFeature(this);
 				if (createConnectionFeature!=null) {
 					containers.put(fcd.getType(), fc);
+					runtimeContainers.put(fc, fcd);
 				}
 			}
 			if (fc instanceof IShapeFeatureContainer) {
 				ICreateFeature createFeature = ((IShapeFeatureContainer)fc).getCreateFeature(this);
 				if (createFeature != null) {
 					containers.put(fcd.getType(), fc);
+					runtimeContainers.put(fc, fcd);
 				}
 			}
 		}
+		buildDispatchTables(runtimeContainers);
 
 		// build the list of CreateFeatures from our new list of all FeatureContainers
 		List<ICreateFeature> createFeaturesList = new ArrayList<ICreateFeature>();
@@ -392,6 +415,142 @@ public class BPMN2FeatureProvider extends DefaultFeatureProvider implements IBpm
 		}
 	}
 	
+	/**
+	 * Classify the FeatureContainers for getFeatureContainer(IContext).
+	 * <p>
+	 * Most of our own FeatureContainers inherit getApplyObject() from
+	 * BaseElementFeatureContainer or BaseElementConnectionFeatureContainer,
+	 * which return the context's BaseElement, and their canApplyTo() only
+	 * tests the type of that object. Whether one of these applies to a context
+	 * therefore depends only on the class of the BaseElement, and can be
+	 * looked up in a table keyed by that class. All other FeatureContainers
+	 * (those provided by the Target Runtime, Custom Elements, Labels, and
+	 * those that look at the PictogramElement) are "dynamic" and are still
+	 * asked, in order.
+	 * 
+	 * @param runtimeContainers the FeatureContainers provided by the Target Runtime
+	 */
+	private void buildDispatchTables(Map<IFeatureContainer,Object> runtimeContainers) {
+		searchOrder = containers.values().toArray(new IFeatureContainer[containers.size()]);
+		dispatchKinds = new int[searchOrder.length];
+		shapeDispatchContainer = null;
+		connectionDispatchContainer = null;
+		customElementContainers = new ArrayList<IFeatureContainer>();
+		for (int i=0; i<searchOrder.length; ++i) {
+			IFeatureContainer fc = searchOrder[i];
+			int kind = DISPATCH_DYNAMIC;
+			if (fc instanceof ICustomElementFeatureContainer)
+				customElementContainers.add(fc);
+			else if (!runtimeContainers.containsKey(fc))
+				kind = getDispatchKind(fc);
+			if (kind==DISPATCH_SHAPE && shapeDispatchContainer==null)
+				shapeDispatchContainer = fc;
+			if (kind==DISPATCH_CONNECTION && connectionDispatchContainer==null)
+				connectionDispatchContainer = fc;
+			dispatchKinds[i] = kind;
+		}
+		dispatchTable.clear();
+		customTaskRuntime = null;
+	}
+
+	private static int getDispatchKind(IFeatureContainer fc) {
+		try {
+			Class c = fc.getClass().getMethod("getApplyObject", IContext.class).getDeclaringClass(); //$NON-NLS-1$
+			if (c==BaseElementFeatureContainer.class)
+				return DISPATCH_SHAPE;
+			if (c==BaseElementConnectionFeatureContainer.class)
+				return DISPATCH_CONNECTION;
+		}
+		catch (NoSuchMethodException e) {
+		}
+		return DISPATCH_DYNAMIC;
+	}
+
+	/**
+	 * Return the positions in the search order of the non-dynamic
+	 * FeatureContainers that can apply to objects of the given object's class.
+	 */
+	private int[] getDispatchEntry(Object object) {
+		Class c = object.getClass();
+		int[] entry = dispatchTable.get(c);
+		if (entry==null) {
+			int[] positions = new int[searchOrder.length];
+			int count = 0;
+			for (int i=0; i<searchOrder.length; ++i) {
+				if (dispatchKinds[i]!=DISPATCH_DYNAMIC && searchOrder[i].canApplyTo(object))
+					positions[count++] = i;
+			}
+			entry = Arrays.copyOf(positions, count);
+			dispatchTable.put(c, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Return the first FeatureContainer in the search order that applies to
+	 * the given context. This gives the same result as asking each one in
+	 * turn, but only the dynamic FeatureContainers ahead of the first match
+	 * from the dispatch table are actually asked.
+	 */
+	private IFeatureContainer findFeatureContainer(IContext context) {
+		int first = searchOrder.length;
+		if (shapeDispatchContainer!=null) {
+			Object o = shapeDispatchContainer.getApplyObject(context);
+			if (o!=null) {
+				for (int i : getDispatchEntry(o)) {
+					if (dispatchKinds[i]==DISPATCH_SHAPE) {
+						first = i;
+						break;
+					}
+				}
+			}
+		}
+		if (connectionDispatchContainer!=null) {
+			Object o = connectionDispatchContainer.getApplyObject(context);
+			if (o!=null) {
+				for (int i : getDispatchEntry(o)) {
+					if (i>=first)
+						break;
+					if (dispatchKinds[i]==DISPATCH_CONNECTION) {
+						first = i;
+						break;
+					}
+				}
+			}
+		}
+		for (int i=0; i<first; ++i) {
+			if (dispatchKinds[i]==DISPATCH_DYNAMIC) {
+				IFeatureContainer container = searchOrder[i];
+				Object o = container.getApplyObject(context);
+				if (o != null && container.canApplyTo(o)) {
+					return container;
+				}
+			}
+		}
+		return first<searchOrder.length ? searchOrder[first] : null;
+	}
+
+	/**
+	 * Look up the FeatureContainer of the Target Runtime's Custom Task with the
+	 * given ID. The table is rebuilt when the Target Runtime or its list of
+	 * Custom Tasks changes.
+	 * 
+	 * @return true if the Target Runtime defines a Custom Task with the ID
+	 */
+	private boolean hasCustomTask(TargetRuntime rt, Object id) {
+		int modificationCount = rt.getCustomTaskModificationCount();
+		if (rt!=customTaskRuntime || modificationCount!=customTaskModificationCount) {
+			customTaskDispatchTable.clear();
+			for (CustomTaskDescriptor ct : rt.getCustomTaskDescriptors()) {
+				if (!customTaskDispatchTable.containsKey(ct.getId()))
+					customTaskDispatchTable.put(ct.getId(), ct.getFeatureContainer());
+			}
+			customTaskRuntime = rt;
+			customTaskModificationCount = modificationCount;
+		}
+		return customTaskDispatchTable.containsKey(id);
+	}
+
 	private EObject getApplyObject(IContext context) {
 		if (context instanceof IAddContext) {
 			Object object = ((IAddContext) context).getNewObject();
@@ -429,21 +588,20 @@ public class BPMN2FeatureProvider extends DefaultFeatureProvider implements IBpm
 		}
 		
 		Object id = CustomElementFeatureContainer.getId(context); 
-		for (IFeatureContainer container : containers.values()) {
-			if (id!=null && !(container instanceof ICustomElementFeatureContainer))
-				continue;
-			Object o = container.getApplyObject(context);
-			if (o != null && container.canApplyTo(o)) {
-				return container;
-			}
-		}
 		if (id!=null) {
-			for (CustomTaskDescriptor ct : rt.getCustomTaskDescriptors()) {
-				if (id.equals(ct.getId())) {
-					ICustomElementFeatureContainer container = (ICustomElementFeatureContainer)ct.getFeatureContainer();
+			for (IFeatureContainer container : customElementContainers) {
+				Object o = container.getApplyObject(context);
+				if (o != null && container.canApplyTo(o)) {
 					return container;
 				}
 			}
+			if (hasCustomTask(rt, id))
+				return customTaskDispatchTable.get(id);
+		}
+		else {
+			IFeatureContainer container = findFeatureContainer(context);
+			if (container!=null)
+				return container;
 		}
 		// last chance: check custom task feature containers
 		if (customTaskContainers!=null) {
@@ -473,12 +631,8 @@ public class BPMN2FeatureProvider extends DefaultFeatureProvider implements IBpm
 		if (id!=null) {
 			BPMN2Editor editor = (BPMN2Editor)getDiagramTypeProvider().getDiagramBehavior().getDiagramContainer();
 			TargetRuntime rt = editor.getTargetRuntime();
-			for (CustomTaskDescriptor ct : rt.getCustomTaskDescriptors()) {
-				if (id.equals(ct.getId())) {
-					ICustomElementFeatureContainer container = (ICustomElementFeatureContainer)ct.getFeatureContainer();
-					return container.getAddFeature(this);
-				}
-			}
+			if (hasCustomTask(rt, id))
+				return customTaskDispatchTable.get(id).getAddFeature(this);
 		}
 		
 		IFeatureContainer container = getFeatureContainer(context);
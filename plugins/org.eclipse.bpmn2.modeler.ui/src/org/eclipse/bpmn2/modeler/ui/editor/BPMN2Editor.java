@@ -31,6 +31,7 @@ import org.eclipse.bpmn2.modeler.core.merrimac.dialogs.ObjectEditingDialog;
 import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceImpl;
 import org.eclipse.bpmn2.modeler.core.model.ModelHandler;
 import org.eclipse.bpmn2.modeler.core.model.ModelHandlerLocator;
+import org.eclipse.bpmn2.modeler.core.model.ModelIndex;
 import org.eclipse.bpmn2.modeler.core.model.ProxyURIConverterImplExtension;
 import org.eclipse.bpmn2.modeler.core.preferences.Bpmn2Preferences;
 import org.eclipse.bpmn2.modeler.core.preferences.ModelEnablements;
@@ -774,6 +775,12 @@ public class BPMN2Editor extends DiagramEditor implements IPreferenceChangeListe
 			ModelUtil.clearIDs(modelHandler.getResource(), instances==0);
 			modelHandler.dispose();
 		}
+		if (otherEditor==null) {
+			// the model and diagram indexes are no longer needed
+			ModelIndex.removeIndex(bpmnResource);
+			if (getDiagramTypeProvider()!=null && getDiagramTypeProvider().getDiagram()!=null)
+				ModelIndex.removeIndex(getDiagramTypeProvider().getDiagram().eResource());
+		}
 		if (preferences != null) {
 			preferences.removePreferenceChangeListener(this);
 		}
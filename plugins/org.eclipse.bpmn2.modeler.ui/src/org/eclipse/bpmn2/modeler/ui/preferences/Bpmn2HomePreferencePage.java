@@ -127,6 +127,18 @@ public class Bpmn2HomePreferencePage
 				Bpmn2Preferences.PREF_CONNECTION_TIMEOUT_LABEL,
 				getFieldEditorParent());
 		addField(connectionTimeout);
+
+		BooleanFieldEditor useStaxParser = new BooleanFieldEditor(
+				Bpmn2Preferences.PREF_USE_STAX_PARSER,
+				Bpmn2Preferences.PREF_USE_STAX_PARSER_LABEL,
+				getFieldEditorParent());
+		addField(useStaxParser);
+
+		BooleanFieldEditor useBinaryCache = new BooleanFieldEditor(
+				Bpmn2Preferences.PREF_USE_BINARY_CACHE,
+				Bpmn2Preferences.PREF_USE_BINARY_CACHE_LABEL,
+				getFieldEditorParent());
+		addField(useBinaryCache);
 	}
 
 	/* (non-Javadoc)
@@ -142,6 +154,8 @@ public class Bpmn2HomePreferencePage
 		preferences.setToDefault(Bpmn2Preferences.PREF_IS_MESSAGE_VISIBLE);
 		preferences.setToDefault(Bpmn2Preferences.PREF_IS_MARKER_VISIBLE);
 		preferences.setToDefault(Bpmn2Preferences.PREF_CONNECTION_TIMEOUT);
+		preferences.setToDefault(Bpmn2Preferences.PREF_USE_STAX_PARSER);
+		preferences.setToDefault(Bpmn2Preferences.PREF_USE_BINARY_CACHE);
 		preferences.setToDefault(Bpmn2Preferences.PREF_SAVE_BPMNLABELS);
 		super.performDefaults();
 	}
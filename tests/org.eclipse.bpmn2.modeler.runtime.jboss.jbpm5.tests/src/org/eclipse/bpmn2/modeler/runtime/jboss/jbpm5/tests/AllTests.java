@@ -15,7 +15,8 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ TestWIDHandler.class })
+@SuiteClasses({ TestWIDHandler.class, TestSimulationEngine.class, TestModelLoad.class,
+		TestModelIndex.class, TestSimulationModelBuilder.class, TestElementParametersIndex.class })
 public class AllTests {
 
 }
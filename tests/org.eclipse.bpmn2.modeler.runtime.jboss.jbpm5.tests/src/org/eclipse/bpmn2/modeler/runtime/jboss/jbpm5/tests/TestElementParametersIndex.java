@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.tests;
+
+import junit.framework.Assert;
+
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.BpsimFactory;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ElementParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.FloatingParameterType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.Parameter;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.Scenario;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ScenarioParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.TimeParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.TimeUnit;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.ElementParametersIndex;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.ElementSamplers;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.Samplers;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationException;
+import org.eclipse.emf.common.notify.Adapter;
+import org.junit.Test;
+
+/**
+ * Tests for the index of BPSim ElementParameters and its cache of compiled
+ * Samplers
+ */
+public class TestElementParametersIndex {
+
+	private static Scenario createScenario(TimeUnit baseTimeUnit) {
+		Scenario scenario = BpsimFactory.eINSTANCE.createScenario();
+		ScenarioParameters sp = BpsimFactory.eINSTANCE.createScenarioParameters();
+		sp.setBaseTimeUnit(baseTimeUnit);
+		scenario.setScenarioParameters(sp);
+		return scenario;
+	}
+
+	private static ElementParameters addElementParameters(Scenario scenario, String elementRef) {
+		ElementParameters ep = BpsimFactory.eINSTANCE.createElementParameters();
+		ep.setElementRef(elementRef);
+		scenario.getElementParameters().add(ep);
+		return ep;
+	}
+
+	private static FloatingParameterType setProcessingTime(ElementParameters ep, double value, TimeUnit timeUnit) {
+		FloatingParameterType v = BpsimFactory.eINSTANCE.createFloatingParameterType();
+		v.setValue(value);
+		v.setTimeUnit(timeUnit);
+		Parameter p = BpsimFactory.eINSTANCE.createParameter();
+		p.getParameterValue().add(v);
+		TimeParameters tp = BpsimFactory.eINSTANCE.createTimeParameters();
+		tp.setProcessingTime(p);
+		ep.setTimeParameters(tp);
+		return v;
+	}
+
+	private static double getProcessingTime(ElementSamplers es) {
+		return ((Samplers.Constant) es.getProcessingTime()).getValue();
+	}
+
+	@Test
+	public void testLookup() {
+		Scenario scenario = createScenario(TimeUnit.S);
+		ElementParameters a1 = addElementParameters(scenario, "a");
+		ElementParameters b = addElementParameters(scenario, "b");
+		ElementParameters a2 = addElementParameters(scenario, "a");
+
+		ElementParametersIndex index = ElementParametersIndex.getIndex(scenario);
+		Assert.assertSame(index, ElementParametersIndex.getIndex(scenario));
+		Assert.assertNull(ElementParametersIndex.getIndex(null));
+		Assert.assertSame(a1, index.getElementParameters("a"));
+		Assert.assertSame(b, index.getElementParameters("b"));
+		Assert.assertNull(index.getElementParameters("c"));
+
+		// appended parameters are added to the index
+		ElementParameters c = addElementParameters(scenario, "c");
+		Assert.assertSame(c, index.getElementParameters("c"));
+
+		// inserted ones only if they come first
+		ElementParameters a0 = BpsimFactory.eINSTANCE.createElementParameters();
+		a0.setElementRef("a");
+		scenario.getElementParameters().add(0, a0);
+		Assert.assertSame(a0, index.getElementParameters("a"));
+
+		// removing parameters exposes the next ones for the same element
+		scenario.getElementParameters().remove(a0);
+		scenario.getElementParameters().remove(a1);
+		Assert.assertSame(a2, index.getElementParameters("a"));
+
+		// changing a reference moves the parameters
+		b.setElementRef("d");
+		Assert.assertNull(index.getElementParameters("b"));
+		Assert.assertSame(b, index.getElementParameters("d"));
+
+		index.dispose();
+		for (Adapter adapter : scenario.eAdapters())
+			Assert.assertFalse(adapter instanceof ElementParametersIndex);
+		Assert.assertTrue(b.eAdapters().isEmpty());
+	}
+
+	@Test
+	public void testSamplerInvalidation() throws SimulationException {
+		Scenario scenario = createScenario(TimeUnit.MIN);
+		ElementParameters task = addElementParameters(scenario, "task");
+		FloatingParameterType value = setProcessingTime(task, 2, TimeUnit.HOUR);
+		ElementParameters other = addElementParameters(scenario, "other");
+		FloatingParameterType otherValue = setProcessingTime(other, 1, TimeUnit.MIN);
+
+		ElementParametersIndex index = ElementParametersIndex.getIndex(scenario);
+		Assert.assertNull(index.getElementSamplers("none"));
+		ElementSamplers es = index.getElementSamplers("task");
+		Assert.assertEquals(120, getProcessingTime(es), 1e-9);
+		Assert.assertSame(es, index.getElementSamplers("task"));
+
+		// a change to other parameters keeps the Samplers
+		otherValue.setValue(5);
+		Assert.assertSame(es, index.getElementSamplers("task"));
+		Assert.assertEquals(5, getProcessingTime(index.getElementSamplers("other")), 1e-9);
+
+		// a change anywhere inside the element's parameters discards them
+		value.setValue(3);
+		es = index.getElementSamplers("task");
+		Assert.assertEquals(180, getProcessingTime(es), 1e-9);
+
+		// as does a change of the base time unit
+		scenario.getScenarioParameters().setBaseTimeUnit(TimeUnit.HOUR);
+		es = index.getElementSamplers("task");
+		Assert.assertEquals(3, getProcessingTime(es), 1e-9);
+
+		// or of the scenario parameters themselves
+		ScenarioParameters sp = BpsimFactory.eINSTANCE.createScenarioParameters();
+		sp.setBaseTimeUnit(TimeUnit.S);
+		scenario.setScenarioParameters(sp);
+		Assert.assertEquals(10800, getProcessingTime(index.getElementSamplers("task")), 1e-9);
+
+		// and Samplers follow the parameters when the reference changes
+		task.setElementRef("task2");
+		Assert.assertNull(index.getElementSamplers("task"));
+		Assert.assertEquals(10800, getProcessingTime(index.getElementSamplers("task2")), 1e-9);
+	}
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.tests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.eclipse.bpmn2.Bpmn2Factory;
+import org.eclipse.bpmn2.Bpmn2Package;
+import org.eclipse.bpmn2.Process;
+import org.eclipse.bpmn2.SubProcess;
+import org.eclipse.bpmn2.Task;
+import org.eclipse.bpmn2.di.BPMNDiagram;
+import org.eclipse.bpmn2.di.BPMNPlane;
+import org.eclipse.bpmn2.di.BPMNShape;
+import org.eclipse.bpmn2.di.BpmnDiFactory;
+import org.eclipse.bpmn2.modeler.core.di.DIUtils;
+import org.eclipse.bpmn2.modeler.core.model.ElementIdIndex;
+import org.eclipse.bpmn2.modeler.core.model.ModelIndex;
+import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
+import org.eclipse.dd.di.DiagramElement;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.junit.Test;
+
+/**
+ * Tests for the model index that is kept on BPMN2 Resources
+ */
+public class TestModelIndex {
+
+	private static List<EObject> getInstances(Resource resource, EClass eClass) {
+		List<EObject> list = new ArrayList<EObject>();
+		for (Iterator<EObject> iter = resource.getAllContents(); iter.hasNext();) {
+			EObject o = iter.next();
+			if (eClass.isInstance(o))
+				list.add(o);
+		}
+		return list;
+	}
+
+	private static Process getProcess(Resource resource) {
+		return ModelUtil.getAllRootElements(ModelUtil.getDefinitions(resource), Process.class).get(0);
+	}
+
+	@Test
+	public void testDocumentOrder() throws IOException {
+		Resource resource = TestModelLoad.loadModel(TestModelLoad.getModelURI("bpmnfiles/OrderProcess.bpmn2"),
+				TestModelLoad.createLoadOptions(false));
+		EClass flowNode = Bpmn2Package.eINSTANCE.getFlowNode();
+		ModelIndex index = ModelIndex.getIndex(resource);
+		Assert.assertNotNull(index);
+		Assert.assertEquals(getInstances(resource, flowNode), index.getObjects(flowNode));
+
+		// an object that is added first is returned first
+		Process process = getProcess(resource);
+		Task task = Bpmn2Factory.eINSTANCE.createTask();
+		process.getFlowElements().add(0, task);
+		List<EObject> objects = index.getObjects(flowNode);
+		Assert.assertSame(task, objects.get(0));
+		Assert.assertEquals(getInstances(resource, flowNode), objects);
+
+		// and moving it is noticed too
+		process.getFlowElements().move(process.getFlowElements().size() - 1, task);
+		objects = index.getObjects(flowNode);
+		Assert.assertSame(task, objects.get(objects.size() - 1));
+		Assert.assertEquals(getInstances(resource, flowNode), objects);
+		Assert.assertEquals(objects, ModelUtil.getAllReachableObjects(process, flowNode));
+
+		// repeated inserts at the same position use up the gap between labels
+		for (int i = 0; i < 100; ++i)
+			process.getFlowElements().add(0, Bpmn2Factory.eINSTANCE.createTask());
+		Assert.assertEquals(getInstances(resource, flowNode), index.getObjects(flowNode));
+
+		// a subtree is ordered as a whole
+		SubProcess subProcess = Bpmn2Factory.eINSTANCE.createSubProcess();
+		for (int i = 0; i < 10; ++i)
+			subProcess.getFlowElements().add(Bpmn2Factory.eINSTANCE.createTask());
+		process.getFlowElements().add(50, subProcess);
+		Assert.assertEquals(getInstances(resource, flowNode), index.getObjects(flowNode));
+
+		// and so is an object that is moved to another container
+		subProcess.getFlowElements().add(5, task);
+		Assert.assertSame(subProcess, task.eContainer());
+		Assert.assertEquals(getInstances(resource, flowNode), index.getObjects(flowNode));
+		process.getFlowElements().add(task);
+		Assert.assertEquals(getInstances(resource, flowNode), index.getObjects(flowNode));
+	}
+
+	@Test
+	public void testIds() throws IOException {
+		Resource resource = TestModelLoad.loadModel(TestModelLoad.getModelURI("bpmnfiles/OrderProcess.bpmn2"),
+				TestModelLoad.createLoadOptions(false));
+		ElementIdIndex index = ElementIdIndex.getIndex(resource);
+		Assert.assertSame(index, ModelIndex.getIndex(resource).getIdIndex());
+		Assert.assertFalse(index.isDuplicate("Task_1"));
+
+		Task task = Bpmn2Factory.eINSTANCE.createTask();
+		task.setId("Task_1");
+		getProcess(resource).getFlowElements().add(task);
+		Assert.assertTrue(index.isDuplicate("Task_1"));
+		Assert.assertEquals(2, index.getElements("Task_1").size());
+
+		task.setId("Task_4");
+		Assert.assertFalse(index.isDuplicate("Task_1"));
+		Assert.assertEquals(1, index.getElements("Task_4").size());
+
+		getProcess(resource).getFlowElements().remove(task);
+		Assert.assertTrue(index.getElements("Task_4").isEmpty());
+
+		ModelIndex.removeIndex(resource);
+		for (Adapter a : resource.eAdapters())
+			Assert.assertFalse(a instanceof ModelIndex);
+	}
+
+	@Test
+	public void testNestedPlanes() throws IOException {
+		Resource resource = TestModelLoad.loadModel(TestModelLoad.getModelURI("bpmnfiles/OrderProcess.bpmn2"),
+				TestModelLoad.createLoadOptions(false));
+		BPMNDiagram diagram = ModelUtil.getDefinitions(resource).getDiagrams().get(0);
+		List<DiagramElement> planeElements = diagram.getPlane().getPlaneElement();
+		Task task = Bpmn2Factory.eINSTANCE.createTask();
+		getProcess(resource).getFlowElements().add(task);
+
+		// the first shape in the plane is found
+		BPMNShape shape2 = BpmnDiFactory.eINSTANCE.createBPMNShape();
+		shape2.setBpmnElement(task);
+		planeElements.add(shape2);
+		BPMNShape shape1 = BpmnDiFactory.eINSTANCE.createBPMNShape();
+		shape1.setBpmnElement(task);
+		planeElements.add(0, shape1);
+		Assert.assertSame(shape1, DIUtils.findPlaneElement(planeElements, task));
+
+		// but the search ends in the first nested plane
+		BPMNPlane nested = BpmnDiFactory.eINSTANCE.createBPMNPlane();
+		BPMNShape shape3 = BpmnDiFactory.eINSTANCE.createBPMNShape();
+		shape3.setBpmnElement(task);
+		nested.getPlaneElement().add(shape3);
+		planeElements.add(0, nested);
+		Assert.assertSame(shape3, DIUtils.findPlaneElement(planeElements, task));
+		nested.getPlaneElement().remove(shape3);
+		Assert.assertNull(DIUtils.findPlaneElement(planeElements, task));
+
+		// and a plain list, which is not indexed, gives the same results
+		Assert.assertNull(DIUtils.findPlaneElement(new ArrayList<DiagramElement>(planeElements), task));
+		planeElements.remove(nested);
+		Assert.assertSame(shape1, DIUtils.findPlaneElement(planeElements, task));
+		Assert.assertSame(shape1, DIUtils.findPlaneElement(new ArrayList<DiagramElement>(planeElements), task));
+	}
+}
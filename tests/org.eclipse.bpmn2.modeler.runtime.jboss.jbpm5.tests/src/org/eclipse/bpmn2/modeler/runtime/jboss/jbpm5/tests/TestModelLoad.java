@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.eclipse.bpmn2.ItemDefinition;
+import org.eclipse.bpmn2.SequenceFlow;
+import org.eclipse.bpmn2.modeler.core.model.BinaryModelCache;
+import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceFactoryImpl;
+import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceImpl;
+import org.eclipse.bpmn2.modeler.core.model.Bpmn2ModelerResourceSetImpl;
+import org.eclipse.bpmn2.modeler.core.model.ProxyURIConverterImplExtension;
+import org.eclipse.bpmn2.modeler.core.utils.ModelUtil;
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+/**
+ * Tests for loading BPMN2 files with the different loader options
+ */
+public class TestModelLoad {
+
+	static URI getModelURI(String filepath) throws IOException {
+		Bundle bundle = Activator.getDefault().getBundle();
+		URL url = FileLocator.find(bundle, new Path(filepath), Collections.EMPTY_MAP);
+		File file = new File(FileLocator.toFileURL(url).getFile());
+		return URI.createFileURI(file.getAbsolutePath());
+	}
+
+	static Map<Object, Object> createLoadOptions(boolean useStaxParser) {
+		return createLoadOptions(useStaxParser, false);
+	}
+
+	private static Map<Object, Object> createLoadOptions(boolean useStaxParser, boolean useBinaryCache) {
+		Map<Object, Object> options = new HashMap<Object, Object>();
+		options.put(Bpmn2ModelerResourceImpl.OPTION_USE_STAX_PARSER, useStaxParser);
+		options.put(Bpmn2ModelerResourceImpl.OPTION_USE_BINARY_CACHE, useBinaryCache);
+		return options;
+	}
+
+	static Resource loadModel(URI uri, Map<Object, Object> options) throws IOException {
+		Bpmn2ModelerResourceSetImpl resourceSet = new Bpmn2ModelerResourceSetImpl();
+		resourceSet.setURIConverter(new ProxyURIConverterImplExtension(uri));
+		Resource resource = new Bpmn2ModelerResourceFactoryImpl().createResource(uri);
+		resourceSet.getResources().add(resource);
+		resource.load(options);
+		return resource;
+	}
+
+	/*
+	 * Compare two loaded models object by object. References are compared by
+	 * the URIs of the referenced objects, since the models are loaded into
+	 * different ResourceSets.
+	 */
+	private static void assertSameModel(Resource expected, Resource actual) {
+		Iterator<EObject> i1 = expected.getAllContents();
+		Iterator<EObject> i2 = actual.getAllContents();
+		while (i1.hasNext()) {
+			Assert.assertTrue(i2.hasNext());
+			EObject o1 = i1.next();
+			EObject o2 = i2.next();
+			String message = EcoreUtil.getURI(o1).fragment();
+			Assert.assertEquals(message, o1.eClass(), o2.eClass());
+			for (EStructuralFeature f : o1.eClass().getEAllStructuralFeatures()) {
+				if (f.isTransient() || f.isDerived())
+					continue;
+				if (f instanceof EReference && ((EReference) f).isContainment())
+					continue;
+				Object v1 = o1.eGet(f);
+				Object v2 = o2.eGet(f);
+				if (FeatureMapUtil.isFeatureMap(f))
+					Assert.assertEquals(message, ((List<?>) v1).size(), ((List<?>) v2).size());
+				else if (f instanceof EReference)
+					Assert.assertEquals(message + "." + f.getName(), getURIs(v1), getURIs(v2));
+				else
+					Assert.assertEquals(message + "." + f.getName(), v1, v2);
+			}
+		}
+		Assert.assertFalse(i2.hasNext());
+	}
+
+	/*
+	 * Return the sorted URIs of all resources loaded with the given one,
+	 * including the Imports that were loaded into the slightly hacked
+	 * ResourceSet.
+	 */
+	private static List<String> getLoadedResourceURIs(Resource resource) {
+		ResourceSet resourceSet = resource.getResourceSet();
+		Set<String> uris = new HashSet<String>();
+		for (Resource r : resourceSet.getResources())
+			uris.add(r.getURI().toString());
+		for (Resource r : ModelUtil.slightlyHackedResourceSet(resourceSet).getResources())
+			uris.add(r.getURI().toString());
+		List<String> result = new ArrayList<String>(uris);
+		Collections.sort(result);
+		return result;
+	}
+
+	private static List<String> getURIs(Object value) {
+		List<String> uris = new ArrayList<String>();
+		if (value instanceof List) {
+			for (Object o : (List<?>) value)
+				uris.add(EcoreUtil.getURI((EObject) o).toString());
+		}
+		else if (value instanceof EObject)
+			uris.add(EcoreUtil.getURI((EObject) value).toString());
+		return uris;
+	}
+
+	@Test
+	public void testStaxParser() throws IOException {
+		URI uri = getModelURI("bpmnfiles/OrderProcess.bpmn2");
+		Resource sax = loadModel(uri, createLoadOptions(false));
+		Resource stax = loadModel(uri, createLoadOptions(true));
+		Assert.assertTrue(sax.getErrors().isEmpty());
+		Assert.assertTrue(stax.getErrors().isEmpty());
+		assertSameModel(sax, stax);
+		Assert.assertEquals(((XMLResource) sax).getEncoding(), ((XMLResource) stax).getEncoding());
+		Assert.assertEquals(((XMLResource) sax).getXMLVersion(), ((XMLResource) stax).getXMLVersion());
+
+		// the deferred ID references are resolved through the ID table
+		SequenceFlow flow = (SequenceFlow) stax.getEObject("SequenceFlow_3");
+		Assert.assertEquals("ExclusiveGateway_1", flow.getSourceRef().getId());
+		Assert.assertEquals("Task_2", flow.getTargetRef().getId());
+	}
+
+	@Test
+	public void testBinaryCache() throws IOException {
+		URI uri = getModelURI("bpmnfiles/OrderProcess.bpmn2");
+		BinaryModelCache cache = BinaryModelCache.getInstance();
+		Assert.assertNotNull(cache);
+		cache.clear();
+
+		// the first load reads the XML file and creates the cache entry,
+		// the second one reads the cache entry
+		Resource xml = loadModel(uri, createLoadOptions(false, true));
+		Assert.assertTrue(xml.getErrors().isEmpty());
+		Assert.assertTrue(cache.contains(uri));
+		Resource cached = loadModel(uri, createLoadOptions(false, true));
+		Assert.assertTrue(cached.getErrors().isEmpty());
+		assertSameModel(xml, cached);
+
+		// the Imports are loaded and resolved the same way
+		Assert.assertEquals(getLoadedResourceURIs(xml), getLoadedResourceURIs(cached));
+		Assert.assertTrue(getLoadedResourceURIs(cached).toString().contains("orders.xsd"));
+		ItemDefinition itemDefinition = (ItemDefinition) cached.getEObject("ItemDefinition_1");
+		Assert.assertEquals(
+				getURIs(((ItemDefinition) xml.getEObject("ItemDefinition_1")).getStructureRef()),
+				getURIs(itemDefinition.getStructureRef()));
+		Assert.assertEquals(
+				ModelUtil.getDefinitions(xml).getRootElements().size(),
+				ModelUtil.getDefinitions(cached).getRootElements().size());
+		cache.clear();
+	}
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.tests;
+
+import junit.framework.Assert;
+
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.ElementStatistics;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationEngine;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationException;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.Node;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.NodeKind;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModelBuilder;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationResults;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.Samplers;
+import org.junit.Test;
+
+/**
+ * Basic tests for the SimulationEngine
+ */
+public class TestSimulationEngine {
+
+	/*
+	 * A single server queue with exponential arrival and processing times
+	 * (M/M/1), for which utilization and cycle time are known.
+	 */
+	private SimulationModel createQueueModel() {
+		SimulationModelBuilder builder = new SimulationModelBuilder();
+		Node start = builder.addNode("start", "Start", NodeKind.START);
+		builder.setInterArrivalTime(start, Samplers.negativeExponential(10));
+		builder.setTriggerCount(start, 10000);
+		Node task = builder.addNode("task", "Task", NodeKind.ACTIVITY);
+		builder.setProcessingTime(task, Samplers.negativeExponential(5));
+		builder.setResourceQuantity(task, 1);
+		builder.setFixedCost(task, Samplers.constant(1));
+		builder.setUnitCost(task, Samplers.constant(2));
+		Node end = builder.addNode("end", "End", NodeKind.END);
+		builder.addFlow("flow1", start, task);
+		builder.addFlow("flow2", task, end);
+		builder.setReplications(4);
+		builder.setSeed(42);
+		return builder.build();
+	}
+
+	@Test
+	public void testQueue() throws SimulationException {
+		SimulationResults results = new SimulationEngine(createQueueModel()).run();
+		Assert.assertEquals(4, results.getReplications().size());
+		Assert.assertEquals(40000, results.getStartedInstances());
+		Assert.assertEquals(40000, results.getCompletedInstances());
+
+		// utilization = 5 / 10, cycle time = 5 / (1 - 0.5)
+		ElementStatistics task = results.getElementStatistics("task");
+		Assert.assertEquals(0.5, task.getUtilization().getMean(), 0.02);
+		Assert.assertEquals(10, results.getCycleTime().getMean(), 0.5);
+		Assert.assertEquals(5, task.getWaitTime().getMean(), 0.5);
+		// cost = 1 + 2 * 5
+		Assert.assertEquals(11, task.getCost().getMean(), 0.3);
+	}
+
+	@Test
+	public void testReproducible() throws SimulationException {
+		SimulationEngine engine = new SimulationEngine(createQueueModel());
+		engine.setThreadCount(4);
+		SimulationResults parallel = engine.run();
+		engine.setThreadCount(1);
+		SimulationResults sequential = engine.run();
+		Assert.assertEquals(parallel.getCycleTime().getMean(), sequential.getCycleTime().getMean());
+		Assert.assertEquals(parallel.getTotalCost().getSum(), sequential.getTotalCost().getSum());
+	}
+
+	@Test
+	public void testGateways() throws SimulationException {
+		SimulationModelBuilder builder = new SimulationModelBuilder();
+		Node start = builder.addNode("start", null, NodeKind.START);
+		builder.setTriggerCount(start, 1000);
+		builder.setInterArrivalTime(start, Samplers.constant(100));
+		Node fork = builder.addNode("fork", null, NodeKind.PARALLEL_GATEWAY);
+		Node task1 = builder.addNode("task1", null, NodeKind.ACTIVITY);
+		builder.setProcessingTime(task1, Samplers.constant(2));
+		Node task2 = builder.addNode("task2", null, NodeKind.ACTIVITY);
+		builder.setProcessingTime(task2, Samplers.constant(3));
+		Node join = builder.addNode("join", null, NodeKind.PARALLEL_GATEWAY);
+		Node choice = builder.addNode("choice", null, NodeKind.EXCLUSIVE_GATEWAY);
+		Node end1 = builder.addNode("end1", null, NodeKind.END);
+		Node task3 = builder.addNode("task3", null, NodeKind.ACTIVITY);
+		Node end2 = builder.addNode("end2", null, NodeKind.END);
+		builder.addFlow("flow1", start, fork);
+		builder.addFlow("flow2", fork, task1);
+		builder.addFlow("flow3", fork, task2);
+		builder.addFlow("flow4", task1, join);
+		builder.addFlow("flow5", task2, join);
+		builder.addFlow("flow6", join, choice);
+		builder.setProbability(builder.addFlow("flow7", choice, end1), 0.75);
+		builder.setProbability(builder.addFlow("flow8", choice, task3), 0.25);
+		builder.addFlow("flow9", task3, end2);
+
+		SimulationResults results = new SimulationEngine(builder.build()).run();
+		Assert.assertEquals(1000, results.getCompletedInstances());
+		// the join waits for the slower of the two tasks
+		Assert.assertEquals(3, results.getCycleTime().getMin(), 1e-9);
+		Assert.assertEquals(3, results.getCycleTime().getMax(), 1e-9);
+		Assert.assertEquals(250, results.getElementStatistics("task3").getCycleTime().getCount(), 50);
+	}
+
+	@Test
+	public void testBuiltModelIsFinal() {
+		SimulationModelBuilder builder = new SimulationModelBuilder();
+		Node start = builder.addNode("start", null, NodeKind.START);
+		SimulationModel model = builder.build();
+		Assert.assertEquals(SimulationModel.DEFAULT_SEED, model.getSeed());
+		try {
+			builder.setTriggerCount(start, 10);
+			Assert.fail("A model was changed after it was built");
+		} catch (IllegalStateException e) {
+			Assert.assertEquals(0, model.getNodes().get(0).getTriggerCount());
+		}
+		// nor can another builder change it
+		try {
+			new SimulationModelBuilder().setTriggerCount(start, 10);
+			Assert.fail("A node of another model was changed");
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals(0, start.getTriggerCount());
+		}
+	}
+
+	@Test
+	public void testNoStart() {
+		SimulationModelBuilder builder = new SimulationModelBuilder();
+		builder.addNode("end", null, NodeKind.END);
+		try {
+			new SimulationEngine(builder.build()).run();
+			Assert.fail("A model without start event was simulated");
+		} catch (SimulationException e) {
+			Assert.assertTrue(e.getMessage().contains("start event"));
+		}
+	}
+}
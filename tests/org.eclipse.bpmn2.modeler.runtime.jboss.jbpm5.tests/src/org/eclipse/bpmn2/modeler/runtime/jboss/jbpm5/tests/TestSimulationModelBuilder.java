@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2012, 2013, 2014 Red Hat, Inc.
+ *  All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.tests;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.eclipse.bpmn2.Bpmn2Factory;
+import org.eclipse.bpmn2.FlowNode;
+import org.eclipse.bpmn2.Process;
+import org.eclipse.bpmn2.SequenceFlow;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.BpsimFactory;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ControlParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.CostParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ElementParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.FloatingParameterType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.Parameter;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ParameterValue;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ResourceParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.Scenario;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.ScenarioParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.TimeParameters;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.TimeUnit;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.model.bpsim.UniformDistributionType;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.Sampler;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SamplerFactory;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.Samplers;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationException;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.Flow;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.Node;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModel.NodeKind;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationModelBuilder;
+import org.eclipse.bpmn2.modeler.runtime.jboss.jbpm5.simulation.SimulationRandom;
+import org.junit.Test;
+
+/**
+ * Tests for building SimulationModels from BPMN2 processes and BPSim
+ * scenarios, and for the compilation of BPSim parameters into Samplers
+ */
+public class TestSimulationModelBuilder {
+
+	private static FloatingParameterType createValue(double value, TimeUnit timeUnit) {
+		FloatingParameterType v = BpsimFactory.eINSTANCE.createFloatingParameterType();
+		v.setValue(value);
+		if (timeUnit!=null)
+			v.setTimeUnit(timeUnit);
+		return v;
+	}
+
+	private static Parameter createParameter(ParameterValue value) {
+		Parameter p = BpsimFactory.eINSTANCE.createParameter();
+		p.getParameterValue().add(value);
+		return p;
+	}
+
+	private static UniformDistributionType createUniform(double min, double max, TimeUnit timeUnit) {
+		UniformDistributionType d = BpsimFactory.eINSTANCE.createUniformDistributionType();
+		d.setMin(min);
+		d.setMax(max);
+		if (timeUnit!=null)
+			d.setTimeUnit(timeUnit);
+		return d;
+	}
+
+	private static ElementParameters addElementParameters(Scenario scenario, String elementRef) {
+		ElementParameters ep = BpsimFactory.eINSTANCE.createElementParameters();
+		ep.setElementRef(elementRef);
+		scenario.getElementParameters().add(ep);
+		return ep;
+	}
+
+	private static <T extends FlowNode> T addNode(Process process, T node, String id) {
+		node.setId(id);
+		process.getFlowElements().add(node);
+		return node;
+	}
+
+	private static void addFlow(Process process, String id, FlowNode source, FlowNode target) {
+		SequenceFlow sf = Bpmn2Factory.eINSTANCE.createSequenceFlow();
+		sf.setId(id);
+		sf.setSourceRef(source);
+		sf.setTargetRef(target);
+		process.getFlowElements().add(sf);
+	}
+
+	/*
+	 * start -> task -> choice -> end1 (30%)
+	 *                         -> end2 (70%)
+	 */
+	private static Process createProcess() {
+		Bpmn2Factory f = Bpmn2Factory.eINSTANCE;
+		Process process = f.createProcess();
+		FlowNode start = addNode(process, f.createStartEvent(), "start");
+		FlowNode task = addNode(process, f.createTask(), "task");
+		FlowNode choice = addNode(process, f.createExclusiveGateway(), "choice");
+		FlowNode end1 = addNode(process, f.createEndEvent(), "end1");
+		FlowNode end2 = addNode(process, f.createEndEvent(), "end2");
+		addFlow(process, "flow1", start, task);
+		addFlow(process, "flow2", task, choice);
+		addFlow(process, "flow3", choice, end1);
+		addFlow(process, "flow4", choice, end2);
+		return process;
+	}
+
+	private static Scenario createScenario() {
+		Scenario scenario = BpsimFactory.eINSTANCE.createScenario();
+		ScenarioParameters sp = BpsimFactory.eINSTANCE.createScenarioParameters();
+		sp.setBaseTimeUnit(TimeUnit.MIN);
+		sp.setReplication(3);
+		scenario.setScenarioParameters(sp);
+
+		ControlParameters start = BpsimFactory.eINSTANCE.createControlParameters();
+		start.setInterTriggerTimer(createParameter(createValue(2, TimeUnit.HOUR)));
+		start.setTriggerCount(createParameter(createValue(50, null)));
+		addElementParameters(scenario, "start").setControlParameters(start);
+
+		ElementParameters task = addElementParameters(scenario, "task");
+		TimeParameters tp = BpsimFactory.eINSTANCE.createTimeParameters();
+		tp.setProcessingTime(createParameter(createUniform(1, 2, TimeUnit.HOUR)));
+		tp.setWaitTime(createParameter(createValue(30, TimeUnit.S)));
+		task.setTimeParameters(tp);
+		ResourceParameters rp = BpsimFactory.eINSTANCE.createResourceParameters();
+		rp.setQuantity(createParameter(createValue(2, null)));
+		task.setResourceParameters(rp);
+		CostParameters cp = BpsimFactory.eINSTANCE.createCostParameters();
+		cp.setFixedCost(createParameter(createValue(5, null)));
+		task.setCostParameters(cp);
+
+		ControlParameters flow3 = BpsimFactory.eINSTANCE.createControlParameters();
+		flow3.setProbability(createParameter(createValue(30, null)));
+		addElementParameters(scenario, "flow3").setControlParameters(flow3);
+		ControlParameters flow4 = BpsimFactory.eINSTANCE.createControlParameters();
+		flow4.setProbability(createParameter(createValue(70, null)));
+		addElementParameters(scenario, "flow4").setControlParameters(flow4);
+		return scenario;
+	}
+
+	private static double getConstant(Sampler sampler) {
+		Assert.assertTrue(sampler instanceof Samplers.Constant);
+		return ((Samplers.Constant) sampler).getValue();
+	}
+
+	@Test
+	public void testBuild() throws SimulationException {
+		SimulationModel model = SimulationModelBuilder.build(createProcess(), createScenario());
+		Assert.assertEquals(3, model.getReplications());
+		Assert.assertEquals(SimulationModel.DEFAULT_SEED, model.getSeed());
+		Assert.assertEquals(5, model.getNodes().size());
+		Assert.assertEquals(4, model.getFlows().size());
+
+		Map<String, Node> nodes = new HashMap<String, Node>();
+		for (Node node : model.getNodes())
+			nodes.put(node.getId(), node);
+		Assert.assertEquals(NodeKind.START, nodes.get("start").getKind());
+		Assert.assertEquals(NodeKind.ACTIVITY, nodes.get("task").getKind());
+		Assert.assertEquals(NodeKind.EXCLUSIVE_GATEWAY, nodes.get("choice").getKind());
+		Assert.assertEquals(NodeKind.END, nodes.get("end1").getKind());
+
+		// all times are in the base time unit, minutes
+		Node start = nodes.get("start");
+		Assert.assertEquals(120, getConstant(start.getInterArrivalTime()), 1e-9);
+		Assert.assertEquals(50, start.getTriggerCount());
+
+		Node task = nodes.get("task");
+		Assert.assertEquals(0.5, getConstant(task.getDelay()), 1e-9);
+		Assert.assertEquals(2, task.getResourceQuantity());
+		Assert.assertEquals(5, getConstant(task.getFixedCost()), 1e-9);
+		Assert.assertNull(task.getUnitCost());
+		SimulationRandom random = new SimulationRandom(1);
+		for (int i = 0; i < 1000; ++i) {
+			double t = task.getProcessingTime().sample(random);
+			Assert.assertTrue(t >= 60 && t <= 120);
+		}
+
+		Node choice = nodes.get("choice");
+		Assert.assertEquals(2, choice.getOutgoing().size());
+		for (Flow flow : choice.getOutgoing()) {
+			if ("flow3".equals(flow.getId()))
+				Assert.assertEquals(0.3, flow.getProbability(), 1e-9);
+			else
+				Assert.assertEquals(0.7, flow.getProbability(), 1e-9);
+		}
+		Assert.assertEquals(1, nodes.get("end2").getIncomingCount());
+	}
+
+	@Test
+	public void testSeed() throws SimulationException {
+		Scenario scenario = createScenario();
+		scenario.getScenarioParameters().setSeed(7);
+		Assert.assertEquals(7, SimulationModelBuilder.build(createProcess(), scenario).getSeed());
+	}
+
+	@Test
+	public void testInvalidParameter() {
+		Scenario scenario = createScenario();
+		ControlParameters cp = BpsimFactory.eINSTANCE.createControlParameters();
+		cp.setProbability(createParameter(createUniform(0, 100, null)));
+		addElementParameters(scenario, "flow1").setControlParameters(cp);
+		try {
+			SimulationModelBuilder.build(createProcess(), scenario);
+			Assert.fail("A probability distribution was accepted");
+		} catch (SimulationException e) {
+			Assert.assertTrue(e.getMessage().contains("probability"));
+		}
+	}
+
+	@Test
+	public void testTimeUnitConversion() throws SimulationException {
+		Assert.assertEquals(60, SamplerFactory.getTimeUnitFactor(TimeUnit.MIN, TimeUnit.S), 1e-9);
+		Assert.assertEquals(0.001, SamplerFactory.getTimeUnitFactor(TimeUnit.MS, TimeUnit.S), 1e-12);
+		Assert.assertEquals(1.0 / 24, SamplerFactory.getTimeUnitFactor(TimeUnit.HOUR, TimeUnit.DAY), 1e-12);
+		Assert.assertEquals(365, SamplerFactory.getTimeUnitFactor(TimeUnit.YEAR, TimeUnit.DAY), 1e-9);
+		Assert.assertEquals(1, SamplerFactory.getTimeUnitFactor(null, TimeUnit.S), 0);
+		Assert.assertEquals(1, SamplerFactory.getTimeUnitFactor(TimeUnit.S, null), 0);
+
+		// constants are converted to the base time unit
+		Assert.assertEquals(36, getConstant(SamplerFactory.createSampler(createValue(1.5, TimeUnit.DAY), TimeUnit.HOUR)), 1e-9);
+		// values without a time unit are already in the base time unit
+		Assert.assertEquals(1.5, getConstant(SamplerFactory.createSampler(createValue(1.5, null), TimeUnit.HOUR)), 1e-9);
+		// and so are all values if there is no base time unit
+		Assert.assertEquals(1.5, getConstant(SamplerFactory.createSampler(createValue(1.5, TimeUnit.DAY), null)), 1e-9);
+
+		// distributions are scaled
+		Sampler sampler = SamplerFactory.createSampler(createUniform(1, 2, TimeUnit.S), TimeUnit.MS);
+		SimulationRandom random = new SimulationRandom(1);
+		for (int i = 0; i < 1000; ++i) {
+			double t = sampler.sample(random);
+			Assert.assertTrue(t >= 1000 && t <= 2000);
+		}
+	}
+}
@@ -141,4 +141,17 @@ public class TestWIDHandler {
 			Assert.assertTrue(e != null);
 		}
 	}
+
+	@Test
+	public void testMalformed() {
+		System.out.println("testMalformed: unterminated parameters");
+		HashMap<String, WorkItemDefinition> widMap = new HashMap<String, WorkItemDefinition>();
+		try {
+			WIDHandler.evaluateWorkDefinitions(widMap,
+					"[\n  [\n    \"name\" : \"Broken\",\n    \"parameters\" : [\n      \"Message\" : \n  ]\n]");
+			Assert.fail("Malformed content was accepted");
+		} catch (WIDException e) {
+			Assert.assertTrue(e.getMessage().contains("line 6"));
+		}
+	}
 }